@@ -0,0 +1,42 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring;
+
+import java.util.Date;
+
+/**
+ * An exception notification standing for all the occurrences of the same
+ * exception (component, id and severity) raised within one aggregation window.
+ * The data is a sample taken from the first occurrence.
+ */
+public interface AggregatedExceptionNotificationMXBean extends ExceptionNotificationMXBean {
+
+    /**
+     * Number of occurrences in the aggregation window.
+     */
+    long getCount();
+
+    /**
+     * Time of the first occurrence in the aggregation window.
+     */
+    Date getFirstOccurrence();
+
+    /**
+     * Time of the last occurrence in the aggregation window.
+     */
+    Date getLastOccurrence();
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring;
+
+import java.util.Date;
+
+public class AggregatedExceptionNotificationMXBeanImpl extends ExceptionNotificationMXBeanImpl implements AggregatedExceptionNotificationMXBean {
+
+    private static final long serialVersionUID = 3152370316349470651L;
+
+    private long count;
+    private Date firstOccurrence;
+    private Date lastOccurrence;
+
+    @Override
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    @Override
+    public Date getFirstOccurrence() {
+        return firstOccurrence;
+    }
+
+    public void setFirstOccurrence(Date firstOccurrence) {
+        this.firstOccurrence = firstOccurrence;
+    }
+
+    @Override
+    public Date getLastOccurrence() {
+        return lastOccurrence;
+    }
+
+    public void setLastOccurrence(Date lastOccurrence) {
+        this.lastOccurrence = lastOccurrence;
+    }
+
+    @Override
+    public String toString() {
+        return "AggregatedExceptionNotification [compName=" + getComponentName() + ", id=" + getId()
+                + ", severity=" + getSeverity() + ", count=" + count + ", firstOccurrence=" + firstOccurrence
+                + ", lastOccurrence=" + lastOccurrence + "]";
+    }
+}
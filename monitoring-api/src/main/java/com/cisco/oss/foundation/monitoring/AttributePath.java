@@ -0,0 +1,301 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A management attribute path such as <code>Settings/Commands[2]/Timeout</code>
+ * compiled into a chain of <code>MethodHandle</code>s. Paths are parsed once per
+ * (class, path) pair and cached, up to {@link #MAX_CACHED_PATHS} paths per class
+ * since the paths come from remote callers; every segment keeps the handles it
+ * resolved for the last runtime class it saw so repeated writes skip the method
+ * lookup.
+ * <p>
+ * The semantics follow the original reflective walk of {@link ServerInfo}:
+ * intermediate segments call <code>getXxx()</code>, an indexed segment
+ * <code>Xxx[key]</code> reads the declared <code>getXxx()</code> and indexes
+ * into the returned Map, List or array, and the last segment calls every
+ * public <code>setXxx</code> method with the value.
+ */
+final class AttributePath {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * Paths cached per class; further paths are compiled on every use.
+     */
+    static final int MAX_CACHED_PATHS = 256;
+
+    private static final ClassValue<ConcurrentMap<String, AttributePath>> COMPILED_PATHS = new ClassValue<ConcurrentMap<String, AttributePath>>() {
+        @Override
+        protected ConcurrentMap<String, AttributePath> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<String, AttributePath>();
+        }
+    };
+
+    private final String path;
+    private final Segment[] segments;
+
+    private AttributePath(String path, Segment[] segments) {
+        this.path = path;
+        this.segments = segments;
+    }
+
+    /**
+     * Returns the compiled form of <code>path</code> for objects of type
+     * <code>rootType</code>, parsing it on first use only.
+     */
+    static AttributePath of(Class<?> rootType, String path) {
+        ConcurrentMap<String, AttributePath> paths = COMPILED_PATHS.get(rootType);
+        AttributePath attributePath = paths.get(path);
+        if (attributePath == null) {
+            attributePath = compile(path);
+            if (paths.size() >= MAX_CACHED_PATHS) {
+                return attributePath;
+            }
+            AttributePath existing = paths.putIfAbsent(path, attributePath);
+            if (existing != null) {
+                attributePath = existing;
+            }
+        }
+        return attributePath;
+    }
+
+    static AttributePath compile(String path) {
+        String[] properties = path.split("/", 0);
+        Segment[] segments = new Segment[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            segments[i] = new Segment(properties[i]);
+        }
+        return new AttributePath(path, segments);
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    /**
+     * Walks the path from <code>root</code> and writes <code>value</code> into
+     * the last segment.
+     *
+     * @throws IllegalStateException if an intermediate value is null
+     */
+    void setValue(Object root, Object value) throws Exception {
+        Object obj = root;
+        for (int i = 0; i < (segments.length - 1); i++) {
+            obj = segments[i].get(obj);
+            if (obj == null) {
+                throw new IllegalStateException("Cannot set " + path + ", " + segments[i].text + " is null");
+            }
+        }
+        segments[segments.length - 1].set(obj, value);
+    }
+
+    /**
+     * Walks the path from <code>root</code> and reads the current value of the
+     * last segment.
+     *
+     * @return the current value, or null if an intermediate value is null or the
+     * last segment has no getter.
+     */
+    Object getValue(Object root) throws Exception {
+        Object parent = resolveParent(root);
+        if (parent == null) {
+            return null;
+        }
+        return segments[segments.length - 1].getIfReadable(parent);
+    }
+
+    /**
+     * @return false if an intermediate value is null or the last segment has
+     * no getter, so {@link #getValue(Object)} cannot tell the current value.
+     */
+    boolean isReadable(Object root) throws Exception {
+        Object parent = resolveParent(root);
+        return parent != null && segments[segments.length - 1].bind(parent.getClass()).hasGetter();
+    }
+
+    private Object resolveParent(Object root) throws Exception {
+        Object obj = root;
+        for (int i = 0; i < (segments.length - 1); i++) {
+            if (obj == null) {
+                return null;
+            }
+            obj = segments[i].get(obj);
+        }
+        return obj;
+    }
+
+    private static Object invokeGetter(MethodHandle getter, Object target) throws Exception {
+        try {
+            return (Object) getter.invokeExact(target);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    private static void invokeSetter(MethodHandle setter, Object target, Object value) throws Exception {
+        try {
+            setter.invokeExact(target, value);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    private static MethodHandle unreflect(Method method, MethodType type) throws IllegalAccessException {
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            // public method declared on a class that is not visible from here
+            method.setAccessible(true);
+            handle = MethodHandles.lookup().unreflect(method);
+        }
+        return handle.asType(type);
+    }
+
+    /**
+     * One "/" separated element of the path, optionally indexed.
+     */
+    private static final class Segment {
+        private final String text;
+        private final String name;
+        private final String key;
+        private volatile Binding binding;
+
+        private Segment(String attributeName) {
+            this.text = attributeName;
+            int substrstart = attributeName.indexOf('[');
+            int substrend = attributeName.indexOf(']');
+            if (substrstart == -1) {
+                this.name = attributeName;
+                this.key = null;
+            } else {
+                this.name = attributeName.substring(0, substrstart);
+                this.key = attributeName.substring(substrstart + 1, substrend);
+            }
+        }
+
+        private Binding bind(Class<?> type) throws NoSuchMethodException, IllegalAccessException {
+            Binding current = binding;
+            if (current == null || current.type != type) {
+                current = new Binding(type, this);
+                binding = current;
+            }
+            return current;
+        }
+
+        Object get(Object obj) throws Exception {
+            Binding current = bind(obj.getClass());
+            Object result = invokeGetter(current.getter(), obj);
+            if (key == null) {
+                return result;
+            }
+            if (result instanceof Map) {
+                return ((Map<?, ?>) result).get(key);
+            } else if (result instanceof List) {
+                return ((List<?>) result).get(Integer.parseInt(key));
+            } else if (result != null && result.getClass().isArray()) {
+                return Array.get(result, Integer.parseInt(key));
+            }
+            return null;
+        }
+
+        Object getIfReadable(Object obj) throws Exception {
+            Binding current = bind(obj.getClass());
+            return current.hasGetter() ? get(obj) : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        void set(Object obj, Object value) throws Exception {
+            Binding current = bind(obj.getClass());
+            if (key == null) {
+                for (MethodHandle setter : current.setters) {
+                    invokeSetter(setter, obj, value);
+                }
+                return;
+            }
+            Object container = invokeGetter(current.getter(), obj);
+            if (container instanceof List) {
+                ((List<Object>) container).set(Integer.parseInt(key), value);
+            } else if (container != null && container.getClass().isArray()) {
+                Array.set(container, Integer.parseInt(key), value);
+            }
+        }
+    }
+
+    /**
+     * The handles a segment resolved against one concrete class.
+     */
+    private static final class Binding {
+        private final Class<?> type;
+        private final MethodHandle getter;
+        private final MethodHandle[] setters;
+        private final String missingGetter;
+
+        private Binding(Class<?> type, Segment segment) throws NoSuchMethodException, IllegalAccessException {
+            this.type = type;
+            String getterName = "get" + segment.name;
+            Method getterMethod = null;
+            try {
+                getterMethod = segment.key == null ? type.getMethod(getterName) : type.getDeclaredMethod(getterName);
+            } catch (NoSuchMethodException e) {
+                // only fatal once the getter is actually needed
+            }
+            this.getter = getterMethod == null ? null : unreflect(getterMethod, GETTER_TYPE);
+            this.missingGetter = getterMethod == null ? type.getName() + "." + getterName : null;
+
+            List<MethodHandle> setterHandles = new ArrayList<MethodHandle>();
+            if (segment.key == null) {
+                String setterName = "set" + segment.name;
+                for (Method method : type.getMethods()) {
+                    if (setterName.equals(method.getName()) && method.getParameterTypes().length == 1) {
+                        setterHandles.add(unreflect(method, SETTER_TYPE));
+                    }
+                }
+            }
+            this.setters = setterHandles.toArray(new MethodHandle[setterHandles.size()]);
+        }
+
+        boolean hasGetter() {
+            return getter != null;
+        }
+
+        MethodHandle getter() throws NoSuchMethodException {
+            if (getter == null) {
+                throw new NoSuchMethodException(missingGetter);
+            }
+            return getter;
+        }
+    }
+}
@@ -18,11 +18,9 @@ package com.cisco.oss.foundation.monitoring;
 
 import com.cisco.oss.foundation.monitoring.serverconnection.ConnectionInfo;
 import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionDetails;
-import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionImp;
-import com.cisco.oss.foundation.monitoring.services.Service;
 import com.cisco.oss.foundation.monitoring.services.ServiceDetails;
-import com.cisco.oss.foundation.monitoring.services.ServiceImp;
 import com.cisco.oss.foundation.monitoring.services.ServiceInfo;
+import com.cisco.oss.foundation.monitoring.services.TransactionOutcome;
 import org.apache.commons.configuration.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +32,8 @@ public enum CommunicationInfo {
 
     INSTANCE;
     private Configuration configuration;
+    // created with the first configuration, as the actors it feeds run on the thread pool of this enum
+    private volatile TransactionMonitor monitor;
     public final ExecutorService actorsThreadPool = Executors.newCachedThreadPool();
     static final Logger LOGGER = LoggerFactory.getLogger(CommunicationInfo.class.getName());
     private static final ThreadLocal<Long> lastTransactionStartTimeThreadLocal = new ThreadLocal<Long>();
@@ -46,6 +46,12 @@ public enum CommunicationInfo {
 
     public void setConfiguration(Configuration configuration){
         this.configuration = configuration;
+        synchronized (this) {
+            if (monitor == null) {
+                monitor = new TransactionMonitor(ServiceInfo.INSTANCE.serviceActor, ConnectionInfo.INSTANCE.serverConnectorActor);
+            }
+            monitor.setConfiguration(configuration);
+        }
     }
 
     public static CommunicationInfo getCommunicationInfo() {
@@ -101,22 +107,21 @@ public enum CommunicationInfo {
 //
 //    }
 
+    /**
+     * @deprecated the transactions in progress of each service are counted by
+     * the library and reported instead of <code>usedThreads</code>, which is
+     * ignored; use {@link #transactionStarted(ServiceDetails, String)}
+     */
+    @Deprecated
     public void transactionStarted(ServiceDetails serviceDetails, String apiName, int usedThreads) {
-
-        if (configuration.getBoolean(FoundationMonitoringConstants.MONITOR_ENABLED)) {
-            try {
-                Service service = new ServiceImp(serviceDetails.getInterfaceName(), serviceDetails.getPort(), serviceDetails.getProtocol(), serviceDetails.getServiceDescription(), apiName);
-                ServiceInfo.INSTANCE.serviceActor.tell().startTransaction(service, usedThreads);
-//                StartServiceTransaction startServiceTransaction = new StartServiceTransaction(service, usedThreads);
-//                serviceActor.tell(startServiceTransaction, null);
-            } catch (Exception e) {
-                LOGGER.error("Problem in adding service details" + e);
-            }
-        }
+        transactionStarted(serviceDetails, apiName);
     }
 
     public void transactionStarted(ServiceDetails serviceDetails, String apiName) {
-        transactionStarted(serviceDetails, apiName, -1);
+        TransactionMonitor current = monitor;
+        if (current != null) {
+            current.serviceStarted(serviceDetails, apiName);
+        }
     }
 
 //    private Service findService(ServiceDetails serviceDetails) {
@@ -132,28 +137,23 @@ public enum CommunicationInfo {
 
 
     public void transactionFinished(ServiceDetails serviceDetails, String apiName, boolean isFailed, String description) {
-        if (configuration.getBoolean(FoundationMonitoringConstants.MONITOR_ENABLED)) {
-            try {
-
-                Service service = new ServiceImp(serviceDetails.getInterfaceName(), serviceDetails.getPort(), serviceDetails.getProtocol(), serviceDetails.getServiceDescription(), apiName);
-                ServiceInfo.INSTANCE.serviceActor.tell().endTransaction(service, isFailed, description);
+        transactionFinished(serviceDetails, apiName, isFailed, TransactionOutcome.UNSPECIFIED, description);
+    }
 
-            } catch (Exception e) {
-                LOGGER.error("Problem in adding service details" + e.getMessage());
-            }
+    /**
+     * @param outcome one of the codes of {@link TransactionOutcome}, the HTTP status class for example
+     */
+    public void transactionFinished(ServiceDetails serviceDetails, String apiName, boolean isFailed, int outcome, String description) {
+        TransactionMonitor current = monitor;
+        if (current != null) {
+            current.serviceFinished(serviceDetails, apiName, isFailed, outcome, description);
         }
     }
 
     public void transactionStarted(ServerConnectionDetails connetionDetails, String apiName) {
-        if (configuration.getBoolean(FoundationMonitoringConstants.MONITOR_ENABLED)) {
-            try {
-
-                ServerConnectionImp serverConnection = new ServerConnectionImp(connetionDetails.getDestinationPort(), connetionDetails.getHostName(), connetionDetails.getInterfaceName(), connetionDetails.getServerName(), apiName);
-                ConnectionInfo.INSTANCE.serverConnectorActor.tell().startTransaction(serverConnection);
-
-            } catch (Exception e) {
-                LOGGER.error("Problem in adding server connections details" + e.getMessage());
-            }
+        TransactionMonitor current = monitor;
+        if (current != null) {
+            current.connectionStarted(connetionDetails, apiName);
         }
     }
 
@@ -170,13 +170,9 @@ public enum CommunicationInfo {
 //    }
 
     public void transactionFinished(ServerConnectionDetails connetionDetails, String apiName, boolean isFailed, String description) {
-        if (configuration.getBoolean(FoundationMonitoringConstants.MONITOR_ENABLED)) {
-            try {
-                ServerConnectionImp serverConnection = new ServerConnectionImp(connetionDetails.getDestinationPort(), connetionDetails.getHostName(), connetionDetails.getInterfaceName(), connetionDetails.getServerName(), apiName);
-                ConnectionInfo.INSTANCE.serverConnectorActor.tell().endTransaction(serverConnection, isFailed, description);
-            } catch (Exception e) {
-                LOGGER.error("Problem in adding server connections details" + e.getMessage());
-            }
+        TransactionMonitor current = monitor;
+        if (current != null) {
+            current.connectionFinished(connetionDetails, apiName, isFailed, description);
         }
     }
 
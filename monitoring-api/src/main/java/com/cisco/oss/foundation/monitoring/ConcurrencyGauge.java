@@ -0,0 +1,143 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The number of transactions in progress on a service or server connection,
+ * counted on the calling threads: incremented when a transaction starts and
+ * decremented when it ends, on {@link StripedCounter}s.
+ * <p>
+ * Next to the count, the gauge sums the start times of the transactions
+ * negated and the end times of the ended ones; adding the in-flight count
+ * times the current time gives the integral of the count over time, from
+ * which the time-weighted average follows without any sampling. The peak and
+ * the average are reported for the last complete window. The peak is sampled
+ * by the first start of each millisecond only, so that starts do not read
+ * every stripe: a burst that comes and goes within a millisecond may be
+ * missed. Every end must match a start.
+ */
+public class ConcurrencyGauge {
+
+    public static final long DEFAULT_WINDOW = 60000;
+
+    private final long window;
+    private final long origin;
+    private final StripedCounter inFlight = new StripedCounter();
+    // end times of the ended transactions minus start times of all, relative to the origin
+    private final StripedCounter busyTime = new StripedCounter();
+    private final AtomicLong peak = new AtomicLong();
+    // the millisecond of the latest start that sampled the peak
+    private volatile long peakSampleTime = Long.MIN_VALUE;
+    private volatile long currentWindow;
+    private volatile boolean complete;
+    private volatile long previousPeak;
+    private volatile double previousAverage;
+    // guarded by this
+    private long windowStart;
+    private long windowStartIntegral;
+
+    /**
+     * @param window length of a window in milliseconds
+     */
+    public ConcurrencyGauge(long window) {
+        this(window, System.currentTimeMillis());
+    }
+
+    ConcurrencyGauge(long window, long now) {
+        this.window = window;
+        this.origin = now;
+        this.windowStart = now;
+        this.currentWindow = now / window;
+    }
+
+    public void started(long time) {
+        inFlight.increment();
+        busyTime.add(origin - time);
+        roll(time);
+        if (time != peakSampleTime) {
+            peakSampleTime = time;
+            long current = inFlight.sum();
+            long max;
+            while (current > (max = peak.get()) && !peak.compareAndSet(max, current)) {
+            }
+        }
+    }
+
+    public void finished(long time) {
+        inFlight.decrement();
+        busyTime.add(time - origin);
+    }
+
+    /**
+     * Number of transactions in progress.
+     */
+    public long getInFlight() {
+        return Math.max(0, inFlight.sum());
+    }
+
+    /**
+     * Highest number of transactions in progress during the last complete
+     * window, during the current one until a window completes.
+     */
+    public long getPeak(long now) {
+        roll(now);
+        return complete ? previousPeak : peak.get();
+    }
+
+    /**
+     * Time-weighted average number of transactions in progress during the last
+     * complete window, since the gauge was created until a window completes.
+     */
+    public double getAverage(long now) {
+        roll(now);
+        if (complete) {
+            return previousAverage;
+        }
+        synchronized (this) {
+            return average(integral(now), now);
+        }
+    }
+
+    private void roll(long now) {
+        long nowWindow = now / window;
+        if (nowWindow <= currentWindow) {
+            return;
+        }
+        synchronized (this) {
+            if (nowWindow <= currentWindow) {
+                return;
+            }
+            long integral = integral(now);
+            previousAverage = average(integral, now);
+            previousPeak = peak.getAndSet(getInFlight());
+            complete = true;
+            windowStart = now;
+            windowStartIntegral = integral;
+            currentWindow = nowWindow;
+        }
+    }
+
+    private long integral(long now) {
+        return busyTime.sum() + inFlight.sum() * (now - origin);
+    }
+
+    private double average(long integral, long now) {
+        return now > windowStart ? Math.max(0, (double) (integral - windowStartIntegral) / (now - windowStart)) : 0;
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring;
+
+import com.cisco.oss.foundation.monitoring.overhead.MonitoringOverhead;
+import com.cisco.oss.foundation.monitoring.serverconnection.ConnectionInfo;
+import com.cisco.oss.foundation.monitoring.services.ServiceInfo;
+import com.google.common.util.concurrent.SettableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the cumulative request counters of the services and server
+ * connections across restarts.
+ * <p>
+ * At a fixed interval the counters are snapshotted by the actors that own them
+ * and written to one of two memory-mapped slot files, alternately, each with a
+ * generation number and a CRC32 of its content. A write torn by a crash leaves
+ * a slot whose checksum does not match; {@link #restore()} then falls back to
+ * the other slot, so at most one interval of counts is lost. The recording
+ * path is untouched: the snapshot is one message to each actor.
+ * <p>
+ * The counters of the {@link MonitoredComponent}s added to the checkpoint are
+ * kept in the same slots, under keys prefixed with {@link #COMPONENT_PREFIX}
+ * and the name and instance of the component. They are handed back to a
+ * component when it is added, and kept in the slots until then.
+ */
+public class CounterCheckpoint {
+
+    static final String[] SLOT_NAMES = {"counters-a.checkpoint", "counters-b.checkpoint"};
+    static final String COMPONENT_PREFIX = "component|";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CounterCheckpoint.class);
+    private static final int MAGIC = 0x464D4343;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final long SNAPSHOT_TIMEOUT = 5000;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File directory;
+    private final ScheduledExecutorService scheduler;
+    private final List<MonitoredComponent> components = new ArrayList<MonitoredComponent>();
+    // restored counters of components not added yet
+    private final Map<String, long[]> unclaimedServices = new HashMap<>();
+    private final Map<String, long[]> unclaimedConnections = new HashMap<>();
+    private long generation;
+
+    public CounterCheckpoint(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create the counter checkpoint directory " + directory);
+        }
+        this.directory = directory;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "CounterCheckpoint");
+                thread.setDaemon(true);
+                MonitoringOverhead.INSTANCE.registerThread(thread);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Hands the counters of the latest valid checkpoint to the service and
+     * server connection actors.
+     *
+     * @return false if there was no valid checkpoint
+     */
+    public synchronized boolean restore() {
+        Snapshot snapshot = read();
+        if (snapshot == null) {
+            return false;
+        }
+        ServiceInfo.INSTANCE.serviceActor.tell().restoreCounters(split(snapshot.services, unclaimedServices));
+        ConnectionInfo.INSTANCE.serverConnectorActor.tell().restoreCounters(split(snapshot.connections, unclaimedConnections));
+        for (MonitoredComponent component : components) {
+            restore(component);
+        }
+        LOGGER.info("Restored counters of {} services and {} server connections from checkpoint generation {}",
+                snapshot.services.size(), snapshot.connections.size(), snapshot.generation);
+        return true;
+    }
+
+    /**
+     * Checkpoints the counters of the component from now on, and hands it the
+     * counters restored for it.
+     */
+    public synchronized void addComponent(MonitoredComponent component) {
+        components.add(component);
+        restore(component);
+    }
+
+    /**
+     * Stops checkpointing the counters of the component; the ones already in
+     * the slots are dropped at the next checkpoint.
+     */
+    public synchronized void removeComponent(MonitoredComponent component) {
+        components.remove(component);
+    }
+
+    /**
+     * Checkpoints the counters every <code>interval</code> milliseconds.
+     */
+    public void start(long interval) {
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                checkpoint();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic checkpoints and writes a last one.
+     */
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(SNAPSHOT_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkpoint();
+    }
+
+    /**
+     * Snapshots the counters and writes them to the older slot.
+     */
+    public synchronized void checkpoint() {
+        try {
+            SettableFuture<Map<String, long[]>> services = SettableFuture.create();
+            SettableFuture<Map<String, long[]>> connections = SettableFuture.create();
+            ServiceInfo.INSTANCE.serviceActor.tell().snapshotCounters(services);
+            ConnectionInfo.INSTANCE.serverConnectorActor.tell().snapshotCounters(connections);
+            List<SettableFuture<Map<String, long[]>>> componentServices = new ArrayList<SettableFuture<Map<String, long[]>>>();
+            List<SettableFuture<Map<String, long[]>>> componentConnections = new ArrayList<SettableFuture<Map<String, long[]>>>();
+            for (MonitoredComponent component : components) {
+                SettableFuture<Map<String, long[]>> componentService = SettableFuture.create();
+                SettableFuture<Map<String, long[]>> componentConnection = SettableFuture.create();
+                component.getServiceActor().tell().snapshotCounters(componentService);
+                component.getServerConnectionActor().tell().snapshotCounters(componentConnection);
+                componentServices.add(componentService);
+                componentConnections.add(componentConnection);
+            }
+
+            Map<String, long[]> allServices = new HashMap<>(unclaimedServices);
+            Map<String, long[]> allConnections = new HashMap<>(unclaimedConnections);
+            allServices.putAll(services.get(SNAPSHOT_TIMEOUT, TimeUnit.MILLISECONDS));
+            allConnections.putAll(connections.get(SNAPSHOT_TIMEOUT, TimeUnit.MILLISECONDS));
+            for (int i = 0; i < components.size(); i++) {
+                String prefix = prefix(components.get(i));
+                putPrefixed(allServices, prefix, componentServices.get(i).get(SNAPSHOT_TIMEOUT, TimeUnit.MILLISECONDS));
+                putPrefixed(allConnections, prefix, componentConnections.get(i).get(SNAPSHOT_TIMEOUT, TimeUnit.MILLISECONDS));
+            }
+            write(new Snapshot(generation + 1, allServices, allConnections));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | IOException e) {
+            LOGGER.error("Failed to checkpoint the service and server connection counters: {}", e.toString());
+        }
+    }
+
+    private void restore(MonitoredComponent component) {
+        String prefix = prefix(component);
+        Map<String, long[]> services = removePrefixed(unclaimedServices, prefix);
+        Map<String, long[]> connections = removePrefixed(unclaimedConnections, prefix);
+        if (!services.isEmpty()) {
+            component.getServiceActor().tell().restoreCounters(services);
+        }
+        if (!connections.isEmpty()) {
+            component.getServerConnectionActor().tell().restoreCounters(connections);
+        }
+    }
+
+    private static String prefix(MonitoredComponent component) {
+        return COMPONENT_PREFIX + component.getKeyPrefix();
+    }
+
+    /**
+     * Moves the counters of components to <code>unclaimed</code>.
+     *
+     * @return the counters of the agent
+     */
+    private static Map<String, long[]> split(Map<String, long[]> counters, Map<String, long[]> unclaimed) {
+        Map<String, long[]> agent = new HashMap<>();
+        for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+            if (entry.getKey().startsWith(COMPONENT_PREFIX)) {
+                unclaimed.put(entry.getKey(), entry.getValue());
+            } else {
+                agent.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return agent;
+    }
+
+    /**
+     * @return the counters whose key starts with the prefix, without the prefix
+     */
+    private static Map<String, long[]> removePrefixed(Map<String, long[]> counters, String prefix) {
+        Map<String, long[]> removed = new HashMap<>();
+        Iterator<Map.Entry<String, long[]>> iterator = counters.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, long[]> entry = iterator.next();
+            if (entry.getKey().startsWith(prefix)) {
+                removed.put(entry.getKey().substring(prefix.length()), entry.getValue());
+                iterator.remove();
+            }
+        }
+        return removed;
+    }
+
+    private static void putPrefixed(Map<String, long[]> target, String prefix, Map<String, long[]> counters) {
+        for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+            target.put(prefix + entry.getKey(), entry.getValue());
+        }
+    }
+
+    synchronized void write(Snapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeCounters(out, snapshot.services);
+        writeCounters(out, snapshot.connections);
+        out.flush();
+        byte[] payload = bytes.toByteArray();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(snapshot.generation).putInt(payload.length);
+        CRC32 crc = new CRC32();
+        crc.update(header.array(), 0, HEADER_SIZE - 4);
+        crc.update(payload);
+        header.putInt((int) crc.getValue());
+
+        File slot = new File(directory, SLOT_NAMES[(int) (snapshot.generation % SLOT_NAMES.length)]);
+        RandomAccessFile raf = new RandomAccessFile(slot, "rw");
+        try {
+            raf.setLength(HEADER_SIZE + payload.length);
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + payload.length);
+            buffer.position(HEADER_SIZE);
+            buffer.put(payload);
+            buffer.position(0);
+            buffer.put(header.array());
+            buffer.force();
+        } finally {
+            raf.close();
+        }
+        generation = snapshot.generation;
+    }
+
+    /**
+     * @return the valid slot with the highest generation, null if there is none
+     */
+    synchronized Snapshot read() {
+        Snapshot latest = null;
+        for (String name : SLOT_NAMES) {
+            Snapshot snapshot = readSlot(new File(directory, name));
+            if (snapshot != null && (latest == null || snapshot.generation > latest.generation)) {
+                latest = snapshot;
+            }
+        }
+        if (latest != null) {
+            generation = Math.max(generation, latest.generation);
+        }
+        return latest;
+    }
+
+    private static Snapshot readSlot(File slot) {
+        try {
+            RandomAccessFile raf = new RandomAccessFile(slot, "r");
+            try {
+                if (raf.length() < HEADER_SIZE) {
+                    return null;
+                }
+                MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+                int magic = buffer.getInt();
+                int version = buffer.getInt();
+                long generation = buffer.getLong();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (magic != MAGIC || version != VERSION || length < 0 || length > raf.length() - HEADER_SIZE) {
+                    LOGGER.warn("Ignoring counter checkpoint {}: bad header", slot);
+                    return null;
+                }
+                byte[] header = new byte[HEADER_SIZE - 4];
+                buffer.position(0);
+                buffer.get(header);
+                byte[] payload = new byte[length];
+                buffer.position(HEADER_SIZE);
+                buffer.get(payload);
+                CRC32 crc = new CRC32();
+                crc.update(header);
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    LOGGER.warn("Ignoring counter checkpoint {}: checksum mismatch, the last write was torn", slot);
+                    return null;
+                }
+                ByteBuffer in = ByteBuffer.wrap(payload);
+                return new Snapshot(generation, readCounters(in), readCounters(in));
+            } finally {
+                raf.close();
+            }
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException | BufferUnderflowException e) {
+            LOGGER.warn("Ignoring counter checkpoint {}: {}", slot, e.toString());
+            return null;
+        }
+    }
+
+    private static void writeCounters(DataOutputStream out, Map<String, long[]> counters) throws IOException {
+        out.writeInt(counters.size());
+        for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+            byte[] key = entry.getKey().getBytes(UTF_8);
+            out.writeInt(key.length);
+            out.write(key);
+            out.writeLong(entry.getValue()[0]);
+            out.writeLong(entry.getValue()[1]);
+        }
+    }
+
+    private static Map<String, long[]> readCounters(ByteBuffer in) {
+        int size = in.getInt();
+        Map<String, long[]> counters = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            byte[] key = new byte[in.getInt()];
+            in.get(key);
+            counters.put(new String(key, UTF_8), new long[]{in.getLong(), in.getLong()});
+        }
+        return counters;
+    }
+
+    static final class Snapshot {
+        final long generation;
+        final Map<String, long[]> services;
+        final Map<String, long[]> connections;
+
+        Snapshot(long generation, Map<String, long[]> services, Map<String, long[]> connections) {
+            this.generation = generation;
+            this.services = services;
+            this.connections = connections;
+        }
+    }
+}
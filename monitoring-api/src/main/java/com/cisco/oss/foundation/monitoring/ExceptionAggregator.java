@@ -0,0 +1,231 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring;
+
+import com.cisco.oss.foundation.monitoring.notification.NotificationMXBean;
+import com.cisco.oss.foundation.monitoring.overhead.MonitoringOverhead;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Folds repeated exception notifications into one
+ * {@link AggregatedExceptionNotificationMXBean} per (component, id, severity)
+ * and aggregation window.
+ * <p>
+ * Reporting threads never take a lock: each key owns a window of atomic
+ * counters that reporters update in place. At the end of the window the
+ * flusher swaps in a fresh window, waits for the reporters still writing into
+ * the old one and sends a single notification carrying the count, the first and
+ * last occurrence and the data of the first occurrence. Keys that stay quiet
+ * for a whole window are dropped.
+ */
+public class ExceptionAggregator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExceptionAggregator.class);
+    private static final Window CLOSED = new Window();
+
+    private final NotificationMXBean notificationMXBean;
+    private final ConcurrentMap<Key, AtomicReference<Window>> windows = new ConcurrentHashMap<Key, AtomicReference<Window>>();
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * @param notificationMXBean where aggregated notifications are sent
+     * @param window             aggregation window in milliseconds
+     */
+    public ExceptionAggregator(NotificationMXBean notificationMXBean, long window) {
+        this.notificationMXBean = notificationMXBean;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ExceptionAggregator");
+                thread.setDaemon(true);
+                MonitoringOverhead.INSTANCE.registerThread(thread);
+                return thread;
+            }
+        });
+        this.flusher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    flush();
+                } catch (RuntimeException e) {
+                    LOGGER.error("Failed to flush aggregated exception notifications: {}", e.toString());
+                }
+            }
+        }, window, window, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Counts one occurrence of the exception. Never blocks.
+     */
+    public void report(ExceptionNotificationMXBean notification) {
+        Key key = new Key(notification.getComponentName(), notification.getId(), notification.getSeverity());
+        long time = notification.getTimeOfOccurance() != null ? notification.getTimeOfOccurance().getTime() : System.currentTimeMillis();
+
+        AtomicReference<Window> slot = slotFor(key);
+        while (true) {
+            Window window = slot.get();
+            if (window == CLOSED) {
+                windows.remove(key, slot);
+                slot = slotFor(key);
+                continue;
+            }
+            window.writers.incrementAndGet();
+            if (slot.get() != window) {
+                window.writers.decrementAndGet();
+                continue;
+            }
+            window.record(notification, time);
+            window.writers.decrementAndGet();
+            return;
+        }
+    }
+
+    /**
+     * Stops the flusher and sends whatever was aggregated in the current window.
+     */
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    void flush() {
+        for (Map.Entry<Key, AtomicReference<Window>> entry : windows.entrySet()) {
+            AtomicReference<Window> slot = entry.getValue();
+            Window retired = slot.getAndSet(new Window());
+            retired.awaitWriters();
+            if (retired.count.get() > 0) {
+                send(entry.getKey(), retired);
+                continue;
+            }
+
+            Window fresh = slot.getAndSet(CLOSED);
+            fresh.awaitWriters();
+            windows.remove(entry.getKey(), slot);
+            if (fresh.count.get() > 0) {
+                send(entry.getKey(), fresh);
+            }
+        }
+    }
+
+    private AtomicReference<Window> slotFor(Key key) {
+        AtomicReference<Window> slot = windows.get(key);
+        if (slot == null) {
+            slot = new AtomicReference<Window>(new Window());
+            AtomicReference<Window> existing = windows.putIfAbsent(key, slot);
+            if (existing != null) {
+                slot = existing;
+            }
+        }
+        return slot;
+    }
+
+    private void send(Key key, Window window) {
+        AggregatedExceptionNotificationMXBeanImpl aggregated = new AggregatedExceptionNotificationMXBeanImpl();
+        aggregated.setComponentName(key.componentName);
+        aggregated.setId(key.id);
+        aggregated.setSeverity(key.severity);
+        aggregated.setCount(window.count.get());
+        aggregated.setFirstOccurrence(new Date(window.first.get()));
+        aggregated.setLastOccurrence(new Date(window.last.get()));
+        aggregated.setTimeOfOccurance(aggregated.getFirstOccurrence());
+        ExceptionNotificationMXBean sample = window.sample.get();
+        if (sample != null) {
+            aggregated.setData(sample.getData());
+        }
+        notificationMXBean.sendNotification(aggregated);
+    }
+
+    private static final class Window {
+        private final AtomicInteger writers = new AtomicInteger();
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong first = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong last = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicReference<ExceptionNotificationMXBean> sample = new AtomicReference<ExceptionNotificationMXBean>();
+
+        private void record(ExceptionNotificationMXBean notification, long time) {
+            count.incrementAndGet();
+            sample.compareAndSet(null, notification);
+            long current = first.get();
+            while (time < current && !first.compareAndSet(current, time)) {
+                current = first.get();
+            }
+            current = last.get();
+            while (time > current && !last.compareAndSet(current, time)) {
+                current = last.get();
+            }
+        }
+
+        private void awaitWriters() {
+            while (writers.get() != 0) {
+                Thread.yield();
+            }
+        }
+    }
+
+    private static final class Key {
+        private final String componentName;
+        private final String id;
+        private final ExceptionSeverity severity;
+        private final int hash;
+
+        private Key(String componentName, String id, ExceptionSeverity severity) {
+            this.componentName = componentName;
+            this.id = id;
+            this.severity = severity;
+            int result = componentName != null ? componentName.hashCode() : 0;
+            result = 31 * result + (id != null ? id.hashCode() : 0);
+            result = 31 * result + (severity != null ? severity.hashCode() : 0);
+            this.hash = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key that = (Key) o;
+
+            if (componentName != null ? !componentName.equals(that.componentName) : that.componentName != null)
+                return false;
+            if (id != null ? !id.equals(that.id) : that.id != null) return false;
+            return severity == that.severity;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -27,7 +27,41 @@ public class FoundationMonitoringConstants {
     public static final String MONITOR_ENABLED = "service.mxagentRegistry.monitoringEnabled";
     public static final String CALCULATIONS_WINDOW = "service.mxagentRegistry.statisticsCalculationWindow";
     public static final String RMIREGISTRY_MAXHEAPSIZE = "service.mxagentRegistry.rmiregistryMaxHeapSize";
+    public static final String RMIREGISTRY_READY_TIMEOUT = "service.mxagentRegistry.rmiregistryReadyTimeout";
     public static final String IN_PROC_RMI = "service.mxagentRegistry.inProcess";
+    public static final String NOTIFICATION_QUEUE_CAPACITY = "service.mxagentRegistry.notificationQueueCapacity";
+    public static final String NOTIFICATION_COALESCING_WINDOW = "service.mxagentRegistry.notificationCoalescingWindow";
+    public static final String NOTIFICATION_MAX_RATE_PER_LISTENER = "service.mxagentRegistry.notificationMaxRatePerListener";
+    public static final String NOTIFICATION_HISTORY_CAPACITY = "service.mxagentRegistry.notificationHistoryCapacity";
+    public static final String EXCEPTION_AGGREGATION_WINDOW = "service.mxagentRegistry.exceptionAggregationWindow";
+    public static final String NOTIFICATION_JOURNAL_DIRECTORY = "service.mxagentRegistry.notificationJournal.directory";
+    public static final String NOTIFICATION_JOURNAL_SEGMENT_SIZE = "service.mxagentRegistry.notificationJournal.segmentSize";
+    public static final String NOTIFICATION_JOURNAL_MAX_SEGMENTS = "service.mxagentRegistry.notificationJournal.maxSegments";
+    public static final String COUNTER_CHECKPOINT_DIRECTORY = "service.mxagentRegistry.counterCheckpoint.directory";
+    public static final String COUNTER_CHECKPOINT_INTERVAL = "service.mxagentRegistry.counterCheckpoint.interval";
+    public static final String STATISTICS_HISTORY_MAX_SERIES = "service.mxagentRegistry.statisticsHistory.maxSeries";
+    public static final String HEAVY_HITTERS_CAPACITY = "service.mxagentRegistry.heavyHitters.capacity";
+    public static final String HEAVY_HITTERS_WINDOW = "service.mxagentRegistry.heavyHitters.window";
+    public static final String TAGGED_METRICS_MAX_TAG_SETS = "service.mxagentRegistry.taggedMetrics.maxTagSets";
+    public static final String SERVICE_SAMPLING_RATE = "service.mxagentRegistry.samplingRate";
+    public static final String CONCURRENCY_WINDOW = "service.mxagentRegistry.concurrency.window";
+    public static final String FAILURE_DESCRIPTIONS_CAPACITY = "service.mxagentRegistry.failureDescriptions.capacity";
+    public static final String TRANSACTION_RECORDER = "service.mxagentRegistry.transactionRecorder";
+    public static final String TRANSACTION_RECORDER_BUFFER_SIZE = "service.mxagentRegistry.transactionRecorder.bufferSize";
+    public static final String TRANSACTION_RECORDER_MERGE_INTERVAL = "service.mxagentRegistry.transactionRecorder.mergeInterval";
+    public static final String TRANSACTION_RECORDER_RING_SIZE = "service.mxagentRegistry.transactionRecorder.ringSize";
+    public static final String TRANSACTION_RECORDER_WAIT_STRATEGY = "service.mxagentRegistry.transactionRecorder.waitStrategy";
+    public static final String OFF_HEAP_STATISTICS = "service.mxagentRegistry.offHeapStatistics.enabled";
+    public static final String OFF_HEAP_STATISTICS_INITIAL_CAPACITY = "service.mxagentRegistry.offHeapStatistics.initialCapacity";
+    public static final String HOST_AGGREGATOR_DIRECTORY = "service.mxagentRegistry.hostAggregator.directory";
+    public static final String HOST_AGGREGATOR_PUBLISH_INTERVAL = "service.mxagentRegistry.hostAggregator.publishInterval";
+    public static final String SNAPSHOT_SERVER_PORT = "service.mxagentRegistry.snapshotServer.port";
+    public static final String SNAPSHOT_SERVER_HOST = "service.mxagentRegistry.snapshotServer.host";
+    public static final int DEFAULT_NOTIFICATION_QUEUE_CAPACITY = 10000;
+    public static final int DEFAULT_NOTIFICATION_HISTORY_CAPACITY = 1000;
+    public static final long DEFAULT_COUNTER_CHECKPOINT_INTERVAL = 60000;
+    public static final long DEFAULT_HOST_AGGREGATOR_PUBLISH_INTERVAL = 5000;
+    public static final String DEFAULT_SNAPSHOT_SERVER_HOST = "127.0.0.1";
     public static final String AGENT_VERSION = "3.1.0-0";
     public static final String APP_NAME_NAMING_STANDARD = "^[a-zA-Z](([ a-zA-Z0-9_-])*[a-zA-Z0-9_-])*$";
     public static final String APP_INSTANCE_NAMING_STANDARD = "^[a-zA-Z0-9](([ a-zA-Z0-9_-])*[a-zA-Z0-9_-])*$";
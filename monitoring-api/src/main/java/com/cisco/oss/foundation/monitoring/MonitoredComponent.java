@@ -0,0 +1,219 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring;
+
+import com.cisco.oss.foundation.monitoring.overhead.ActorOverheadListener;
+import com.cisco.oss.foundation.monitoring.overhead.MonitoringOverhead;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnection;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionActor;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionActorImpl;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionDetails;
+import com.cisco.oss.foundation.monitoring.services.Service;
+import com.cisco.oss.foundation.monitoring.services.ServiceActor;
+import com.cisco.oss.foundation.monitoring.services.ServiceActorImpl;
+import com.cisco.oss.foundation.monitoring.services.ServiceDetails;
+import com.cisco.oss.foundation.monitoring.services.ServiceInfo;
+import com.cisco.oss.foundation.monitoring.services.ServiceInfoMXBean;
+import com.cisco.oss.foundation.monitoring.services.ServiceOutcome;
+import com.cisco.oss.foundation.monitoring.services.TransactionOutcome;
+import fi.jumi.actors.ActorRef;
+import fi.jumi.actors.ActorThread;
+import fi.jumi.actors.Actors;
+import fi.jumi.actors.MultiThreadedActors;
+import fi.jumi.actors.eventizers.dynamic.DynamicEventizerProvider;
+import fi.jumi.actors.listeners.CrashEarlyFailureHandler;
+import org.apache.commons.configuration.Configuration;
+
+import java.util.List;
+
+/**
+ * One more monitored component in a JVM that already has one, the component
+ * described by {@link com.cisco.oss.foundation.monitoring.component.data.ComponentInfo}
+ * and fed through {@link CommunicationInfo}.
+ * <p>
+ * A component has its own identity, its own service and server connection
+ * actors, and so its own statistics, and is exposed under its own ObjectNames
+ * once registered with the agent. Its actors run on the thread pool of
+ * {@link CommunicationInfo}, its MBeans are served by the connector of the
+ * agent, and its statistics history series are kept in the shared history,
+ * prefixed with its name and instance. Once registered, its counters are
+ * checkpointed and its snapshot published and served along with those of the
+ * agent. Transactions reach its actors through the configured transaction
+ * recorder, as those of {@link CommunicationInfo} do.
+ */
+public class MonitoredComponent implements IComponentInfoMXBean {
+
+    private final String name;
+    private final String instance;
+    private final String version;
+    private String fullName;
+    private RedundancyMode redundancyMode = RedundancyMode.StandAlone;
+    private final String keyPrefix;
+    private final ServiceActorImpl serviceActorImpl;
+    private final ServerConnectionActorImpl serverConnectionActorImpl;
+    private final ActorThread serviceActorThread;
+    private final ActorThread serverConnectionActorThread;
+    private final ActorRef<ServiceActor> serviceActor;
+    private final ActorRef<ServerConnectionActor> serverConnectionActor;
+    private final TransactionMonitor monitor;
+
+    public MonitoredComponent(String name, String instance, String version, Configuration configuration) {
+        this.name = name;
+        this.instance = instance;
+        this.version = version;
+        this.fullName = name;
+        this.keyPrefix = name + "|" + instance + "|";
+
+        this.serviceActorImpl = new ServiceActorImpl(keyPrefix);
+        this.serverConnectionActorImpl = new ServerConnectionActorImpl(keyPrefix);
+        this.serviceActorThread = createActors(MonitoringOverhead.INSTANCE.getServiceActorListener()).startActorThread();
+        this.serverConnectionActorThread = createActors(MonitoringOverhead.INSTANCE.getServerConnectionActorListener()).startActorThread();
+        this.serviceActor = serviceActorThread.bindActor(ServiceActor.class, serviceActorImpl);
+        this.serverConnectionActor = serverConnectionActorThread.bindActor(ServerConnectionActor.class, serverConnectionActorImpl);
+        this.monitor = new TransactionMonitor(serviceActor, serverConnectionActor);
+        this.monitor.setConfiguration(configuration);
+    }
+
+    private static Actors createActors(ActorOverheadListener listener) {
+        return new MultiThreadedActors(
+                CommunicationInfo.INSTANCE.actorsThreadPool,
+                new DynamicEventizerProvider(),
+                new CrashEarlyFailureHandler(),
+                listener
+        );
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getFullName() {
+        return fullName;
+    }
+
+    public void setFullName(String fullName) {
+        this.fullName = fullName;
+    }
+
+    @Override
+    public String getInstance() {
+        return instance;
+    }
+
+    @Override
+    public String getVersion() {
+        return version;
+    }
+
+    @Override
+    public RedundancyMode getRedundancyMode() {
+        return redundancyMode;
+    }
+
+    public void setRedundancyMode(RedundancyMode redundancyMode) {
+        this.redundancyMode = redundancyMode;
+    }
+
+    /**
+     * The services of this component, as exposed by its ServiceInfo MBean.
+     */
+    public ServiceInfoMXBean getServiceInfo() {
+        return new ServiceInfoMXBean() {
+            @Override
+            public List<Service> getServices() {
+                return serviceActorImpl.getServices();
+            }
+
+            @Override
+            public List<ServiceOutcome> getServiceOutcomes() {
+                return ServiceInfo.getServiceOutcomes(serviceActor);
+            }
+        };
+    }
+
+    /**
+     * The server connections of this component, as exposed by its ConnectionInfo MBean.
+     */
+    public ConnectionInfoMXBean getConnectionInfo() {
+        return new ConnectionInfoMXBean() {
+            @Override
+            public List<ServerConnection> getServerConnections() {
+                return serverConnectionActorImpl.getServerConnections();
+            }
+        };
+    }
+
+    /**
+     * @deprecated the transactions in progress of each service are counted by
+     * the library and reported instead of <code>usedThreads</code>, which is
+     * ignored; use {@link #transactionStarted(ServiceDetails, String)}
+     */
+    @Deprecated
+    public void transactionStarted(ServiceDetails serviceDetails, String apiName, int usedThreads) {
+        transactionStarted(serviceDetails, apiName);
+    }
+
+    public void transactionStarted(ServiceDetails serviceDetails, String apiName) {
+        monitor.serviceStarted(serviceDetails, apiName);
+    }
+
+    public void transactionFinished(ServiceDetails serviceDetails, String apiName, boolean isFailed, String description) {
+        transactionFinished(serviceDetails, apiName, isFailed, TransactionOutcome.UNSPECIFIED, description);
+    }
+
+    /**
+     * @param outcome one of the codes of {@link TransactionOutcome}, the HTTP status class for example
+     */
+    public void transactionFinished(ServiceDetails serviceDetails, String apiName, boolean isFailed, int outcome, String description) {
+        monitor.serviceFinished(serviceDetails, apiName, isFailed, outcome, description);
+    }
+
+    public void transactionStarted(ServerConnectionDetails connetionDetails, String apiName) {
+        monitor.connectionStarted(connetionDetails, apiName);
+    }
+
+    public void transactionFinished(ServerConnectionDetails connetionDetails, String apiName, boolean isFailed, String description) {
+        monitor.connectionFinished(connetionDetails, apiName, isFailed, description);
+    }
+
+    /**
+     * Prefixes the statistics history series and the counter checkpoint keys
+     * of this component.
+     */
+    String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    ActorRef<ServiceActor> getServiceActor() {
+        return serviceActor;
+    }
+
+    ActorRef<ServerConnectionActor> getServerConnectionActor() {
+        return serverConnectionActor;
+    }
+
+    /**
+     * Stops the actors of the component; transactions recorded afterwards are lost.
+     */
+    public void shutdown() {
+        monitor.shutdown();
+        serviceActorThread.stop();
+        serverConnectionActorThread.stop();
+    }
+}
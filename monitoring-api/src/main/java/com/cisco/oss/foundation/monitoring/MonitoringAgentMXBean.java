@@ -17,6 +17,7 @@
 package com.cisco.oss.foundation.monitoring;
 
 import java.util.Date;
+import java.util.Map;
 
 /**
  * It is the MXBean interface which will be implemented internally by the
@@ -68,6 +69,27 @@ public interface MonitoringAgentMXBean {
      */
     String getHostName();
 
+    /**
+     * Gets the number of agent notifications handed to the listeners.
+     *
+     * @return Number of delivered notifications.
+     */
+    long getDeliveredNotificationCount();
+
+    /**
+     * Gets the number of agent notifications dropped because the delivery queue was full.
+     *
+     * @return Number of dropped notifications.
+     */
+    long getDroppedNotificationCount();
+
+    /**
+     * Gets the number of agent notifications merged into a newer one while waiting for delivery.
+     *
+     * @return Number of coalesced notifications.
+     */
+    long getCoalescedNotificationCount();
+
     /**
      * Allows the management information attributes to be written remotely.
      *
@@ -94,4 +116,15 @@ public interface MonitoringAgentMXBean {
      * @throws Exception
      */
     void setAttributeValue(String path, long value) throws Exception;
+
+    /**
+     * Allows several management information attributes to be written remotely
+     * in one call. All the values are applied under one lock, if one of them
+     * fails the ones already written are restored and the failure is thrown.
+     * A single attribute change notification is sent for the whole batch.
+     *
+     * @param values Map of attribute path to the value to be set with
+     * @throws Exception
+     */
+    void setAttributeValues(Map<String, String> values) throws Exception;
 }
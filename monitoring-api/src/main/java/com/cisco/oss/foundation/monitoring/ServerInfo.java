@@ -17,6 +17,7 @@
 package com.cisco.oss.foundation.monitoring;
 
 import com.cisco.oss.foundation.ip.utils.IpUtils;
+import com.cisco.oss.foundation.monitoring.notification.NotificationDispatcher;
 import com.cisco.oss.foundation.monitoring.notification.NotificationSender;
 import org.apache.commons.configuration.Configuration;
 import org.slf4j.Logger;
@@ -26,13 +27,13 @@ import javax.management.AttributeChangeNotification;
 import javax.management.MBeanNotificationInfo;
 import javax.management.Notification;
 import javax.management.NotificationBroadcasterSupport;
-import java.lang.reflect.Array;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * This class has agent related information.It implements the NotificationSender &
@@ -43,14 +44,23 @@ import java.util.Map;
 class ServerInfo extends NotificationBroadcasterSupport implements NotificationSender, MonitoringAgentMXBean {
     private Configuration configuration;
     private Date agentStartTime;
-    private long attrNotificationSeq = 0;
+    private final Object attributeLock = new Object();
+    private final NotificationDispatcher notificationDispatcher;
     MonitoringMXBean mXBean;
     private static final Logger LOGGER = LoggerFactory.getLogger(ServerInfo.class);
+    static final String ATTRIBUTE_VALUES = "AttributeValues";
 
     ServerInfo(MonitoringMXBean monitoringmxBean, Configuration configuration) {
         agentStartTime = new Date();
         this.mXBean = monitoringmxBean;
         this.configuration = configuration;
+        this.notificationDispatcher = new NotificationDispatcher("ServerInfo", new NotificationDispatcher.Target() {
+            @Override
+            public void deliver(Notification notification) {
+                ServerInfo.super.sendNotification(notification);
+            }
+        }, configuration.getInt(FoundationMonitoringConstants.NOTIFICATION_QUEUE_CAPACITY, FoundationMonitoringConstants.DEFAULT_NOTIFICATION_QUEUE_CAPACITY),
+                configuration.getLong(FoundationMonitoringConstants.NOTIFICATION_COALESCING_WINDOW, 0));
     }
 
     /**
@@ -117,13 +127,40 @@ class ServerInfo extends NotificationBroadcasterSupport implements NotificationS
     @Override
     public void sendAttributeChangeNotification(String msg, String attributeName, String attributeType,
                                                 Object oldValue, Object newValue) {
-        LOGGER.debug("Sending Notification " + (attrNotificationSeq + 1) + ":" + msg + ":"
-                + attributeName + ":" + attributeType + ":" + oldValue.toString() + ":" + newValue.toString());
-
-        Notification n = new AttributeChangeNotification(this, attrNotificationSeq++, System.currentTimeMillis(), msg,
+        Notification n = new AttributeChangeNotification(this, 0, System.currentTimeMillis(), msg,
                 attributeName, attributeType, oldValue, newValue);
-        sendNotification(n);
-        LOGGER.debug("Notification Sent " + attrNotificationSeq);
+        if (notificationDispatcher.dispatch(n, attributeName)) {
+            LOGGER.debug("Queued Notification {}:{}:{}:{}:{}", msg, attributeName, attributeType, oldValue, newValue);
+        }
+    }
+
+    /**
+     * Queues the notification for asynchronous delivery to the registered
+     * listeners. The sequence number of the notification is replaced by the
+     * agent's own monotonic sequence.
+     */
+    @Override
+    public void sendNotification(Notification notification) {
+        notificationDispatcher.dispatch(notification, null);
+    }
+
+    void shutdown() {
+        notificationDispatcher.shutdown();
+    }
+
+    @Override
+    public long getDeliveredNotificationCount() {
+        return notificationDispatcher.getDeliveredCount();
+    }
+
+    @Override
+    public long getDroppedNotificationCount() {
+        return notificationDispatcher.getDroppedCount();
+    }
+
+    @Override
+    public long getCoalescedNotificationCount() {
+        return notificationDispatcher.getCoalescedCount();
     }
 
     @Override
@@ -138,98 +175,89 @@ class ServerInfo extends NotificationBroadcasterSupport implements NotificationS
 
     @Override
     public void setAttributeValue(String path, String value) throws Exception {
-        setAttributeValue(path, this.mXBean, value);
+        synchronized (attributeLock) {
+            setAttributeValue(path, this.mXBean, value);
+        }
     }
 
     @Override
     public void setAttributeValue(String path, int value) throws Exception {
-        setAttributeValue(path, this.mXBean, value);
+        synchronized (attributeLock) {
+            setAttributeValue(path, this.mXBean, value);
+        }
     }
 
     @Override
     public void setAttributeValue(String path, long value) throws Exception {
-        setAttributeValue(path, this.mXBean, value);
+        synchronized (attributeLock) {
+            setAttributeValue(path, this.mXBean, value);
+        }
     }
 
-    private static void setAttributeValue(String path, MonitoringMXBean mxBean, Object value) throws SecurityException,
-            Exception {
-        Object obj = mxBean;
-        String[] properties = path.split("/", 0);
-        for (int i = 0; i < (properties.length - 1); i++) {
-            if (obj == null)
-                return;
-            obj = getChild(obj, properties[i], value, false);
+    @Override
+    public void setAttributeValues(Map<String, String> values) throws Exception {
+        if (values == null || values.isEmpty()) {
+            return;
         }
-        getChild(obj, properties[properties.length - 1], value, true);
-    }
 
-    private static void callSetMethod(Object result, Object value, String strFunc) throws SecurityException,
-            NoSuchMethodException, IllegalArgumentException, IllegalAccessException, InvocationTargetException {
-        Method[] theMethods = result.getClass().getMethods();
+        Map<String, Object> previousValues = new LinkedHashMap<String, Object>();
+        Set<String> readable = new HashSet<String>();
+        synchronized (attributeLock) {
+            // resolve every path before the first write so a bad path does not leave a partial update
+            List<AttributePath> paths = new ArrayList<AttributePath>(values.size());
+            for (String path : values.keySet()) {
+                AttributePath attributePath = AttributePath.of(this.mXBean.getClass(), path);
+                previousValues.put(path, attributePath.getValue(this.mXBean));
+                if (attributePath.isReadable(this.mXBean)) {
+                    readable.add(path);
+                }
+                paths.add(attributePath);
+            }
 
-        for (int i = 0; i < theMethods.length; i++) {
-            String methodString = theMethods[i].getName();
+            int written = 0;
+            try {
+                for (AttributePath attributePath : paths) {
+                    // the failing path is restored too, it may have run some of its setters before it threw
+                    written++;
+                    attributePath.setValue(this.mXBean, values.get(attributePath.getPath()));
+                }
+            } catch (Exception e) {
+                rollback(paths.subList(0, written), previousValues, readable);
+                throw e;
+            }
 
-            if (strFunc.equals(methodString)) {
-                theMethods[i].invoke(result, value);
+            // the old values go to remote listeners, which may not have their classes
+            Map<String, String> oldValues = new LinkedHashMap<String, String>();
+            for (Map.Entry<String, Object> previousValue : previousValues.entrySet()) {
+                Object oldValue = previousValue.getValue();
+                oldValues.put(previousValue.getKey(), oldValue == null ? null : String.valueOf(oldValue));
             }
+            // queued under the lock so the notifications of concurrent batches keep the order of the writes
+            sendAttributeChangeNotification("Attribute values changed", ATTRIBUTE_VALUES, Map.class.getName(), oldValues,
+                    new LinkedHashMap<String, String>(values));
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private static Object getChild(Object obj, String attributeName, Object value, boolean isSet)
-            throws SecurityException, NoSuchMethodException, IllegalArgumentException, IllegalAccessException,
-            InvocationTargetException {
-        int substrstart = attributeName.indexOf('[');
-        int substrend = attributeName.indexOf(']');
-
-        if (substrstart == -1) {
-            if (isSet) {
-                String strFunc = "set" + attributeName;
-                callSetMethod(obj, value, strFunc);
-                return null;
-            } else {
-                String getStr = "get";
-                StringBuilder strBuild = new StringBuilder(attributeName);
-                strBuild.insert(0, getStr);
-
-                String getFuncStr = strBuild.toString();
-
-                Method m = obj.getClass().getMethod(getFuncStr);
-                Object result = m.invoke(obj);
-
-                return result;
+    /**
+     * Restores the written paths, the last one first.
+     */
+    private void rollback(List<AttributePath> written, Map<String, Object> oldValues, Set<String> readable) {
+        for (int i = written.size() - 1; i >= 0; i--) {
+            AttributePath attributePath = written.get(i);
+            if (!readable.contains(attributePath.getPath())) {
+                LOGGER.error("Cannot restore attribute {}, its value before the update is unknown", attributePath.getPath());
+                continue;
             }
-        } else {
-            String firststr = attributeName.substring(0, substrstart);
-            String secondstr = attributeName.substring(substrstart + 1, substrend);
-            Object parentObj = obj;
-            Object requests = parentObj.getClass().getDeclaredMethod("get" + firststr, new Class[]{}).invoke(
-                    parentObj, new Object[]{});
-
-            if (requests instanceof Map) {
-                Object result = ((HashMap) requests).get(secondstr);
-                return result;
-            } else if (requests instanceof List) {
-                if (isSet) {
-                    ((List) requests).set(Integer.parseInt(secondstr), value);
-                    return null;
-                } else {
-                    Object request = ((List) requests).get(Integer.parseInt(secondstr));
-                    return request;
-                }
-            } else if (requests.getClass().isArray()) {
-                if (isSet) {
-                    Object[] arr = (Object[]) requests;
-                    Array.set(arr, Integer.parseInt(secondstr), value);
-                    return null;
-                } else {
-                    Object[] arr = (Object[]) requests;
-                    return Array.get(arr, Integer.parseInt(secondstr));
-                }
-            } else {
-                return null;
+            Object oldValue = oldValues.get(attributePath.getPath());
+            try {
+                attributePath.setValue(this.mXBean, oldValue);
+            } catch (Exception e) {
+                LOGGER.error("Failed to restore attribute {} to {}", attributePath.getPath(), oldValue, e);
             }
         }
     }
+
+    private static void setAttributeValue(String path, MonitoringMXBean mxBean, Object value) throws Exception {
+        AttributePath.of(mxBean.getClass(), path).setValue(mxBean, value);
+    }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter updated from many threads without contention: each thread adds to
+ * its own stripe, on its own cache line, and reads sum the stripes. Threads
+ * are given stripes round robin on first use, so with no more threads than
+ * stripes no two threads share one.
+ */
+public class StripedCounter {
+
+    // longs per 64 byte cache line
+    private static final int PADDING = 8;
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+    private static final AtomicInteger NEXT_STRIPE = new AtomicInteger();
+    private static final ThreadLocal<Integer> STRIPE = new ThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return (NEXT_STRIPE.getAndIncrement() & (STRIPES - 1)) * PADDING;
+        }
+    };
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    public void increment() {
+        add(1);
+    }
+
+    public void decrement() {
+        add(-1);
+    }
+
+    public void add(long delta) {
+        cells.getAndAdd(STRIPE.get(), delta);
+    }
+
+    /**
+     * The total of all updates. Not a snapshot: updates made while summing may
+     * or may not be included.
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < cells.length(); i += PADDING) {
+            sum += cells.get(i);
+        }
+        return sum;
+    }
+
+    /**
+     * @return a power of two, at least twice the processors, at most 64
+     */
+    static int stripes(int processors) {
+        int stripes = Integer.highestOneBit(Math.max(1, processors * 2 - 1)) << 1;
+        return Math.min(64, stripes);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring;
+
+import com.cisco.oss.foundation.monitoring.recording.ActorTransactionRecorder;
+import com.cisco.oss.foundation.monitoring.recording.RingBufferTransactionRecorder;
+import com.cisco.oss.foundation.monitoring.recording.ThreadLocalTransactionRecorder;
+import com.cisco.oss.foundation.monitoring.recording.TransactionRecorder;
+import com.cisco.oss.foundation.monitoring.recording.WaitStrategy;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionActor;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionDetails;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionTracker;
+import com.cisco.oss.foundation.monitoring.services.Service;
+import com.cisco.oss.foundation.monitoring.services.ServiceActor;
+import com.cisco.oss.foundation.monitoring.services.ServiceDetails;
+import com.cisco.oss.foundation.monitoring.services.TransactionOutcome;
+import com.cisco.oss.foundation.monitoring.services.TransactionSampler;
+import com.cisco.oss.foundation.monitoring.statistics.OffHeapStatisticsTable;
+import fi.jumi.actors.ActorRef;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the transactions of one component, the one of
+ * {@link CommunicationInfo} or a {@link MonitoredComponent}: samples the
+ * services, counts the transactions in progress and hands the starts and ends
+ * to the service and server connection actors of the component through the
+ * configured {@link TransactionRecorder}.
+ */
+class TransactionMonitor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionMonitor.class);
+
+    private final ActorRef<ServiceActor> serviceActor;
+    private final ActorRef<ServerConnectionActor> serverConnectionActor;
+    private final TransactionSampler serviceSampler = new TransactionSampler();
+    private final ServerConnectionTracker connectionTracker = new ServerConnectionTracker();
+    private volatile Configuration configuration;
+    private volatile TransactionRecorder recorder;
+
+    TransactionMonitor(ActorRef<ServiceActor> serviceActor, ActorRef<ServerConnectionActor> serverConnectionActor) {
+        this.serviceActor = serviceActor;
+        this.serverConnectionActor = serverConnectionActor;
+        this.recorder = new ActorTransactionRecorder(serviceActor, serverConnectionActor);
+    }
+
+    /**
+     * Applies the configuration; the transactions recorded by the previous
+     * recorder are handed to the actors before it is replaced.
+     */
+    void setConfiguration(Configuration configuration) {
+        this.configuration = configuration;
+        this.serviceSampler.setConfiguration(configuration);
+        this.connectionTracker.setConfiguration(configuration);
+        TransactionRecorder previous = this.recorder;
+        this.recorder = createRecorder(configuration);
+        previous.shutdown();
+        serviceActor.tell().setFailureDescriptionCapacity(configuration.getInt(
+                FoundationMonitoringConstants.FAILURE_DESCRIPTIONS_CAPACITY, TransactionOutcome.DEFAULT_FAILURE_DESCRIPTIONS));
+        if (configuration.getBoolean(FoundationMonitoringConstants.OFF_HEAP_STATISTICS, false)) {
+            int initialCapacity = configuration.getInt(FoundationMonitoringConstants.OFF_HEAP_STATISTICS_INITIAL_CAPACITY,
+                    OffHeapStatisticsTable.DEFAULT_INITIAL_CAPACITY);
+            serviceActor.tell().useOffHeapTable(initialCapacity);
+            serverConnectionActor.tell().useOffHeapTable(initialCapacity);
+        }
+    }
+
+    void serviceStarted(ServiceDetails serviceDetails, String apiName) {
+        if (isEnabled()) {
+            try {
+                Service service = serviceSampler.started(serviceDetails, apiName);
+                if (service != null) {
+                    // the used threads are reported from the concurrency gauge of the service instead
+                    recorder.serviceStarted(service, -1);
+                }
+            } catch (Exception e) {
+                LOGGER.error("Problem in adding service details" + e);
+            }
+        }
+    }
+
+    void serviceFinished(ServiceDetails serviceDetails, String apiName, boolean isFailed, int outcome, String description) {
+        if (isEnabled()) {
+            try {
+                Service service = serviceSampler.finished(serviceDetails, apiName, isFailed, outcome);
+                if (service != null) {
+                    recorder.serviceFinished(service, isFailed, description);
+                }
+            } catch (Exception e) {
+                LOGGER.error("Problem in adding service details" + e.getMessage());
+            }
+        }
+    }
+
+    void connectionStarted(ServerConnectionDetails connetionDetails, String apiName) {
+        if (isEnabled()) {
+            try {
+                recorder.connectionStarted(connectionTracker.started(connetionDetails, apiName));
+            } catch (Exception e) {
+                LOGGER.error("Problem in adding server connections details" + e.getMessage());
+            }
+        }
+    }
+
+    void connectionFinished(ServerConnectionDetails connetionDetails, String apiName, boolean isFailed, String description) {
+        if (isEnabled()) {
+            try {
+                recorder.connectionFinished(connectionTracker.finished(connetionDetails, apiName), isFailed, description);
+            } catch (Exception e) {
+                LOGGER.error("Problem in adding server connections details" + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Hands what the recorder still holds to the actors and stops it.
+     */
+    void shutdown() {
+        recorder.shutdown();
+    }
+
+    private boolean isEnabled() {
+        Configuration current = configuration;
+        return current != null && current.getBoolean(FoundationMonitoringConstants.MONITOR_ENABLED);
+    }
+
+    private TransactionRecorder createRecorder(Configuration configuration) {
+        String type = configuration.getString(FoundationMonitoringConstants.TRANSACTION_RECORDER, TransactionRecorder.ACTOR);
+        if (TransactionRecorder.THREAD_LOCAL.equals(type)) {
+            return new ThreadLocalTransactionRecorder(serviceActor, serverConnectionActor,
+                    configuration.getInt(FoundationMonitoringConstants.TRANSACTION_RECORDER_BUFFER_SIZE, ThreadLocalTransactionRecorder.DEFAULT_BUFFER_SIZE),
+                    configuration.getLong(FoundationMonitoringConstants.TRANSACTION_RECORDER_MERGE_INTERVAL, ThreadLocalTransactionRecorder.DEFAULT_MERGE_INTERVAL));
+        }
+        if (TransactionRecorder.RING_BUFFER.equals(type)) {
+            return new RingBufferTransactionRecorder(serviceActor, serverConnectionActor,
+                    configuration.getInt(FoundationMonitoringConstants.TRANSACTION_RECORDER_RING_SIZE, RingBufferTransactionRecorder.DEFAULT_RING_SIZE),
+                    waitStrategy(configuration.getString(FoundationMonitoringConstants.TRANSACTION_RECORDER_WAIT_STRATEGY,
+                            RingBufferTransactionRecorder.DEFAULT_WAIT_STRATEGY.name())));
+        }
+        if (!TransactionRecorder.ACTOR.equals(type)) {
+            LOGGER.warn("Unknown transaction recorder {}, using {}", type, TransactionRecorder.ACTOR);
+        }
+        return new ActorTransactionRecorder(serviceActor, serverConnectionActor);
+    }
+
+    private static WaitStrategy waitStrategy(String name) {
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            if (waitStrategy.name().replace("_", "").equalsIgnoreCase(name)) {
+                return waitStrategy;
+            }
+        }
+        LOGGER.warn("Unknown wait strategy {}, using {}", name, RingBufferTransactionRecorder.DEFAULT_WAIT_STRATEGY);
+        return RingBufferTransactionRecorder.DEFAULT_WAIT_STRATEGY;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.cisco.oss.foundation.monitoring.notification;
+
+import javax.management.Notification;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Notification sent by {@link NotificationMXBean}. Subscriptions running in
+ * the agent, including the copies the connector keeps for remote clients,
+ * read the per listener rate of the bean that sent it and count the
+ * notifications their rate discards there. Remote clients receive a plain
+ * {@link Notification}.
+ */
+class MonitoringNotification extends Notification {
+
+    private static final long serialVersionUID = -5160618326349385420L;
+
+    private final transient double maxRatePerListener;
+    private final transient AtomicLong rateLimitedCount;
+
+    MonitoringNotification(String type, Object source, long timeStamp, double maxRatePerListener, AtomicLong rateLimitedCount) {
+        super(type, source, 0, timeStamp);
+        this.maxRatePerListener = maxRatePerListener;
+        this.rateLimitedCount = rateLimitedCount;
+    }
+
+    /**
+     * @return the rate of subscriptions that have none of their own, 0 for no limit
+     */
+    double getMaxRatePerListener() {
+        return maxRatePerListener;
+    }
+
+    void rateLimited() {
+        rateLimitedCount.incrementAndGet();
+    }
+
+    private Object writeReplace() {
+        Notification notification = new Notification(getType(), getSource(), getSequenceNumber(), getTimeStamp(), getMessage());
+        notification.setUserData(getUserData());
+        return notification;
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.notification;
+
+import com.cisco.oss.foundation.monitoring.overhead.MonitoringOverhead;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.AttributeChangeNotification;
+import javax.management.Notification;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Delivers JMX notifications on a dedicated daemon thread so slow listeners
+ * never stall the thread that raised the notification.
+ * <p>
+ * Notifications are put in a bounded ring; when the ring is full the
+ * notification is dropped and counted. The dispatcher thread stamps each
+ * notification with the next sequence number as it delivers it, so listeners
+ * see the sequence numbers in order and without gaps. When a coalescing window
+ * is configured, a notification whose coalescing key matches one that is still
+ * waiting in the ring and was queued less than the window ago replaces it in
+ * place, keeping its position. An attribute change replacing another keeps the
+ * value the attribute had before the first of them.
+ */
+public class NotificationDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationDispatcher.class);
+    private static final int MAX_BATCH = 256;
+
+    /**
+     * The synchronous delivery the dispatcher hands queued notifications to.
+     */
+    public interface Target {
+        void deliver(Notification notification);
+    }
+
+    private final Target target;
+    private final BlockingQueue<PendingNotification> ring;
+    private final long coalescingWindow;
+    private final ConcurrentMap<Object, PendingNotification> pendingByKey = new ConcurrentHashMap<Object, PendingNotification>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final Thread dispatcherThread;
+    private volatile boolean running = true;
+
+    /**
+     * @param name             used to name the dispatcher thread
+     * @param target           where queued notifications are delivered
+     * @param capacity         maximum number of notifications waiting for delivery
+     * @param coalescingWindow window in milliseconds in which repeated notifications
+     *                         are coalesced, 0 disables coalescing
+     */
+    public NotificationDispatcher(String name, Target target, int capacity, long coalescingWindow) {
+        this.target = target;
+        this.ring = new ArrayBlockingQueue<PendingNotification>(capacity);
+        this.coalescingWindow = coalescingWindow;
+        this.dispatcherThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                dispatchLoop();
+            }
+        }, "NotificationDispatcher-" + name);
+        this.dispatcherThread.setDaemon(true);
+        MonitoringOverhead.INSTANCE.registerThread(this.dispatcherThread);
+        this.dispatcherThread.start();
+    }
+
+    /**
+     * Queues a notification for asynchronous delivery. Never blocks.
+     *
+     * @param notification  the notification to deliver
+     * @param coalescingKey notifications with equal keys may be coalesced, null
+     *                      means the notification is never coalesced
+     * @return false if the queue was full and the notification dropped
+     */
+    public boolean dispatch(Notification notification, Object coalescingKey) {
+        boolean coalesce = coalescingWindow > 0 && coalescingKey != null;
+        long now = System.currentTimeMillis();
+
+        if (coalesce) {
+            PendingNotification pending = pendingByKey.get(coalescingKey);
+            if (pending != null && now - pending.queuedAt < coalescingWindow && pending.replace(notification)) {
+                coalescedCount.incrementAndGet();
+                return true;
+            }
+        }
+
+        PendingNotification pending = new PendingNotification(notification, coalesce ? coalescingKey : null, now, System.nanoTime());
+        if (coalesce) {
+            pendingByKey.put(coalescingKey, pending);
+        }
+        if (!ring.offer(pending)) {
+            if (coalesce) {
+                pendingByKey.remove(coalescingKey, pending);
+            }
+            long dropped = droppedCount.incrementAndGet();
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Notification queue is full, dropped notification {}. total dropped: {}", notification, dropped);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stops the dispatcher thread once it delivered the notifications already
+     * queued, waiting up to a second for it.
+     */
+    public void shutdown() {
+        running = false;
+        dispatcherThread.interrupt();
+        try {
+            dispatcherThread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public int getPendingCount() {
+        return ring.size();
+    }
+
+    /**
+     * @return the sequence number given to the most recently delivered notification
+     */
+    public long getLastSequence() {
+        return sequence.get();
+    }
+
+    private void dispatchLoop() {
+        List<PendingNotification> batch = new ArrayList<PendingNotification>(MAX_BATCH);
+        while (running) {
+            try {
+                PendingNotification first = ring.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                ring.drainTo(batch, MAX_BATCH - 1);
+                for (PendingNotification pending : batch) {
+                    deliver(pending);
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        // the interrupt only ends the wait, listeners must not see it
+        Thread.interrupted();
+        ring.drainTo(batch);
+        for (PendingNotification pending : batch) {
+            deliver(pending);
+        }
+    }
+
+    private void deliver(PendingNotification pending) {
+        Notification notification = pending.take();
+        if (pending.coalescingKey != null) {
+            pendingByKey.remove(pending.coalescingKey, pending);
+        }
+        long seq = sequence.incrementAndGet();
+        notification.setSequenceNumber(seq);
+        try {
+            target.deliver(notification);
+            deliveredCount.incrementAndGet();
+            MonitoringOverhead.INSTANCE.recordNotificationDispatch(System.nanoTime() - pending.queuedNanos);
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to deliver notification {}: {}", seq, e.toString());
+        }
+    }
+
+    private static final class PendingNotification {
+        private final AtomicReference<Notification> notification;
+        private final Object coalescingKey;
+        private final long queuedAt;
+        private final long queuedNanos;
+
+        private PendingNotification(Notification notification, Object coalescingKey, long queuedAt, long queuedNanos) {
+            this.notification = new AtomicReference<Notification>(notification);
+            this.coalescingKey = coalescingKey;
+            this.queuedAt = queuedAt;
+            this.queuedNanos = queuedNanos;
+        }
+
+        /**
+         * @return false if the dispatcher already took this notification
+         */
+        private boolean replace(Notification newer) {
+            Notification current = notification.get();
+            while (current != null) {
+                if (notification.compareAndSet(current, coalesce(current, newer))) {
+                    return true;
+                }
+                current = notification.get();
+            }
+            return false;
+        }
+
+        private static Notification coalesce(Notification older, Notification newer) {
+            if (!(older instanceof AttributeChangeNotification) || !(newer instanceof AttributeChangeNotification)) {
+                return newer;
+            }
+            AttributeChangeNotification olderChange = (AttributeChangeNotification) older;
+            AttributeChangeNotification newerChange = (AttributeChangeNotification) newer;
+            AttributeChangeNotification coalesced = new AttributeChangeNotification(newer.getSource(),
+                    newer.getSequenceNumber(), newer.getTimeStamp(), newer.getMessage(), newerChange.getAttributeName(),
+                    newerChange.getAttributeType(), olderChange.getOldValue(), newerChange.getNewValue());
+            coalesced.setUserData(newer.getUserData());
+            return coalesced;
+        }
+
+        private Notification take() {
+            return notification.getAndSet(null);
+        }
+    }
+}
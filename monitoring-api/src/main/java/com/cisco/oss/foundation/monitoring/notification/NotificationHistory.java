@@ -0,0 +1,129 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.notification;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed capacity history of the most recently delivered notifications, so
+ * clients that connect late or poll can replay what they missed.
+ * <p>
+ * The history is a ring of parallel arrays written by the single dispatcher
+ * thread. It keeps no reference to the notification payload: the fields are
+ * copied into the slots and the payload is reduced to a bounded summary, so
+ * the memory held is fixed by the capacity. Readers do not lock; a slot is
+ * marked as being written while it is overwritten and readers skip entries
+ * whose sequence changed while they were reading them.
+ */
+class NotificationHistory {
+
+    private static final String[] KIND_NAMES = {NotificationHistoryEntry.KIND_NOTIFICATION,
+            NotificationHistoryEntry.KIND_TRANSACTION, NotificationHistoryEntry.KIND_EXCEPTION};
+    private static final long WRITING = -1;
+
+    private final int capacity;
+    private final AtomicLongArray sequences;
+    private final AtomicLongArray times;
+    private final AtomicIntegerArray kinds;
+    private final AtomicReferenceArray<String> componentNames;
+    private final AtomicReferenceArray<String> ids;
+    private final AtomicReferenceArray<String> severities;
+    private final AtomicReferenceArray<String> summaries;
+    private final AtomicLong written = new AtomicLong();
+
+    NotificationHistory(int capacity) {
+        this.capacity = capacity;
+        this.sequences = new AtomicLongArray(capacity);
+        this.times = new AtomicLongArray(capacity);
+        this.kinds = new AtomicIntegerArray(capacity);
+        this.componentNames = new AtomicReferenceArray<String>(capacity);
+        this.ids = new AtomicReferenceArray<String>(capacity);
+        this.severities = new AtomicReferenceArray<String>(capacity);
+        this.summaries = new AtomicReferenceArray<String>(capacity);
+    }
+
+    /**
+     * Records a delivered notification. Must only be called from the dispatcher thread.
+     */
+    void record(long sequence, NotificationInfoMXBean data) {
+        NotificationHistoryEntry entry = NotificationHistoryEntry.from(sequence, data);
+        long index = written.get();
+        int slot = (int) (index % capacity);
+
+        sequences.set(slot, WRITING);
+        times.set(slot, entry.getTimeOfOccurance().getTime());
+        kinds.set(slot, kindCode(entry.getKind()));
+        componentNames.set(slot, entry.getComponentName());
+        ids.set(slot, entry.getId());
+        severities.set(slot, entry.getSeverity());
+        summaries.set(slot, entry.getSummary());
+        sequences.set(slot, sequence);
+
+        written.set(index + 1);
+    }
+
+    /**
+     * @return the entries still in the history whose sequence is greater than
+     * <code>sequence</code>, oldest first
+     */
+    List<NotificationHistoryEntry> since(long sequence) {
+        long end = written.get();
+        long start = Math.max(0, end - capacity);
+        List<NotificationHistoryEntry> entries = new ArrayList<NotificationHistoryEntry>();
+        for (long index = start; index < end; index++) {
+            int slot = (int) (index % capacity);
+            long before = sequences.get(slot);
+            if (before == WRITING || before <= sequence) {
+                continue;
+            }
+            NotificationHistoryEntry entry = new NotificationHistoryEntry(before, KIND_NAMES[kinds.get(slot)],
+                    componentNames.get(slot), ids.get(slot), new Date(times.get(slot)), severities.get(slot),
+                    summaries.get(slot));
+            if (sequences.get(slot) == before) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return the sequence of the most recent entry, 0 if the history is empty
+     */
+    long getLastSequence() {
+        long end = written.get();
+        if (end == 0) {
+            return 0;
+        }
+        long last = sequences.get((int) ((end - 1) % capacity));
+        return last == WRITING ? 0 : last;
+    }
+
+    private static int kindCode(String kind) {
+        for (int code = 0; code < KIND_NAMES.length; code++) {
+            if (KIND_NAMES[code].equals(kind)) {
+                return code;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.notification;
+
+import com.cisco.oss.foundation.monitoring.ExceptionNotificationMXBean;
+import com.cisco.oss.foundation.monitoring.TransactionNotificationMXBean;
+
+import java.beans.ConstructorProperties;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * A notification as kept in the notification history. Only the identifying
+ * fields and a short summary of the payload are kept.
+ */
+public class NotificationHistoryEntry implements Serializable {
+
+    private static final long serialVersionUID = -6139637306316617042L;
+
+    public static final String KIND_NOTIFICATION = "Notification";
+    public static final String KIND_TRANSACTION = "Transaction";
+    public static final String KIND_EXCEPTION = "Exception";
+    public static final int MAX_SUMMARY_LENGTH = 256;
+
+    private final long sequence;
+    private final String kind;
+    private final String componentName;
+    private final String id;
+    private final Date timeOfOccurance;
+    private final String severity;
+    private final String summary;
+
+    @ConstructorProperties({"sequence", "kind", "componentName", "id", "timeOfOccurance", "severity", "summary"})
+    public NotificationHistoryEntry(long sequence, String kind, String componentName, String id, Date timeOfOccurance,
+                                    String severity, String summary) {
+        this.sequence = sequence;
+        this.kind = kind;
+        this.componentName = componentName;
+        this.id = id;
+        this.timeOfOccurance = timeOfOccurance;
+        this.severity = severity;
+        this.summary = summary;
+    }
+
+    /**
+     * Copies the identifying fields of the notification and summarizes its payload.
+     */
+    public static NotificationHistoryEntry from(long sequence, NotificationInfoMXBean data) {
+        String kind = KIND_NOTIFICATION;
+        String severity = null;
+        String summary = null;
+        if (data instanceof ExceptionNotificationMXBean) {
+            ExceptionNotificationMXBean exception = (ExceptionNotificationMXBean) data;
+            kind = KIND_EXCEPTION;
+            severity = exception.getSeverity() != null ? exception.getSeverity().name() : null;
+            summary = summarize(exception.getData());
+        } else if (data instanceof TransactionNotificationMXBean) {
+            kind = KIND_TRANSACTION;
+            summary = summarize(((TransactionNotificationMXBean) data).getParameterDetails());
+        }
+        Date time = data.getTimeOfOccurance() != null ? data.getTimeOfOccurance() : new Date();
+        return new NotificationHistoryEntry(sequence, kind, data.getComponentName(), data.getId(), time, severity, summary);
+    }
+
+    private static String summarize(Object payload) {
+        if (payload == null) {
+            return null;
+        }
+        String summary = String.valueOf(payload);
+        return summary.length() > MAX_SUMMARY_LENGTH ? summary.substring(0, MAX_SUMMARY_LENGTH) : summary;
+    }
+
+    /**
+     * The sequence number of the notification.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * {@link #KIND_EXCEPTION}, {@link #KIND_TRANSACTION} or {@link #KIND_NOTIFICATION}.
+     */
+    public String getKind() {
+        return kind;
+    }
+
+    public String getComponentName() {
+        return componentName;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Date getTimeOfOccurance() {
+        return timeOfOccurance;
+    }
+
+    /**
+     * The severity of exception notifications, null for the other kinds.
+     */
+    public String getSeverity() {
+        return severity;
+    }
+
+    /**
+     * The exception data or transaction parameters, truncated.
+     */
+    public String getSummary() {
+        return summary;
+    }
+
+    @Override
+    public String toString() {
+        return "NotificationHistoryEntry [sequence=" + sequence + ", kind=" + kind + ", compName=" + componentName
+                + ", id=" + id + ", timeOfOccurance=" + timeOfOccurance + ", severity=" + severity + "]";
+    }
+}
@@ -16,8 +16,47 @@
 
 package com.cisco.oss.foundation.monitoring.notification;
 
+import java.util.List;
 
 public interface NotificationInterfaceMXBean {
 
+    /**
+     * Number of notifications handed to the listeners since the agent started.
+     */
+    long getDeliveredNotificationCount();
 
+    /**
+     * Number of notifications dropped because the delivery queue was full.
+     */
+    long getDroppedNotificationCount();
+
+    /**
+     * Number of notifications merged into a newer one while waiting for delivery.
+     */
+    long getCoalescedNotificationCount();
+
+    /**
+     * Number of notifications waiting for delivery.
+     */
+    int getPendingNotificationCount();
+
+    /**
+     * Number of notifications discarded on the agent side because a listener exceeded its maximum rate.
+     */
+    long getRateLimitedNotificationCount();
+
+    /**
+     * Replays the delivered notifications still held in the history, oldest
+     * first. Poll with the sequence of the last entry received; a gap in the
+     * sequences means notifications were coalesced, dropped or overwritten
+     * in the history before they were read.
+     *
+     * @param sequence the last sequence already seen, 0 for the whole history
+     */
+    List<NotificationHistoryEntry> getNotificationsSince(long sequence);
+
+    /**
+     * The sequence of the most recent notification in the history, 0 if it is empty.
+     */
+    long getLastNotificationSequence();
 }
@@ -16,19 +16,76 @@
 
 package com.cisco.oss.foundation.monitoring.notification;
 
+import com.cisco.oss.foundation.monitoring.FoundationMonitoringConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.management.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 public class NotificationMXBean extends StandardEmitterMBean implements NotificationInterfaceMXBean {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NotificationMXBean.class);
 
+    private final NotificationDispatcher dispatcher;
+    private final NotificationHistory history;
+    private final double maxRatePerListener;
+    private final AtomicLong rateLimitedCount = new AtomicLong();
+    private final Map<List<Object>, RateLimitedFilter> rateLimitedFilters = new ConcurrentHashMap<List<Object>, RateLimitedFilter>();
+    private volatile ObjectName objectName;
+
     public NotificationMXBean() {
-        super(NotificationInterfaceMXBean.class, true, new NotificationBroadcasterSupport());
+        this(FoundationMonitoringConstants.DEFAULT_NOTIFICATION_QUEUE_CAPACITY, 0);
+    }
+
+    /**
+     * @param queueCapacity    maximum number of notifications waiting for delivery
+     * @param coalescingWindow window in milliseconds in which repeated notifications
+     *                         about the same component and id are coalesced, 0 disables coalescing
+     */
+    public NotificationMXBean(int queueCapacity, long coalescingWindow) {
+        this(queueCapacity, coalescingWindow, 0);
+    }
+
+    /**
+     * @param queueCapacity      maximum number of notifications waiting for delivery
+     * @param coalescingWindow   window in milliseconds in which repeated notifications
+     *                           about the same component and id are coalesced, 0 disables coalescing
+     * @param maxRatePerListener maximum notifications per second delivered to a listener that did not
+     *                           subscribe with its own rate, 0 for no limit
+     */
+    public NotificationMXBean(int queueCapacity, long coalescingWindow, double maxRatePerListener) {
+        this(queueCapacity, coalescingWindow, maxRatePerListener, FoundationMonitoringConstants.DEFAULT_NOTIFICATION_HISTORY_CAPACITY);
+    }
 
+    /**
+     * @param queueCapacity      maximum number of notifications waiting for delivery
+     * @param coalescingWindow   window in milliseconds in which repeated notifications
+     *                           about the same component and id are coalesced, 0 disables coalescing
+     * @param maxRatePerListener maximum notifications per second delivered to a listener that did not
+     *                           subscribe with its own rate, 0 for no limit
+     * @param historyCapacity    number of delivered notifications kept for replay, 0 disables the history
+     */
+    public NotificationMXBean(int queueCapacity, long coalescingWindow, double maxRatePerListener, int historyCapacity) {
+        super(NotificationInterfaceMXBean.class, true, new NotificationBroadcasterSupport());
+        this.maxRatePerListener = maxRatePerListener;
+        this.history = historyCapacity > 0 ? new NotificationHistory(historyCapacity) : null;
+        this.dispatcher = new NotificationDispatcher("NotificationMXBean", new NotificationDispatcher.Target() {
+            @Override
+            public void deliver(Notification notification) {
+                if (history != null && notification.getUserData() instanceof NotificationInfoMXBean) {
+                    history.record(notification.getSequenceNumber(), (NotificationInfoMXBean) notification.getUserData());
+                }
+                NotificationMXBean.super.sendNotification(notification);
+            }
+        }, queueCapacity, coalescingWindow);
     }
 
     public void sendNotification(NotificationInfoMXBean data) {
@@ -37,24 +94,117 @@ public class NotificationMXBean extends StandardEmitterMBean implements Notifica
 
     void sendNotificationToClient(NotificationInfoMXBean data) {
 
-        Notification notification = new Notification("mx.notification", this,
-                0, System.currentTimeMillis());
+        Notification notification = new MonitoringNotification("mx.notification", this,
+                System.currentTimeMillis(), maxRatePerListener, rateLimitedCount);
         try {
             notification.setUserData(data);
-            sendNotification(notification);
-            LOGGER.info("Notification sent");
+            if (dispatcher.dispatch(notification, coalescingKey(data))) {
+                LOGGER.trace("Notification {} queued", data);
+            }
         } catch (Exception e) {
 
             LOGGER.error("Exception from sendNotificationtoClient method :" + e.getMessage());
         }
     }
 
+    private static Object coalescingKey(NotificationInfoMXBean data) {
+        if (data == null) {
+            return null;
+        }
+        return Arrays.asList(data.getClass(), data.getComponentName(), data.getId());
+    }
+
+    /**
+     * Delivers the notifications still queued and stops the asynchronous delivery.
+     */
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    @Override
+    public long getDeliveredNotificationCount() {
+        return dispatcher.getDeliveredCount();
+    }
+
+    @Override
+    public long getDroppedNotificationCount() {
+        return dispatcher.getDroppedCount();
+    }
+
+    @Override
+    public long getCoalescedNotificationCount() {
+        return dispatcher.getCoalescedCount();
+    }
+
+    @Override
+    public int getPendingNotificationCount() {
+        return dispatcher.getPendingCount();
+    }
+
+    @Override
+    public long getRateLimitedNotificationCount() {
+        return rateLimitedCount.get();
+    }
+
+    @Override
+    public ObjectName preRegister(MBeanServer server, ObjectName name) throws Exception {
+        objectName = super.preRegister(server, name);
+        return objectName;
+    }
+
+    @Override
+    public List<NotificationHistoryEntry> getNotificationsSince(long sequence) {
+        if (history == null) {
+            return Collections.emptyList();
+        }
+        return history.since(sequence);
+    }
+
+    @Override
+    public long getLastNotificationSequence() {
+        return history != null ? history.getLastSequence() : 0;
+    }
+
+    /**
+     * Registers the listener. Listeners that did not subscribe with a
+     * {@link NotificationSubscription}, which applies the rate itself, are held
+     * to the agent wide per listener rate, if one is configured. The listener a
+     * connector server registers, with no filter and the name of this MBean as
+     * handback, on behalf of all its remote clients is not limited: the
+     * connector evaluates the filter of each remote listener, so remote clients
+     * are held to a rate per listener by subscribing with a
+     * {@link NotificationSubscription}.
+     */
     public void addNotificationListener(
             NotificationListener listener,
             NotificationFilter filter,
             Object handback) {
-        super.addNotificationListener(
-                listener, filter, handback);
+        boolean subscription = filter instanceof NotificationSubscription;
+        boolean connector = filter == null && handback != null && handback.equals(objectName);
+        if (maxRatePerListener <= 0 || subscription || connector) {
+            super.addNotificationListener(listener, filter, handback);
+            return;
+        }
+        RateLimitedFilter rateLimitedFilter = new RateLimitedFilter(filter, maxRatePerListener, rateLimitedCount);
+        rateLimitedFilters.put(Arrays.asList(listener, filter, handback), rateLimitedFilter);
+        super.addNotificationListener(listener, rateLimitedFilter, handback);
+    }
+
+    @Override
+    public void removeNotificationListener(NotificationListener listener) throws ListenerNotFoundException {
+        super.removeNotificationListener(listener);
+        for (Iterator<List<Object>> iterator = rateLimitedFilters.keySet().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().get(0) == listener) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public void removeNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback)
+            throws ListenerNotFoundException {
+        RateLimitedFilter rateLimitedFilter = rateLimitedFilters.remove(Arrays.asList(listener, filter, handback));
+        super.removeNotificationListener(listener, rateLimitedFilter != null ? rateLimitedFilter : filter, handback);
     }
 
     @Override
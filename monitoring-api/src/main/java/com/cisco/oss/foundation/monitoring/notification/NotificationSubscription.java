@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.notification;
+
+import com.cisco.oss.foundation.monitoring.ExceptionNotificationMXBean;
+import com.cisco.oss.foundation.monitoring.ExceptionSeverity;
+import com.cisco.oss.foundation.monitoring.Severity;
+import com.google.common.util.concurrent.RateLimiter;
+
+import javax.management.Notification;
+import javax.management.NotificationFilter;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A notification filter describing what a listener wants to receive from the
+ * agent: notification types, a minimum exception severity, a component name
+ * and a maximum rate.
+ * <p>
+ * Remote JMX listeners hand their filter to the agent, which evaluates it
+ * before anything is shipped to the client. Every registration therefore gets
+ * its own copy of the subscription, and the rate limit is a token bucket per
+ * listener: notifications above <code>maxRate</code> per second are discarded
+ * on the agent side. A subscription without a rate of its own is held to the
+ * per listener rate of the agent, if one is configured.
+ */
+public class NotificationSubscription implements NotificationFilter {
+
+    private static final long serialVersionUID = -2412043412387563907L;
+
+    private Set<String> types;
+    private ExceptionSeverity minimumSeverity;
+    private String componentName;
+    private double maxRate;
+    private transient RateLimiter rateLimiter;
+    private transient double limiterRate;
+
+    public NotificationSubscription() {
+    }
+
+    /**
+     * @param types notification types to receive, e.g. "mx.notification". Empty means all types.
+     */
+    public NotificationSubscription(String... types) {
+        for (String type : types) {
+            addType(type);
+        }
+    }
+
+    @Override
+    public boolean isNotificationEnabled(Notification notification) {
+        if (!matches(notification)) {
+            return false;
+        }
+        double rate = maxRate > 0 ? maxRate : agentRate(notification);
+        if (rate <= 0) {
+            return true;
+        }
+        if (getRateLimiter(rate).tryAcquire()) {
+            return true;
+        }
+        if (notification instanceof MonitoringNotification) {
+            ((MonitoringNotification) notification).rateLimited();
+        }
+        return false;
+    }
+
+    private static double agentRate(Notification notification) {
+        return notification instanceof MonitoringNotification ? ((MonitoringNotification) notification).getMaxRatePerListener() : 0;
+    }
+
+    /**
+     * Checks the type, component and severity criteria only, ignoring the rate limit.
+     */
+    public boolean matches(Notification notification) {
+        if (types != null && !types.isEmpty() && !types.contains(notification.getType())) {
+            return false;
+        }
+
+        Object userData = notification.getUserData();
+        if (componentName != null) {
+            if (!(userData instanceof NotificationInfoMXBean)
+                    || !componentName.equals(((NotificationInfoMXBean) userData).getComponentName())) {
+                return false;
+            }
+        }
+        if (minimumSeverity != null && userData instanceof ExceptionNotificationMXBean) {
+            ExceptionSeverity severity = ((ExceptionNotificationMXBean) userData).getSeverity();
+            if (severity == null || severity.ordinal() > minimumSeverity.ordinal()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private synchronized RateLimiter getRateLimiter(double rate) {
+        if (rateLimiter == null || limiterRate != rate) {
+            rateLimiter = RateLimiter.create(rate);
+            limiterRate = rate;
+        }
+        return rateLimiter;
+    }
+
+    public Set<String> getTypes() {
+        return types;
+    }
+
+    public void setTypes(Set<String> types) {
+        this.types = types;
+    }
+
+    public void addType(String type) {
+        if (types == null) {
+            types = new HashSet<String>();
+        }
+        types.add(type);
+    }
+
+    public ExceptionSeverity getMinimumSeverity() {
+        return minimumSeverity;
+    }
+
+    /**
+     * Exception notifications less severe than <code>minimumSeverity</code> are
+     * filtered out. Other notifications are not affected.
+     */
+    public void setMinimumSeverity(ExceptionSeverity minimumSeverity) {
+        this.minimumSeverity = minimumSeverity;
+    }
+
+    public void setMinimumSeverity(Severity minimumSeverity) {
+        this.minimumSeverity = minimumSeverity == null ? null : ExceptionSeverity.valueOf(minimumSeverity.name().toUpperCase());
+    }
+
+    public String getComponentName() {
+        return componentName;
+    }
+
+    public void setComponentName(String componentName) {
+        this.componentName = componentName;
+    }
+
+    public double getMaxRate() {
+        return maxRate;
+    }
+
+    /**
+     * @param maxRate maximum number of notifications per second delivered to the listener, 0 for no limit
+     */
+    public synchronized void setMaxRate(double maxRate) {
+        this.maxRate = maxRate;
+        this.rateLimiter = null;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.notification;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+import javax.management.Notification;
+import javax.management.NotificationFilter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies the agent wide per listener rate limit on top of the filter the
+ * listener registered with. Lives on the agent side only.
+ */
+class RateLimitedFilter implements NotificationFilter {
+
+    private static final long serialVersionUID = 6470716421693839434L;
+
+    private final NotificationFilter delegate;
+    private final transient RateLimiter rateLimiter;
+    private final transient AtomicLong rateLimitedCount;
+
+    RateLimitedFilter(NotificationFilter delegate, double maxRate, AtomicLong rateLimitedCount) {
+        this.delegate = delegate;
+        this.rateLimiter = RateLimiter.create(maxRate);
+        this.rateLimitedCount = rateLimitedCount;
+    }
+
+    @Override
+    public boolean isNotificationEnabled(Notification notification) {
+        if (delegate != null && !delegate.isNotificationEnabled(notification)) {
+            return false;
+        }
+        if (rateLimiter.tryAcquire()) {
+            return true;
+        }
+        rateLimitedCount.incrementAndGet();
+        return false;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.overhead;
+
+import com.cisco.oss.foundation.monitoring.StripedCounter;
+import com.codahale.metrics.Meter;
+import fi.jumi.actors.listeners.MessageListener;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Measures the messages of one actor thread: sends are counted on the
+ * sending threads, each on its own stripe, processing is timed and metered
+ * on the actor thread only. The thread
+ * running the actor is registered as a monitoring thread when it processes
+ * its first message.
+ */
+public class ActorOverheadListener implements MessageListener {
+
+    private final String name;
+    private final StripedCounter sentMessages = new StripedCounter();
+    private final Meter processedMessages = new Meter();
+    private final LatencyRecorder processingTime = new LatencyRecorder();
+    // only used by the actor thread
+    private Thread actorThread;
+    private long processingStartedAt;
+
+    ActorOverheadListener(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void onMessageSent(Object message) {
+        sentMessages.increment();
+    }
+
+    @Override
+    public void onProcessingStarted(Object actor, Object message) {
+        Thread current = Thread.currentThread();
+        if (current != actorThread) {
+            actorThread = current;
+            MonitoringOverhead.INSTANCE.registerThread(current);
+        }
+        processingStartedAt = System.nanoTime();
+    }
+
+    @Override
+    public void onProcessingFinished() {
+        processingTime.record(System.nanoTime() - processingStartedAt);
+        processedMessages.mark();
+    }
+
+    @Override
+    public Executor getListenedExecutor(Executor realExecutor) {
+        return realExecutor;
+    }
+
+    ActorStatistics getStatistics() {
+        long processed = processedMessages.getCount();
+        return new ActorStatistics(name, Math.max(0, sentMessages.sum() - processed), processed,
+                processedMessages.getOneMinuteRate(), processingTime.getStatistics());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.overhead;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The load on one of the actors that record transactions.
+ */
+public class ActorStatistics {
+
+    private final String name;
+    private final long mailboxDepth;
+    private final long processedMessages;
+    private final double messagesPerSecond;
+    private final LatencyStatistics processingTime;
+
+    @ConstructorProperties({"name", "mailboxDepth", "processedMessages", "messagesPerSecond", "processingTime"})
+    public ActorStatistics(String name, long mailboxDepth, long processedMessages, double messagesPerSecond,
+                           LatencyStatistics processingTime) {
+        this.name = name;
+        this.mailboxDepth = mailboxDepth;
+        this.processedMessages = processedMessages;
+        this.messagesPerSecond = messagesPerSecond;
+        this.processingTime = processingTime;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Messages sent to the actor and not processed yet.
+     */
+    public long getMailboxDepth() {
+        return mailboxDepth;
+    }
+
+    public long getProcessedMessages() {
+        return processedMessages;
+    }
+
+    /**
+     * Processed messages per second, averaged over the last minute.
+     */
+    public double getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    /**
+     * Time the actor spent processing a message.
+     */
+    public LatencyStatistics getProcessingTime() {
+        return processingTime;
+    }
+}
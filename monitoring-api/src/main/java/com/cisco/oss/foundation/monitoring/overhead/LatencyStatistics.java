@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.overhead;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Count, average and maximum of a measured duration, since the agent started.
+ */
+public class LatencyStatistics {
+
+    private final long count;
+    private final long averageNanos;
+    private final long maxNanos;
+
+    @ConstructorProperties({"count", "averageNanos", "maxNanos"})
+    public LatencyStatistics(long count, long averageNanos, long maxNanos) {
+        this.count = count;
+        this.averageNanos = averageNanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getAverageNanos() {
+        return averageNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+}
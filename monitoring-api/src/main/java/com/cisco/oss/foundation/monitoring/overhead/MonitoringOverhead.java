@@ -0,0 +1,208 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.overhead;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the overhead of the monitoring library: the actors report through
+ * their {@link ActorOverheadListener}, the threads of the library register
+ * themselves and the JMX reads and notification deliveries are timed where
+ * they happen.
+ * <p>
+ * Allocation and CPU time are read from the {@link ThreadMXBean} when asked
+ * for. A thread that ended keeps the values last read for it, so what it used
+ * after that read is not counted.
+ */
+public enum MonitoringOverhead implements MonitoringOverheadMXBean {
+
+    INSTANCE;
+
+    private final ActorOverheadListener serviceActorListener = new ActorOverheadListener("ServiceActor");
+    private final ActorOverheadListener serverConnectionActorListener = new ActorOverheadListener("ServerConnectionActor");
+    private final LatencyRecorder attributeReadTime = new LatencyRecorder();
+    private final LatencyRecorder notificationDispatchLatency = new LatencyRecorder();
+    private final LatencyRecorder registryStartupTime = new LatencyRecorder();
+    private final LatencyRecorder connectorCheckTime = new LatencyRecorder();
+    private final AtomicLong connectorRecoveryCount = new AtomicLong();
+    private final ConcurrentMap<Long, ThreadUsage> threads = new ConcurrentHashMap<Long, ThreadUsage>();
+    private long endedThreadsAllocatedBytes;
+    private long endedThreadsCpuTime;
+
+    public ActorOverheadListener getServiceActorListener() {
+        return serviceActorListener;
+    }
+
+    public ActorOverheadListener getServerConnectionActorListener() {
+        return serverConnectionActorListener;
+    }
+
+    /**
+     * Counts the allocation and CPU time of the thread as monitoring overhead.
+     */
+    public void registerThread(Thread thread) {
+        if (!threads.containsKey(thread.getId())) {
+            threads.putIfAbsent(thread.getId(), new ThreadUsage(thread));
+        }
+    }
+
+    /**
+     * @param nanos time spent serving a JMX attribute read
+     */
+    public void recordAttributeRead(long nanos) {
+        attributeReadTime.record(nanos);
+    }
+
+    /**
+     * @param nanos time from raising a notification to the end of its delivery
+     */
+    public void recordNotificationDispatch(long nanos) {
+        notificationDispatchLatency.record(nanos);
+    }
+
+    /**
+     * @param nanos time from spawning an rmiregistry process until it answered
+     */
+    public void recordRegistryStartup(long nanos) {
+        registryStartupTime.record(nanos);
+    }
+
+    /**
+     * @param nanos time spent checking that the JMX connector is bound
+     */
+    public void recordConnectorCheck(long nanos) {
+        connectorCheckTime.record(nanos);
+    }
+
+    public void recordConnectorRecovery() {
+        connectorRecoveryCount.incrementAndGet();
+    }
+
+    @Override
+    public ActorStatistics getServiceActor() {
+        return serviceActorListener.getStatistics();
+    }
+
+    @Override
+    public ActorStatistics getServerConnectionActor() {
+        return serverConnectionActorListener.getStatistics();
+    }
+
+    @Override
+    public int getMonitoringThreadCount() {
+        refreshThreadUsage();
+        return threads.size();
+    }
+
+    @Override
+    public synchronized long getAllocatedBytes() {
+        if (!isAllocatedMemorySupported()) {
+            return -1;
+        }
+        refreshThreadUsage();
+        long allocatedBytes = endedThreadsAllocatedBytes;
+        for (ThreadUsage usage : threads.values()) {
+            allocatedBytes += usage.allocatedBytes;
+        }
+        return allocatedBytes;
+    }
+
+    @Override
+    public synchronized long getCpuTime() {
+        if (!ManagementFactory.getThreadMXBean().isThreadCpuTimeSupported()) {
+            return -1;
+        }
+        refreshThreadUsage();
+        long cpuTime = endedThreadsCpuTime;
+        for (ThreadUsage usage : threads.values()) {
+            cpuTime += usage.cpuTime;
+        }
+        return cpuTime;
+    }
+
+    @Override
+    public LatencyStatistics getAttributeReadTime() {
+        return attributeReadTime.getStatistics();
+    }
+
+    @Override
+    public LatencyStatistics getNotificationDispatchLatency() {
+        return notificationDispatchLatency.getStatistics();
+    }
+
+    @Override
+    public LatencyStatistics getRegistryStartupTime() {
+        return registryStartupTime.getStatistics();
+    }
+
+    @Override
+    public LatencyStatistics getConnectorCheckTime() {
+        return connectorCheckTime.getStatistics();
+    }
+
+    @Override
+    public long getConnectorRecoveryCount() {
+        return connectorRecoveryCount.get();
+    }
+
+    private synchronized void refreshThreadUsage() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        boolean allocatedMemorySupported = isAllocatedMemorySupported();
+        boolean cpuTimeSupported = threadMXBean.isThreadCpuTimeSupported();
+        Iterator<Map.Entry<Long, ThreadUsage>> iterator = threads.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, ThreadUsage> entry = iterator.next();
+            long threadId = entry.getKey();
+            ThreadUsage usage = entry.getValue();
+            if (usage.thread.getState() == Thread.State.TERMINATED) {
+                endedThreadsAllocatedBytes += usage.allocatedBytes;
+                endedThreadsCpuTime += usage.cpuTime;
+                iterator.remove();
+                continue;
+            }
+            if (allocatedMemorySupported) {
+                usage.allocatedBytes = Math.max(usage.allocatedBytes,
+                        ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(threadId));
+            }
+            if (cpuTimeSupported) {
+                usage.cpuTime = Math.max(usage.cpuTime, threadMXBean.getThreadCpuTime(threadId));
+            }
+        }
+    }
+
+    private static boolean isAllocatedMemorySupported() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        return threadMXBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported();
+    }
+
+    private static final class ThreadUsage {
+        private final Thread thread;
+        private long allocatedBytes;
+        private long cpuTime;
+
+        private ThreadUsage(Thread thread) {
+            this.thread = thread;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.overhead;
+
+/**
+ * What the monitoring library itself costs the process it monitors.
+ */
+public interface MonitoringOverheadMXBean {
+
+    /**
+     * The actor that records the service transactions.
+     */
+    ActorStatistics getServiceActor();
+
+    /**
+     * The actor that records the server connection transactions.
+     */
+    ActorStatistics getServerConnectionActor();
+
+    /**
+     * Number of live threads started by the monitoring library.
+     */
+    int getMonitoringThreadCount();
+
+    /**
+     * Bytes allocated by the threads of the monitoring library since they
+     * started, -1 if the JVM cannot measure it.
+     */
+    long getAllocatedBytes();
+
+    /**
+     * CPU time in nanoseconds used by the threads of the monitoring library,
+     * -1 if the JVM cannot measure it.
+     */
+    long getCpuTime();
+
+    /**
+     * Time the MBean server took to answer a read of the service and server
+     * connection lists, including their conversion to open types.
+     */
+    LatencyStatistics getAttributeReadTime();
+
+    /**
+     * Time from raising a notification to the end of its delivery to the listeners.
+     */
+    LatencyStatistics getNotificationDispatchLatency();
+
+    /**
+     * Time from spawning an rmiregistry process until it answered on its port.
+     */
+    LatencyStatistics getRegistryStartupTime();
+
+    /**
+     * Time spent checking that the JMX connector is still bound in the rmiregistry.
+     */
+    LatencyStatistics getConnectorCheckTime();
+
+    /**
+     * Number of times the JMX connector was found unbound and exported again.
+     */
+    long getConnectorRecoveryCount();
+}
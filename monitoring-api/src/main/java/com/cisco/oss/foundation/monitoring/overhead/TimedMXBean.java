@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.cisco.oss.foundation.monitoring.overhead;
+
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanException;
+import javax.management.ReflectionException;
+import javax.management.StandardMBean;
+
+/**
+ * Registers an MXBean so that every attribute read through the MBean server,
+ * including the conversion of the value to open types, is reported as
+ * {@link MonitoringOverheadMXBean#getAttributeReadTime()}.
+ */
+public class TimedMXBean<T> extends StandardMBean {
+
+    public TimedMXBean(T implementation, Class<T> mxbeanInterface) {
+        super(implementation, mxbeanInterface, true);
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException, MBeanException, ReflectionException {
+        long start = System.nanoTime();
+        try {
+            return super.getAttribute(attribute);
+        } finally {
+            MonitoringOverhead.INSTANCE.recordAttributeRead(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        long start = System.nanoTime();
+        try {
+            return super.getAttributes(attributes);
+        } finally {
+            MonitoringOverhead.INSTANCE.recordAttributeRead(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.recording;
+
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnection;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionActor;
+import com.cisco.oss.foundation.monitoring.services.Service;
+import com.cisco.oss.foundation.monitoring.services.ServiceActor;
+import fi.jumi.actors.ActorRef;
+
+/**
+ * Sends every start and end to the actors as its own message.
+ */
+public class ActorTransactionRecorder implements TransactionRecorder {
+
+    private final ActorRef<ServiceActor> serviceActor;
+    private final ActorRef<ServerConnectionActor> serverConnectionActor;
+
+    public ActorTransactionRecorder(ActorRef<ServiceActor> serviceActor, ActorRef<ServerConnectionActor> serverConnectionActor) {
+        this.serviceActor = serviceActor;
+        this.serverConnectionActor = serverConnectionActor;
+    }
+
+    @Override
+    public void serviceStarted(Service service, int usedThreads) {
+        serviceActor.tell().startTransaction(service, usedThreads);
+    }
+
+    @Override
+    public void serviceFinished(Service service, boolean isFailed, String description) {
+        serviceActor.tell().endTransaction(service, isFailed, description);
+    }
+
+    @Override
+    public void connectionStarted(ServerConnection serverConnection) {
+        serverConnectionActor.tell().startTransaction(serverConnection);
+    }
+
+    @Override
+    public void connectionFinished(ServerConnection serverConnection, boolean isFailed, String description) {
+        serverConnectionActor.tell().endTransaction(serverConnection, isFailed, description);
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
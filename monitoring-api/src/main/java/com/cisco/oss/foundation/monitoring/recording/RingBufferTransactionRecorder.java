@@ -0,0 +1,250 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.recording;
+
+import com.cisco.oss.foundation.monitoring.overhead.MonitoringOverhead;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnection;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionActor;
+import com.cisco.oss.foundation.monitoring.services.Service;
+import com.cisco.oss.foundation.monitoring.services.ServiceActor;
+import fi.jumi.actors.ActorRef;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Publishes starts and ends into a ring of preallocated, mutable event slots.
+ * <p>
+ * Producers claim a sequence with one atomic increment, fill the slot it maps
+ * to and publish it by writing the sequence into the slot's published flag;
+ * recording allocates nothing. A single consumer thread takes the published
+ * events in sequence order, up to {@link #MAX_BATCH} at a time, and hands each
+ * actor one batch sized to the events it takes. When the ring is full
+ * producers wait, as the consumer does when it is empty, according to the
+ * {@link WaitStrategy}.
+ * <p>
+ * On {@link #shutdown()} the consumer seals the ring: producers can no longer
+ * claim a sequence, and the consumer waits for every sequence claimed before
+ * to be published and drains it. Once the ring is sealed, or the consumer
+ * failed, producers send their events to the actors one message each instead.
+ */
+public class RingBufferTransactionRecorder implements TransactionRecorder {
+
+    public static final int DEFAULT_RING_SIZE = 65536;
+    public static final WaitStrategy DEFAULT_WAIT_STRATEGY = WaitStrategy.PARK;
+    static final int MAX_BATCH = 4096;
+    // added to the next sequence to claim when the ring is sealed, far above any sequence reached
+    private static final long SEALED = 1L << 62;
+
+    private static final int SERVICE_START = 0;
+    private static final int SERVICE_END = 1;
+    private static final int CONNECTION_START = 2;
+    private static final int CONNECTION_END = 3;
+
+    private final ActorRef<ServiceActor> serviceActor;
+    private final ActorRef<ServerConnectionActor> serverConnectionActor;
+    private final int mask;
+    private final TransactionEvent[] events;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong(-1);
+    private final WaitStrategy waitStrategy;
+    private final Thread consumer;
+    private volatile boolean running = true;
+
+    /**
+     * @param ringSize     number of event slots, rounded up to a power of two
+     * @param waitStrategy how producers and the consumer wait
+     */
+    public RingBufferTransactionRecorder(ActorRef<ServiceActor> serviceActor, ActorRef<ServerConnectionActor> serverConnectionActor,
+                                         int ringSize, WaitStrategy waitStrategy) {
+        this.serviceActor = serviceActor;
+        this.serverConnectionActor = serverConnectionActor;
+        int capacity = Integer.highestOneBit(Math.max(2, ringSize) - 1) << 1;
+        this.mask = capacity - 1;
+        this.events = new TransactionEvent[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            events[i] = new TransactionEvent();
+            published.set(i, -1);
+        }
+        this.waitStrategy = waitStrategy;
+        this.consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                consume();
+            }
+        }, "TransactionRingConsumer");
+        this.consumer.setDaemon(true);
+        MonitoringOverhead.INSTANCE.registerThread(this.consumer);
+        this.consumer.start();
+    }
+
+    @Override
+    public void serviceStarted(Service service, int usedThreads) {
+        publish(SERVICE_START, service, usedThreads, false, null);
+    }
+
+    @Override
+    public void serviceFinished(Service service, boolean isFailed, String description) {
+        publish(SERVICE_END, service, 0, isFailed, description);
+    }
+
+    @Override
+    public void connectionStarted(ServerConnection serverConnection) {
+        publish(CONNECTION_START, serverConnection, 0, false, null);
+    }
+
+    @Override
+    public void connectionFinished(ServerConnection serverConnection, boolean isFailed, String description) {
+        publish(CONNECTION_END, serverConnection, 0, isFailed, description);
+    }
+
+    /**
+     * Stops the consumer once it has handed every event claimed before to the actors.
+     */
+    @Override
+    public void shutdown() {
+        running = false;
+        try {
+            consumer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(int kind, Object target, int usedThreads, boolean isFailed, String description) {
+        if (!running) {
+            tell(kind, target, usedThreads, isFailed, description);
+            return;
+        }
+        long sequence = claimed.getAndIncrement();
+        if (sequence >= SEALED) {
+            // the consumer no longer takes new sequences
+            tell(kind, target, usedThreads, isFailed, description);
+            return;
+        }
+        int attempts = 0;
+        while (sequence - consumed.get() > mask + 1) {
+            if (!consumer.isAlive()) {
+                // nothing frees the slot any more
+                tell(kind, target, usedThreads, isFailed, description);
+                return;
+            }
+            attempts = waitStrategy.idle(attempts);
+        }
+        int index = (int) sequence & mask;
+        TransactionEvent event = events[index];
+        event.kind = kind;
+        event.target = target;
+        event.time = System.currentTimeMillis();
+        event.usedThreads = usedThreads;
+        event.failed = isFailed;
+        event.description = description;
+        published.lazySet(index, sequence);
+    }
+
+    private void tell(int kind, Object target, int usedThreads, boolean isFailed, String description) {
+        switch (kind) {
+            case SERVICE_START:
+                serviceActor.tell().startTransaction((Service) target, usedThreads);
+                break;
+            case SERVICE_END:
+                serviceActor.tell().endTransaction((Service) target, isFailed, description);
+                break;
+            case CONNECTION_START:
+                serverConnectionActor.tell().startTransaction((ServerConnection) target);
+                break;
+            default:
+                serverConnectionActor.tell().endTransaction((ServerConnection) target, isFailed, description);
+                break;
+        }
+    }
+
+    private void consume() {
+        long next = 0;
+        // exclusive, known once the ring is sealed
+        long end = Long.MAX_VALUE;
+        int attempts = 0;
+        while (true) {
+            if (end == Long.MAX_VALUE && !running) {
+                end = claimed.getAndAdd(SEALED);
+            }
+            int available = 0;
+            int serviceEvents = 0;
+            while (available < MAX_BATCH && next + available < end
+                    && published.get((int) (next + available) & mask) == next + available) {
+                if (events[(int) (next + available) & mask].kind <= SERVICE_END) {
+                    serviceEvents++;
+                }
+                available++;
+            }
+            if (available > 0) {
+                drain(next, available, serviceEvents);
+                next += available;
+                consumed.lazySet(next - 1);
+                attempts = 0;
+            } else if (next >= end) {
+                return;
+            } else {
+                // while sealing, a claimed slot may not be published yet
+                attempts = waitStrategy.idle(attempts);
+            }
+        }
+    }
+
+    private void drain(long first, int available, int serviceEvents) {
+        TransactionBatch<Service> services = serviceEvents > 0 ? new TransactionBatch<Service>(serviceEvents) : null;
+        TransactionBatch<ServerConnection> connections = available > serviceEvents
+                ? new TransactionBatch<ServerConnection>(available - serviceEvents) : null;
+        for (long sequence = first; sequence < first + available; sequence++) {
+            TransactionEvent event = events[(int) sequence & mask];
+            switch (event.kind) {
+                case SERVICE_START:
+                    services.addStart((Service) event.target, event.time, event.usedThreads);
+                    break;
+                case SERVICE_END:
+                    services.addEnd((Service) event.target, event.time, event.failed, event.description);
+                    break;
+                case CONNECTION_START:
+                    connections.addStart((ServerConnection) event.target, event.time, 0);
+                    break;
+                default:
+                    connections.addEnd((ServerConnection) event.target, event.time, event.failed, event.description);
+                    break;
+            }
+            event.target = null;
+            event.description = null;
+        }
+        if (services != null) {
+            serviceActor.tell().recordBatch(services);
+        }
+        if (connections != null) {
+            serverConnectionActor.tell().recordBatch(connections);
+        }
+    }
+
+    private static final class TransactionEvent {
+        private int kind;
+        private Object target;
+        private long time;
+        private int usedThreads;
+        private boolean failed;
+        private String description;
+    }
+}
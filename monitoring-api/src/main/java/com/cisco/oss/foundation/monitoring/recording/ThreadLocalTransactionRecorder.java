@@ -0,0 +1,281 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.recording;
+
+import com.cisco.oss.foundation.monitoring.overhead.MonitoringOverhead;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnection;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionActor;
+import com.cisco.oss.foundation.monitoring.services.Service;
+import com.cisco.oss.foundation.monitoring.services.ServiceActor;
+import fi.jumi.actors.ActorRef;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records starts and ends in a buffer owned by the calling thread, with no
+ * shared write on the recording path. A merger thread drains the buffers of
+ * all threads every merge interval and hands the actors one batch each.
+ * <p>
+ * The events of all threads are merged in time order, the order of the
+ * events of one thread kept, so the actors see starts and ends interleaved
+ * as they happened, as they would with an {@link ActorTransactionRecorder}.
+ * A thread that fills its buffer before the merger gets to it merges all the
+ * buffers itself, so nothing is lost. The statistics lag by up to one merge
+ * interval.
+ */
+public class ThreadLocalTransactionRecorder implements TransactionRecorder {
+
+    public static final int DEFAULT_BUFFER_SIZE = 4096;
+    public static final long DEFAULT_MERGE_INTERVAL = 250;
+
+    private static final Comparator<RecordingBuffer> BY_NEXT_TIME = new Comparator<RecordingBuffer>() {
+        @Override
+        public int compare(RecordingBuffer first, RecordingBuffer second) {
+            return Long.compare(first.nextTime(), second.nextTime());
+        }
+    };
+
+    private final ActorRef<ServiceActor> serviceActor;
+    private final ActorRef<ServerConnectionActor> serverConnectionActor;
+    private final int bufferSize;
+    private final long mergeInterval;
+    private final CopyOnWriteArrayList<RecordingBuffer> buffers = new CopyOnWriteArrayList<RecordingBuffer>();
+    private final ThreadLocal<RecordingBuffer> threadBuffer = new ThreadLocal<RecordingBuffer>() {
+        @Override
+        protected RecordingBuffer initialValue() {
+            RecordingBuffer buffer = new RecordingBuffer(Thread.currentThread(), bufferSize);
+            buffers.add(buffer);
+            return buffer;
+        }
+    };
+    private final Thread merger;
+    private volatile boolean running = true;
+
+    /**
+     * @param bufferSize    events each thread can hold between merges, rounded up to a power of two
+     * @param mergeInterval milliseconds between merges
+     */
+    public ThreadLocalTransactionRecorder(ActorRef<ServiceActor> serviceActor, ActorRef<ServerConnectionActor> serverConnectionActor,
+                                          int bufferSize, long mergeInterval) {
+        this.serviceActor = serviceActor;
+        this.serverConnectionActor = serverConnectionActor;
+        this.bufferSize = Integer.highestOneBit(Math.max(2, bufferSize) - 1) << 1;
+        this.mergeInterval = mergeInterval;
+        this.merger = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (running) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(ThreadLocalTransactionRecorder.this.mergeInterval));
+                    merge();
+                }
+            }
+        }, "TransactionMerger");
+        this.merger.setDaemon(true);
+        MonitoringOverhead.INSTANCE.registerThread(this.merger);
+        this.merger.start();
+    }
+
+    @Override
+    public void serviceStarted(Service service, int usedThreads) {
+        record(RecordingBuffer.SERVICE_START, service, usedThreads, false, null);
+    }
+
+    @Override
+    public void serviceFinished(Service service, boolean isFailed, String description) {
+        record(RecordingBuffer.SERVICE_END, service, 0, isFailed, description);
+    }
+
+    @Override
+    public void connectionStarted(ServerConnection serverConnection) {
+        record(RecordingBuffer.CONNECTION_START, serverConnection, 0, false, null);
+    }
+
+    @Override
+    public void connectionFinished(ServerConnection serverConnection, boolean isFailed, String description) {
+        record(RecordingBuffer.CONNECTION_END, serverConnection, 0, isFailed, description);
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(merger);
+        try {
+            merger.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        merge();
+    }
+
+    private void record(int kind, Object target, int usedThreads, boolean isFailed, String description) {
+        RecordingBuffer buffer = threadBuffer.get();
+        long time = System.currentTimeMillis();
+        if (!buffer.offer(kind, target, time, usedThreads, isFailed, description)) {
+            merge();
+            buffer.offer(kind, target, time, usedThreads, isFailed, description);
+        }
+    }
+
+    /**
+     * Drains the events published so far by every thread, earliest first, and
+     * sends them. Runs under the monitor, which makes its holder the single
+     * consumer of the buffers, and makes the batches reach the actors in the
+     * order they were merged.
+     */
+    private synchronized void merge() {
+        TransactionBatch<Service> services = new TransactionBatch<Service>(bufferSize);
+        TransactionBatch<ServerConnection> connections = new TransactionBatch<ServerConnection>(bufferSize);
+        PriorityQueue<RecordingBuffer> pending = new PriorityQueue<RecordingBuffer>(Math.max(1, buffers.size()), BY_NEXT_TIME);
+        for (RecordingBuffer buffer : buffers) {
+            if (buffer.startDrain()) {
+                pending.add(buffer);
+            } else if (buffer.owner.getState() == Thread.State.TERMINATED) {
+                buffers.remove(buffer);
+            }
+        }
+        RecordingBuffer buffer;
+        while ((buffer = pending.poll()) != null) {
+            // the buffer stays first as long as its next event is not later than the head of the others
+            RecordingBuffer next = pending.peek();
+            long limit = next == null ? Long.MAX_VALUE : next.nextTime();
+            do {
+                buffer.drainNext(services, connections);
+            } while (buffer.hasNext() && buffer.nextTime() <= limit);
+            if (buffer.hasNext()) {
+                pending.add(buffer);
+            } else {
+                buffer.endDrain();
+            }
+        }
+        send(services, connections);
+    }
+
+    private void send(TransactionBatch<Service> services, TransactionBatch<ServerConnection> connections) {
+        if (services.size() > 0) {
+            serviceActor.tell().recordBatch(services);
+        }
+        if (connections.size() > 0) {
+            serverConnectionActor.tell().recordBatch(connections);
+        }
+    }
+
+    /**
+     * A single producer, single consumer ring of events: the owner thread
+     * offers, whoever holds the monitor of the recorder drains.
+     */
+    static final class RecordingBuffer {
+        static final int SERVICE_START = 0;
+        static final int SERVICE_END = 1;
+        static final int CONNECTION_START = 2;
+        static final int CONNECTION_END = 3;
+
+        private final Thread owner;
+        private final int mask;
+        private final int[] kinds;
+        private final Object[] targets;
+        private final long[] times;
+        private final int[] usedThreads;
+        private final boolean[] failed;
+        private final String[] descriptions;
+        // next slot to drain, written by the consumer
+        private final AtomicLong head = new AtomicLong();
+        // next slot to fill, written by the owner
+        private final AtomicLong tail = new AtomicLong();
+        // the slots being drained, used by the consumer only
+        private long drainPosition;
+        private long drainEnd;
+
+        RecordingBuffer(Thread owner, int capacity) {
+            this.owner = owner;
+            this.mask = capacity - 1;
+            this.kinds = new int[capacity];
+            this.targets = new Object[capacity];
+            this.times = new long[capacity];
+            this.usedThreads = new int[capacity];
+            this.failed = new boolean[capacity];
+            this.descriptions = new String[capacity];
+        }
+
+        boolean offer(int kind, Object target, long time, int threads, boolean isFailed, String description) {
+            long position = tail.get();
+            if (position - head.get() > mask) {
+                return false;
+            }
+            int index = (int) position & mask;
+            kinds[index] = kind;
+            targets[index] = target;
+            times[index] = time;
+            usedThreads[index] = threads;
+            failed[index] = isFailed;
+            descriptions[index] = description;
+            tail.lazySet(position + 1);
+            return true;
+        }
+
+        /**
+         * Takes the events published so far for draining.
+         *
+         * @return false if there are none
+         */
+        boolean startDrain() {
+            drainPosition = head.get();
+            drainEnd = tail.get();
+            return drainPosition < drainEnd;
+        }
+
+        boolean hasNext() {
+            return drainPosition < drainEnd;
+        }
+
+        long nextTime() {
+            return times[(int) drainPosition & mask];
+        }
+
+        void drainNext(TransactionBatch<Service> services, TransactionBatch<ServerConnection> connections) {
+            int index = (int) drainPosition & mask;
+            switch (kinds[index]) {
+                case SERVICE_START:
+                    services.addStart((Service) targets[index], times[index], usedThreads[index]);
+                    break;
+                case SERVICE_END:
+                    services.addEnd((Service) targets[index], times[index], failed[index], descriptions[index]);
+                    break;
+                case CONNECTION_START:
+                    connections.addStart((ServerConnection) targets[index], times[index], 0);
+                    break;
+                default:
+                    connections.addEnd((ServerConnection) targets[index], times[index], failed[index], descriptions[index]);
+                    break;
+            }
+            targets[index] = null;
+            descriptions[index] = null;
+            drainPosition++;
+        }
+
+        /**
+         * Hands the drained slots back to the owner.
+         */
+        void endDrain() {
+            head.lazySet(drainEnd);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.recording;
+
+import java.util.Arrays;
+
+/**
+ * Transaction starts and ends collected off the actor and handed to it in one
+ * message, kept in parallel primitive arrays. Filled by one thread, then only
+ * read by the actor.
+ *
+ * @param <T> the service or server connection type
+ */
+public class TransactionBatch<T> {
+
+    private boolean[] starts;
+    private Object[] targets;
+    private long[] times;
+    private int[] usedThreads;
+    private boolean[] failed;
+    private String[] descriptions;
+    private int size;
+
+    public TransactionBatch(int capacity) {
+        starts = new boolean[capacity];
+        targets = new Object[capacity];
+        times = new long[capacity];
+        usedThreads = new int[capacity];
+        failed = new boolean[capacity];
+        descriptions = new String[capacity];
+    }
+
+    public void addStart(T target, long time, int threads) {
+        int index = next();
+        starts[index] = true;
+        targets[index] = target;
+        times[index] = time;
+        usedThreads[index] = threads;
+    }
+
+    public void addEnd(T target, long time, boolean isFailed, String description) {
+        int index = next();
+        targets[index] = target;
+        times[index] = time;
+        failed[index] = isFailed;
+        descriptions[index] = description;
+    }
+
+    private int next() {
+        if (size == targets.length) {
+            int capacity = Math.max(16, size * 2);
+            starts = Arrays.copyOf(starts, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            times = Arrays.copyOf(times, capacity);
+            usedThreads = Arrays.copyOf(usedThreads, capacity);
+            failed = Arrays.copyOf(failed, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+        }
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isStart(int index) {
+        return starts[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getTarget(int index) {
+        return (T) targets[index];
+    }
+
+    /**
+     * @return when the transaction started or ended, in milliseconds since the epoch
+     */
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    public int getUsedThreads(int index) {
+        return usedThreads[index];
+    }
+
+    public boolean isFailed(int index) {
+        return failed[index];
+    }
+
+    public String getDescription(int index) {
+        return descriptions[index];
+    }
+}
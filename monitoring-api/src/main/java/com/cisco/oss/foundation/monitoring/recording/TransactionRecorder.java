@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.recording;
+
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnection;
+import com.cisco.oss.foundation.monitoring.services.Service;
+
+/**
+ * How transaction starts and ends get from the calling threads to the service
+ * and server connection actors, which own the published statistics. Selected
+ * with {@link com.cisco.oss.foundation.monitoring.FoundationMonitoringConstants#TRANSACTION_RECORDER}.
+ */
+public interface TransactionRecorder {
+
+    String ACTOR = "actor";
+    String THREAD_LOCAL = "threadLocal";
+    String RING_BUFFER = "ringBuffer";
+
+    void serviceStarted(Service service, int usedThreads);
+
+    void serviceFinished(Service service, boolean isFailed, String description);
+
+    void connectionStarted(ServerConnection serverConnection);
+
+    void connectionFinished(ServerConnection serverConnection, boolean isFailed, String description);
+
+    /**
+     * Hands everything recorded so far to the actors and stops recording.
+     */
+    void shutdown();
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.recording;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * What a thread of the {@link RingBufferTransactionRecorder} does while it
+ * waits: the consumer for events, a producer for a free slot.
+ */
+public enum WaitStrategy {
+
+    /**
+     * Spins on the CPU: the lowest latency, a full core per waiting thread,
+     * including the consumer while there is nothing to record.
+     */
+    BUSY_SPIN {
+        @Override
+        int idle(int attempts) {
+            return attempts + 1;
+        }
+    },
+
+    /**
+     * Spins briefly, then yields the CPU on every attempt.
+     */
+    YIELD {
+        @Override
+        int idle(int attempts) {
+            if (attempts >= SPIN_TRIES) {
+                Thread.yield();
+            }
+            return attempts + 1;
+        }
+    },
+
+    /**
+     * Spins, yields, then sleeps for {@link #PARK_NANOS} at a time: close to
+     * no CPU when idle, at the cost of up to that much latency.
+     */
+    PARK {
+        @Override
+        int idle(int attempts) {
+            if (attempts >= SPIN_TRIES + YIELD_TRIES) {
+                LockSupport.parkNanos(PARK_NANOS);
+            } else if (attempts >= SPIN_TRIES) {
+                Thread.yield();
+            }
+            return attempts + 1;
+        }
+    };
+
+    static final long PARK_NANOS = 1000000;
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+
+    /**
+     * Waits once.
+     *
+     * @param attempts how many times the caller already waited for the same thing
+     * @return the attempts to pass next time
+     */
+    abstract int idle(int attempts);
+}
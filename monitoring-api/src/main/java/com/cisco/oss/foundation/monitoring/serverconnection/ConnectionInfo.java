@@ -18,14 +18,13 @@ package com.cisco.oss.foundation.monitoring.serverconnection;
 
 import com.cisco.oss.foundation.monitoring.CommunicationInfo;
 import com.cisco.oss.foundation.monitoring.ConnectionInfoMXBean;
-import com.google.common.collect.Lists;
+import com.cisco.oss.foundation.monitoring.overhead.MonitoringOverhead;
 import fi.jumi.actors.ActorRef;
 import fi.jumi.actors.ActorThread;
 import fi.jumi.actors.Actors;
 import fi.jumi.actors.MultiThreadedActors;
 import fi.jumi.actors.eventizers.dynamic.DynamicEventizerProvider;
 import fi.jumi.actors.listeners.CrashEarlyFailureHandler;
-import fi.jumi.actors.listeners.NullMessageListener;
 
 import java.util.List;
 
@@ -47,8 +46,7 @@ public enum ConnectionInfo implements ConnectionInfoMXBean {
 
     @Override
     public List<ServerConnection> getServerConnections() {
-
-        return (List) Lists.newArrayList(serverConnectionActorImpl.serverConnections.values());
+        return serverConnectionActorImpl.getServerConnections();
     }
 
     private ActorRef<ServerConnectionActor> createServerConnectionActor() {
@@ -56,7 +54,7 @@ public enum ConnectionInfo implements ConnectionInfoMXBean {
                 CommunicationInfo.INSTANCE.actorsThreadPool,
                 new DynamicEventizerProvider(),
                 new CrashEarlyFailureHandler(),
-                new NullMessageListener()
+                MonitoringOverhead.INSTANCE.getServerConnectionActorListener()
         );
 
         // Start up a thread where messages to actors will be executed
@@ -76,4 +76,24 @@ public interface ServerConnection {
     ConnectionStatus getTransactionStatus();
 
     long getOpenSince();
+
+    /**
+     * Transactions per second ended on this interface during the last 30 seconds.
+     */
+    double getTps();
+
+    /**
+     * Number of transactions in progress, counted by the library.
+     */
+    long getInFlightTransactions();
+
+    /**
+     * Highest number of transactions in progress during the last complete window.
+     */
+    long getPeakInFlightTransactions();
+
+    /**
+     * Time-weighted average number of transactions in progress during the last complete window.
+     */
+    double getAverageInFlightTransactions();
 }
@@ -16,6 +16,10 @@
 
 package com.cisco.oss.foundation.monitoring.serverconnection;
 
+import com.cisco.oss.foundation.monitoring.recording.TransactionBatch;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.util.Map;
 
 /**
  * Created by Yair Ogen on 3/5/14.
@@ -24,6 +28,28 @@ public interface ServerConnectionActor {
 
     void startTransaction(ServerConnection serverConnection);
     void endTransaction(ServerConnection serverConnection, boolean isFailed, String description);
+
+    /**
+     * Records the starts and ends of the batch, in order, with their own times.
+     */
+    void recordBatch(TransactionBatch<ServerConnection> batch);
     void updateOpenSince(ServerConnection serverConnection, long openSince);
-}
 
+    /**
+     * Completes <code>snapshot</code> with the total and failed request counts
+     * of every server connection, keyed by {@link ServerConnectionImp#checkpointKey()}.
+     */
+    void snapshotCounters(SettableFuture<Map<String, long[]>> snapshot);
+
+    /**
+     * Adds counts saved by a previous run to the matching server connections,
+     * now or when they first record a transaction.
+     */
+    void restoreCounters(Map<String, long[]> counters);
+
+    /**
+     * Moves the statistics of the server connections to an off-heap table and keeps them
+     * there for the life of the process.
+     */
+    void useOffHeapTable(int initialCapacity);
+}
@@ -18,9 +18,19 @@ package com.cisco.oss.foundation.monitoring.serverconnection;
 
 import com.cisco.oss.foundation.monitoring.ConnectionStatus;
 import com.cisco.oss.foundation.monitoring.TransactionOpen;
+import com.cisco.oss.foundation.monitoring.recording.TransactionBatch;
+import com.cisco.oss.foundation.monitoring.statistics.HeavyHitters;
+import com.cisco.oss.foundation.monitoring.statistics.OffHeapStatisticsTable;
+import com.cisco.oss.foundation.monitoring.statistics.StatisticsHistory;
+import com.cisco.oss.foundation.monitoring.tags.TagSet;
+import com.cisco.oss.foundation.monitoring.tags.TaggedMetricRegistry;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.SettableFuture;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -28,32 +38,85 @@ import java.util.Map;
  */
 public class ServerConnectionActorImpl implements ServerConnectionActor{
     protected Map<ServerConnection, ServerConnectionImp> serverConnections = new HashMap<>();
+    protected Map<String, long[]> restoredCounters = new HashMap<>();
+    // set once the statistics moved off the heap, serverConnections is empty from then on
+    protected volatile OffHeapStatisticsTable table;
+    // prepended to the statistics history series names, so components sharing the history keep their own series
+    protected final String seriesPrefix;
+
+    public ServerConnectionActorImpl() {
+        this("");
+    }
+
+    public ServerConnectionActorImpl(String seriesPrefix) {
+        this.seriesPrefix = seriesPrefix;
+    }
 
     public void startTransaction(ServerConnection serverConnection){
+        startTransaction(serverConnection, System.currentTimeMillis());
+    }
+
+    public void endTransaction(ServerConnection serverConnection, boolean isFailed, String description){
+        endTransaction(serverConnection, isFailed, description, System.currentTimeMillis());
+    }
+
+    @Override
+    public void recordBatch(TransactionBatch<ServerConnection> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.isStart(i)) {
+                startTransaction(batch.getTarget(i), batch.getTime(i));
+            } else {
+                endTransaction(batch.getTarget(i), batch.isFailed(i), batch.getDescription(i), batch.getTime(i));
+            }
+        }
+    }
+
+    private void startTransaction(ServerConnection serverConnection, long time){
+        if (table != null) {
+            int record = recordOf((ServerConnectionImp) serverConnection, time);
+            table.putLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_START_TIME, time);
+            table.addLong(record, OffHeapStatisticsTable.TOTAL_REQUEST_COUNT, 1);
+            table.putLong(record, OffHeapStatisticsTable.OPEN_SINCE, 0);
+            table.putInt(record, OffHeapStatisticsTable.TRANSACTION_OPEN, TransactionOpen.Open.ordinal() + 1);
+            return;
+        }
         ServerConnectionImp serverConnectionImp = null;
         if (serverConnections.containsKey(serverConnection)) {
             serverConnectionImp = serverConnections.get(serverConnection);
         } else {
             serverConnectionImp = (ServerConnectionImp) serverConnection;
+            // a batched recorder hands over events older than now
+            serverConnectionImp.lastTransactionEndTime = new Date(time);
+            serverConnectionImp.lastSuccessfulRequestTime = new Date(time);
             serverConnections.put(serverConnection, serverConnectionImp);
+            if (!restoredCounters.isEmpty()) {
+                restore(serverConnectionImp, restoredCounters.remove(serverConnectionImp.checkpointKey()));
+            }
         }
 
-        serverConnectionImp.lastTransactionStartTime = new Date();
+        serverConnectionImp.lastTransactionStartTime = new Date(time);
         serverConnectionImp.totalRequestCount++;
         serverConnectionImp.openSince = 0;
         serverConnectionImp.transactionOpen = TransactionOpen.Open;
     }
 
-    public void endTransaction(ServerConnection serverConnection, boolean isFailed, String description){
+    private void endTransaction(ServerConnection serverConnection, boolean isFailed, String description, long time){
+        if (table != null) {
+            endOffHeapTransaction((ServerConnectionImp) serverConnection, isFailed, description, time);
+            return;
+        }
         ServerConnectionImp serverConnectionImp = serverConnections.get(serverConnection);
 
-        serverConnectionImp.lastTransactionEndTime = new Date();
+        // ends recorded on other threads may arrive late, the end time only moves forward
+        if (time > serverConnectionImp.lastTransactionEndTime.getTime()) {
+            serverConnectionImp.lastTransactionEndTime = new Date(time);
+        }
         if (isFailed == true) {
-            serverConnectionImp.lastFailedRequestTime = new Date();
+            serverConnectionImp.lastFailedRequestTime = new Date(time);
             serverConnectionImp.failedRequestCount++;
             serverConnectionImp.lastFailedRequestDescription = description;
         } else {
-            serverConnectionImp.lastSuccessfulRequestTime = new Date();
+            serverConnectionImp.lastSuccessfulRequestTime = new Date(time);
         }
         if (serverConnectionImp.lastFailedRequestTime == null || (serverConnectionImp.lastSuccessfulRequestTime.getTime() > serverConnectionImp.lastFailedRequestTime.getTime())) {
             serverConnectionImp.connectionStatus = ConnectionStatus.Healthy;
@@ -61,13 +124,199 @@ public class ServerConnectionActorImpl implements ServerConnectionActor{
             serverConnectionImp.connectionStatus = ConnectionStatus.Broken;
         }
         serverConnectionImp.transactionOpen = TransactionOpen.Closed;
-        serverConnectionImp.lastTransactionProcessingTime = (serverConnectionImp.lastTransactionEndTime.getTime() - serverConnectionImp.lastTransactionStartTime.getTime());
+        serverConnectionImp.lastTransactionProcessingTime = Math.max(0, time - serverConnectionImp.lastTransactionStartTime.getTime());
         serverConnectionImp.openSince = 0;
+        serverConnectionImp.tpsHistogram.update(serverConnectionImp.totalRequestCount);
+        StatisticsHistory.INSTANCE.record(seriesPrefix + serverConnectionImp.checkpointKey(), time,
+                serverConnectionImp.lastTransactionProcessingTime, isFailed);
+        HeavyHitters.INSTANCE.recordConnection(seriesPrefix + serverConnectionImp.hostPortKey(),
+                time, serverConnectionImp.lastTransactionProcessingTime, isFailed);
+        TagSet tags = ((ServerConnectionImp) serverConnection).tags;
+        if (tags != null) {
+            TaggedMetricRegistry.INSTANCE.record(tags, time, serverConnectionImp.lastTransactionProcessingTime, isFailed);
+        }
     }
 
     @Override
     public void updateOpenSince(ServerConnection serverConnection, long openSince) {
+        if (table != null) {
+            ServerConnectionImp key = (ServerConnectionImp) serverConnection;
+            int record = table.find(key.hashCode(), key.destinationPort, key.hostName, key.interfaceName, key.serverName, key.apiName);
+            if (record >= 0) {
+                table.putLong(record, OffHeapStatisticsTable.OPEN_SINCE, openSince);
+            }
+            return;
+        }
         ServerConnectionImp serverConnectionImp = serverConnections.get(serverConnection);
         serverConnectionImp.openSince = openSince;
     }
+
+    @Override
+    public void snapshotCounters(SettableFuture<Map<String, long[]>> snapshot) {
+        Map<String, long[]> counters = new HashMap<>(restoredCounters);
+        for (ServerConnectionImp serverConnectionImp : serverConnections.values()) {
+            counters.put(serverConnectionImp.checkpointKey(), new long[]{serverConnectionImp.totalRequestCount, serverConnectionImp.failedRequestCount});
+        }
+        if (table != null) {
+            for (int record = 0; record < table.size(); record++) {
+                counters.put(checkpointKey(table, record), new long[]{table.getLong(record, OffHeapStatisticsTable.TOTAL_REQUEST_COUNT),
+                        table.getLong(record, OffHeapStatisticsTable.FAILED_REQUEST_COUNT)});
+            }
+        }
+        snapshot.set(counters);
+    }
+
+    @Override
+    public void restoreCounters(Map<String, long[]> counters) {
+        Map<String, long[]> pending = new HashMap<>(counters);
+        for (ServerConnectionImp serverConnectionImp : serverConnections.values()) {
+            restore(serverConnectionImp, pending.remove(serverConnectionImp.checkpointKey()));
+        }
+        if (table != null) {
+            for (int record = 0; record < table.size(); record++) {
+                restore(table, record, pending.remove(checkpointKey(table, record)));
+            }
+        }
+        restoredCounters.putAll(pending);
+    }
+
+    @Override
+    public void useOffHeapTable(int initialCapacity) {
+        if (table != null) {
+            return;
+        }
+        OffHeapStatisticsTable created = new OffHeapStatisticsTable(initialCapacity);
+        for (ServerConnectionImp serverConnectionImp : serverConnections.values()) {
+            int record = add(created, serverConnectionImp);
+            created.putLong(record, OffHeapStatisticsTable.TOTAL_REQUEST_COUNT, serverConnectionImp.totalRequestCount);
+            created.putLong(record, OffHeapStatisticsTable.FAILED_REQUEST_COUNT, serverConnectionImp.failedRequestCount);
+            created.putLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_START_TIME, serverConnectionImp.lastTransactionStartTime.getTime());
+            created.putLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_END_TIME, serverConnectionImp.lastTransactionEndTime.getTime());
+            created.putLong(record, OffHeapStatisticsTable.LAST_SUCCESSFUL_REQUEST_TIME, serverConnectionImp.lastSuccessfulRequestTime.getTime());
+            if (serverConnectionImp.lastFailedRequestTime != null) {
+                created.putLong(record, OffHeapStatisticsTable.LAST_FAILED_REQUEST_TIME, serverConnectionImp.lastFailedRequestTime.getTime());
+            }
+            created.putLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_PROCESSING_TIME, serverConnectionImp.lastTransactionProcessingTime);
+            created.putLong(record, OffHeapStatisticsTable.OPEN_SINCE, serverConnectionImp.openSince);
+            if (serverConnectionImp.connectionStatus != null) {
+                created.putInt(record, OffHeapStatisticsTable.STATUS, serverConnectionImp.connectionStatus.ordinal() + 1);
+            }
+            if (serverConnectionImp.transactionOpen != null) {
+                created.putInt(record, OffHeapStatisticsTable.TRANSACTION_OPEN, serverConnectionImp.transactionOpen.ordinal() + 1);
+            }
+            created.setLastFailedRequestDescription(record, serverConnectionImp.lastFailedRequestDescription);
+        }
+        table = created;
+        serverConnections = new HashMap<>();
+    }
+
+    /**
+     * The server connections, materialized from the off-heap table when there is one.
+     */
+    public List<ServerConnection> getServerConnections() {
+        OffHeapStatisticsTable current = table;
+        if (current == null) {
+            return (List) Lists.newArrayList(serverConnections.values());
+        }
+        int size = current.size();
+        long now = System.currentTimeMillis();
+        List<ServerConnection> views = new ArrayList<>(size);
+        for (int record = 0; record < size; record++) {
+            views.add(view(current, record, now));
+        }
+        return views;
+    }
+
+    private int recordOf(ServerConnectionImp serverConnectionImp, long time) {
+        int record = table.find(serverConnectionImp.hashCode(), serverConnectionImp.destinationPort, serverConnectionImp.hostName,
+                serverConnectionImp.interfaceName, serverConnectionImp.serverName, serverConnectionImp.apiName);
+        if (record < 0) {
+            record = add(table, serverConnectionImp);
+            // the heap server connections start with the time they are created
+            table.putLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_START_TIME, time);
+            table.putLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_END_TIME, time);
+            table.putLong(record, OffHeapStatisticsTable.LAST_SUCCESSFUL_REQUEST_TIME, time);
+            if (!restoredCounters.isEmpty()) {
+                restore(table, record, restoredCounters.remove(serverConnectionImp.checkpointKey()));
+            }
+        }
+        return record;
+    }
+
+    private void endOffHeapTransaction(ServerConnectionImp serverConnectionImp, boolean isFailed, String description, long time){
+        int record = recordOf(serverConnectionImp, time);
+        if (time > table.getLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_END_TIME)) {
+            table.putLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_END_TIME, time);
+        }
+        if (isFailed) {
+            table.putLong(record, OffHeapStatisticsTable.LAST_FAILED_REQUEST_TIME, time);
+            table.addLong(record, OffHeapStatisticsTable.FAILED_REQUEST_COUNT, 1);
+            table.setLastFailedRequestDescription(record, description);
+        } else {
+            table.putLong(record, OffHeapStatisticsTable.LAST_SUCCESSFUL_REQUEST_TIME, time);
+        }
+        long lastFailedRequestTime = table.getLong(record, OffHeapStatisticsTable.LAST_FAILED_REQUEST_TIME);
+        long lastSuccessfulRequestTime = table.getLong(record, OffHeapStatisticsTable.LAST_SUCCESSFUL_REQUEST_TIME);
+        ConnectionStatus status = lastFailedRequestTime == 0 || lastSuccessfulRequestTime > lastFailedRequestTime
+                ? ConnectionStatus.Healthy : ConnectionStatus.Broken;
+        table.putInt(record, OffHeapStatisticsTable.STATUS, status.ordinal() + 1);
+        table.putInt(record, OffHeapStatisticsTable.TRANSACTION_OPEN, TransactionOpen.Closed.ordinal() + 1);
+        long processingTime = Math.max(0, time - table.getLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_START_TIME));
+        table.putLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_PROCESSING_TIME, processingTime);
+        table.putLong(record, OffHeapStatisticsTable.OPEN_SINCE, 0);
+        table.countInWindow(record, time);
+        StatisticsHistory.INSTANCE.record(seriesPrefix + serverConnectionImp.checkpointKey(), time, processingTime, isFailed);
+        HeavyHitters.INSTANCE.recordConnection(seriesPrefix + serverConnectionImp.hostPortKey(), time, processingTime, isFailed);
+        if (serverConnectionImp.tags != null) {
+            TaggedMetricRegistry.INSTANCE.record(serverConnectionImp.tags, time, processingTime, isFailed);
+        }
+    }
+
+    private static int add(OffHeapStatisticsTable table, ServerConnectionImp serverConnectionImp) {
+        int record = table.add(serverConnectionImp.hashCode(), serverConnectionImp.destinationPort, serverConnectionImp.hostName,
+                serverConnectionImp.interfaceName, serverConnectionImp.serverName, serverConnectionImp.apiName);
+        table.setConcurrencyGauge(record, serverConnectionImp.concurrency);
+        return record;
+    }
+
+    private static ServerConnectionImp view(OffHeapStatisticsTable table, int record, long now) {
+        ServerConnectionImp view = new ServerConnectionImp(table.getLong(record, OffHeapStatisticsTable.NUMBER), table.getName(record, 0),
+                table.getName(record, 1), table.getName(record, 2), table.getName(record, 3));
+        view.totalRequestCount = table.getLong(record, OffHeapStatisticsTable.TOTAL_REQUEST_COUNT);
+        view.failedRequestCount = table.getLong(record, OffHeapStatisticsTable.FAILED_REQUEST_COUNT);
+        view.lastTransactionStartTime = new Date(table.getLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_START_TIME));
+        view.lastTransactionEndTime = new Date(table.getLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_END_TIME));
+        view.lastSuccessfulRequestTime = new Date(table.getLong(record, OffHeapStatisticsTable.LAST_SUCCESSFUL_REQUEST_TIME));
+        long lastFailedRequestTime = table.getLong(record, OffHeapStatisticsTable.LAST_FAILED_REQUEST_TIME);
+        view.lastFailedRequestTime = lastFailedRequestTime == 0 ? null : new Date(lastFailedRequestTime);
+        view.lastFailedRequestDescription = table.getLastFailedRequestDescription(record);
+        view.lastTransactionProcessingTime = table.getLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_PROCESSING_TIME);
+        view.openSince = table.getLong(record, OffHeapStatisticsTable.OPEN_SINCE);
+        view.concurrency = table.getConcurrencyGauge(record);
+        int status = table.getInt(record, OffHeapStatisticsTable.STATUS);
+        view.connectionStatus = status == 0 ? null : ConnectionStatus.values()[status - 1];
+        int transactionOpen = table.getInt(record, OffHeapStatisticsTable.TRANSACTION_OPEN);
+        view.transactionOpen = transactionOpen == 0 ? null : TransactionOpen.values()[transactionOpen - 1];
+        view.windowCount = table.getWindowCount(record, now);
+        return view;
+    }
+
+    private static String checkpointKey(OffHeapStatisticsTable table, int record) {
+        return ServerConnectionImp.checkpointKey(table.getLong(record, OffHeapStatisticsTable.NUMBER), table.getName(record, 0),
+                table.getName(record, 1), table.getName(record, 2), table.getName(record, 3));
+    }
+
+    private static void restore(OffHeapStatisticsTable table, int record, long[] counters) {
+        if (counters != null) {
+            table.addLong(record, OffHeapStatisticsTable.TOTAL_REQUEST_COUNT, counters[0]);
+            table.addLong(record, OffHeapStatisticsTable.FAILED_REQUEST_COUNT, counters[1]);
+        }
+    }
+
+    private static void restore(ServerConnectionImp serverConnectionImp, long[] counters) {
+        if (counters != null) {
+            serverConnectionImp.totalRequestCount += counters[0];
+            serverConnectionImp.failedRequestCount += counters[1];
+        }
+    }
 }
@@ -16,6 +16,8 @@
 
 package com.cisco.oss.foundation.monitoring.serverconnection;
 
+import com.cisco.oss.foundation.monitoring.tags.TagSet;
+
 public class ServerConnectionDetails {
 
     private String serverName;
@@ -24,6 +26,7 @@ public class ServerConnectionDetails {
     private long sourcePort;
     private long destinationPort;
     private String apiName;
+    private TagSet tags = TagSet.EMPTY;
 
     public String getServerName() {
         return serverName;
@@ -107,4 +110,31 @@ public class ServerConnectionDetails {
     public void setApiName(String apiName) {
         this.apiName = apiName;
     }
+
+    /**
+     * Tags of the transactions of this server connection in the
+     * {@link com.cisco.oss.foundation.monitoring.tags.TaggedMetricRegistry};
+     * they do not take part in the identity of the server connection.
+     */
+    public TagSet getTags() {
+        return tags;
+    }
+
+    /**
+     * @param tags tags of low cardinality, a tenant or a region for example
+     */
+    public void setTags(TagSet tags) {
+        this.tags = tags == null ? TagSet.EMPTY : tags;
+    }
+
+    /**
+     * @return the tags plus the server, the interface and the api, null if the server connection has no tags
+     */
+    public TagSet getMetricTags(String apiName) {
+        if (tags.isEmpty()) {
+            return null;
+        }
+        return tags.with("server", String.valueOf(serverName)).with("interface", String.valueOf(interfaceName))
+                .with("api", String.valueOf(apiName));
+    }
 }
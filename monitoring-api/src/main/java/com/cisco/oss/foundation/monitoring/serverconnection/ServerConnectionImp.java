@@ -16,10 +16,15 @@
 
 package com.cisco.oss.foundation.monitoring.serverconnection;
 
+import com.cisco.oss.foundation.monitoring.ConcurrencyGauge;
 import com.cisco.oss.foundation.monitoring.ConnectionStatus;
 import com.cisco.oss.foundation.monitoring.TransactionOpen;
+import com.cisco.oss.foundation.monitoring.tags.TagSet;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingTimeWindowReservoir;
 
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 public class ServerConnectionImp implements ServerConnection {
 
@@ -31,6 +36,12 @@ public class ServerConnectionImp implements ServerConnection {
         this.apiName = apiName;
     }
 
+    public ServerConnectionImp(ServerConnectionDetails connectionDetails, String apiName) {
+        this(connectionDetails.getDestinationPort(), connectionDetails.getHostName(),
+                connectionDetails.getInterfaceName(), connectionDetails.getServerName(), apiName);
+        this.tags = connectionDetails.getMetricTags(apiName);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -58,6 +69,7 @@ public class ServerConnectionImp implements ServerConnection {
         return result;
     }
 
+    Histogram tpsHistogram = new Histogram(new SlidingTimeWindowReservoir(30, TimeUnit.SECONDS));
     long destinationPort;
     long failedRequestCount;
     String hostName;
@@ -74,6 +86,14 @@ public class ServerConnectionImp implements ServerConnection {
     ConnectionStatus connectionStatus;
     TransactionOpen transactionOpen;
     long openSince;
+    private String checkpointKey;
+    private String hostPortKey;
+    // the tags of the transaction in the TaggedMetricRegistry, null if untagged; not part of the identity
+    TagSet tags;
+    // the transactions in progress, shared by every object of the same server connection
+    ConcurrencyGauge concurrency;
+    // the transactions ended in the window of the off-heap record of a view, -1 for the heap server connections
+    long windowCount = -1;
 
     @Override
     public long getDestinationPort() {
@@ -163,12 +183,62 @@ public class ServerConnectionImp implements ServerConnection {
         return openSince;
     }
 
+    @Override
+    public double getTps() {
+        if (windowCount >= 0) {
+            return windowCount / 30.0;
+        }
+        return tpsHistogram.getSnapshot().getValues().length / 30.0;
+    }
+
+    @Override
+    public long getInFlightTransactions() {
+        ConcurrencyGauge gauge = this.concurrency;
+        return gauge == null ? 0 : gauge.getInFlight();
+    }
+
+    @Override
+    public long getPeakInFlightTransactions() {
+        ConcurrencyGauge gauge = this.concurrency;
+        return gauge == null ? 0 : gauge.getPeak(System.currentTimeMillis());
+    }
+
+    @Override
+    public double getAverageInFlightTransactions() {
+        ConcurrencyGauge gauge = this.concurrency;
+        return gauge == null ? 0 : gauge.getAverage(System.currentTimeMillis());
+    }
+
 
 
     public TransactionOpen getTransactionOpen() {
         return transactionOpen;
     }
 
+    /**
+     * Identifies the server connection in counter checkpoints and in the statistics history.
+     */
+    String checkpointKey() {
+        if (checkpointKey == null) {
+            checkpointKey = checkpointKey(destinationPort, hostName, interfaceName, serverName, apiName);
+        }
+        return checkpointKey;
+    }
+
+    static String checkpointKey(long destinationPort, String hostName, String interfaceName, String serverName, String apiName) {
+        return "connection|" + destinationPort + '|' + hostName + '|' + interfaceName + '|' + serverName + '|' + apiName;
+    }
+
+    /**
+     * Identifies the host and port of the server connection in the heavy hitters.
+     */
+    String hostPortKey() {
+        if (hostPortKey == null) {
+            hostPortKey = hostName + ':' + destinationPort;
+        }
+        return hostPortKey;
+    }
+
 
 
 
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.serverconnection;
+
+import com.cisco.oss.foundation.monitoring.ConcurrencyGauge;
+import com.cisco.oss.foundation.monitoring.FoundationMonitoringConstants;
+import org.apache.commons.configuration.Configuration;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Creates the server connections handed to the server connection actor, and
+ * counts the transactions in progress of each on its {@link ConcurrencyGauge},
+ * on the calling thread.
+ */
+public class ServerConnectionTracker {
+
+    // keyed by the checkpoint key of the server connection, so that no server connection object outlives its message
+    private final ConcurrentMap<String, ConcurrencyGauge> concurrencyGauges = new ConcurrentHashMap<String, ConcurrencyGauge>();
+    private volatile long concurrencyWindow = ConcurrencyGauge.DEFAULT_WINDOW;
+
+    public void setConfiguration(Configuration configuration) {
+        this.concurrencyWindow = configuration.getLong(FoundationMonitoringConstants.CONCURRENCY_WINDOW, ConcurrencyGauge.DEFAULT_WINDOW);
+    }
+
+    /**
+     * @return the server connection to start the transaction on
+     */
+    public ServerConnection started(ServerConnectionDetails connectionDetails, String apiName) {
+        ServerConnectionImp serverConnection = new ServerConnectionImp(connectionDetails, apiName);
+        serverConnection.concurrency = concurrencyGauge(serverConnection);
+        serverConnection.concurrency.started(System.currentTimeMillis());
+        return serverConnection;
+    }
+
+    /**
+     * @return the server connection to end the transaction on
+     */
+    public ServerConnection finished(ServerConnectionDetails connectionDetails, String apiName) {
+        ServerConnectionImp serverConnection = new ServerConnectionImp(connectionDetails, apiName);
+        serverConnection.concurrency = concurrencyGauge(serverConnection);
+        serverConnection.concurrency.finished(System.currentTimeMillis());
+        return serverConnection;
+    }
+
+    private ConcurrencyGauge concurrencyGauge(ServerConnectionImp serverConnection) {
+        ConcurrencyGauge gauge = concurrencyGauges.get(serverConnection.checkpointKey());
+        if (gauge == null) {
+            ConcurrencyGauge created = new ConcurrencyGauge(concurrencyWindow);
+            gauge = concurrencyGauges.putIfAbsent(serverConnection.checkpointKey(), created);
+            if (gauge == null) {
+                gauge = created;
+            }
+        }
+        return gauge;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.services;
+
+import com.cisco.oss.foundation.monitoring.statistics.SpaceSaving;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome counters and the most frequent failure descriptions of one
+ * service, owned by its actor, which adds the outcomes of the successes the
+ * sampler kept from it. Descriptions are kept in a
+ * {@link SpaceSaving} sketch and truncated, so the memory of a service is
+ * bounded whatever the descriptions.
+ */
+class OutcomeCounters {
+
+    static final int MAX_DESCRIPTION_LENGTH = 256;
+
+    private final long[] counts = new long[TransactionOutcome.CODES];
+    private final SpaceSaving<String> failureDescriptions;
+    // the successes the sampler only counted, null while the service is not sampled
+    private UnsampledOutcomes unsampledOutcomes;
+
+    OutcomeCounters(int failureDescriptionCapacity) {
+        this.failureDescriptions = failureDescriptionCapacity > 0
+                ? new SpaceSaving<String>(failureDescriptionCapacity) : null;
+    }
+
+    void record(ServiceImp service, boolean isFailed, String description) {
+        if (unsampledOutcomes == null) {
+            unsampledOutcomes = service.unsampledOutcomes;
+        }
+        counts[TransactionOutcome.index(service.outcome)]++;
+        if (isFailed && failureDescriptions != null && description != null) {
+            failureDescriptions.offer(description.length() > MAX_DESCRIPTION_LENGTH
+                    ? description.substring(0, MAX_DESCRIPTION_LENGTH) : description);
+        }
+    }
+
+    ServiceOutcome toServiceOutcome(String interfaceName, long port, String protocol, String serviceDescription,
+                                    String apiName) {
+        List<SpaceSaving.Counter<String>> top = failureDescriptions == null
+                ? Collections.<SpaceSaving.Counter<String>>emptyList()
+                : failureDescriptions.top(failureDescriptions.getCapacity());
+        String[] descriptions = new String[top.size()];
+        long[] descriptionCounts = new long[top.size()];
+        long[] descriptionErrors = new long[top.size()];
+        for (int i = 0; i < top.size(); i++) {
+            descriptions[i] = top.get(i).getItem();
+            descriptionCounts[i] = top.get(i).getCount();
+            descriptionErrors[i] = top.get(i).getError();
+        }
+        long[] outcomeCounts = counts.clone();
+        if (unsampledOutcomes != null) {
+            unsampledOutcomes.addTo(outcomeCounts);
+        }
+        return new ServiceOutcome(interfaceName, port, protocol, serviceDescription, apiName, outcomeCounts,
+                descriptions, descriptionCounts, descriptionErrors);
+    }
+}
@@ -76,5 +76,32 @@ public interface Service {
 
     double getTps();
 
+    /**
+     * Fraction of the transactions whose timestamps and latency were
+     * recorded, between 0 and 1: about 1/N when the interface is configured
+     * with a sampling rate of 1 in N, 1 otherwise. The request and failure
+     * counts are always exact; the transaction rate is scaled by this fraction.
+     */
+    double getSampledFraction();
+
+    /**
+     * The transactions in progress counted by the library, or the thread count
+     * given by the caller for a service without that count.
+     */
     int getUsedThreads();
+
+    /**
+     * Number of transactions in progress, counted by the library.
+     */
+    long getInFlightTransactions();
+
+    /**
+     * Highest number of transactions in progress during the last complete window.
+     */
+    long getPeakInFlightTransactions();
+
+    /**
+     * Time-weighted average number of transactions in progress during the last complete window.
+     */
+    double getAverageInFlightTransactions();
 }
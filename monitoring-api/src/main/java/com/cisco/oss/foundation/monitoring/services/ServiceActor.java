@@ -16,6 +16,11 @@
 
 package com.cisco.oss.foundation.monitoring.services;
 
+import com.cisco.oss.foundation.monitoring.recording.TransactionBatch;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * Created by Yair Ogen on 3/5/14.
@@ -24,4 +29,37 @@ public interface ServiceActor {
 
     void startTransaction(Service service, int usedThreads);
     void endTransaction(Service service, boolean isFailed, String description);
+
+    /**
+     * Records the starts and ends of the batch, in order, with their own times.
+     */
+    void recordBatch(TransactionBatch<Service> batch);
+
+    /**
+     * Completes <code>snapshot</code> with the total and failed request counts
+     * of every service, keyed by {@link ServiceImp#checkpointKey()}.
+     */
+    void snapshotCounters(SettableFuture<Map<String, long[]>> snapshot);
+
+    /**
+     * Adds counts saved by a previous run to the matching services, now or
+     * when they first record a transaction.
+     */
+    void restoreCounters(Map<String, long[]> counters);
+
+    /**
+     * Moves the statistics of the services to an off-heap table and keeps them
+     * there for the life of the process.
+     */
+    void useOffHeapTable(int initialCapacity);
+
+    /**
+     * Sets the number of failure descriptions tracked per service from now on.
+     */
+    void setFailureDescriptionCapacity(int capacity);
+
+    /**
+     * Completes <code>snapshot</code> with the outcome counters of every service.
+     */
+    void snapshotOutcomes(SettableFuture<List<ServiceOutcome>> snapshot);
 }
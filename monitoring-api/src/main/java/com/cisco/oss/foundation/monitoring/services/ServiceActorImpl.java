@@ -17,9 +17,20 @@
 package com.cisco.oss.foundation.monitoring.services;
 
 import com.cisco.oss.foundation.monitoring.ConnectionStatus;
+import com.cisco.oss.foundation.monitoring.StripedCounter;
+import com.cisco.oss.foundation.monitoring.recording.TransactionBatch;
+import com.cisco.oss.foundation.monitoring.statistics.HeavyHitters;
+import com.cisco.oss.foundation.monitoring.statistics.OffHeapStatisticsTable;
+import com.cisco.oss.foundation.monitoring.statistics.StatisticsHistory;
+import com.cisco.oss.foundation.monitoring.tags.TagSet;
+import com.cisco.oss.foundation.monitoring.tags.TaggedMetricRegistry;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.SettableFuture;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -27,41 +38,343 @@ import java.util.Map;
  */
 public class ServiceActorImpl  implements ServiceActor{
     protected Map<Service, ServiceImp> services = new HashMap<>();
+    protected Map<String, long[]> restoredCounters = new HashMap<>();
+    // set once the statistics moved off the heap, services is empty from then on
+    protected volatile OffHeapStatisticsTable table;
+    // prepended to the statistics history series names, so components sharing the history keep their own series
+    protected final String seriesPrefix;
+    protected int failureDescriptionCapacity = TransactionOutcome.DEFAULT_FAILURE_DESCRIPTIONS;
+
+    public ServiceActorImpl() {
+        this("");
+    }
+
+    public ServiceActorImpl(String seriesPrefix) {
+        this.seriesPrefix = seriesPrefix;
+    }
 
     public void startTransaction(Service service, int usedThreads){
-        ServiceImp serviceImp = null;
-        if (services.containsKey(service)) {
-            serviceImp = services.get(service);
-        } else {
-            serviceImp = (ServiceImp) service;
-            services.put(service, serviceImp);
+        startTransaction(service, usedThreads, System.currentTimeMillis());
+    }
+
+    public void endTransaction(Service service, boolean isFailed, String description){
+        endTransaction(service, isFailed, description, System.currentTimeMillis());
+    }
+
+    @Override
+    public void recordBatch(TransactionBatch<Service> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.isStart(i)) {
+                startTransaction(batch.getTarget(i), batch.getUsedThreads(i), batch.getTime(i));
+            } else {
+                endTransaction(batch.getTarget(i), batch.isFailed(i), batch.getDescription(i), batch.getTime(i));
+            }
         }
+    }
+
+    private ServiceImp getOrAdd(Service service, long time) {
+        ServiceImp serviceImp = services.get(service);
+        if (serviceImp == null) {
+            serviceImp = ((ServiceImp) service).identity();
+            // a batched recorder hands over events older than now
+            serviceImp.lastTransactionStartTime = new Date(time);
+            serviceImp.lastTransactionEndTime = new Date(time);
+            serviceImp.lastSuccessfulRequestTime = new Date(time);
+            services.put(serviceImp, serviceImp);
+            if (!restoredCounters.isEmpty()) {
+                restore(serviceImp, restoredCounters.remove(serviceImp.checkpointKey()));
+            }
+        }
+        return serviceImp;
+    }
+
+    private void startTransaction(Service service, int usedThreads, long time){
+        if (table != null) {
+            int record = recordOf((ServiceImp) service, time);
+            table.putInt(record, OffHeapStatisticsTable.USED_THREADS, usedThreads);
+            table.addLong(record, OffHeapStatisticsTable.TOTAL_REQUEST_COUNT, 1);
+            table.addLong(record, OffHeapStatisticsTable.SAMPLED_REQUEST_COUNT, 1);
+            table.putLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_START_TIME, time);
+            return;
+        }
+        ServiceImp serviceImp = getOrAdd(service, time);
         serviceImp.usedThreads = usedThreads;
         serviceImp.totalRequestCount++;
+        serviceImp.sampledRequestCount++;
 
         serviceImp.getTotalStatisticsRequestCount().incrementAndGet();
-        serviceImp.lastTransactionStartTime = new Date();
+        serviceImp.lastTransactionStartTime = new Date(time);
     }
 
-    public void endTransaction(Service service, boolean isFailed, String description){
-        ServiceImp serviceImp = services.get(service);
-        serviceImp.lastTransactionEndTime = new Date();
-        serviceImp.tpsHistogram.update(serviceImp.getTotalRequestCount());
+    private void endTransaction(Service service, boolean isFailed, String description, long time){
+        if (table != null) {
+            endOffHeapTransaction((ServiceImp) service, isFailed, description, time);
+            return;
+        }
+        boolean timed = ((ServiceImp) service).timed;
+        // a sampled service may fail before any of its transactions was sampled
+        ServiceImp serviceImp = getOrAdd(service, time);
+        if (serviceImp.outcomeCounters == null) {
+            serviceImp.outcomeCounters = new OutcomeCounters(failureDescriptionCapacity);
+        }
+        serviceImp.outcomeCounters.record((ServiceImp) service, isFailed, description);
+        if (timed) {
+            // ends recorded on other threads may arrive late, the end time only moves forward
+            if (time > serviceImp.lastTransactionEndTime.getTime()) {
+                serviceImp.lastTransactionEndTime = new Date(time);
+            }
+            serviceImp.tpsHistogram.update(serviceImp.getTotalRequestCount());
+        }
 
         if (isFailed == true) {
-            serviceImp.lastFailedRequestTime = new Date();
+            serviceImp.lastFailedRequestTime = new Date(time);
             serviceImp.failedRequestCount++;
             serviceImp.lastFailedRequestDescription = description;
 
         } else {
-            serviceImp.lastSuccessfulRequestTime = new Date();
+            serviceImp.lastSuccessfulRequestTime = new Date(time);
         }
         if (serviceImp.getLastFailedRequestTime() == null || (serviceImp.getLastSuccessfulRequestTime().getTime() > serviceImp.getLastFailedRequestTime().getTime())) {
             serviceImp.connectionStatus = ConnectionStatus.Healthy;
         } else {
             serviceImp.connectionStatus = ConnectionStatus.Broken;
         }
-        long end = System.currentTimeMillis();
-        serviceImp.lastTransactionProcessingTime = end - serviceImp.lastTransactionStartTime.getTime();
+        if (timed) {
+            serviceImp.lastTransactionProcessingTime = Math.max(0, time - serviceImp.lastTransactionStartTime.getTime());
+            String seriesKey = seriesPrefix + serviceImp.checkpointKey();
+            StatisticsHistory.INSTANCE.record(seriesKey, time, serviceImp.lastTransactionProcessingTime, isFailed,
+                    ((ServiceImp) service).weight);
+            HeavyHitters.INSTANCE.recordService(seriesKey, time, serviceImp.lastTransactionProcessingTime, isFailed,
+                    ((ServiceImp) service).weight);
+            TagSet tags = ((ServiceImp) service).tags;
+            if (tags != null) {
+                TaggedMetricRegistry.INSTANCE.record(tags, time, serviceImp.lastTransactionProcessingTime, isFailed);
+            }
+        } else {
+            recordUntimed((ServiceImp) service, isFailed, time);
+        }
+    }
+
+    @Override
+    public void setFailureDescriptionCapacity(int capacity) {
+        this.failureDescriptionCapacity = capacity;
+    }
+
+    @Override
+    public void snapshotOutcomes(SettableFuture<List<ServiceOutcome>> snapshot) {
+        List<ServiceOutcome> serviceOutcomes = new ArrayList<>();
+        for (ServiceImp serviceImp : services.values()) {
+            if (serviceImp.outcomeCounters != null) {
+                serviceOutcomes.add(serviceImp.outcomeCounters.toServiceOutcome(serviceImp.interfaceName, serviceImp.port,
+                        serviceImp.protocol, serviceImp.serviceDescription, serviceImp.apiName));
+            }
+        }
+        if (table != null) {
+            for (int record = 0; record < table.size(); record++) {
+                OutcomeCounters counters = (OutcomeCounters) table.getAttachment(record);
+                if (counters != null) {
+                    serviceOutcomes.add(counters.toServiceOutcome(table.getName(record, 0),
+                            table.getLong(record, OffHeapStatisticsTable.NUMBER), table.getName(record, 1),
+                            table.getName(record, 2), table.getName(record, 3)));
+                }
+            }
+        }
+        snapshot.set(serviceOutcomes);
+    }
+
+    @Override
+    public void snapshotCounters(SettableFuture<Map<String, long[]>> snapshot) {
+        Map<String, long[]> counters = new HashMap<>(restoredCounters);
+        for (ServiceImp serviceImp : services.values()) {
+            counters.put(serviceImp.checkpointKey(), new long[]{serviceImp.getTotalRequestCount(), serviceImp.failedRequestCount});
+        }
+        if (table != null) {
+            for (int record = 0; record < table.size(); record++) {
+                StripedCounter unsampled = table.getUnsampledRequestCount(record);
+                long total = table.getLong(record, OffHeapStatisticsTable.TOTAL_REQUEST_COUNT) + (unsampled == null ? 0 : unsampled.sum());
+                counters.put(checkpointKey(table, record), new long[]{total, table.getLong(record, OffHeapStatisticsTable.FAILED_REQUEST_COUNT)});
+            }
+        }
+        snapshot.set(counters);
+    }
+
+    @Override
+    public void restoreCounters(Map<String, long[]> counters) {
+        Map<String, long[]> pending = new HashMap<>(counters);
+        for (ServiceImp serviceImp : services.values()) {
+            restore(serviceImp, pending.remove(serviceImp.checkpointKey()));
+        }
+        if (table != null) {
+            for (int record = 0; record < table.size(); record++) {
+                restore(table, record, pending.remove(checkpointKey(table, record)));
+            }
+        }
+        restoredCounters.putAll(pending);
+    }
+
+    @Override
+    public void useOffHeapTable(int initialCapacity) {
+        if (table != null) {
+            return;
+        }
+        OffHeapStatisticsTable created = new OffHeapStatisticsTable(initialCapacity);
+        for (ServiceImp serviceImp : services.values()) {
+            int record = add(created, serviceImp);
+            created.putLong(record, OffHeapStatisticsTable.TOTAL_REQUEST_COUNT, serviceImp.totalRequestCount);
+            created.putLong(record, OffHeapStatisticsTable.FAILED_REQUEST_COUNT, serviceImp.failedRequestCount);
+            created.putLong(record, OffHeapStatisticsTable.SAMPLED_REQUEST_COUNT, serviceImp.sampledRequestCount);
+            created.putLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_START_TIME, serviceImp.lastTransactionStartTime.getTime());
+            created.putLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_END_TIME, serviceImp.lastTransactionEndTime.getTime());
+            created.putLong(record, OffHeapStatisticsTable.LAST_SUCCESSFUL_REQUEST_TIME, serviceImp.lastSuccessfulRequestTime.getTime());
+            if (serviceImp.lastFailedRequestTime != null) {
+                created.putLong(record, OffHeapStatisticsTable.LAST_FAILED_REQUEST_TIME, serviceImp.lastFailedRequestTime.getTime());
+            }
+            created.putLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_PROCESSING_TIME, serviceImp.lastTransactionProcessingTime);
+            created.putInt(record, OffHeapStatisticsTable.USED_THREADS, serviceImp.usedThreads);
+            if (serviceImp.connectionStatus != null) {
+                created.putInt(record, OffHeapStatisticsTable.STATUS, serviceImp.connectionStatus.ordinal() + 1);
+            }
+            created.setLastFailedRequestDescription(record, serviceImp.lastFailedRequestDescription);
+            created.setAttachment(record, serviceImp.outcomeCounters);
+        }
+        table = created;
+        services = new HashMap<>();
+    }
+
+    /**
+     * The services, materialized from the off-heap table when there is one.
+     */
+    public List<Service> getServices() {
+        OffHeapStatisticsTable current = table;
+        if (current == null) {
+            return (List) Lists.newArrayList(services.values());
+        }
+        long now = System.currentTimeMillis();
+        int size = current.size();
+        List<Service> views = new ArrayList<>(size);
+        for (int record = 0; record < size; record++) {
+            views.add(view(current, record, now));
+        }
+        return views;
+    }
+
+    private int recordOf(ServiceImp serviceImp, long time) {
+        int record = table.find(serviceImp.hashCode(), serviceImp.port, serviceImp.interfaceName, serviceImp.protocol,
+                serviceImp.serviceDescription, serviceImp.apiName);
+        if (record < 0) {
+            record = add(table, serviceImp);
+            // the heap services start with the time they are created
+            table.putLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_START_TIME, time);
+            table.putLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_END_TIME, time);
+            table.putLong(record, OffHeapStatisticsTable.LAST_SUCCESSFUL_REQUEST_TIME, time);
+            if (!restoredCounters.isEmpty()) {
+                restore(table, record, restoredCounters.remove(serviceImp.checkpointKey()));
+            }
+        }
+        return record;
+    }
+
+    private void endOffHeapTransaction(ServiceImp serviceImp, boolean isFailed, String description, long time) {
+        int record = recordOf(serviceImp, time);
+        OutcomeCounters counters = (OutcomeCounters) table.getAttachment(record);
+        if (counters == null) {
+            counters = new OutcomeCounters(failureDescriptionCapacity);
+            table.setAttachment(record, counters);
+        }
+        counters.record(serviceImp, isFailed, description);
+        if (serviceImp.timed) {
+            if (time > table.getLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_END_TIME)) {
+                table.putLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_END_TIME, time);
+            }
+            table.countInWindow(record, time);
+        }
+        if (isFailed) {
+            table.putLong(record, OffHeapStatisticsTable.LAST_FAILED_REQUEST_TIME, time);
+            table.addLong(record, OffHeapStatisticsTable.FAILED_REQUEST_COUNT, 1);
+            table.setLastFailedRequestDescription(record, description);
+        } else {
+            table.putLong(record, OffHeapStatisticsTable.LAST_SUCCESSFUL_REQUEST_TIME, time);
+        }
+        long lastFailedRequestTime = table.getLong(record, OffHeapStatisticsTable.LAST_FAILED_REQUEST_TIME);
+        long lastSuccessfulRequestTime = table.getLong(record, OffHeapStatisticsTable.LAST_SUCCESSFUL_REQUEST_TIME);
+        ConnectionStatus status = lastFailedRequestTime == 0 || lastSuccessfulRequestTime > lastFailedRequestTime
+                ? ConnectionStatus.Healthy : ConnectionStatus.Broken;
+        table.putInt(record, OffHeapStatisticsTable.STATUS, status.ordinal() + 1);
+        if (serviceImp.timed) {
+            long processingTime = Math.max(0, time - table.getLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_START_TIME));
+            table.putLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_PROCESSING_TIME, processingTime);
+            String seriesKey = seriesPrefix + serviceImp.checkpointKey();
+            StatisticsHistory.INSTANCE.record(seriesKey, time, processingTime, isFailed, serviceImp.weight);
+            HeavyHitters.INSTANCE.recordService(seriesKey, time, processingTime, isFailed, serviceImp.weight);
+            if (serviceImp.tags != null) {
+                TaggedMetricRegistry.INSTANCE.record(serviceImp.tags, time, processingTime, isFailed);
+            }
+        } else {
+            recordUntimed(serviceImp, isFailed, time);
+        }
+    }
+
+    /**
+     * Records the end of a transaction the sampler did not time, a failure:
+     * its request is already represented by the weight of the timed ones.
+     */
+    private void recordUntimed(ServiceImp service, boolean isFailed, long time) {
+        if (isFailed) {
+            String seriesKey = seriesPrefix + service.checkpointKey();
+            StatisticsHistory.INSTANCE.recordFailure(seriesKey, time);
+            HeavyHitters.INSTANCE.recordServiceFailure(seriesKey, time);
+        }
+        if (service.tags != null) {
+            TaggedMetricRegistry.INSTANCE.recordUntimed(service.tags, isFailed);
+        }
+    }
+
+    private static int add(OffHeapStatisticsTable table, ServiceImp serviceImp) {
+        int record = table.add(serviceImp.hashCode(), serviceImp.port, serviceImp.interfaceName, serviceImp.protocol,
+                serviceImp.serviceDescription, serviceImp.apiName);
+        table.setUnsampledRequestCount(record, serviceImp.unsampledRequestCount);
+        table.setConcurrencyGauge(record, serviceImp.concurrency);
+        return record;
+    }
+
+    private static ServiceImp view(OffHeapStatisticsTable table, int record, long now) {
+        ServiceImp view = new ServiceImp(table.getName(record, 0), table.getLong(record, OffHeapStatisticsTable.NUMBER), table.getName(record, 1),
+                table.getName(record, 2), table.getName(record, 3));
+        view.totalRequestCount = table.getLong(record, OffHeapStatisticsTable.TOTAL_REQUEST_COUNT);
+        view.failedRequestCount = table.getLong(record, OffHeapStatisticsTable.FAILED_REQUEST_COUNT);
+        view.sampledRequestCount = table.getLong(record, OffHeapStatisticsTable.SAMPLED_REQUEST_COUNT);
+        view.unsampledRequestCount = table.getUnsampledRequestCount(record);
+        view.concurrency = table.getConcurrencyGauge(record);
+        view.lastTransactionStartTime = new Date(table.getLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_START_TIME));
+        view.lastTransactionEndTime = new Date(table.getLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_END_TIME));
+        view.lastSuccessfulRequestTime = new Date(table.getLong(record, OffHeapStatisticsTable.LAST_SUCCESSFUL_REQUEST_TIME));
+        long lastFailedRequestTime = table.getLong(record, OffHeapStatisticsTable.LAST_FAILED_REQUEST_TIME);
+        view.lastFailedRequestTime = lastFailedRequestTime == 0 ? null : new Date(lastFailedRequestTime);
+        view.lastFailedRequestDescription = table.getLastFailedRequestDescription(record);
+        view.lastTransactionProcessingTime = table.getLong(record, OffHeapStatisticsTable.LAST_TRANSACTION_PROCESSING_TIME);
+        view.usedThreads = table.getInt(record, OffHeapStatisticsTable.USED_THREADS);
+        int status = table.getInt(record, OffHeapStatisticsTable.STATUS);
+        view.connectionStatus = status == 0 ? null : ConnectionStatus.values()[status - 1];
+        view.windowCount = table.getWindowCount(record, now);
+        return view;
+    }
+
+    private static String checkpointKey(OffHeapStatisticsTable table, int record) {
+        return ServiceImp.checkpointKey(table.getName(record, 0), table.getLong(record, OffHeapStatisticsTable.NUMBER), table.getName(record, 1),
+                table.getName(record, 2), table.getName(record, 3));
+    }
+
+    private static void restore(OffHeapStatisticsTable table, int record, long[] counters) {
+        if (counters != null) {
+            table.addLong(record, OffHeapStatisticsTable.TOTAL_REQUEST_COUNT, counters[0]);
+            table.addLong(record, OffHeapStatisticsTable.FAILED_REQUEST_COUNT, counters[1]);
+        }
+    }
+
+    private static void restore(ServiceImp serviceImp, long[] counters) {
+        if (counters != null) {
+            serviceImp.totalRequestCount += counters[0];
+            serviceImp.failedRequestCount += counters[1];
+        }
     }
 }
@@ -16,6 +16,8 @@
 
 package com.cisco.oss.foundation.monitoring.services;
 
+import com.cisco.oss.foundation.monitoring.tags.TagSet;
+
 public class ServiceDetails implements Cloneable {
 
     private String serviceDescription;
@@ -23,6 +25,7 @@ public class ServiceDetails implements Cloneable {
     private String protocol;
     private int port;
     private String apiName;
+    private TagSet tags = TagSet.EMPTY;
 
 
     @Override
@@ -104,5 +107,31 @@ public class ServiceDetails implements Cloneable {
         this.apiName = apiName;
     }
 
+    /**
+     * Tags of the transactions of this service in the
+     * {@link com.cisco.oss.foundation.monitoring.tags.TaggedMetricRegistry};
+     * they do not take part in the identity of the service.
+     */
+    public TagSet getTags() {
+        return tags;
+    }
+
+    /**
+     * @param tags tags of low cardinality, a tenant or a region for example
+     */
+    public void setTags(TagSet tags) {
+        this.tags = tags == null ? TagSet.EMPTY : tags;
+    }
+
+    /**
+     * @return the tags plus the interface and the api, null if the service has no tags
+     */
+    public TagSet getMetricTags(String apiName) {
+        if (tags.isEmpty()) {
+            return null;
+        }
+        return tags.with("interface", String.valueOf(interfaceName)).with("api", String.valueOf(apiName));
+    }
+
 
 }
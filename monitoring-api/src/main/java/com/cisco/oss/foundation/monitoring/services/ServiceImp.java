@@ -16,7 +16,10 @@
 
 package com.cisco.oss.foundation.monitoring.services;
 
+import com.cisco.oss.foundation.monitoring.ConcurrencyGauge;
 import com.cisco.oss.foundation.monitoring.ConnectionStatus;
+import com.cisco.oss.foundation.monitoring.StripedCounter;
+import com.cisco.oss.foundation.monitoring.tags.TagSet;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.SlidingTimeWindowReservoir;
 import org.slf4j.Logger;
@@ -29,11 +32,20 @@ import java.util.concurrent.atomic.AtomicLong;
 public class ServiceImp implements Service {
 
     public ServiceImp(String interfaceName, long port, String protocol, String serviceDescription, String apiName) {
+        this(interfaceName, port, protocol, serviceDescription, apiName, true, 1, TransactionOutcome.UNSPECIFIED, null);
+    }
+
+    ServiceImp(String interfaceName, long port, String protocol, String serviceDescription, String apiName,
+               boolean timed, int weight, int outcome, TagSet tags) {
         this.interfaceName = interfaceName;
         this.port = port;
         this.protocol = protocol;
         this.serviceDescription = serviceDescription;
         this.apiName = apiName;
+        this.timed = timed;
+        this.weight = weight;
+        this.outcome = outcome;
+        this.tags = tags;
     }
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ServiceImp.class);
@@ -58,6 +70,27 @@ public class ServiceImp implements Service {
     long lastTransactionProcessingTime;
     ConnectionStatus connectionStatus;
     int usedThreads;
+    // transactions started on the actor, as opposed to only counted by the sampler
+    long sampledRequestCount;
+    // set when the service is sampled
+    StripedCounter unsampledRequestCount;
+    // set when the service is sampled, the outcomes of the successes only counted by the sampler
+    UnsampledOutcomes unsampledOutcomes;
+    // false for a failure that ends a transaction the sampler did not time; only meaningful on a message
+    final boolean timed;
+    // the number of transactions a timed message stands for, the sampling rate of the service; only meaningful on a message
+    final int weight;
+    // the TransactionOutcome code of the transaction this service ends; only meaningful on a message
+    final int outcome;
+    // set on the views of an off-heap table, which count the window instead of keeping a histogram
+    long windowCount = -1;
+    private String checkpointKey;
+    // the tags of the transaction in the TaggedMetricRegistry, null if untagged; not part of the identity
+    final TagSet tags;
+    // the transactions in progress, shared by every object of the same service
+    ConcurrencyGauge concurrency;
+    // set on the services the actor keeps on the heap, once one of their transactions ended
+    OutcomeCounters outcomeCounters;
 
     @Override
     public boolean equals(Object o) {
@@ -118,7 +151,8 @@ public class ServiceImp implements Service {
 
     @Override
     public long getTotalRequestCount() {
-        return this.totalRequestCount;
+        StripedCounter unsampled = this.unsampledRequestCount;
+        return unsampled == null ? this.totalRequestCount : this.totalRequestCount + unsampled.sum();
     }
 
     @Override
@@ -239,7 +273,19 @@ public class ServiceImp implements Service {
     }
 
     public double getTps() {
-        return tpsHistogram.getSnapshot().getValues().length / 30;
+        if (windowCount >= 0) {
+            return windowCount / 30.0 / getSampledFraction();
+        }
+        return tpsHistogram.getSnapshot().getValues().length / 30.0 / getSampledFraction();
+    }
+
+    @Override
+    public double getSampledFraction() {
+        StripedCounter unsampled = this.unsampledRequestCount;
+        if (unsampled == null || sampledRequestCount == 0) {
+            return 1;
+        }
+        return (double) sampledRequestCount / (sampledRequestCount + unsampled.sum());
     }
 
 //    public void setTps(double tps) {
@@ -251,7 +297,26 @@ public class ServiceImp implements Service {
     }
 
     public int getUsedThreads() {
-        return usedThreads;
+        ConcurrencyGauge gauge = this.concurrency;
+        return gauge == null ? usedThreads : (int) gauge.getInFlight();
+    }
+
+    @Override
+    public long getInFlightTransactions() {
+        ConcurrencyGauge gauge = this.concurrency;
+        return gauge == null ? 0 : gauge.getInFlight();
+    }
+
+    @Override
+    public long getPeakInFlightTransactions() {
+        ConcurrencyGauge gauge = this.concurrency;
+        return gauge == null ? 0 : gauge.getPeak(System.currentTimeMillis());
+    }
+
+    @Override
+    public double getAverageInFlightTransactions() {
+        ConcurrencyGauge gauge = this.concurrency;
+        return gauge == null ? 0 : gauge.getAverage(System.currentTimeMillis());
     }
 
 //    public void setUsedThreads(int usedThreads) {
@@ -266,6 +331,43 @@ public class ServiceImp implements Service {
 //        this.lastSuccessfulRequestTime = lastSuccessfulRequestTime;
 //    }
 
+    /**
+     * @return a service with the identity of this message and none of its
+     * per-transaction flags, for the actor to keep the statistics in
+     */
+    ServiceImp identity() {
+        ServiceImp identity = new ServiceImp(interfaceName, port, protocol, serviceDescription, apiName);
+        identity.unsampledRequestCount = unsampledRequestCount;
+        identity.unsampledOutcomes = unsampledOutcomes;
+        identity.concurrency = concurrency;
+        return identity;
+    }
+
+    /**
+     * @return this message, ending a transaction the sampler did not time
+     */
+    ServiceImp untimed() {
+        ServiceImp untimed = new ServiceImp(interfaceName, port, protocol, serviceDescription, apiName, false, weight, outcome, tags);
+        untimed.unsampledRequestCount = unsampledRequestCount;
+        untimed.unsampledOutcomes = unsampledOutcomes;
+        untimed.concurrency = concurrency;
+        return untimed;
+    }
+
+    /**
+     * Identifies the service in counter checkpoints and in the statistics history.
+     */
+    String checkpointKey() {
+        if (checkpointKey == null) {
+            checkpointKey = checkpointKey(interfaceName, port, protocol, serviceDescription, apiName);
+        }
+        return checkpointKey;
+    }
+
+    static String checkpointKey(String interfaceName, long port, String protocol, String serviceDescription, String apiName) {
+        return "service|" + interfaceName + '|' + port + '|' + protocol + '|' + serviceDescription + '|' + apiName;
+    }
+
     @Override
     public String toString() {
         return "ServiceImp{" +
@@ -17,20 +17,29 @@
 package com.cisco.oss.foundation.monitoring.services;
 
 import com.cisco.oss.foundation.monitoring.CommunicationInfo;
-import com.google.common.collect.Lists;
+import com.cisco.oss.foundation.monitoring.overhead.MonitoringOverhead;
 import fi.jumi.actors.ActorRef;
 import fi.jumi.actors.ActorThread;
 import fi.jumi.actors.Actors;
 import fi.jumi.actors.MultiThreadedActors;
 import fi.jumi.actors.eventizers.dynamic.DynamicEventizerProvider;
 import fi.jumi.actors.listeners.CrashEarlyFailureHandler;
-import fi.jumi.actors.listeners.NullMessageListener;
 
+import com.google.common.util.concurrent.SettableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public enum ServiceInfo implements ServiceInfoMXBean {
 
     INSTANCE;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceInfo.class);
+    private static final long SNAPSHOT_TIMEOUT = 5000;
     public ServiceActorImpl serviceActorImpl =  new ServiceActorImpl();
     public ActorThread serviceActorThread = null;
     public final ActorRef<ServiceActor> serviceActor = createServiceActor();
@@ -49,10 +58,30 @@ public enum ServiceInfo implements ServiceInfoMXBean {
 
     @Override
     public List<Service> getServices() {
+        return serviceActorImpl.getServices();
+    }
 
-        return (List)Lists.newArrayList( serviceActorImpl.services.values());
-
+    @Override
+    public List<ServiceOutcome> getServiceOutcomes() {
+        return getServiceOutcomes(serviceActor);
+    }
 
+    /**
+     * Asks the actor for the outcome counters of its services.
+     *
+     * @return an empty list if the actor does not answer in time
+     */
+    public static List<ServiceOutcome> getServiceOutcomes(ActorRef<ServiceActor> serviceActor) {
+        SettableFuture<List<ServiceOutcome>> snapshot = SettableFuture.create();
+        serviceActor.tell().snapshotOutcomes(snapshot);
+        try {
+            return snapshot.get(SNAPSHOT_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.error("Failed to get the service outcomes: {}", e.toString());
+        }
+        return Collections.emptyList();
     }
 
 
@@ -61,7 +90,7 @@ public enum ServiceInfo implements ServiceInfoMXBean {
                 CommunicationInfo.INSTANCE.actorsThreadPool,
                 new DynamicEventizerProvider(),
                 new CrashEarlyFailureHandler(),
-                new NullMessageListener()
+                MonitoringOverhead.INSTANCE.getServiceActorListener()
         );
 
         // Start up a thread where messages to actors will be executed
@@ -21,4 +21,10 @@ import java.util.List;
 public interface ServiceInfoMXBean {
 
     List<Service> getServices();
+
+    /**
+     * The transactions of each service broken down by outcome code, with its
+     * most frequent failure descriptions.
+     */
+    List<ServiceOutcome> getServiceOutcomes();
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.services;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The transactions of one service broken down by outcome code, with its most
+ * frequent failure descriptions.
+ */
+public class ServiceOutcome {
+
+    private final String interfaceName;
+    private final long port;
+    private final String protocol;
+    private final String serviceDescription;
+    private final String apiName;
+    private final long[] outcomeCounts;
+    private final String[] failureDescriptions;
+    private final long[] failureDescriptionCounts;
+    private final long[] failureDescriptionErrors;
+
+    @ConstructorProperties({"interfaceName", "port", "protocol", "serviceDescription", "apiName", "outcomeCounts",
+            "failureDescriptions", "failureDescriptionCounts", "failureDescriptionErrors"})
+    public ServiceOutcome(String interfaceName, long port, String protocol, String serviceDescription, String apiName,
+                          long[] outcomeCounts, String[] failureDescriptions, long[] failureDescriptionCounts,
+                          long[] failureDescriptionErrors) {
+        this.interfaceName = interfaceName;
+        this.port = port;
+        this.protocol = protocol;
+        this.serviceDescription = serviceDescription;
+        this.apiName = apiName;
+        this.outcomeCounts = outcomeCounts;
+        this.failureDescriptions = failureDescriptions;
+        this.failureDescriptionCounts = failureDescriptionCounts;
+        this.failureDescriptionErrors = failureDescriptionErrors;
+    }
+
+    public String getInterfaceName() {
+        return interfaceName;
+    }
+
+    public long getPort() {
+        return port;
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public String getServiceDescription() {
+        return serviceDescription;
+    }
+
+    public String getApiName() {
+        return apiName;
+    }
+
+    /**
+     * Number of ended transactions per outcome code, indexed by the codes of
+     * {@link TransactionOutcome}. With a sampling rate, successful
+     * transactions are counted when they are sampled only.
+     */
+    public long[] getOutcomeCounts() {
+        return outcomeCounts;
+    }
+
+    /**
+     * The most frequent failure descriptions, most frequent first.
+     */
+    public String[] getFailureDescriptions() {
+        return failureDescriptions;
+    }
+
+    /**
+     * The count of each failure description, an overestimate by at most its error.
+     */
+    public long[] getFailureDescriptionCounts() {
+        return failureDescriptionCounts;
+    }
+
+    /**
+     * The most each failure description count may be overestimated by.
+     */
+    public long[] getFailureDescriptionErrors() {
+        return failureDescriptionErrors;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.services;
+
+/**
+ * The outcome codes of service transactions, counted per service. Codes 1 to
+ * 5 are the HTTP status classes; an application may give the codes above them,
+ * up to {@link #OTHER}, to its own classes of errors, exception types for
+ * example. Codes outside the range are counted as {@link #OTHER}.
+ */
+public final class TransactionOutcome {
+
+    public static final int CODES = 16;
+
+    /**
+     * Default number of failure descriptions tracked per service.
+     */
+    public static final int DEFAULT_FAILURE_DESCRIPTIONS = 10;
+
+    public static final int UNSPECIFIED = 0;
+    public static final int HTTP_1XX = 1;
+    public static final int HTTP_2XX = 2;
+    public static final int HTTP_3XX = 3;
+    public static final int HTTP_4XX = 4;
+    public static final int HTTP_5XX = 5;
+    public static final int OTHER = CODES - 1;
+
+    private TransactionOutcome() {
+    }
+
+    /**
+     * @return the code of the class of the HTTP status, {@link #OTHER} for an invalid status
+     */
+    public static int ofHttpStatus(int status) {
+        int statusClass = status / 100;
+        return statusClass >= HTTP_1XX && statusClass <= HTTP_5XX ? statusClass : OTHER;
+    }
+
+    static int index(int outcome) {
+        return outcome >= 0 && outcome < CODES ? outcome : OTHER;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.services;
+
+import com.cisco.oss.foundation.monitoring.ConcurrencyGauge;
+import com.cisco.oss.foundation.monitoring.FoundationMonitoringConstants;
+import com.cisco.oss.foundation.monitoring.StripedCounter;
+import com.cisco.oss.foundation.monitoring.tags.TaggedMetricRegistry;
+import org.apache.commons.configuration.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Decides which transactions of a service reach the service actor.
+ * <p>
+ * A service configured with a sampling rate N greater than 1 sends about one
+ * transaction in N to the actor, which keeps timestamps, latencies and the
+ * statistics history from those. The others are only counted, on a
+ * {@link StripedCounter}, so the request count stays exact, and so are their
+ * outcomes, on {@link UnsampledOutcomes}, and their tags, on the
+ * {@link TaggedMetricRegistry}. Failed
+ * transactions always reach the actor, so the failure count and the last
+ * failure stay exact too. The decision is taken on the calling thread with a
+ * thread-local xorshift generator, and a transaction ended on the thread that
+ * started it is sampled at both ends or at neither, nested transactions
+ * included: each thread keeps the decisions of the transactions it has open,
+ * per service. A transaction ended on another thread than the one that
+ * started it is counted as unsampled at its end.
+ * <p>
+ * Every transaction, sampled or not, is also counted on the
+ * {@link ConcurrencyGauge} of its service while it is in progress.
+ */
+public class TransactionSampler {
+
+    private static final ThreadLocal<ThreadState> THREAD_STATE = new ThreadLocal<ThreadState>() {
+        @Override
+        protected ThreadState initialValue() {
+            return new ThreadState();
+        }
+    };
+
+    private final ConcurrentMap<String, Integer> samplingRates = new ConcurrentHashMap<String, Integer>();
+    // keyed by the checkpoint key of the service, so that no service object outlives its message
+    private final ConcurrentMap<String, StripedCounter> unsampledCounters = new ConcurrentHashMap<String, StripedCounter>();
+    private final ConcurrentMap<String, UnsampledOutcomes> unsampledOutcomes = new ConcurrentHashMap<String, UnsampledOutcomes>();
+    private final ConcurrentMap<String, ConcurrencyGauge> concurrencyGauges = new ConcurrentHashMap<String, ConcurrencyGauge>();
+    private volatile Configuration configuration;
+    private volatile long concurrencyWindow = ConcurrencyGauge.DEFAULT_WINDOW;
+
+    public void setConfiguration(Configuration configuration) {
+        this.configuration = configuration;
+        this.concurrencyWindow = configuration.getLong(FoundationMonitoringConstants.CONCURRENCY_WINDOW, ConcurrencyGauge.DEFAULT_WINDOW);
+        samplingRates.clear();
+    }
+
+    /**
+     * @return the service to start the transaction on, null if the transaction is only counted
+     */
+    public Service started(ServiceDetails serviceDetails, String apiName) {
+        int samplingRate = getSamplingRate(serviceDetails.getInterfaceName());
+        ServiceImp service = newService(serviceDetails, apiName, samplingRate, TransactionOutcome.UNSPECIFIED);
+        service.concurrency = concurrencyGauge(service);
+        service.concurrency.started(System.currentTimeMillis());
+        if (samplingRate <= 1) {
+            return service;
+        }
+        service.unsampledRequestCount = unsampledCounter(service);
+        ThreadState threadState = THREAD_STATE.get();
+        boolean sampled = threadState.nextInt() % samplingRate == 0;
+        threadState.started(service.unsampledRequestCount, sampled);
+        if (sampled) {
+            return service;
+        }
+        service.unsampledRequestCount.increment();
+        return null;
+    }
+
+    /**
+     * @return the service to end the transaction on, null if the transaction is only counted
+     */
+    public Service finished(ServiceDetails serviceDetails, String apiName, boolean isFailed) {
+        return finished(serviceDetails, apiName, isFailed, TransactionOutcome.UNSPECIFIED);
+    }
+
+    /**
+     * @param outcome one of the codes of {@link TransactionOutcome}
+     * @return the service to end the transaction on, null if the transaction is only counted
+     */
+    public Service finished(ServiceDetails serviceDetails, String apiName, boolean isFailed, int outcome) {
+        int samplingRate = getSamplingRate(serviceDetails.getInterfaceName());
+        ServiceImp service = newService(serviceDetails, apiName, samplingRate, outcome);
+        service.concurrency = concurrencyGauge(service);
+        service.concurrency.finished(System.currentTimeMillis());
+        if (samplingRate <= 1) {
+            return service;
+        }
+        service.unsampledRequestCount = unsampledCounter(service);
+        service.unsampledOutcomes = unsampledOutcomes(service);
+        if (THREAD_STATE.get().finished(service.unsampledRequestCount)) {
+            return service;
+        }
+        if (isFailed) {
+            return service.untimed();
+        }
+        service.unsampledOutcomes.increment(outcome);
+        if (service.tags != null) {
+            TaggedMetricRegistry.INSTANCE.recordUntimed(service.tags, false);
+        }
+        return null;
+    }
+
+    /**
+     * @return the configured N of the 1 in N sampling of the interface, 1 when every transaction is recorded
+     */
+    public int getSamplingRate(String interfaceName) {
+        Integer samplingRate = samplingRates.get(interfaceName);
+        if (samplingRate == null) {
+            samplingRate = 1;
+            Configuration current = configuration;
+            if (current != null) {
+                samplingRate = current.getInt(FoundationMonitoringConstants.SERVICE_SAMPLING_RATE + "." + interfaceName,
+                        current.getInt(FoundationMonitoringConstants.SERVICE_SAMPLING_RATE, 1));
+            }
+            samplingRates.put(interfaceName, samplingRate);
+        }
+        return samplingRate;
+    }
+
+    private StripedCounter unsampledCounter(ServiceImp service) {
+        StripedCounter counter = unsampledCounters.get(service.checkpointKey());
+        if (counter == null) {
+            StripedCounter created = new StripedCounter();
+            counter = unsampledCounters.putIfAbsent(service.checkpointKey(), created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    private UnsampledOutcomes unsampledOutcomes(ServiceImp service) {
+        UnsampledOutcomes outcomes = unsampledOutcomes.get(service.checkpointKey());
+        if (outcomes == null) {
+            UnsampledOutcomes created = new UnsampledOutcomes();
+            outcomes = unsampledOutcomes.putIfAbsent(service.checkpointKey(), created);
+            if (outcomes == null) {
+                outcomes = created;
+            }
+        }
+        return outcomes;
+    }
+
+    private ConcurrencyGauge concurrencyGauge(ServiceImp service) {
+        ConcurrencyGauge gauge = concurrencyGauges.get(service.checkpointKey());
+        if (gauge == null) {
+            ConcurrencyGauge created = new ConcurrencyGauge(concurrencyWindow);
+            gauge = concurrencyGauges.putIfAbsent(service.checkpointKey(), created);
+            if (gauge == null) {
+                gauge = created;
+            }
+        }
+        return gauge;
+    }
+
+    private static ServiceImp newService(ServiceDetails serviceDetails, String apiName, int samplingRate, int outcome) {
+        return new ServiceImp(serviceDetails.getInterfaceName(), serviceDetails.getPort(), serviceDetails.getProtocol(),
+                serviceDetails.getServiceDescription(), apiName, true, Math.max(1, samplingRate), outcome,
+                serviceDetails.getMetricTags(apiName));
+    }
+
+    private static final class ThreadState {
+        private int seed = ((int) System.nanoTime() ^ (int) Thread.currentThread().getId() * 0x9E3779B9) | 1;
+        // the decisions of the transactions this thread started and has not ended yet, keyed by the
+        // unsampled counter of their service
+        private final Map<StripedCounter, Decisions> open = new HashMap<StripedCounter, Decisions>();
+
+        private void started(StripedCounter service, boolean sampled) {
+            Decisions decisions = open.get(service);
+            if (decisions == null) {
+                decisions = new Decisions();
+                open.put(service, decisions);
+            }
+            decisions.push(sampled);
+        }
+
+        /**
+         * @return true if the innermost transaction of the service this thread
+         * started was sampled; false if it was not, or if this thread started
+         * none, which is the case of a transaction ended on another thread
+         */
+        private boolean finished(StripedCounter service) {
+            Decisions decisions = open.get(service);
+            return decisions != null && decisions.pop();
+        }
+
+        /**
+         * @return a non negative pseudo random number
+         */
+        private int nextInt() {
+            int x = seed;
+            x ^= x << 13;
+            x ^= x >>> 17;
+            x ^= x << 5;
+            seed = x;
+            return x & Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * A stack of the sampling decisions of nested transactions of one service,
+     * one bit each. It keeps the innermost {@link #MAX_DEPTH}, so the starts
+     * of transactions ended on other threads cannot pile up.
+     */
+    private static final class Decisions {
+        private static final int MAX_DEPTH = 64;
+        private long bits;
+        private int depth;
+
+        private void push(boolean sampled) {
+            bits = bits << 1 | (sampled ? 1 : 0);
+            depth = Math.min(depth + 1, MAX_DEPTH);
+        }
+
+        private boolean pop() {
+            if (depth == 0) {
+                return false;
+            }
+            boolean sampled = (bits & 1) != 0;
+            bits >>>= 1;
+            depth--;
+            return sampled;
+        }
+    }
+}
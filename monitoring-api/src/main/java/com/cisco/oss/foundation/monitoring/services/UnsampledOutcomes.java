@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.services;
+
+import com.cisco.oss.foundation.monitoring.StripedCounter;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The outcomes of the successful transactions of one service that the
+ * {@link TransactionSampler} did not send to the actor, counted on the
+ * calling threads. A counter is created for an outcome code the first time
+ * it is seen, so a service using a few codes only pays for those.
+ */
+class UnsampledOutcomes {
+
+    private final AtomicReferenceArray<StripedCounter> counters = new AtomicReferenceArray<StripedCounter>(TransactionOutcome.CODES);
+
+    void increment(int outcome) {
+        int index = TransactionOutcome.index(outcome);
+        StripedCounter counter = counters.get(index);
+        if (counter == null) {
+            counters.compareAndSet(index, null, new StripedCounter());
+            counter = counters.get(index);
+        }
+        counter.increment();
+    }
+
+    /**
+     * Adds the unsampled outcomes to <code>counts</code>, indexed like
+     * {@link TransactionOutcome#index(int)}.
+     */
+    void addTo(long[] counts) {
+        for (int index = 0; index < counts.length; index++) {
+            StripedCounter counter = counters.get(index);
+            if (counter != null) {
+                counts[index] += counter.sum();
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.statistics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * One of the top items of a ranking of {@link HeavyHittersMXBean}.
+ */
+public class HeavyHitter {
+
+    private final String name;
+    private final long count;
+    private final long error;
+    private final double rate;
+
+    @ConstructorProperties({"name", "count", "error", "rate"})
+    public HeavyHitter(String name, long count, long error, double rate) {
+        this.name = name;
+        this.count = count;
+        this.error = error;
+        this.rate = rate;
+    }
+
+    /**
+     * The service or the host and port of the server connection.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * What the ranking counts over the window: transactions, failed
+     * transactions or milliseconds of processing time. An overestimate by at
+     * most {@link #getError()}.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * The most {@link #getCount()} may be overestimated by.
+     */
+    public long getError() {
+        return error;
+    }
+
+    /**
+     * The count per second of the window. For processing times this is the
+     * average number of transactions in progress.
+     */
+    public double getRate() {
+        return rate;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.statistics;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streaming top-K rankings of the services and server connections by request
+ * rate, failure rate and processing time, fed by their actors when a
+ * transaction ends. A timed transaction of a sampled service stands for as
+ * many transactions as the sampling rate of the service, in the request and
+ * processing time rankings; every failure is ranked, timed or not.
+ * <p>
+ * Each ranking is a pair of {@link SpaceSaving} sketches over tumbling
+ * windows, so its memory is a fixed number of counters whatever the number
+ * of services and server connections, and reading an attribute sorts those
+ * counters only. An item whose share of a window is more than 1 / capacity is
+ * guaranteed to be ranked.
+ */
+public enum HeavyHitters implements HeavyHittersMXBean {
+
+    INSTANCE;
+
+    public static final int DEFAULT_CAPACITY = 64;
+    public static final long DEFAULT_WINDOW = 60000;
+    public static final int TOP = 10;
+
+    private volatile Rankings rankings = new Rankings(DEFAULT_CAPACITY, DEFAULT_WINDOW);
+
+    /**
+     * Starts new rankings.
+     *
+     * @param capacity number of counters per ranking, 0 disables the rankings
+     * @param window   length of a window in milliseconds
+     */
+    public void configure(int capacity, long window) {
+        rankings = capacity > 0 ? new Rankings(capacity, window) : null;
+    }
+
+    /**
+     * @param service identifies the service and api
+     * @param time    end of the transaction, in milliseconds since the epoch
+     * @param latency processing time in milliseconds
+     * @param failed  whether the transaction failed
+     */
+    public void recordService(String service, long time, long latency, boolean failed) {
+        recordService(service, time, latency, failed, 1);
+    }
+
+    /**
+     * @param weight number of transactions the timed transaction stands for, the sampling rate of the service
+     */
+    public void recordService(String service, long time, long latency, boolean failed, int weight) {
+        Rankings current = rankings;
+        if (current != null) {
+            record(current.serviceRequests, current.serviceFailures, current.serviceLatencies, service, time, latency, failed, weight);
+        }
+    }
+
+    /**
+     * Ranks the failure of a transaction that was not timed.
+     */
+    public void recordServiceFailure(String service, long time) {
+        Rankings current = rankings;
+        if (current != null) {
+            current.serviceFailures.record(service, time, 1);
+        }
+    }
+
+    /**
+     * @param hostPort identifies the host and port of the server connection
+     */
+    public void recordConnection(String hostPort, long time, long latency, boolean failed) {
+        Rankings current = rankings;
+        if (current != null) {
+            record(current.connectionRequests, current.connectionFailures, current.connectionLatencies, hostPort, time, latency, failed, 1);
+        }
+    }
+
+    @Override
+    public List<HeavyHitter> getTopServicesByRequestRate() {
+        Rankings current = rankings;
+        return current == null ? Collections.<HeavyHitter>emptyList() : top(current.serviceRequests);
+    }
+
+    @Override
+    public List<HeavyHitter> getTopServicesByFailureRate() {
+        Rankings current = rankings;
+        return current == null ? Collections.<HeavyHitter>emptyList() : top(current.serviceFailures);
+    }
+
+    @Override
+    public List<HeavyHitter> getTopServicesByLatency() {
+        Rankings current = rankings;
+        return current == null ? Collections.<HeavyHitter>emptyList() : top(current.serviceLatencies);
+    }
+
+    @Override
+    public List<HeavyHitter> getTopConnectionsByRequestRate() {
+        Rankings current = rankings;
+        return current == null ? Collections.<HeavyHitter>emptyList() : top(current.connectionRequests);
+    }
+
+    @Override
+    public List<HeavyHitter> getTopConnectionsByFailureRate() {
+        Rankings current = rankings;
+        return current == null ? Collections.<HeavyHitter>emptyList() : top(current.connectionFailures);
+    }
+
+    @Override
+    public List<HeavyHitter> getTopConnectionsByLatency() {
+        Rankings current = rankings;
+        return current == null ? Collections.<HeavyHitter>emptyList() : top(current.connectionLatencies);
+    }
+
+    private static void record(WindowedTopK requests, WindowedTopK failures, WindowedTopK latencies, String item,
+                               long time, long latency, boolean failed, int weight) {
+        requests.record(item, time, weight);
+        if (failed) {
+            failures.record(item, time, 1);
+        }
+        latencies.record(item, time, Math.max(0, latency) * weight);
+    }
+
+    private static List<HeavyHitter> top(WindowedTopK topK) {
+        return topK.top(TOP, System.currentTimeMillis());
+    }
+
+    private static final class Rankings {
+        private final WindowedTopK serviceRequests;
+        private final WindowedTopK serviceFailures;
+        private final WindowedTopK serviceLatencies;
+        private final WindowedTopK connectionRequests;
+        private final WindowedTopK connectionFailures;
+        private final WindowedTopK connectionLatencies;
+
+        private Rankings(int capacity, long window) {
+            this.serviceRequests = new WindowedTopK(capacity, window);
+            this.serviceFailures = new WindowedTopK(capacity, window);
+            this.serviceLatencies = new WindowedTopK(capacity, window);
+            this.connectionRequests = new WindowedTopK(capacity, window);
+            this.connectionFailures = new WindowedTopK(capacity, window);
+            this.connectionLatencies = new WindowedTopK(capacity, window);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.statistics;
+
+import java.util.List;
+
+/**
+ * The busiest services and server connections of the last complete window,
+ * most counted first, without listing all of them. Services are ranked by
+ * service and api, server connections by host and port.
+ */
+public interface HeavyHittersMXBean {
+
+    List<HeavyHitter> getTopServicesByRequestRate();
+
+    List<HeavyHitter> getTopServicesByFailureRate();
+
+    /**
+     * Ranked by total processing time, which weighs the request rate by the latency.
+     */
+    List<HeavyHitter> getTopServicesByLatency();
+
+    List<HeavyHitter> getTopConnectionsByRequestRate();
+
+    List<HeavyHitter> getTopConnectionsByFailureRate();
+
+    /**
+     * Ranked by total processing time, which weighs the request rate by the latency.
+     */
+    List<HeavyHitter> getTopConnectionsByLatency();
+}
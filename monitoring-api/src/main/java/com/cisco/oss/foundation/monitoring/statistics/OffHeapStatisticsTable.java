@@ -0,0 +1,327 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.statistics;
+
+import com.cisco.oss.foundation.monitoring.ConcurrencyGauge;
+import com.cisco.oss.foundation.monitoring.StripedCounter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The statistics of services or server connections kept outside the heap:
+ * one fixed-size record per key in a direct buffer, found through an
+ * open-addressing index.
+ * <p>
+ * A key is a number, the port, and four names. The names are interned, so
+ * the interface, protocol and host names shared by many keys are held once,
+ * and apart from them a key costs a few references on the heap. Readers
+ * materialize whatever views they need from the records on demand.
+ * <p>
+ * Only one thread, the actor owning the table, adds and writes records.
+ * Other threads may read concurrently and see each field either before or
+ * after a write. When the table is full it doubles; readers still holding the
+ * previous storage read its last values.
+ */
+public final class OffHeapStatisticsTable {
+
+    public static final int DEFAULT_INITIAL_CAPACITY = 1024;
+    public static final int KEY_NAMES = 4;
+
+    public static final int NUMBER = 0;
+    public static final int TOTAL_REQUEST_COUNT = 8;
+    public static final int FAILED_REQUEST_COUNT = 16;
+    public static final int SAMPLED_REQUEST_COUNT = 24;
+    public static final int LAST_TRANSACTION_START_TIME = 32;
+    public static final int LAST_TRANSACTION_END_TIME = 40;
+    public static final int LAST_SUCCESSFUL_REQUEST_TIME = 48;
+    /**
+     * 0 while no request failed.
+     */
+    public static final int LAST_FAILED_REQUEST_TIME = 56;
+    public static final int LAST_TRANSACTION_PROCESSING_TIME = 64;
+    public static final int OPEN_SINCE = 72;
+    public static final int USED_THREADS = 80;
+    /**
+     * Ordinal of the connection status plus one, 0 while unknown.
+     */
+    public static final int STATUS = 84;
+    /**
+     * Ordinal of the transaction open state plus one, 0 while unknown.
+     */
+    public static final int TRANSACTION_OPEN = 88;
+
+    /**
+     * Seconds of timed transaction ends kept to compute the rate, like the
+     * sliding window of the heap services.
+     */
+    public static final int WINDOW_SECONDS = 30;
+    private static final int WINDOW_SECOND = 96;
+    private static final int WINDOW = 104;
+    static final int RECORD_SIZE = WINDOW + WINDOW_SECONDS * 4;
+
+    private final Map<String, String> names = new HashMap<String, String>();
+    private volatile Storage storage;
+    private volatile int size;
+
+    public OffHeapStatisticsTable(int initialCapacity) {
+        this.storage = new Storage(Math.max(16, initialCapacity));
+    }
+
+    /**
+     * @return the record of the key, -1 if it has none
+     */
+    public int find(int hash, long number, String name0, String name1, String name2, String name3) {
+        Storage current = storage;
+        int mask = current.index.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int record = current.index[slot] - 1;
+            if (record < 0) {
+                return -1;
+            }
+            if (current.hashes[record] == hash && current.records.getLong(offset(record, NUMBER)) == number
+                    && matches(current.names, record, name0, name1, name2, name3)) {
+                return record;
+            }
+        }
+    }
+
+    /**
+     * Adds a record for a key that has none, growing the table when it is
+     * full. All its fields start at 0 but the number.
+     *
+     * @return the new record
+     */
+    public int add(int hash, long number, String name0, String name1, String name2, String name3) {
+        int record = size;
+        if (record == storage.capacity) {
+            storage = storage.grow(record);
+        }
+        Storage current = storage;
+        current.hashes[record] = hash;
+        current.names[record * KEY_NAMES] = intern(name0);
+        current.names[record * KEY_NAMES + 1] = intern(name1);
+        current.names[record * KEY_NAMES + 2] = intern(name2);
+        current.names[record * KEY_NAMES + 3] = intern(name3);
+        current.records.putLong(offset(record, NUMBER), number);
+        current.insert(record);
+        size = record + 1;
+        return record;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getName(int record, int name) {
+        return storage.names[record * KEY_NAMES + name];
+    }
+
+    public long getLong(int record, int field) {
+        return storage.records.getLong(offset(record, field));
+    }
+
+    public void putLong(int record, int field, long value) {
+        storage.records.putLong(offset(record, field), value);
+    }
+
+    public void addLong(int record, int field, long delta) {
+        ByteBuffer records = storage.records;
+        int offset = offset(record, field);
+        records.putLong(offset, records.getLong(offset) + delta);
+    }
+
+    public int getInt(int record, int field) {
+        return storage.records.getInt(offset(record, field));
+    }
+
+    public void putInt(int record, int field, int value) {
+        storage.records.putInt(offset(record, field), value);
+    }
+
+    public String getLastFailedRequestDescription(int record) {
+        return storage.descriptions[record];
+    }
+
+    public void setLastFailedRequestDescription(int record, String description) {
+        storage.descriptions[record] = description;
+    }
+
+    /**
+     * The counter of transactions the sampler only counted, null when the key is not sampled.
+     */
+    public StripedCounter getUnsampledRequestCount(int record) {
+        return storage.unsampledRequestCounts[record];
+    }
+
+    public void setUnsampledRequestCount(int record, StripedCounter unsampledRequestCount) {
+        storage.unsampledRequestCounts[record] = unsampledRequestCount;
+    }
+
+    /**
+     * The gauge of the transactions in progress, null when the key has none.
+     */
+    public ConcurrencyGauge getConcurrencyGauge(int record) {
+        return storage.concurrencyGauges[record];
+    }
+
+    public void setConcurrencyGauge(int record, ConcurrencyGauge concurrencyGauge) {
+        storage.concurrencyGauges[record] = concurrencyGauge;
+    }
+
+    /**
+     * State the owner of the table keeps with the record on the heap, null when it has none.
+     */
+    public Object getAttachment(int record) {
+        return storage.attachments[record];
+    }
+
+    public void setAttachment(int record, Object attachment) {
+        storage.attachments[record] = attachment;
+    }
+
+    /**
+     * Counts a timed transaction that ended at <code>time</code> in the window of the record.
+     */
+    public void countInWindow(int record, long time) {
+        ByteBuffer records = storage.records;
+        int base = offset(record, 0);
+        long second = time / 1000;
+        long last = records.getLong(base + WINDOW_SECOND);
+        if (second > last) {
+            for (long cleared = Math.max(last + 1, second - WINDOW_SECONDS + 1); cleared <= second; cleared++) {
+                records.putInt(windowSlot(base, cleared), 0);
+            }
+            records.putLong(base + WINDOW_SECOND, second);
+        } else if (second <= last - WINDOW_SECONDS) {
+            return;
+        }
+        int slot = windowSlot(base, second);
+        records.putInt(slot, records.getInt(slot) + 1);
+    }
+
+    /**
+     * @return the timed transactions of the record that ended in the last {@link #WINDOW_SECONDS} seconds
+     */
+    public long getWindowCount(int record, long now) {
+        ByteBuffer records = storage.records;
+        int base = offset(record, 0);
+        long second = now / 1000;
+        long last = records.getLong(base + WINDOW_SECOND);
+        long count = 0;
+        for (long counted = Math.max(second, last) - WINDOW_SECONDS + 1; counted <= Math.min(second, last); counted++) {
+            count += records.getInt(windowSlot(base, counted));
+        }
+        return count;
+    }
+
+    /**
+     * Bytes of the direct buffer holding the records.
+     */
+    public long getOffHeapSize() {
+        return (long) storage.capacity * RECORD_SIZE;
+    }
+
+    private String intern(String name) {
+        if (name == null) {
+            return null;
+        }
+        String interned = names.get(name);
+        if (interned == null) {
+            names.put(name, name);
+            interned = name;
+        }
+        return interned;
+    }
+
+    private static boolean matches(String[] names, int record, String name0, String name1, String name2, String name3) {
+        int base = record * KEY_NAMES;
+        return equal(names[base], name0) && equal(names[base + 1], name1) && equal(names[base + 2], name2)
+                && equal(names[base + 3], name3);
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static int offset(int record, int field) {
+        return record * RECORD_SIZE + field;
+    }
+
+    private static int windowSlot(int base, long second) {
+        return base + WINDOW + (int) (second % WINDOW_SECONDS) * 4;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Storage {
+        private final int capacity;
+        private final ByteBuffer records;
+        private final int[] hashes;
+        private final String[] names;
+        private final String[] descriptions;
+        private final StripedCounter[] unsampledRequestCounts;
+        private final ConcurrencyGauge[] concurrencyGauges;
+        private final Object[] attachments;
+        // record + 1 per slot, 0 when free; kept at most half full
+        private final int[] index;
+
+        private Storage(int capacity) {
+            this.capacity = capacity;
+            this.records = ByteBuffer.allocateDirect(capacity * RECORD_SIZE).order(ByteOrder.nativeOrder());
+            this.hashes = new int[capacity];
+            this.names = new String[capacity * KEY_NAMES];
+            this.descriptions = new String[capacity];
+            this.unsampledRequestCounts = new StripedCounter[capacity];
+            this.concurrencyGauges = new ConcurrencyGauge[capacity];
+            this.attachments = new Object[capacity];
+            this.index = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        }
+
+        private Storage grow(int size) {
+            Storage grown = new Storage(capacity * 2);
+            ByteBuffer used = records.duplicate();
+            used.position(0);
+            used.limit(size * RECORD_SIZE);
+            grown.records.put(used);
+            System.arraycopy(hashes, 0, grown.hashes, 0, size);
+            System.arraycopy(names, 0, grown.names, 0, size * KEY_NAMES);
+            System.arraycopy(descriptions, 0, grown.descriptions, 0, size);
+            System.arraycopy(unsampledRequestCounts, 0, grown.unsampledRequestCounts, 0, size);
+            System.arraycopy(concurrencyGauges, 0, grown.concurrencyGauges, 0, size);
+            System.arraycopy(attachments, 0, grown.attachments, 0, size);
+            for (int record = 0; record < size; record++) {
+                grown.insert(record);
+            }
+            return grown;
+        }
+
+        private void insert(int record) {
+            int mask = index.length - 1;
+            int slot = mix(hashes[record]) & mask;
+            while (index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = record + 1;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.cisco.oss.foundation.monitoring.statistics;
+
+/**
+ * The resolutions kept by the statistics history, with the number of periods
+ * each one retains: 10 minutes of seconds, 24 hours of minutes and 30 days of
+ * hours.
+ */
+public enum Resolution {
+
+    SECOND(1000L, 600),
+    MINUTE(60 * 1000L, 24 * 60),
+    HOUR(60 * 60 * 1000L, 30 * 24);
+
+    private final long period;
+    private final int periods;
+
+    private Resolution(long period, int periods) {
+        this.period = period;
+        this.periods = periods;
+    }
+
+    /**
+     * Length of a period in milliseconds.
+     */
+    public long getPeriod() {
+        return period;
+    }
+
+    /**
+     * Number of periods retained.
+     */
+    public int getPeriods() {
+        return periods;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.statistics;
+
+import java.util.Arrays;
+
+/**
+ * The history of one service or server connection: a fixed ring of periods
+ * per {@link Resolution}, allocated once. Every transaction is added to the
+ * current period of each resolution, so the coarser resolutions are kept
+ * downsampled as the data arrives and nothing is ever rolled up or grows.
+ * A slot that still holds an older period is cleared when it is reused.
+ * <p>
+ * Latencies are counted in power-of-two buckets per period, from which the
+ * 99th percentile is estimated. A timed transaction of a sampled service
+ * counts for the transactions it stands for, so the counts, the average and
+ * the percentile are estimates of all of them; failures are always exact.
+ */
+class RoundRobinSeries {
+
+    static final int LATENCY_BUCKETS = 20;
+
+    private final String name;
+    private final Tier[] tiers;
+
+    RoundRobinSeries(String name) {
+        this.name = name;
+        Resolution[] resolutions = Resolution.values();
+        this.tiers = new Tier[resolutions.length];
+        for (int i = 0; i < resolutions.length; i++) {
+            tiers[i] = new Tier(resolutions[i]);
+        }
+    }
+
+    synchronized void record(long time, long latency, boolean failed) {
+        record(time, latency, failed, 1);
+    }
+
+    /**
+     * @param weight number of transactions the timed transaction stands for
+     */
+    synchronized void record(long time, long latency, boolean failed, int weight) {
+        int bucket = latencyBucket(latency);
+        for (Tier tier : tiers) {
+            tier.record(time, latency, failed, bucket, weight);
+        }
+    }
+
+    /**
+     * Counts the failure of a transaction that was not timed.
+     */
+    synchronized void recordFailure(long time) {
+        for (Tier tier : tiers) {
+            tier.recordFailure(time);
+        }
+    }
+
+    synchronized StatisticsSeries query(Resolution resolution, long from, long to, long now) {
+        return tiers[resolution.ordinal()].query(name, from, to, now);
+    }
+
+    static int latencyBucket(long latency) {
+        if (latency <= 0) {
+            return 0;
+        }
+        return Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(latency));
+    }
+
+    /**
+     * @return the highest latency counted in the bucket
+     */
+    static long latencyBucketBound(int bucket) {
+        return bucket == 0 ? 0 : (1L << bucket) - 1;
+    }
+
+    private static final class Tier {
+        private final Resolution resolution;
+        private final int size;
+        private final long[] periods;
+        private final int[] counts;
+        private final int[] failures;
+        private final long[] latencySums;
+        private final long[] maxLatencies;
+        private final int[] histograms;
+
+        private Tier(Resolution resolution) {
+            this.resolution = resolution;
+            this.size = resolution.getPeriods();
+            this.periods = new long[size];
+            this.counts = new int[size];
+            this.failures = new int[size];
+            this.latencySums = new long[size];
+            this.maxLatencies = new long[size];
+            this.histograms = new int[size * LATENCY_BUCKETS];
+            Arrays.fill(periods, -1);
+        }
+
+        private void record(long time, long latency, boolean failed, int bucket, int weight) {
+            int slot = slot(time);
+            if (slot < 0) {
+                return;
+            }
+            counts[slot] += weight;
+            if (failed) {
+                failures[slot]++;
+            }
+            latencySums[slot] += latency * weight;
+            maxLatencies[slot] = Math.max(maxLatencies[slot], latency);
+            histograms[slot * LATENCY_BUCKETS + bucket] += weight;
+        }
+
+        private void recordFailure(long time) {
+            int slot = slot(time);
+            if (slot >= 0) {
+                failures[slot]++;
+            }
+        }
+
+        /**
+         * @return the slot of the period of <code>time</code>, cleared if it held an older
+         * period, -1 if it already holds a newer one
+         */
+        private int slot(long time) {
+            long period = time / resolution.getPeriod();
+            int slot = (int) (period % size);
+            if (periods[slot] != period) {
+                if (periods[slot] > period) {
+                    return -1;
+                }
+                clear(slot, period);
+            }
+            return slot;
+        }
+
+        private void clear(int slot, long period) {
+            periods[slot] = period;
+            counts[slot] = 0;
+            failures[slot] = 0;
+            latencySums[slot] = 0;
+            maxLatencies[slot] = 0;
+            Arrays.fill(histograms, slot * LATENCY_BUCKETS, (slot + 1) * LATENCY_BUCKETS, 0);
+        }
+
+        private StatisticsSeries query(String name, long from, long to, long now) {
+            long step = resolution.getPeriod();
+            long last = Math.min(to, now) / step;
+            long first = Math.max(from / step, now / step - size + 1);
+            int length = (int) Math.max(0, last - first + 1);
+            long[] countValues = new long[length];
+            long[] failureValues = new long[length];
+            long[] averageValues = new long[length];
+            long[] maxValues = new long[length];
+            long[] p99Values = new long[length];
+            for (int i = 0; i < length; i++) {
+                long period = first + i;
+                int slot = (int) (period % size);
+                if (periods[slot] != period) {
+                    continue;
+                }
+                failureValues[i] = failures[slot];
+                if (counts[slot] == 0) {
+                    continue;
+                }
+                countValues[i] = counts[slot];
+                averageValues[i] = latencySums[slot] / counts[slot];
+                maxValues[i] = maxLatencies[slot];
+                p99Values[i] = percentile(slot, 0.99);
+            }
+            return new StatisticsSeries(name, resolution.name(), first * step, step, countValues, failureValues,
+                    averageValues, maxValues, p99Values);
+        }
+
+        private long percentile(int slot, double quantile) {
+            long rank = (long) Math.ceil(counts[slot] * quantile);
+            long seen = 0;
+            int offset = slot * LATENCY_BUCKETS;
+            for (int bucket = 0; bucket < LATENCY_BUCKETS; bucket++) {
+                seen += histograms[offset + bucket];
+                if (seen >= rank) {
+                    return Math.min(latencyBucketBound(bucket), maxLatencies[slot]);
+                }
+            }
+            return maxLatencies[slot];
+        }
+    }
+}
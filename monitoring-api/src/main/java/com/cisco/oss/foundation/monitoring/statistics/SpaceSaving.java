@@ -0,0 +1,143 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.statistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Space-Saving sketch: the approximate top items of a stream in the
+ * memory of a fixed number of counters.
+ * <p>
+ * An item already counted has its counter incremented. A new item takes a
+ * free counter, or once all are taken the counter of the least counted item,
+ * whose count it inherits as its error. A counted item is therefore
+ * overestimated by at most its error, and any item counted more than the
+ * total weight divided by the capacity is guaranteed to be counted. Not
+ * thread-safe: a sketch is owned by the actor that feeds it.
+ *
+ * @param <T> the type of the items, with value equality
+ */
+public class SpaceSaving<T> {
+
+    private final int capacity;
+    private final Map<T, Counter<T>> counters;
+
+    /**
+     * @param capacity number of counters, the most items that are tracked
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<T, Counter<T>>(capacity * 2);
+    }
+
+    public void offer(T item) {
+        offer(item, 1);
+    }
+
+    /**
+     * @param weight added to the count of the item, 1 to count occurrences
+     */
+    public void offer(T item, long weight) {
+        Counter<T> counter = counters.get(item);
+        if (counter != null) {
+            counter.count += weight;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(item, new Counter<T>(item, weight, 0));
+            return;
+        }
+        Counter<T> min = null;
+        for (Counter<T> candidate : counters.values()) {
+            if (min == null || candidate.count < min.count) {
+                min = candidate;
+            }
+        }
+        counters.remove(min.item);
+        min.item = item;
+        min.error = min.count;
+        min.count += weight;
+        counters.put(item, min);
+    }
+
+    /**
+     * @return copies of the counters of the <code>k</code> most counted items, most counted first
+     */
+    public List<Counter<T>> top(int k) {
+        List<Counter<T>> top = new ArrayList<Counter<T>>(counters.size());
+        for (Counter<T> counter : counters.values()) {
+            top.add(new Counter<T>(counter.item, counter.count, counter.error));
+        }
+        Collections.sort(top, new Comparator<Counter<T>>() {
+            @Override
+            public int compare(Counter<T> first, Counter<T> second) {
+                return Long.compare(second.count, first.count);
+            }
+        });
+        return top.size() > k ? new ArrayList<Counter<T>>(top.subList(0, k)) : top;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public void clear() {
+        counters.clear();
+    }
+
+    public static final class Counter<T> {
+        private T item;
+        private long count;
+        private long error;
+
+        private Counter(T item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        /**
+         * The count of the item, an overestimate by at most {@link #getError()}.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * The count the item inherited when it took the counter of another item.
+         */
+        public long getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.statistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An embedded round-robin store of the transactions of every service and
+ * server connection, fed by their actors when a transaction ends.
+ * <p>
+ * Each series takes a fixed amount of memory, about 300KB, allocated when it
+ * records its first transaction, and the number of series is capped, so the
+ * store is bounded however long the process runs. Transactions of series
+ * beyond the cap are not kept.
+ */
+public enum StatisticsHistory implements StatisticsHistoryMXBean {
+
+    INSTANCE;
+
+    public static final int DEFAULT_MAX_SERIES = 32;
+
+    private final ConcurrentMap<String, RoundRobinSeries> series = new ConcurrentHashMap<String, RoundRobinSeries>();
+    private final AtomicInteger seriesCount = new AtomicInteger();
+    private final AtomicLong rejectedTransactionCount = new AtomicLong();
+    private volatile int maxSeries = DEFAULT_MAX_SERIES;
+
+    /**
+     * @param maxSeries maximum number of services and server connections with a history, 0 disables the history
+     */
+    public void setMaxSeries(int maxSeries) {
+        this.maxSeries = maxSeries;
+    }
+
+    /**
+     * Adds a finished transaction to the history of the series.
+     *
+     * @param seriesName identifies the service or server connection
+     * @param time       end of the transaction, in milliseconds since the epoch
+     * @param latency    processing time in milliseconds
+     * @param failed     whether the transaction failed
+     */
+    public void record(String seriesName, long time, long latency, boolean failed) {
+        record(seriesName, time, latency, failed, 1);
+    }
+
+    /**
+     * @param weight number of transactions the timed transaction stands for, the sampling rate of the service
+     */
+    public void record(String seriesName, long time, long latency, boolean failed, int weight) {
+        RoundRobinSeries roundRobinSeries = getOrCreate(seriesName);
+        if (roundRobinSeries != null) {
+            roundRobinSeries.record(time, latency, failed, weight);
+        }
+    }
+
+    /**
+     * Adds the failure of a transaction that was not timed: its request is
+     * already counted through the weight of the timed ones.
+     */
+    public void recordFailure(String seriesName, long time) {
+        RoundRobinSeries roundRobinSeries = getOrCreate(seriesName);
+        if (roundRobinSeries != null) {
+            roundRobinSeries.recordFailure(time);
+        }
+    }
+
+    private RoundRobinSeries getOrCreate(String seriesName) {
+        RoundRobinSeries roundRobinSeries = series.get(seriesName);
+        return roundRobinSeries != null ? roundRobinSeries : createSeries(seriesName);
+    }
+
+    @Override
+    public List<String> getSeriesNames() {
+        List<String> names = new ArrayList<String>(series.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    @Override
+    public StatisticsSeries getHistory(String seriesName, String resolution, long from, long to) {
+        RoundRobinSeries roundRobinSeries = series.get(seriesName);
+        if (roundRobinSeries == null) {
+            return null;
+        }
+        return roundRobinSeries.query(Resolution.valueOf(resolution.toUpperCase()), from, to, System.currentTimeMillis());
+    }
+
+    @Override
+    public long getRejectedTransactionCount() {
+        return rejectedTransactionCount.get();
+    }
+
+    private RoundRobinSeries createSeries(String seriesName) {
+        while (true) {
+            int count = seriesCount.get();
+            if (count >= maxSeries) {
+                rejectedTransactionCount.incrementAndGet();
+                return null;
+            }
+            if (seriesCount.compareAndSet(count, count + 1)) {
+                break;
+            }
+        }
+        RoundRobinSeries created = new RoundRobinSeries(seriesName);
+        RoundRobinSeries existing = series.putIfAbsent(seriesName, created);
+        if (existing != null) {
+            seriesCount.decrementAndGet();
+            return existing;
+        }
+        return created;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.cisco.oss.foundation.monitoring.statistics;
+
+import java.util.List;
+
+/**
+ * Recent per service and per server connection statistics, kept in memory at
+ * the resolutions of {@link Resolution}.
+ */
+public interface StatisticsHistoryMXBean {
+
+    /**
+     * The names of the services and server connections with a history.
+     */
+    List<String> getSeriesNames();
+
+    /**
+     * @param seriesName one of {@link #getSeriesNames()}
+     * @param resolution SECOND, MINUTE or HOUR
+     * @param from       start of the range, in milliseconds since the epoch
+     * @param to         end of the range, in milliseconds since the epoch
+     * @return one value per period of the range still retained, null for an unknown series
+     */
+    StatisticsSeries getHistory(String seriesName, String resolution, long from, long to);
+
+    /**
+     * Number of transactions not kept because their service or server
+     * connection could not get a history: the maximum number of series was reached.
+     */
+    long getRejectedTransactionCount();
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.statistics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A range of the statistics history of one service or server connection. The
+ * value at index <code>i</code> of every array is for the period starting at
+ * <code>start + i * step</code>; periods without transactions are 0.
+ */
+public class StatisticsSeries {
+
+    private final String name;
+    private final String resolution;
+    private final long start;
+    private final long step;
+    private final long[] counts;
+    private final long[] failures;
+    private final long[] averageLatencies;
+    private final long[] maxLatencies;
+    private final long[] p99Latencies;
+
+    @ConstructorProperties({"name", "resolution", "start", "step", "counts", "failures", "averageLatencies",
+            "maxLatencies", "p99Latencies"})
+    public StatisticsSeries(String name, String resolution, long start, long step, long[] counts, long[] failures,
+                            long[] averageLatencies, long[] maxLatencies, long[] p99Latencies) {
+        this.name = name;
+        this.resolution = resolution;
+        this.start = start;
+        this.step = step;
+        this.counts = counts;
+        this.failures = failures;
+        this.averageLatencies = averageLatencies;
+        this.maxLatencies = maxLatencies;
+        this.p99Latencies = p99Latencies;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Start of the first period, in milliseconds since the epoch.
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Length of a period in milliseconds.
+     */
+    public long getStep() {
+        return step;
+    }
+
+    /**
+     * Number of transactions that ended in each period, estimated from the
+     * timed ones when the service is sampled.
+     */
+    public long[] getCounts() {
+        return counts;
+    }
+
+    /**
+     * Number of failed transactions in each period.
+     */
+    public long[] getFailures() {
+        return failures;
+    }
+
+    /**
+     * Average processing time in milliseconds.
+     */
+    public long[] getAverageLatencies() {
+        return averageLatencies;
+    }
+
+    /**
+     * Maximum processing time in milliseconds.
+     */
+    public long[] getMaxLatencies() {
+        return maxLatencies;
+    }
+
+    /**
+     * 99th percentile of the processing time in milliseconds, estimated from
+     * power-of-two buckets: at most twice the exact value, never above the maximum.
+     */
+    public long[] getP99Latencies() {
+        return p99Latencies;
+    }
+}
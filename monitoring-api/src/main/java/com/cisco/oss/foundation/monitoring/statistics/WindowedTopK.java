@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The top items of one ranking over tumbling windows: a {@link SpaceSaving}
+ * sketch for the current window and the one of the last complete window,
+ * which is what is reported. The two sketches are swapped and reused, so the
+ * memory stays constant.
+ */
+class WindowedTopK {
+
+    private final long window;
+    private SpaceSaving<String> current;
+    private SpaceSaving<String> previous;
+    private long currentWindow = -1;
+    private long previousWindow = -1;
+
+    WindowedTopK(int capacity, long window) {
+        this.window = window;
+        this.current = new SpaceSaving<String>(capacity);
+        this.previous = new SpaceSaving<String>(capacity);
+    }
+
+    synchronized void record(String item, long time, long weight) {
+        roll(time);
+        current.offer(item, weight);
+    }
+
+    /**
+     * @return the top items of the last complete window, of the current one while there is none
+     */
+    synchronized List<HeavyHitter> top(int k, long now) {
+        roll(now);
+        boolean complete = previousWindow == currentWindow - 1;
+        SpaceSaving<String> reported = complete ? previous : current;
+        double seconds = complete ? window / 1000.0 : Math.max(1, now - currentWindow * window) / 1000.0;
+        List<SpaceSaving.Counter<String>> counters = reported.top(k);
+        List<HeavyHitter> top = new ArrayList<HeavyHitter>(counters.size());
+        for (SpaceSaving.Counter<String> counter : counters) {
+            top.add(new HeavyHitter(counter.getItem(), counter.getCount(), counter.getError(), counter.getCount() / seconds));
+        }
+        return top;
+    }
+
+    private void roll(long time) {
+        long timeWindow = time / window;
+        if (timeWindow <= currentWindow) {
+            return;
+        }
+        if (timeWindow == currentWindow + 1) {
+            SpaceSaving<String> reused = previous;
+            reused.clear();
+            previous = current;
+            current = reused;
+            previousWindow = currentWindow;
+        } else {
+            // the window before this one had no transactions, or was before the first one
+            previous.clear();
+            current.clear();
+            previousWindow = currentWindow < 0 ? -1 : timeWindow - 1;
+        }
+        currentWindow = timeWindow;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.tags;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable, interned set of tags, key value pairs kept sorted by key,
+ * that identifies a series of the {@link TaggedMetricRegistry}.
+ * <p>
+ * Every tag set but the parsed ones is interned, so equal tag sets are the
+ * same object and their hash code is computed once. {@link #of(String...)} allocates and is meant to
+ * be called once per tag set, at setup; {@link #with(String, String)} caches
+ * its result in the tag set it is called on, so deriving a per-request tag
+ * set, a status code class for example, allocates only the first time. Tag
+ * sets are never released: tags are meant for dimensions of low cardinality.
+ */
+public final class TagSet {
+
+    private static final ConcurrentMap<TagSet, TagSet> INTERNED = new ConcurrentHashMap<TagSet, TagSet>();
+
+    public static final TagSet EMPTY = intern(new TagSet(new String[0]));
+
+    // keys at even indexes, each followed by its value
+    private final String[] keyValues;
+    private final int hash;
+    private final ConcurrentMap<String, ConcurrentMap<String, TagSet>> derived = new ConcurrentHashMap<String, ConcurrentMap<String, TagSet>>();
+    private String text;
+
+    private TagSet(String[] keyValues) {
+        this.keyValues = keyValues;
+        this.hash = Arrays.hashCode(keyValues);
+    }
+
+    /**
+     * @param keyValues keys, each followed by its value
+     * @throws IllegalArgumentException if a key or value is null, or a key is repeated
+     */
+    public static TagSet of(String... keyValues) {
+        if (keyValues.length % 2 != 0) {
+            throw new IllegalArgumentException("Tags must be given as key value pairs");
+        }
+        TagSet tagSet = EMPTY;
+        for (int i = 0; i < keyValues.length; i += 2) {
+            if (tagSet.get(keyValues[i]) != null) {
+                throw new IllegalArgumentException("Tag " + keyValues[i] + " is given twice");
+            }
+            tagSet = tagSet.with(keyValues[i], keyValues[i + 1]);
+        }
+        return tagSet;
+    }
+
+    /**
+     * Parses the form written by {@link #toString()}: <code>key=value</code>
+     * pairs separated by commas. The tag set is not interned, as the text may
+     * come from a remote client: it is equal to the interned one with the same
+     * tags but not the same object.
+     */
+    public static TagSet parse(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return EMPTY;
+        }
+        String[] keyValues = new String[0];
+        for (String tag : text.split(",")) {
+            int separator = tag.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Not a key=value tag: " + tag);
+            }
+            keyValues = put(keyValues, tag.substring(0, separator).trim(), tag.substring(separator + 1).trim());
+        }
+        return new TagSet(keyValues);
+    }
+
+    /**
+     * @return this tag set with the tag added, or with its value replaced if the key is already there
+     */
+    public TagSet with(String key, String value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Tag keys and values must not be null");
+        }
+        ConcurrentMap<String, TagSet> byValue = derived.get(key);
+        if (byValue == null) {
+            ConcurrentMap<String, TagSet> created = new ConcurrentHashMap<String, TagSet>();
+            byValue = derived.putIfAbsent(key, created);
+            if (byValue == null) {
+                byValue = created;
+            }
+        }
+        TagSet tagSet = byValue.get(value);
+        if (tagSet == null) {
+            tagSet = intern(new TagSet(put(keyValues, key, value)));
+            TagSet existing = byValue.putIfAbsent(value, tagSet);
+            if (existing != null) {
+                tagSet = existing;
+            }
+        }
+        return tagSet;
+    }
+
+    /**
+     * @return the tags of this set whose key is one of <code>keys</code>
+     */
+    public TagSet project(String... keys) {
+        TagSet projection = EMPTY;
+        for (String key : keys) {
+            String value = get(key);
+            if (value != null) {
+                projection = projection.with(key, value);
+            }
+        }
+        return projection;
+    }
+
+    /**
+     * @return true if every tag of <code>other</code> is in this set
+     */
+    public boolean contains(TagSet other) {
+        for (int i = 0; i < other.keyValues.length; i += 2) {
+            if (!other.keyValues[i + 1].equals(get(other.keyValues[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the value of the tag, null if the set has no such tag
+     */
+    public String get(String key) {
+        for (int i = 0; i < keyValues.length; i += 2) {
+            if (keyValues[i].equals(key)) {
+                return keyValues[i + 1];
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return keyValues.length / 2;
+    }
+
+    public boolean isEmpty() {
+        return keyValues.length == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TagSet that = (TagSet) o;
+        return hash == that.hash && Arrays.equals(keyValues, that.keyValues);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * @return the tags as <code>key=value</code> pairs separated by commas, sorted by key
+     */
+    @Override
+    public String toString() {
+        if (text == null) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < keyValues.length; i += 2) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                builder.append(keyValues[i]).append('=').append(keyValues[i + 1]);
+            }
+            text = builder.toString();
+        }
+        return text;
+    }
+
+    private static TagSet intern(TagSet tagSet) {
+        TagSet existing = INTERNED.putIfAbsent(tagSet, tagSet);
+        return existing != null ? existing : tagSet;
+    }
+
+    private static String[] put(String[] keyValues, String key, String value) {
+        int index = 0;
+        while (index < keyValues.length && keyValues[index].compareTo(key) < 0) {
+            index += 2;
+        }
+        if (index < keyValues.length && keyValues[index].equals(key)) {
+            String[] replaced = keyValues.clone();
+            replaced[index + 1] = value;
+            return replaced;
+        }
+        String[] added = new String[keyValues.length + 2];
+        System.arraycopy(keyValues, 0, added, 0, index);
+        added[index] = key;
+        added[index + 1] = value;
+        System.arraycopy(keyValues, index, added, index + 2, keyValues.length - index);
+        return added;
+    }
+}
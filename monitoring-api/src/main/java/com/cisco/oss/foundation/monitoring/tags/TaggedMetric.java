@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.tags;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The counters of one tag set, or of a group of tag sets for
+ * {@link TaggedMetricRegistryMXBean#aggregate(String, String)}.
+ */
+public class TaggedMetric {
+
+    private final String tags;
+    private final long totalRequestCount;
+    private final long failedRequestCount;
+    private final long averageLatency;
+    private final long maxLatency;
+    private final long lastTransactionEndTime;
+
+    @ConstructorProperties({"tags", "totalRequestCount", "failedRequestCount", "averageLatency", "maxLatency",
+            "lastTransactionEndTime"})
+    public TaggedMetric(String tags, long totalRequestCount, long failedRequestCount, long averageLatency,
+                        long maxLatency, long lastTransactionEndTime) {
+        this.tags = tags;
+        this.totalRequestCount = totalRequestCount;
+        this.failedRequestCount = failedRequestCount;
+        this.averageLatency = averageLatency;
+        this.maxLatency = maxLatency;
+        this.lastTransactionEndTime = lastTransactionEndTime;
+    }
+
+    /**
+     * The tags as <code>key=value</code> pairs separated by commas, sorted by key.
+     */
+    public String getTags() {
+        return tags;
+    }
+
+    public long getTotalRequestCount() {
+        return totalRequestCount;
+    }
+
+    public long getFailedRequestCount() {
+        return failedRequestCount;
+    }
+
+    /**
+     * Average processing time in milliseconds, of the transactions that were timed.
+     */
+    public long getAverageLatency() {
+        return averageLatency;
+    }
+
+    /**
+     * Maximum processing time in milliseconds.
+     */
+    public long getMaxLatency() {
+        return maxLatency;
+    }
+
+    /**
+     * End of the latest transaction, in milliseconds since the epoch.
+     */
+    public long getLastTransactionEndTime() {
+        return lastTransactionEndTime;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.tags;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the transactions of tagged services and server connections,
+ * one per {@link TagSet}, fed by their actors when a transaction ends, and by
+ * the service sampler for the transactions it keeps from the actors.
+ * <p>
+ * The tag set of a transaction holds the tags of its service or server
+ * connection details plus their identity: <code>interface</code> and
+ * <code>api</code>, and <code>server</code> for a server connection. The
+ * service and server connection MXBeans remain the projection of these
+ * series on that fixed identity; {@link #aggregate(String, String)} gives
+ * any other projection. Tag sets are interned, so finding the counters of a
+ * transaction is a hash lookup by identity that allocates nothing. The number
+ * of tag sets is capped; transactions of tag sets beyond the cap are not counted.
+ */
+public enum TaggedMetricRegistry implements TaggedMetricRegistryMXBean {
+
+    INSTANCE;
+
+    public static final int DEFAULT_MAX_TAG_SETS = 1024;
+
+    private static final Comparator<TaggedMetric> BY_TAGS = new Comparator<TaggedMetric>() {
+        @Override
+        public int compare(TaggedMetric first, TaggedMetric second) {
+            return first.getTags().compareTo(second.getTags());
+        }
+    };
+
+    private final ConcurrentMap<TagSet, TaggedStatistics> statistics = new ConcurrentHashMap<TagSet, TaggedStatistics>();
+    private final AtomicInteger tagSetCount = new AtomicInteger();
+    private final AtomicLong rejectedTransactionCount = new AtomicLong();
+    private volatile int maxTagSets = DEFAULT_MAX_TAG_SETS;
+
+    /**
+     * @param maxTagSets maximum number of tag sets counted, 0 disables the registry
+     */
+    public void setMaxTagSets(int maxTagSets) {
+        this.maxTagSets = maxTagSets;
+    }
+
+    /**
+     * Counts a finished transaction.
+     *
+     * @param tags    the tags of the transaction
+     * @param time    end of the transaction, in milliseconds since the epoch
+     * @param latency processing time in milliseconds
+     * @param failed  whether the transaction failed
+     */
+    public void record(TagSet tags, long time, long latency, boolean failed) {
+        TaggedStatistics tagged = statistics.get(tags);
+        if (tagged == null) {
+            tagged = createStatistics(tags);
+            if (tagged == null) {
+                return;
+            }
+        }
+        tagged.record(time, latency, failed);
+    }
+
+    /**
+     * Counts a finished transaction whose processing time was not measured,
+     * one the service sampler did not time.
+     *
+     * @param tags   the tags of the transaction
+     * @param failed whether the transaction failed
+     */
+    public void recordUntimed(TagSet tags, boolean failed) {
+        TaggedStatistics tagged = statistics.get(tags);
+        if (tagged == null) {
+            tagged = createStatistics(tags);
+            if (tagged == null) {
+                return;
+            }
+        }
+        tagged.recordUntimed(failed);
+    }
+
+    /**
+     * @return the counters of the tag set, null if none of its transactions was counted
+     */
+    public TaggedStatistics get(TagSet tags) {
+        return statistics.get(tags);
+    }
+
+    @Override
+    public List<TaggedMetric> getMetrics(String filter) {
+        TagSet required = TagSet.parse(filter);
+        List<TaggedMetric> metrics = new ArrayList<TaggedMetric>();
+        for (Map.Entry<TagSet, TaggedStatistics> entry : statistics.entrySet()) {
+            if (entry.getKey().contains(required)) {
+                TaggedStatistics tagged = entry.getValue();
+                long timed = tagged.getTimedCount();
+                metrics.add(new TaggedMetric(entry.getKey().toString(), tagged.getTotalCount(), tagged.getFailedCount(),
+                        timed == 0 ? 0 : tagged.getLatencySum() / timed, tagged.getMaxLatency(),
+                        tagged.getLastTransactionEndTime()));
+            }
+        }
+        Collections.sort(metrics, BY_TAGS);
+        return metrics;
+    }
+
+    @Override
+    public List<TaggedMetric> aggregate(String groupBy, String filter) {
+        TagSet required = TagSet.parse(filter);
+        String[] keys = groupBy == null || groupBy.trim().isEmpty() ? new String[0] : groupBy.split(",");
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keys[i].trim();
+        }
+        Map<TagSet, long[]> groups = new LinkedHashMap<TagSet, long[]>();
+        for (Map.Entry<TagSet, TaggedStatistics> entry : statistics.entrySet()) {
+            if (!entry.getKey().contains(required)) {
+                continue;
+            }
+            TagSet group = entry.getKey().project(keys);
+            long[] sums = groups.get(group);
+            if (sums == null) {
+                sums = new long[6];
+                groups.put(group, sums);
+            }
+            TaggedStatistics tagged = entry.getValue();
+            sums[0] += tagged.getTotalCount();
+            sums[1] += tagged.getFailedCount();
+            sums[2] += tagged.getLatencySum();
+            sums[3] = Math.max(sums[3], tagged.getMaxLatency());
+            sums[4] = Math.max(sums[4], tagged.getLastTransactionEndTime());
+            sums[5] += tagged.getTimedCount();
+        }
+        List<TaggedMetric> metrics = new ArrayList<TaggedMetric>(groups.size());
+        for (Map.Entry<TagSet, long[]> group : groups.entrySet()) {
+            long[] sums = group.getValue();
+            metrics.add(new TaggedMetric(group.getKey().toString(), sums[0], sums[1],
+                    sums[5] == 0 ? 0 : sums[2] / sums[5], sums[3], sums[4]));
+        }
+        Collections.sort(metrics, BY_TAGS);
+        return metrics;
+    }
+
+    @Override
+    public long getRejectedTransactionCount() {
+        return rejectedTransactionCount.get();
+    }
+
+    private TaggedStatistics createStatistics(TagSet tags) {
+        while (true) {
+            int count = tagSetCount.get();
+            if (count >= maxTagSets) {
+                rejectedTransactionCount.incrementAndGet();
+                return null;
+            }
+            if (tagSetCount.compareAndSet(count, count + 1)) {
+                break;
+            }
+        }
+        TaggedStatistics created = new TaggedStatistics();
+        TaggedStatistics existing = statistics.putIfAbsent(tags, created);
+        if (existing != null) {
+            tagSetCount.decrementAndGet();
+            return existing;
+        }
+        return created;
+    }
+}
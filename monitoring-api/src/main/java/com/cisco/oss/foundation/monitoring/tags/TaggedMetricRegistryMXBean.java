@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.tags;
+
+import java.util.List;
+
+/**
+ * Transaction counters per tag set: the dimensional view of the services and
+ * server connections that were given tags.
+ */
+public interface TaggedMetricRegistryMXBean {
+
+    /**
+     * @param filter <code>key=value</code> pairs separated by commas that a tag set must all have, empty for every tag set
+     * @return the counters of each matching tag set, sorted by tags
+     */
+    List<TaggedMetric> getMetrics(String filter);
+
+    /**
+     * Sums the counters of the tag sets matching <code>filter</code> that have
+     * the same values for the tag keys <code>groupBy</code>.
+     *
+     * @param groupBy tag keys separated by commas, <code>interface,api</code> for example
+     * @param filter  <code>key=value</code> pairs separated by commas that a tag set must all have, empty for every tag set
+     * @return one metric per group, sorted by tags
+     */
+    List<TaggedMetric> aggregate(String groupBy, String filter);
+
+    /**
+     * Number of transactions not counted because their tag set could not be
+     * added: the maximum number of tag sets was reached.
+     */
+    long getRejectedTransactionCount();
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.tags;
+
+import com.cisco.oss.foundation.monitoring.StripedCounter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The counters of one tag set, updated without locks by the actors of the
+ * services and server connections, and by the threads of the transactions
+ * the service sampler kept from the actors. The latencies are those of the
+ * timed transactions only.
+ */
+public class TaggedStatistics {
+
+    private final StripedCounter totalCount = new StripedCounter();
+    private final AtomicLong timedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong latencySum = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+    private final AtomicLong lastTransactionEndTime = new AtomicLong();
+
+    void record(long time, long latency, boolean failed) {
+        totalCount.increment();
+        timedCount.incrementAndGet();
+        if (failed) {
+            failedCount.incrementAndGet();
+        }
+        latencySum.addAndGet(latency);
+        long max;
+        while (latency > (max = maxLatency.get()) && !maxLatency.compareAndSet(max, latency)) {
+        }
+        long last;
+        while (time > (last = lastTransactionEndTime.get()) && !lastTransactionEndTime.compareAndSet(last, time)) {
+        }
+    }
+
+    void recordUntimed(boolean failed) {
+        totalCount.increment();
+        if (failed) {
+            failedCount.incrementAndGet();
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * The transactions whose processing time is in the latencies.
+     */
+    public long getTimedCount() {
+        return timedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Sum of the processing times in milliseconds.
+     */
+    public long getLatencySum() {
+        return latencySum.get();
+    }
+
+    /**
+     * Maximum processing time in milliseconds.
+     */
+    public long getMaxLatency() {
+        return maxLatency.get();
+    }
+
+    /**
+     * End of the latest transaction, in milliseconds since the epoch.
+     */
+    public long getLastTransactionEndTime() {
+        return lastTransactionEndTime.get();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TestAttributePath {
+
+    public static class Settings {
+        private String command = "start";
+        private long timeout;
+
+        public String getCommand() {
+            return command;
+        }
+
+        public void setCommand(String command) {
+            this.command = command;
+        }
+
+        public long getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(long timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    public static class Root {
+        private Settings settings = new Settings();
+        private Settings missing = null;
+        private List<String> names = new ArrayList<String>();
+        private Map<String, Settings> byName = new HashMap<String, Settings>();
+
+        public Settings getSettings() {
+            return settings;
+        }
+
+        public Settings getMissing() {
+            return missing;
+        }
+
+        public List<String> getNames() {
+            return names;
+        }
+
+        public Map<String, Settings> getByName() {
+            return byName;
+        }
+    }
+
+    @Test
+    public void testSetNestedValues() throws Exception {
+        Root root = new Root();
+
+        AttributePath.of(Root.class, "Settings/Command").setValue(root, "stop");
+        AttributePath.of(Root.class, "Settings/Timeout").setValue(root, 30);
+
+        Assert.assertEquals("stop", root.getSettings().getCommand());
+        Assert.assertEquals(30L, root.getSettings().getTimeout());
+        Assert.assertEquals("stop", AttributePath.of(Root.class, "Settings/Command").getValue(root));
+    }
+
+    @Test
+    public void testIndexedSegments() throws Exception {
+        Root root = new Root();
+        root.getNames().add("a");
+        root.getNames().add("b");
+        Settings named = new Settings();
+        root.getByName().put("x", named);
+
+        AttributePath.of(Root.class, "Names[1]").setValue(root, "c");
+        AttributePath.of(Root.class, "ByName[x]/Command").setValue(root, "restart");
+
+        Assert.assertEquals("c", root.getNames().get(1));
+        Assert.assertEquals("restart", named.getCommand());
+    }
+
+    @Test
+    public void testNullIntermediateFails() throws Exception {
+        try {
+            AttributePath.of(Root.class, "Missing/Command").setValue(new Root(), "stop");
+            Assert.fail("Missing is null");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("Missing is null"));
+        }
+        try {
+            AttributePath.of(Root.class, "ByName[y]/Command").setValue(new Root(), "stop");
+            Assert.fail("ByName[y] is null");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("ByName[y] is null"));
+        }
+    }
+
+    @Test(expected = NoSuchMethodException.class)
+    public void testUnknownGetter() throws Exception {
+        AttributePath.of(Root.class, "Unknown/Command").setValue(new Root(), "stop");
+    }
+
+    @Test
+    public void testCompiledOnce() {
+        Assert.assertSame(AttributePath.of(Root.class, "Settings/Command"), AttributePath.of(Root.class, "Settings/Command"));
+    }
+
+    @Test
+    public void testCachedPathsAreBounded() throws Exception {
+        for (int i = 0; i < AttributePath.MAX_CACHED_PATHS; i++) {
+            AttributePath.of(Settings.class, "Unknown" + i);
+        }
+        Assert.assertSame(AttributePath.of(Settings.class, "Unknown0"), AttributePath.of(Settings.class, "Unknown0"));
+        Assert.assertNotSame(AttributePath.of(Settings.class, "Command"), AttributePath.of(Settings.class, "Command"));
+
+        Settings settings = new Settings();
+        AttributePath.of(Settings.class, "Command").setValue(settings, "stop");
+        Assert.assertEquals("stop", settings.getCommand());
+    }
+}
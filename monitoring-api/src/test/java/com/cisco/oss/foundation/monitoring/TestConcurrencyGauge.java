@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestConcurrencyGauge {
+
+    @Test
+    public void reportsPeakAndTimeWeightedAverageOfTheLastWindow() {
+        long start = 1000000000000L;
+        ConcurrencyGauge gauge = new ConcurrencyGauge(1000, start);
+        // one transaction over the whole window, a second one over about its first half
+        gauge.started(start);
+        gauge.started(start + 1);
+        gauge.finished(start + 500);
+        Assert.assertEquals(1, gauge.getInFlight());
+        Assert.assertEquals(2, gauge.getPeak(start + 999));
+        Assert.assertEquals(1.499, gauge.getAverage(start + 1000), 0.001);
+        Assert.assertEquals(2, gauge.getPeak(start + 1000));
+
+        gauge.finished(start + 1500);
+        Assert.assertEquals(0, gauge.getInFlight());
+        Assert.assertEquals(1, gauge.getPeak(start + 2000));
+        Assert.assertEquals(0.5, gauge.getAverage(start + 2000), 0.001);
+    }
+
+    @Test
+    public void samplesThePeakOncePerMillisecond() {
+        long start = 1000000000000L;
+        ConcurrencyGauge gauge = new ConcurrencyGauge(1000, start);
+        for (int i = 0; i < 10; i++) {
+            gauge.started(start);
+        }
+        Assert.assertEquals(10, gauge.getInFlight());
+        Assert.assertEquals(1, gauge.getPeak(start));
+        gauge.started(start + 1);
+        Assert.assertEquals(11, gauge.getPeak(start + 1));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring;
+
+import com.cisco.oss.foundation.monitoring.services.Service;
+import com.cisco.oss.foundation.monitoring.services.ServiceDetails;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class TestCounterCheckpoint {
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws Exception {
+        directory = File.createTempFile("checkpoint", "");
+        directory.delete();
+    }
+
+    @After
+    public void deleteDirectory() {
+        for (String name : CounterCheckpoint.SLOT_NAMES) {
+            new File(directory, name).delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void readsLatestGeneration() throws Exception {
+        CounterCheckpoint checkpoint = new CounterCheckpoint(directory);
+        Assert.assertNull(checkpoint.read());
+
+        checkpoint.write(snapshot(1, 10));
+        checkpoint.write(snapshot(2, 20));
+
+        CounterCheckpoint.Snapshot latest = new CounterCheckpoint(directory).read();
+        Assert.assertEquals(2, latest.generation);
+        Assert.assertEquals(20, latest.services.get("service|a")[0]);
+        Assert.assertEquals(2, latest.services.get("service|a")[1]);
+        Assert.assertEquals(20, latest.connections.get("connection|b")[0]);
+    }
+
+    @Test
+    public void fallsBackWhenTheLatestWriteIsTorn() throws Exception {
+        CounterCheckpoint checkpoint = new CounterCheckpoint(directory);
+        checkpoint.write(snapshot(1, 10));
+        checkpoint.write(snapshot(2, 20));
+
+        File latest = new File(directory, CounterCheckpoint.SLOT_NAMES[0]);
+        RandomAccessFile raf = new RandomAccessFile(latest, "rw");
+        try {
+            raf.seek(raf.length() - 1);
+            raf.write(0x5A);
+        } finally {
+            raf.close();
+        }
+
+        CounterCheckpoint.Snapshot restored = new CounterCheckpoint(directory).read();
+        Assert.assertEquals(1, restored.generation);
+        Assert.assertEquals(10, restored.services.get("service|a")[0]);
+    }
+
+    @Test
+    public void restoresTheCountersOfEachComponent() throws Exception {
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty(FoundationMonitoringConstants.MONITOR_ENABLED, true);
+        ServiceDetails serviceDetails = new ServiceDetails("checkpointed service", "checkpointed", "http", 8080);
+        MonitoredComponent before = new MonitoredComponent("orders", "Instance1", "1.0.0", configuration);
+        try {
+            for (int i = 0; i < 3; i++) {
+                before.transactionStarted(serviceDetails, "get");
+                before.transactionFinished(serviceDetails, "get", false, "");
+            }
+            awaitServices(before, 3);
+            CounterCheckpoint checkpoint = new CounterCheckpoint(directory);
+            checkpoint.addComponent(before);
+            checkpoint.checkpoint();
+        } finally {
+            before.shutdown();
+        }
+
+        CounterCheckpoint.Snapshot written = new CounterCheckpoint(directory).read();
+        boolean prefixed = false;
+        for (String key : written.services.keySet()) {
+            prefixed |= key.startsWith(CounterCheckpoint.COMPONENT_PREFIX + "orders|Instance1|");
+        }
+        Assert.assertTrue(prefixed);
+
+        MonitoredComponent after = new MonitoredComponent("orders", "Instance1", "1.0.0", configuration);
+        try {
+            CounterCheckpoint checkpoint = new CounterCheckpoint(directory);
+            Assert.assertTrue(checkpoint.restore());
+            checkpoint.addComponent(after);
+            after.transactionStarted(serviceDetails, "get");
+            after.transactionFinished(serviceDetails, "get", false, "");
+            List<Service> services = awaitServices(after, 4);
+            Assert.assertEquals(4, services.get(0).getTotalRequestCount());
+        } finally {
+            after.shutdown();
+        }
+    }
+
+    private static List<Service> awaitServices(MonitoredComponent component, long totalRequestCount) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (true) {
+            List<Service> services = component.getServiceInfo().getServices();
+            if (!services.isEmpty() && services.get(0).getTotalRequestCount() == totalRequestCount
+                    || System.currentTimeMillis() > deadline) {
+                return services;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static CounterCheckpoint.Snapshot snapshot(long generation, long total) {
+        Map<String, long[]> services = Collections.singletonMap("service|a", new long[]{total, total / 10});
+        Map<String, long[]> connections = Collections.singletonMap("connection|b", new long[]{total, 0});
+        return new CounterCheckpoint.Snapshot(generation, services, connections);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.cisco.oss.foundation.monitoring;
+
+import com.cisco.oss.foundation.monitoring.notification.NotificationMXBean;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class TestExceptionAggregator {
+
+    @Test
+    public void deliversTheLastWindowOnShutdown() throws Exception {
+        NotificationMXBean notificationBean = new NotificationMXBean();
+        final List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+        notificationBean.addNotificationListener(new NotificationListener() {
+            @Override
+            public void handleNotification(Notification notification, Object handback) {
+                received.add(notification.getUserData());
+            }
+        }, null, null);
+        // never flushed by the timer within the test
+        ExceptionAggregator aggregator = new ExceptionAggregator(notificationBean, TimeUnit.HOURS.toMillis(1));
+        for (int i = 0; i < 3; i++) {
+            aggregator.report(exception("orders", "timeout"));
+        }
+        aggregator.report(exception("orders", "refused"));
+
+        aggregator.shutdown();
+        notificationBean.shutdown();
+
+        Assert.assertEquals(2, received.size());
+        long count = 0;
+        for (Object data : received) {
+            count += ((AggregatedExceptionNotificationMXBean) data).getCount();
+        }
+        Assert.assertEquals(4, count);
+    }
+
+    private static ExceptionNotificationMXBean exception(String componentName, String id) {
+        ExceptionNotificationMXBeanImpl notification = new ExceptionNotificationMXBeanImpl();
+        notification.setComponentName(componentName);
+        notification.setId(id);
+        notification.setSeverity(ExceptionSeverity.MAJOR);
+        return notification;
+    }
+}
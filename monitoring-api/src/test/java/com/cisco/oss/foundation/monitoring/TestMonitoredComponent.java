@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring;
+
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnection;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionDetails;
+import com.cisco.oss.foundation.monitoring.services.Service;
+import com.cisco.oss.foundation.monitoring.services.ServiceDetails;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TestMonitoredComponent {
+
+    @Test
+    public void keepsTheStatisticsOfEachComponentApart() throws Exception {
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty(FoundationMonitoringConstants.MONITOR_ENABLED, true);
+        MonitoredComponent orders = new MonitoredComponent("orders", "Instance1", "1.0.0", configuration);
+        MonitoredComponent billing = new MonitoredComponent("billing", "Instance1", "1.0.0", configuration);
+        try {
+            ServiceDetails serviceDetails = new ServiceDetails("shared service", "shared", "http", 8080);
+            ServerConnectionDetails connectionDetails = new ServerConnectionDetails("db", "db", "localhost", 8080, 5432);
+            for (int i = 0; i < 10; i++) {
+                orders.transactionStarted(serviceDetails, "get");
+                orders.transactionFinished(serviceDetails, "get", i == 0, "failed");
+            }
+            billing.transactionStarted(serviceDetails, "get");
+            billing.transactionFinished(serviceDetails, "get", false, "");
+            billing.transactionStarted(connectionDetails, "query");
+            billing.transactionFinished(connectionDetails, "query", false, "");
+
+            List<Service> orderServices = awaitServices(orders, 10);
+            Assert.assertEquals(1, orderServices.size());
+            Assert.assertEquals(1, orderServices.get(0).getFailedRequestCount());
+            Assert.assertTrue(orders.getConnectionInfo().getServerConnections().isEmpty());
+
+            List<Service> billingServices = awaitServices(billing, 1);
+            Assert.assertEquals(1, billingServices.size());
+            List<ServerConnection> billingConnections = billing.getConnectionInfo().getServerConnections();
+            Assert.assertEquals(1, billingConnections.size());
+            Assert.assertEquals("db", billingConnections.get(0).getServerName());
+        } finally {
+            orders.shutdown();
+            billing.shutdown();
+        }
+    }
+
+    private static List<Service> awaitServices(MonitoredComponent component, long totalRequestCount) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (true) {
+            List<Service> services = component.getServiceInfo().getServices();
+            if (!services.isEmpty() && services.get(0).getTotalRequestCount() == totalRequestCount
+                    || System.currentTimeMillis() > deadline) {
+                return services;
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.cisco.oss.foundation.monitoring;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.AttributeChangeNotification;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class TestServerInfo {
+
+    public static class Component implements MonitoringMXBean {
+        private String label;
+        private String mode = "primary";
+        private String limit = "10";
+        private Object threshold = 5;
+
+        @Override
+        public String getName() {
+            return "component";
+        }
+
+        @Override
+        public String getFullName() {
+            return "test component";
+        }
+
+        @Override
+        public String getInstance() {
+            return "Instance1";
+        }
+
+        @Override
+        public String getVersion() {
+            return "1.0.0";
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public void setLabel(String label) {
+            this.label = label;
+        }
+
+        public String getMode() {
+            return mode;
+        }
+
+        public void setMode(String mode) {
+            this.mode = mode;
+        }
+
+        public String getLimit() {
+            return limit;
+        }
+
+        public void setLimit(String limit) {
+            this.limit = String.valueOf(Integer.parseInt(limit));
+        }
+
+        public Object getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(Object threshold) {
+            // written before it is parsed, so a bad value is left behind
+            this.threshold = threshold;
+            if (threshold instanceof String) {
+                this.threshold = Integer.valueOf((String) threshold);
+            }
+        }
+    }
+
+    @Test
+    public void restoresEveryValueOfAFailedBatch() throws Exception {
+        Component component = new Component();
+        ServerInfo serverInfo = new ServerInfo(component, new BaseConfiguration());
+        try {
+            Map<String, String> values = new LinkedHashMap<String, String>();
+            values.put("Label", "updated");
+            values.put("Mode", "backup");
+            values.put("Limit", "unlimited");
+            try {
+                serverInfo.setAttributeValues(values);
+                Assert.fail("the limit is not a number");
+            } catch (NumberFormatException e) {
+                // expected
+            }
+
+            Assert.assertNull(component.getLabel());
+            Assert.assertEquals("primary", component.getMode());
+            Assert.assertEquals("10", component.getLimit());
+        } finally {
+            serverInfo.shutdown();
+        }
+    }
+
+    @Test
+    public void restoresThePathThatFailedPartway() throws Exception {
+        Component component = new Component();
+        ServerInfo serverInfo = new ServerInfo(component, new BaseConfiguration());
+        try {
+            Map<String, String> values = new LinkedHashMap<String, String>();
+            values.put("Label", "updated");
+            values.put("Threshold", "many");
+            try {
+                serverInfo.setAttributeValues(values);
+                Assert.fail("the threshold is not a number");
+            } catch (NumberFormatException e) {
+                // expected
+            }
+
+            Assert.assertNull(component.getLabel());
+            Assert.assertEquals(5, component.getThreshold());
+        } finally {
+            serverInfo.shutdown();
+        }
+    }
+
+    @Test
+    public void notifiesTheOldValuesAsStrings() throws Exception {
+        Component component = new Component();
+        ServerInfo serverInfo = new ServerInfo(component, new BaseConfiguration());
+        final BlockingQueue<Notification> received = new ArrayBlockingQueue<Notification>(1);
+        serverInfo.addNotificationListener(new NotificationListener() {
+            @Override
+            public void handleNotification(Notification notification, Object handback) {
+                received.offer(notification);
+            }
+        }, null, null);
+        try {
+            Map<String, String> values = new LinkedHashMap<String, String>();
+            values.put("Threshold", "7");
+            values.put("Label", "updated");
+            serverInfo.setAttributeValues(values);
+
+            AttributeChangeNotification notification = (AttributeChangeNotification) received.poll(10, TimeUnit.SECONDS);
+            Assert.assertNotNull(notification);
+            Map<String, String> oldValues = new LinkedHashMap<String, String>();
+            oldValues.put("Threshold", "5");
+            oldValues.put("Label", null);
+            Assert.assertEquals(oldValues, notification.getOldValue());
+            Assert.assertEquals(values, notification.getNewValue());
+            Assert.assertEquals(7, component.getThreshold());
+        } finally {
+            serverInfo.shutdown();
+        }
+    }
+}
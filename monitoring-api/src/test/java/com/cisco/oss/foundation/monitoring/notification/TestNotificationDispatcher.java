@@ -0,0 +1,119 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.cisco.oss.foundation.monitoring.notification;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.AttributeChangeNotification;
+import javax.management.Notification;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TestNotificationDispatcher {
+
+    @Test
+    public void deliversTheSequenceNumbersInOrderWithoutGaps() throws Exception {
+        final List<Long> sequences = Collections.synchronizedList(new ArrayList<Long>());
+        final NotificationDispatcher dispatcher = new NotificationDispatcher("ordered", new NotificationDispatcher.Target() {
+            @Override
+            public void deliver(Notification notification) {
+                sequences.add(notification.getSequenceNumber());
+            }
+        }, 16, 0);
+        try {
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < 2000; i++) {
+                            dispatcher.dispatch(new Notification("test", "ordered", 0), null);
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long deadline = System.currentTimeMillis() + 10000;
+            while (dispatcher.getDeliveredCount() + dispatcher.getDroppedCount() < 8000 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            Assert.assertEquals(8000, dispatcher.getDeliveredCount() + dispatcher.getDroppedCount());
+            Assert.assertEquals(dispatcher.getDeliveredCount(), sequences.size());
+            for (int i = 0; i < sequences.size(); i++) {
+                Assert.assertEquals(i + 1, sequences.get(i).longValue());
+            }
+            Assert.assertEquals(sequences.size(), dispatcher.getLastSequence());
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void coalescesAttributeChangesFromTheFirstOldValue() throws Exception {
+        final CountDownLatch delivering = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Notification> delivered = Collections.synchronizedList(new ArrayList<Notification>());
+        NotificationDispatcher dispatcher = new NotificationDispatcher("coalescing", new NotificationDispatcher.Target() {
+            @Override
+            public void deliver(Notification notification) {
+                delivered.add(notification);
+                delivering.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, 16, TimeUnit.MINUTES.toMillis(1));
+        try {
+            // holds the dispatcher thread so the changes wait in the queue
+            dispatcher.dispatch(new Notification("test", "coalescing", 0), null);
+            Assert.assertTrue(delivering.await(10, TimeUnit.SECONDS));
+            dispatcher.dispatch(change(1, 2), "limit");
+            dispatcher.dispatch(change(2, 3), "limit");
+            dispatcher.dispatch(change(3, 4), "limit");
+            release.countDown();
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (dispatcher.getDeliveredCount() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(2, delivered.size());
+            Assert.assertEquals(2, dispatcher.getCoalescedCount());
+            AttributeChangeNotification coalesced = (AttributeChangeNotification) delivered.get(1);
+            Assert.assertEquals(1, coalesced.getOldValue());
+            Assert.assertEquals(4, coalesced.getNewValue());
+            Assert.assertEquals(2, coalesced.getSequenceNumber());
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    private static AttributeChangeNotification change(int oldValue, int newValue) {
+        return new AttributeChangeNotification("coalescing", 0, System.currentTimeMillis(), "limit changed", "limit",
+                Integer.class.getName(), oldValue, newValue);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.cisco.oss.foundation.monitoring.notification;
+
+import com.cisco.oss.foundation.monitoring.ExceptionNotificationMXBeanImpl;
+import com.cisco.oss.foundation.monitoring.ExceptionSeverity;
+import com.cisco.oss.foundation.monitoring.TransactionNotificationMXBeanImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+
+public class TestNotificationHistory {
+
+    @Test
+    public void isEmptyBeforeAnythingIsRecorded() {
+        NotificationHistory history = new NotificationHistory(3);
+        Assert.assertEquals(0, history.getLastSequence());
+        Assert.assertTrue(history.since(0).isEmpty());
+    }
+
+    @Test
+    public void evictsTheOldestEntriesOnceFull() {
+        NotificationHistory history = new NotificationHistory(3);
+        for (long sequence = 1; sequence <= 5; sequence++) {
+            history.record(sequence, exception("id" + sequence, ExceptionSeverity.MAJOR, "data" + sequence));
+        }
+
+        List<NotificationHistoryEntry> entries = history.since(0);
+        Assert.assertEquals(3, entries.size());
+        Assert.assertEquals(3, entries.get(0).getSequence());
+        Assert.assertEquals(4, entries.get(1).getSequence());
+        Assert.assertEquals(5, entries.get(2).getSequence());
+        Assert.assertEquals("id3", entries.get(0).getId());
+        Assert.assertEquals(5, history.getLastSequence());
+    }
+
+    @Test
+    public void returnsOnlyTheEntriesAfterTheGivenSequence() {
+        NotificationHistory history = new NotificationHistory(8);
+        for (long sequence = 1; sequence <= 5; sequence++) {
+            history.record(sequence, exception("id" + sequence, ExceptionSeverity.MINOR, null));
+        }
+
+        List<NotificationHistoryEntry> entries = history.since(3);
+        Assert.assertEquals(2, entries.size());
+        Assert.assertEquals(4, entries.get(0).getSequence());
+        Assert.assertEquals(5, entries.get(1).getSequence());
+        Assert.assertTrue(history.since(5).isEmpty());
+    }
+
+    @Test
+    public void keepsTheIdentifyingFieldsAndSummarizesThePayload() {
+        NotificationHistory history = new NotificationHistory(4);
+        Date time = new Date(123456789L);
+        ExceptionNotificationMXBeanImpl exception = exception("failure", ExceptionSeverity.CRITICAL, new String(new char[1000]).replace('\0', 'x'));
+        exception.setTimeOfOccurance(time);
+        history.record(1, exception);
+        TransactionNotificationMXBeanImpl transaction = new TransactionNotificationMXBeanImpl();
+        transaction.setComponentName("component");
+        transaction.setId("tx");
+        history.record(2, transaction);
+
+        List<NotificationHistoryEntry> entries = history.since(0);
+        Assert.assertEquals(2, entries.size());
+
+        NotificationHistoryEntry first = entries.get(0);
+        Assert.assertEquals(NotificationHistoryEntry.KIND_EXCEPTION, first.getKind());
+        Assert.assertEquals("component", first.getComponentName());
+        Assert.assertEquals("failure", first.getId());
+        Assert.assertEquals("CRITICAL", first.getSeverity());
+        Assert.assertEquals(time, first.getTimeOfOccurance());
+        Assert.assertTrue(first.getSummary().length() < 1000);
+
+        NotificationHistoryEntry second = entries.get(1);
+        Assert.assertEquals(NotificationHistoryEntry.KIND_TRANSACTION, second.getKind());
+        Assert.assertEquals("tx", second.getId());
+        Assert.assertNull(second.getSeverity());
+        Assert.assertNotNull(second.getTimeOfOccurance());
+    }
+
+    private static ExceptionNotificationMXBeanImpl exception(String id, ExceptionSeverity severity, Object data) {
+        ExceptionNotificationMXBeanImpl exception = new ExceptionNotificationMXBeanImpl();
+        exception.setComponentName("component");
+        exception.setId(id);
+        exception.setSeverity(severity);
+        exception.setData(data);
+        return exception;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.cisco.oss.foundation.monitoring.notification;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestNotificationSubscription {
+
+    @Test
+    public void limitsEachRemoteListenerSeparately() throws Exception {
+        MBeanServer mbs = MBeanServerFactory.newMBeanServer();
+        NotificationMXBean notificationBean = new NotificationMXBean(100, 0, 0.1, 0);
+        ObjectName name = new ObjectName("test:type=NotificationMXBean");
+        mbs.registerMBean(notificationBean, name);
+        JMXConnectorServer server = JMXConnectorServerFactory.newJMXConnectorServer(new JMXServiceURL("service:jmx:rmi://127.0.0.1"), null, mbs);
+        server.start();
+
+        JMXConnector first = JMXConnectorFactory.connect(server.getAddress());
+        JMXConnector second = JMXConnectorFactory.connect(server.getAddress());
+        JMXConnector subscribed = JMXConnectorFactory.connect(server.getAddress());
+        JMXConnector unfiltered = JMXConnectorFactory.connect(server.getAddress());
+        try {
+            AtomicInteger firstReceived = new AtomicInteger();
+            AtomicInteger secondReceived = new AtomicInteger();
+            AtomicInteger subscribedReceived = new AtomicInteger();
+            AtomicInteger unfilteredReceived = new AtomicInteger();
+            // held to the per listener rate of the agent, each on its own
+            first.getMBeanServerConnection().addNotificationListener(name, counting(firstReceived),
+                    new NotificationSubscription("mx.notification"), null);
+            second.getMBeanServerConnection().addNotificationListener(name, counting(secondReceived),
+                    new NotificationSubscription(), null);
+            unfiltered.getMBeanServerConnection().addNotificationListener(name, counting(unfilteredReceived), null, null);
+            NotificationSubscription subscription = new NotificationSubscription("mx.notification");
+            subscription.setMaxRate(1000);
+            subscribed.getMBeanServerConnection().addNotificationListener(name, counting(subscribedReceived), subscription, null);
+
+            // one at a time, so the subscription's own rate admits each of them
+            long deadline = System.currentTimeMillis() + 10000;
+            for (int i = 0; i < 5; i++) {
+                notificationBean.sendNotification(new Info("notification" + i));
+                while ((subscribedReceived.get() <= i || unfilteredReceived.get() <= i) && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+            }
+            Thread.sleep(200);
+            Assert.assertEquals(5, subscribedReceived.get());
+            Assert.assertEquals(5, unfilteredReceived.get());
+            Assert.assertEquals(1, firstReceived.get());
+            Assert.assertEquals(1, secondReceived.get());
+            Assert.assertEquals(8, notificationBean.getRateLimitedNotificationCount());
+        } finally {
+            first.close();
+            second.close();
+            subscribed.close();
+            unfiltered.close();
+            server.stop();
+            notificationBean.shutdown();
+        }
+    }
+
+    private static NotificationListener counting(final AtomicInteger received) {
+        return new NotificationListener() {
+            @Override
+            public void handleNotification(Notification notification, Object handback) {
+                received.incrementAndGet();
+            }
+        };
+    }
+
+    private static class Info implements NotificationInfoMXBean {
+
+        private static final long serialVersionUID = 1L;
+
+        private String componentName = "test";
+        private String id;
+        private Date timeOfOccurance = new Date();
+
+        Info(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getComponentName() {
+            return componentName;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public Date getTimeOfOccurance() {
+            return timeOfOccurance;
+        }
+
+        @Override
+        public void setComponentName(String compName) {
+            this.componentName = compName;
+        }
+
+        @Override
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public void setTimeOfOccurance(Date timeOfOccurence) {
+            this.timeOfOccurance = timeOfOccurence;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.cisco.oss.foundation.monitoring.overhead;
+
+import com.cisco.oss.foundation.monitoring.ConnectionInfoMXBean;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnection;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.util.Collections;
+import java.util.List;
+
+public class TestMonitoringOverhead {
+
+    @Test
+    public void countsTheMessagesSentFromEveryThread() throws Exception {
+        final ActorOverheadListener listener = new ActorOverheadListener("test");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        listener.onMessageSent(i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < 15000; i++) {
+            listener.onProcessingStarted(this, i);
+            listener.onProcessingFinished();
+        }
+
+        ActorStatistics statistics = listener.getStatistics();
+        Assert.assertEquals(25000, statistics.getMailboxDepth());
+        Assert.assertEquals(15000, statistics.getProcessedMessages());
+        Assert.assertEquals(15000, statistics.getProcessingTime().getCount());
+    }
+
+    @Test
+    public void timesAttributeReadsAtTheMBeanServer() throws Exception {
+        MBeanServer mbs = MBeanServerFactory.newMBeanServer();
+        ObjectName name = new ObjectName("test:type=ConnectionInfo");
+        mbs.registerMBean(new TimedMXBean<ConnectionInfoMXBean>(new ConnectionInfoMXBean() {
+            @Override
+            public List<ServerConnection> getServerConnections() {
+                return Collections.emptyList();
+            }
+        }, ConnectionInfoMXBean.class), name);
+
+        long reads = MonitoringOverhead.INSTANCE.getAttributeReadTime().getCount();
+        Object serverConnections = mbs.getAttribute(name, "ServerConnections");
+        mbs.getAttributes(name, new String[]{"ServerConnections"});
+
+        // read as an MXBean, converted to open types
+        Assert.assertTrue(serverConnections instanceof CompositeData[]);
+        Assert.assertEquals(reads + 2, MonitoringOverhead.INSTANCE.getAttributeReadTime().getCount());
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.recording;
+
+import com.cisco.oss.foundation.monitoring.CommunicationInfo;
+import com.cisco.oss.foundation.monitoring.FoundationMonitoringConstants;
+import com.cisco.oss.foundation.monitoring.serverconnection.ConnectionInfo;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnection;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionActor;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionActorImpl;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionDetails;
+import com.cisco.oss.foundation.monitoring.services.Service;
+import com.cisco.oss.foundation.monitoring.services.ServiceActor;
+import com.cisco.oss.foundation.monitoring.services.ServiceActorImpl;
+import com.cisco.oss.foundation.monitoring.services.ServiceImp;
+import com.google.common.util.concurrent.SettableFuture;
+import fi.jumi.actors.ActorRef;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TestRingBufferTransactionRecorder {
+
+    @Test
+    public void drainsEveryTransactionOfEveryProducer() throws Exception {
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty(FoundationMonitoringConstants.MONITOR_ENABLED, true);
+        configuration.setProperty(FoundationMonitoringConstants.TRANSACTION_RECORDER, TransactionRecorder.RING_BUFFER);
+        // small enough for the producers to wrap around and wait for the consumer
+        configuration.setProperty(FoundationMonitoringConstants.TRANSACTION_RECORDER_RING_SIZE, 16);
+        configuration.setProperty(FoundationMonitoringConstants.TRANSACTION_RECORDER_WAIT_STRATEGY, "yield");
+        CommunicationInfo.getCommunicationInfo().setConfiguration(configuration);
+
+        final ServerConnectionDetails connectionDetails = new ServerConnectionDetails("ring", "ring", "localhost", 1, 2);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 5000; i++) {
+                        CommunicationInfo.getCommunicationInfo().transactionStarted(connectionDetails, "api" + (i % 3));
+                        CommunicationInfo.getCommunicationInfo().transactionFinished(connectionDetails, "api" + (i % 3), i % 10 == 0, "failed");
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // switching back to the actor recorder drains what is still in the ring
+        configuration.setProperty(FoundationMonitoringConstants.TRANSACTION_RECORDER, TransactionRecorder.ACTOR);
+        CommunicationInfo.getCommunicationInfo().setConfiguration(configuration);
+        SettableFuture<Map<String, long[]>> processed = SettableFuture.create();
+        ConnectionInfo.INSTANCE.serverConnectorActor.tell().snapshotCounters(processed);
+        processed.get(10, TimeUnit.SECONDS);
+
+        long total = 0;
+        long failed = 0;
+        for (ServerConnection serverConnection : ConnectionInfo.INSTANCE.getServerConnections()) {
+            if ("ring".equals(serverConnection.getServerName())) {
+                total += serverConnection.getTotalRequestCount();
+                failed += serverConnection.getFailedRequestCount();
+            }
+        }
+        Assert.assertEquals(20000, total);
+        Assert.assertEquals(2000, failed);
+    }
+
+    @Test
+    public void fallsBackToTheActorsOnceTheConsumerIsGone() throws Exception {
+        ServiceActorImpl failingActor = new ServiceActorImpl() {
+            @Override
+            public void recordBatch(TransactionBatch<Service> batch) {
+                throw new IllegalStateException("consumer failed");
+            }
+        };
+        final RingBufferTransactionRecorder failed = new RingBufferTransactionRecorder(ActorRef.<ServiceActor>wrap(failingActor),
+                ActorRef.<ServerConnectionActor>wrap(new ServerConnectionActorImpl()), 4, WaitStrategy.BUSY_SPIN);
+        final Service service = new ServiceImp("fallback", 8080, "http", "fallback service", "get");
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 20; i++) {
+                    failed.serviceStarted(service, 1);
+                    failed.serviceFinished(service, false, "");
+                }
+            }
+        });
+        producer.setDaemon(true);
+        producer.start();
+        producer.join(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertFalse("producer still waits for a free slot", producer.isAlive());
+
+        ServiceActorImpl serviceActor = new ServiceActorImpl();
+        RingBufferTransactionRecorder stopped = new RingBufferTransactionRecorder(ActorRef.<ServiceActor>wrap(serviceActor),
+                ActorRef.<ServerConnectionActor>wrap(new ServerConnectionActorImpl()), 4, WaitStrategy.BUSY_SPIN);
+        stopped.shutdown();
+        for (int i = 0; i < 10; i++) {
+            stopped.serviceStarted(service, 1);
+            stopped.serviceFinished(service, false, "");
+        }
+        Assert.assertEquals(10, serviceActor.getServices().get(0).getTotalRequestCount());
+    }
+
+    @Test
+    public void shutdownUnderLoadLosesNoEvent() throws Exception {
+        final AtomicLong starts = new AtomicLong();
+        final AtomicLong ends = new AtomicLong();
+        ServiceActorImpl countingActor = new ServiceActorImpl() {
+            @Override
+            public void startTransaction(Service service, int usedThreads) {
+                starts.incrementAndGet();
+            }
+
+            @Override
+            public void endTransaction(Service service, boolean isFailed, String description) {
+                ends.incrementAndGet();
+            }
+
+            @Override
+            public void recordBatch(TransactionBatch<Service> batch) {
+                for (int i = 0; i < batch.size(); i++) {
+                    (batch.isStart(i) ? starts : ends).incrementAndGet();
+                }
+            }
+        };
+        final RingBufferTransactionRecorder recorder = new RingBufferTransactionRecorder(ActorRef.<ServiceActor>wrap(countingActor),
+                ActorRef.<ServerConnectionActor>wrap(new ServerConnectionActorImpl()), 64, WaitStrategy.YIELD);
+        final Service service = new ServiceImp("shutdown", 8080, "http", "shutdown service", "get");
+        final CountDownLatch started = new CountDownLatch(4);
+        Thread[] producers = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            producers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    for (int i = 0; i < 20000; i++) {
+                        recorder.serviceStarted(service, 1);
+                        recorder.serviceFinished(service, false, "");
+                    }
+                }
+            });
+            producers[t].start();
+        }
+        started.await();
+        Thread.sleep(5);
+        recorder.shutdown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        Assert.assertEquals(80000, starts.get());
+        Assert.assertEquals(80000, ends.get());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.recording;
+
+import com.cisco.oss.foundation.monitoring.CommunicationInfo;
+import com.cisco.oss.foundation.monitoring.FoundationMonitoringConstants;
+import com.cisco.oss.foundation.monitoring.serverconnection.ConnectionInfo;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnection;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionDetails;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionActor;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionActorImpl;
+import com.cisco.oss.foundation.monitoring.services.Service;
+import com.cisco.oss.foundation.monitoring.services.ServiceActor;
+import com.cisco.oss.foundation.monitoring.services.ServiceActorImpl;
+import com.cisco.oss.foundation.monitoring.services.ServiceImp;
+import com.google.common.util.concurrent.SettableFuture;
+import fi.jumi.actors.ActorRef;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TestThreadLocalTransactionRecorder {
+
+    @Test
+    public void mergesEveryTransactionOfEveryThread() throws Exception {
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty(FoundationMonitoringConstants.MONITOR_ENABLED, true);
+        configuration.setProperty(FoundationMonitoringConstants.TRANSACTION_RECORDER, TransactionRecorder.THREAD_LOCAL);
+        // small enough for the threads to fill their buffers between merges
+        configuration.setProperty(FoundationMonitoringConstants.TRANSACTION_RECORDER_BUFFER_SIZE, 64);
+        CommunicationInfo.getCommunicationInfo().setConfiguration(configuration);
+
+        final ServerConnectionDetails connectionDetails = new ServerConnectionDetails("merged", "merged", "localhost", 1, 2);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 5000; i++) {
+                        CommunicationInfo.getCommunicationInfo().transactionStarted(connectionDetails, "api" + (i % 3));
+                        CommunicationInfo.getCommunicationInfo().transactionFinished(connectionDetails, "api" + (i % 3), i % 10 == 0, "failed");
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // switching back to the actor recorder merges what is still buffered
+        configuration.setProperty(FoundationMonitoringConstants.TRANSACTION_RECORDER, TransactionRecorder.ACTOR);
+        CommunicationInfo.getCommunicationInfo().setConfiguration(configuration);
+        SettableFuture<Map<String, long[]>> processed = SettableFuture.create();
+        ConnectionInfo.INSTANCE.serverConnectorActor.tell().snapshotCounters(processed);
+        processed.get(10, TimeUnit.SECONDS);
+
+        long total = 0;
+        long failed = 0;
+        for (ServerConnection serverConnection : ConnectionInfo.INSTANCE.getServerConnections()) {
+            if ("merged".equals(serverConnection.getServerName())) {
+                total += serverConnection.getTotalRequestCount();
+                failed += serverConnection.getFailedRequestCount();
+            }
+        }
+        Assert.assertEquals(20000, total);
+        Assert.assertEquals(2000, failed);
+    }
+
+    @Test
+    public void mergesTheThreadsInTimeOrder() throws Exception {
+        final List<Long> times = new ArrayList<Long>();
+        ServiceActorImpl serviceActor = new ServiceActorImpl() {
+            @Override
+            public void recordBatch(TransactionBatch<Service> batch) {
+                for (int i = 0; i < batch.size(); i++) {
+                    times.add(batch.getTime(i));
+                }
+                super.recordBatch(batch);
+            }
+        };
+        // merged at shutdown only
+        final ThreadLocalTransactionRecorder recorder = new ThreadLocalTransactionRecorder(ActorRef.<ServiceActor>wrap(serviceActor),
+                ActorRef.<ServerConnectionActor>wrap(new ServerConnectionActorImpl()), 1024, TimeUnit.MINUTES.toMillis(10));
+        final Service service = new ServiceImp("ordered", 8080, "http", "ordered service", "get");
+        final CountDownLatch firstDone = new CountDownLatch(1);
+        final CountDownLatch secondDone = new CountDownLatch(1);
+        Thread first = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                recorder.serviceStarted(service, 1);
+                firstDone.countDown();
+                await(secondDone);
+                recorder.serviceFinished(service, false, "");
+            }
+        });
+        first.start();
+        firstDone.await();
+        Thread.sleep(20);
+        recorder.serviceStarted(service, 1);
+        Thread.sleep(20);
+        recorder.serviceFinished(service, false, "");
+        Thread.sleep(20);
+        secondDone.countDown();
+        first.join();
+        recorder.shutdown();
+
+        Assert.assertEquals(4, times.size());
+        for (int i = 1; i < times.size(); i++) {
+            Assert.assertTrue(times.toString(), times.get(i) >= times.get(i - 1));
+        }
+        Service merged = serviceActor.getServices().get(0);
+        Assert.assertEquals(times.get(3).longValue(), merged.getLastTransactionEndTime().getTime());
+        Assert.assertTrue(merged.getLastTransactionProcessingTime() >= 0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
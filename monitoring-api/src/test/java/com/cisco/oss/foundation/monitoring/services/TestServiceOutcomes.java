@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.services;
+
+import com.cisco.oss.foundation.monitoring.FoundationMonitoringConstants;
+import com.google.common.util.concurrent.SettableFuture;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TestServiceOutcomes {
+
+    @Test
+    public void countsOutcomesAndTheMostFrequentFailures() throws Exception {
+        ServiceActorImpl actor = new ServiceActorImpl();
+        actor.setFailureDescriptionCapacity(3);
+        TransactionSampler sampler = new TransactionSampler();
+        ServiceDetails serviceDetails = new ServiceDetails("outcome service", "outcomes", "http", 8080);
+        for (int i = 0; i < 1000; i++) {
+            boolean failed = i % 2 == 0;
+            // one dominant failure among many distinct ones
+            String description = i % 4 == 0 ? "connection refused" : "timeout " + i;
+            actor.startTransaction(sampler.started(serviceDetails, "get"), 1);
+            actor.endTransaction(sampler.finished(serviceDetails, "get", failed,
+                    TransactionOutcome.ofHttpStatus(failed ? 503 : 200)), failed, description);
+        }
+        actor.endTransaction(sampler.finished(serviceDetails, "get", false, 42), false, "");
+
+        SettableFuture<List<ServiceOutcome>> snapshot = SettableFuture.create();
+        actor.snapshotOutcomes(snapshot);
+        List<ServiceOutcome> outcomes = snapshot.get();
+        Assert.assertEquals(1, outcomes.size());
+        ServiceOutcome outcome = outcomes.get(0);
+        Assert.assertEquals("get", outcome.getApiName());
+        Assert.assertEquals(500, outcome.getOutcomeCounts()[TransactionOutcome.HTTP_2XX]);
+        Assert.assertEquals(500, outcome.getOutcomeCounts()[TransactionOutcome.HTTP_5XX]);
+        Assert.assertEquals(1, outcome.getOutcomeCounts()[TransactionOutcome.OTHER]);
+        Assert.assertEquals(3, outcome.getFailureDescriptions().length);
+        Assert.assertEquals("connection refused", outcome.getFailureDescriptions()[0]);
+        long count = outcome.getFailureDescriptionCounts()[0];
+        Assert.assertTrue(count >= 250 && count - outcome.getFailureDescriptionErrors()[0] <= 250);
+    }
+
+    @Test
+    public void countsTheOutcomesOfUnsampledTransactions() throws Exception {
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty(FoundationMonitoringConstants.SERVICE_SAMPLING_RATE, 10);
+        ServiceActorImpl actor = new ServiceActorImpl();
+        TransactionSampler sampler = new TransactionSampler();
+        sampler.setConfiguration(configuration);
+        ServiceDetails serviceDetails = new ServiceDetails("sampled outcome service", "sampledOutcomes", "http", 8080);
+        for (int i = 0; i < 1000; i++) {
+            boolean failed = i % 10 == 0;
+            Service started = sampler.started(serviceDetails, "get");
+            if (started != null) {
+                actor.startTransaction(started, 1);
+            }
+            Service finished = sampler.finished(serviceDetails, "get", failed, TransactionOutcome.ofHttpStatus(failed ? 503 : i % 2 == 0 ? 200 : 404));
+            if (finished != null) {
+                actor.endTransaction(finished, failed, "failed");
+            }
+        }
+
+        SettableFuture<List<ServiceOutcome>> snapshot = SettableFuture.create();
+        actor.snapshotOutcomes(snapshot);
+        ServiceOutcome outcome = snapshot.get().get(0);
+        Assert.assertEquals(400, outcome.getOutcomeCounts()[TransactionOutcome.HTTP_2XX]);
+        Assert.assertEquals(500, outcome.getOutcomeCounts()[TransactionOutcome.HTTP_4XX]);
+        Assert.assertEquals(100, outcome.getOutcomeCounts()[TransactionOutcome.HTTP_5XX]);
+    }
+
+    @Test
+    public void keepsCountingOutcomesOffTheHeap() throws Exception {
+        ServiceActorImpl actor = new ServiceActorImpl();
+        TransactionSampler sampler = new TransactionSampler();
+        ServiceDetails serviceDetails = new ServiceDetails("off-heap outcome service", "offHeapOutcomes", "http", 8080);
+        for (int i = 0; i < 20; i++) {
+            if (i == 10) {
+                actor.useOffHeapTable(16);
+            }
+            boolean failed = i % 2 == 0;
+            actor.startTransaction(sampler.started(serviceDetails, "get"), 1);
+            actor.endTransaction(sampler.finished(serviceDetails, "get", failed,
+                    TransactionOutcome.ofHttpStatus(failed ? 503 : 200)), failed, "unavailable");
+        }
+        actor.startTransaction(sampler.started(serviceDetails, "put"), 1);
+        actor.endTransaction(sampler.finished(serviceDetails, "put", false, TransactionOutcome.ofHttpStatus(404)), false, "");
+
+        SettableFuture<List<ServiceOutcome>> snapshot = SettableFuture.create();
+        actor.snapshotOutcomes(snapshot);
+        List<ServiceOutcome> outcomes = snapshot.get();
+        Assert.assertEquals(2, outcomes.size());
+        ServiceOutcome get = "get".equals(outcomes.get(0).getApiName()) ? outcomes.get(0) : outcomes.get(1);
+        Assert.assertEquals(10, get.getOutcomeCounts()[TransactionOutcome.HTTP_2XX]);
+        Assert.assertEquals(10, get.getOutcomeCounts()[TransactionOutcome.HTTP_5XX]);
+        Assert.assertEquals("unavailable", get.getFailureDescriptions()[0]);
+        Assert.assertEquals(10, get.getFailureDescriptionCounts()[0]);
+        ServiceOutcome put = get == outcomes.get(0) ? outcomes.get(1) : outcomes.get(0);
+        Assert.assertEquals(1, put.getOutcomeCounts()[TransactionOutcome.HTTP_4XX]);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.services;
+
+import com.cisco.oss.foundation.monitoring.CommunicationInfo;
+import com.cisco.oss.foundation.monitoring.FoundationMonitoringConstants;
+import com.google.common.util.concurrent.SettableFuture;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestTransactionSampler {
+
+    @Test
+    public void countsStayExactWhenSampled() throws Exception {
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty(FoundationMonitoringConstants.MONITOR_ENABLED, true);
+        configuration.setProperty(FoundationMonitoringConstants.SERVICE_SAMPLING_RATE + ".sampled", 10);
+        CommunicationInfo.getCommunicationInfo().setConfiguration(configuration);
+
+        ServiceDetails serviceDetails = new ServiceDetails("sampled service", "sampled", "http", 8080);
+        for (int i = 0; i < 10000; i++) {
+            CommunicationInfo.getCommunicationInfo().transactionStarted(serviceDetails, "get");
+            CommunicationInfo.getCommunicationInfo().transactionFinished(serviceDetails, "get", i % 100 == 0, "failed");
+        }
+        SettableFuture<Map<String, long[]>> processed = SettableFuture.create();
+        ServiceInfo.INSTANCE.serviceActor.tell().snapshotCounters(processed);
+        processed.get(10, TimeUnit.SECONDS);
+
+        Service service = null;
+        for (Service candidate : ServiceInfo.INSTANCE.getServices()) {
+            if ("sampled".equals(candidate.getInterfaceName())) {
+                service = candidate;
+            }
+        }
+        Assert.assertNotNull(service);
+        Assert.assertEquals(10000, service.getTotalRequestCount());
+        Assert.assertEquals(100, service.getFailedRequestCount());
+        Assert.assertTrue(service.getSampledFraction() > 0.05 && service.getSampledFraction() < 0.2);
+        // every timed end stands for 1 / fraction transactions, all within the 30 second window
+        Assert.assertEquals(10000 / 30.0, service.getTps(), 0.01);
+    }
+
+    @Test
+    public void pairsNestedAndCrossThreadTransactions() throws Exception {
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty(FoundationMonitoringConstants.SERVICE_SAMPLING_RATE, 2);
+        final TransactionSampler sampler = new TransactionSampler();
+        sampler.setConfiguration(configuration);
+        final ServiceDetails serviceDetails = new ServiceDetails("nested service", "nested", "http", 8080);
+
+        // transactions started here and ended on another thread leave their decisions behind
+        for (int i = 0; i < 100; i++) {
+            sampler.started(serviceDetails, "get");
+        }
+        final AtomicInteger endedOnTheActor = new AtomicInteger();
+        Thread other = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 100; i++) {
+                    if (sampler.finished(serviceDetails, "get", false) != null) {
+                        endedOnTheActor.incrementAndGet();
+                    }
+                }
+            }
+        };
+        other.start();
+        other.join();
+        Assert.assertEquals(0, endedOnTheActor.get());
+
+        for (int i = 0; i < 1000; i++) {
+            Service outer = sampler.started(serviceDetails, "get");
+            Service inner = sampler.started(serviceDetails, "get");
+            Assert.assertEquals(inner != null, sampler.finished(serviceDetails, "get", false) != null);
+            Assert.assertEquals(outer != null, sampler.finished(serviceDetails, "get", false) != null);
+        }
+
+        Service failure = null;
+        while (failure == null || ((ServiceImp) failure).timed) {
+            Service started = sampler.started(serviceDetails, "get");
+            failure = sampler.finished(serviceDetails, "get", true, TransactionOutcome.HTTP_5XX);
+            Assert.assertNotNull(failure);
+            Assert.assertEquals(started != null, ((ServiceImp) failure).timed);
+        }
+        Assert.assertEquals(TransactionOutcome.HTTP_5XX, ((ServiceImp) failure).outcome);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.statistics;
+
+import com.cisco.oss.foundation.monitoring.FoundationMonitoringConstants;
+import com.cisco.oss.foundation.monitoring.services.Service;
+import com.cisco.oss.foundation.monitoring.services.ServiceActorImpl;
+import com.cisco.oss.foundation.monitoring.services.ServiceDetails;
+import com.cisco.oss.foundation.monitoring.services.TransactionSampler;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TestHeavyHitters {
+
+    @Test
+    public void ranksTheHeaviestItemsOfTheLastCompleteWindow() {
+        WindowedTopK topK = new WindowedTopK(8, 1000);
+        long start = 1000000000000L;
+        for (int i = 0; i < 1000; i++) {
+            // two heavy items among many that are seen once
+            String item = i % 2 == 0 ? "hot" : i % 4 == 1 ? "warm" : "cold" + i;
+            topK.record(item, start + i % 1000, 1);
+        }
+        List<HeavyHitter> current = topK.top(2, start + 999);
+        Assert.assertEquals("hot", current.get(0).getName());
+
+        topK.record("next", start + 1000, 1);
+        List<HeavyHitter> top = topK.top(2, start + 1500);
+        Assert.assertEquals(2, top.size());
+        Assert.assertEquals("hot", top.get(0).getName());
+        Assert.assertEquals("warm", top.get(1).getName());
+        HeavyHitter hot = top.get(0);
+        Assert.assertTrue(hot.getCount() >= 500 && hot.getCount() - hot.getError() <= 500);
+        Assert.assertEquals(hot.getCount(), hot.getRate(), 0.001);
+
+        // a window without transactions ranks nothing
+        Assert.assertTrue(topK.top(2, start + 3500).isEmpty());
+    }
+
+    @Test
+    public void weighsSampledTransactionsAndRanksEveryFailure() throws Exception {
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty(FoundationMonitoringConstants.SERVICE_SAMPLING_RATE + ".busy", 10);
+        configuration.setProperty(FoundationMonitoringConstants.SERVICE_SAMPLING_RATE + ".failing", 10);
+        TransactionSampler sampler = new TransactionSampler();
+        sampler.setConfiguration(configuration);
+        ServiceActorImpl actor = new ServiceActorImpl();
+        HeavyHitters.INSTANCE.configure(HeavyHitters.DEFAULT_CAPACITY, HeavyHitters.DEFAULT_WINDOW);
+        try {
+            run(sampler, actor, new ServiceDetails("busy service", "busy", "http", 8080), 2000, false);
+            run(sampler, actor, new ServiceDetails("quiet service", "quiet", "http", 8080), 500, false);
+            run(sampler, actor, new ServiceDetails("failing service", "failing", "http", 8080), 50, true);
+
+            List<HeavyHitter> requests = HeavyHitters.INSTANCE.getTopServicesByRequestRate();
+            Assert.assertTrue(requests.get(0).getName().contains("busy"));
+            List<HeavyHitter> failures = HeavyHitters.INSTANCE.getTopServicesByFailureRate();
+            Assert.assertEquals(1, failures.size());
+            Assert.assertTrue(failures.get(0).getName().contains("failing"));
+            Assert.assertEquals(50, failures.get(0).getCount());
+        } finally {
+            HeavyHitters.INSTANCE.configure(HeavyHitters.DEFAULT_CAPACITY, HeavyHitters.DEFAULT_WINDOW);
+        }
+    }
+
+    private static void run(TransactionSampler sampler, ServiceActorImpl actor, ServiceDetails serviceDetails,
+                            int transactions, boolean failed) {
+        for (int i = 0; i < transactions; i++) {
+            Service started = sampler.started(serviceDetails, "get");
+            if (started != null) {
+                actor.startTransaction(started, 1);
+            }
+            Service finished = sampler.finished(serviceDetails, "get", failed);
+            if (finished != null) {
+                actor.endTransaction(finished, failed, "failed");
+            }
+        }
+    }
+}
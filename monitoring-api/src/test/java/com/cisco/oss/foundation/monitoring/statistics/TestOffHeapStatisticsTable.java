@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.statistics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestOffHeapStatisticsTable {
+
+    @Test
+    public void findsEveryKeyAfterGrowing() {
+        OffHeapStatisticsTable table = new OffHeapStatisticsTable(16);
+        for (int i = 0; i < 1000; i++) {
+            String api = "api" + i;
+            int record = table.add(hash(i), i, "interface", "http", null, api);
+            table.addLong(record, OffHeapStatisticsTable.TOTAL_REQUEST_COUNT, i);
+        }
+        Assert.assertEquals(1000, table.size());
+        for (int i = 0; i < 1000; i++) {
+            int record = table.find(hash(i), i, "interface", "http", null, "api" + i);
+            Assert.assertEquals(i, table.getLong(record, OffHeapStatisticsTable.TOTAL_REQUEST_COUNT));
+            Assert.assertEquals("api" + i, table.getName(record, 3));
+        }
+        Assert.assertEquals(-1, table.find(hash(1), 2, "interface", "http", null, "api1"));
+        // names shared by the keys are held once
+        Assert.assertSame(table.getName(0, 0), table.getName(999, 0));
+    }
+
+    @Test
+    public void countsTheLastWindowOnly() {
+        OffHeapStatisticsTable table = new OffHeapStatisticsTable(16);
+        int record = table.add(1, 1, "interface", "http", null, "api");
+        long start = 1000000000000L;
+        for (int second = 0; second < 40; second++) {
+            table.countInWindow(record, start + second * 1000);
+            table.countInWindow(record, start + second * 1000 + 500);
+        }
+        long now = start + 39 * 1000;
+        Assert.assertEquals(2 * OffHeapStatisticsTable.WINDOW_SECONDS, table.getWindowCount(record, now));
+        Assert.assertEquals(2 * 20, table.getWindowCount(record, now + 10 * 1000));
+        Assert.assertEquals(0, table.getWindowCount(record, now + OffHeapStatisticsTable.WINDOW_SECONDS * 1000));
+    }
+
+    private static int hash(int i) {
+        // few distinct hashes, so the index has to probe past collisions
+        return i % 7;
+    }
+}
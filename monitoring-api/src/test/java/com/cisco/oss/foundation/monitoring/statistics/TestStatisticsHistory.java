@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.cisco.oss.foundation.monitoring.statistics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestStatisticsHistory {
+
+    // aligned on an hour so every resolution starts a period here
+    private static final long START = 400000L * Resolution.HOUR.getPeriod();
+    private static final long SECOND = Resolution.SECOND.getPeriod();
+
+    @Test
+    public void aggregatesTheTransactionsOfAPeriod() {
+        RoundRobinSeries series = new RoundRobinSeries("service");
+        for (int i = 0; i < 99; i++) {
+            series.record(START, 10, i % 3 == 0);
+        }
+        series.record(START + 500, 1000, false);
+
+        StatisticsSeries history = series.query(Resolution.SECOND, START, START, START + 500);
+        Assert.assertEquals("service", history.getName());
+        Assert.assertEquals("SECOND", history.getResolution());
+        Assert.assertEquals(START, history.getStart());
+        Assert.assertEquals(SECOND, history.getStep());
+        Assert.assertEquals(1, history.getCounts().length);
+        Assert.assertEquals(100, history.getCounts()[0]);
+        Assert.assertEquals(33, history.getFailures()[0]);
+        Assert.assertEquals((99 * 10 + 1000) / 100, history.getAverageLatencies()[0]);
+        Assert.assertEquals(1000, history.getMaxLatencies()[0]);
+        // 10ms falls in the 8-15ms bucket
+        Assert.assertEquals(15, history.getP99Latencies()[0]);
+    }
+
+    @Test
+    public void weighsSampledTransactionsAndCountsUntimedFailures() {
+        RoundRobinSeries series = new RoundRobinSeries("sampled");
+        series.record(START, 10, false, 10);
+        series.record(START, 30, true, 10);
+        series.recordFailure(START + 100);
+        series.recordFailure(START + 2 * SECOND);
+
+        StatisticsSeries history = series.query(Resolution.SECOND, START, START + 2 * SECOND, START + 2 * SECOND);
+        Assert.assertEquals(20, history.getCounts()[0]);
+        Assert.assertEquals(2, history.getFailures()[0]);
+        Assert.assertEquals(20, history.getAverageLatencies()[0]);
+        Assert.assertEquals(30, history.getMaxLatencies()[0]);
+        // a period with only an untimed failure still reports it
+        Assert.assertEquals(0, history.getCounts()[2]);
+        Assert.assertEquals(1, history.getFailures()[2]);
+    }
+
+    @Test
+    public void downsamplesIntoTheCoarserResolutions() {
+        RoundRobinSeries series = new RoundRobinSeries("service");
+        series.record(START, 10, false);
+        series.record(START + SECOND, 20, true);
+        series.record(START + 59 * SECOND, 30, false);
+        long now = START + 59 * SECOND;
+
+        StatisticsSeries seconds = series.query(Resolution.SECOND, START, now, now);
+        Assert.assertEquals(60, seconds.getCounts().length);
+        Assert.assertEquals(1, seconds.getCounts()[0]);
+        Assert.assertEquals(1, seconds.getCounts()[1]);
+        Assert.assertEquals(0, seconds.getCounts()[2]);
+        Assert.assertEquals(1, seconds.getCounts()[59]);
+
+        StatisticsSeries minutes = series.query(Resolution.MINUTE, START, now, now);
+        Assert.assertEquals(1, minutes.getCounts().length);
+        Assert.assertEquals(3, minutes.getCounts()[0]);
+        Assert.assertEquals(1, minutes.getFailures()[0]);
+        Assert.assertEquals(20, minutes.getAverageLatencies()[0]);
+        Assert.assertEquals(30, minutes.getMaxLatencies()[0]);
+
+        StatisticsSeries hours = series.query(Resolution.HOUR, START, now, now);
+        Assert.assertEquals(3, hours.getCounts()[0]);
+    }
+
+    @Test
+    public void reusesTheSlotOfAPeriodThatRolledOutOfTheWindow() {
+        RoundRobinSeries series = new RoundRobinSeries("service");
+        series.record(START, 10, true);
+        long later = START + Resolution.SECOND.getPeriods() * SECOND;
+        series.record(later, 20, false);
+        // a transaction for the period the slot held before is not counted any more
+        series.record(START, 30, true);
+
+        StatisticsSeries history = series.query(Resolution.SECOND, START, later, later);
+        Assert.assertEquals(later - (Resolution.SECOND.getPeriods() - 1) * SECOND, history.getStart());
+        Assert.assertEquals(Resolution.SECOND.getPeriods(), history.getCounts().length);
+        long[] counts = history.getCounts();
+        Assert.assertEquals(1, counts[counts.length - 1]);
+        Assert.assertEquals(0, history.getFailures()[counts.length - 1]);
+        Assert.assertEquals(20, history.getMaxLatencies()[counts.length - 1]);
+        for (int i = 0; i < counts.length - 1; i++) {
+            Assert.assertEquals(0, counts[i]);
+        }
+
+        // the minute resolution still retains both periods
+        StatisticsSeries minutes = series.query(Resolution.MINUTE, START, later, later);
+        Assert.assertEquals(11, minutes.getCounts().length);
+        Assert.assertEquals(2, minutes.getCounts()[0]);
+        Assert.assertEquals(1, minutes.getCounts()[10]);
+    }
+
+    @Test
+    public void returnsNothingForARangeNoLongerRetained() {
+        RoundRobinSeries series = new RoundRobinSeries("service");
+        series.record(START - 1000 * SECOND, 10, false);
+        series.record(START, 10, false);
+        StatisticsSeries history = series.query(Resolution.SECOND, START - 1000 * SECOND, START - 700 * SECOND, START);
+        Assert.assertEquals(0, history.getCounts().length);
+    }
+
+    @Test
+    public void rejectsTransactionsBeyondTheMaximumNumberOfSeries() {
+        StatisticsHistory history = StatisticsHistory.INSTANCE;
+        history.setMaxSeries(0);
+        try {
+            long rejected = history.getRejectedTransactionCount();
+            history.record(getClass().getName(), System.currentTimeMillis(), 10, false);
+            Assert.assertEquals(rejected + 1, history.getRejectedTransactionCount());
+            Assert.assertFalse(history.getSeriesNames().contains(getClass().getName()));
+            Assert.assertNull(history.getHistory(getClass().getName(), "second", 0, Long.MAX_VALUE));
+        } finally {
+            history.setMaxSeries(StatisticsHistory.DEFAULT_MAX_SERIES);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.tags;
+
+import com.cisco.oss.foundation.monitoring.FoundationMonitoringConstants;
+import com.cisco.oss.foundation.monitoring.services.Service;
+import com.cisco.oss.foundation.monitoring.services.ServiceActorImpl;
+import com.cisco.oss.foundation.monitoring.services.ServiceDetails;
+import com.cisco.oss.foundation.monitoring.services.TransactionSampler;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TestTaggedMetricRegistry {
+
+    @Test
+    public void internsTagSets() {
+        TagSet tags = TagSet.of("region", "eu", "tenant", "acme");
+        Assert.assertSame(tags, TagSet.of("tenant", "acme", "region", "eu"));
+        Assert.assertEquals(tags, TagSet.parse("tenant=acme, region=eu"));
+        Assert.assertNotSame(tags, TagSet.parse("tenant=acme, region=eu"));
+        Assert.assertSame(tags.with("api", "get"), tags.with("api", "get"));
+        Assert.assertSame(tags, tags.with("api", "get").project("region", "tenant"));
+        Assert.assertEquals("api=get,region=eu,tenant=acme", tags.with("api", "get").toString());
+        Assert.assertEquals("us", tags.with("region", "us").get("region"));
+    }
+
+    @Test
+    public void aggregatesByTagKeys() {
+        TagSet tenant = TagSet.of("tenant", "aggregated");
+        TaggedMetricRegistry.INSTANCE.record(tenant.with("api", "get").with("status", "2xx"), 1000, 10, false);
+        TaggedMetricRegistry.INSTANCE.record(tenant.with("api", "get").with("status", "5xx"), 2000, 30, true);
+        TaggedMetricRegistry.INSTANCE.record(tenant.with("api", "put").with("status", "2xx"), 3000, 50, false);
+
+        Assert.assertEquals(3, TaggedMetricRegistry.INSTANCE.getMetrics("tenant=aggregated").size());
+        List<TaggedMetric> byApi = TaggedMetricRegistry.INSTANCE.aggregate("api", "tenant=aggregated");
+        Assert.assertEquals(2, byApi.size());
+        TaggedMetric get = byApi.get(0);
+        Assert.assertEquals("api=get", get.getTags());
+        Assert.assertEquals(2, get.getTotalRequestCount());
+        Assert.assertEquals(1, get.getFailedRequestCount());
+        Assert.assertEquals(20, get.getAverageLatency());
+        Assert.assertEquals(30, get.getMaxLatency());
+        Assert.assertEquals(2000, get.getLastTransactionEndTime());
+    }
+
+    @Test
+    public void countsEveryTransactionOfASampledService() throws Exception {
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty(FoundationMonitoringConstants.SERVICE_SAMPLING_RATE, 10);
+        TransactionSampler sampler = new TransactionSampler();
+        sampler.setConfiguration(configuration);
+        ServiceActorImpl actor = new ServiceActorImpl();
+        ServiceDetails serviceDetails = new ServiceDetails("tagged service", "tagged", "http", 8080);
+        serviceDetails.setTags(TagSet.of("tenant", "sampled"));
+        for (int i = 0; i < 1000; i++) {
+            boolean failed = i % 100 == 0;
+            Service started = sampler.started(serviceDetails, "get");
+            if (started != null) {
+                actor.startTransaction(started, 1);
+            }
+            Service finished = sampler.finished(serviceDetails, "get", failed);
+            if (finished != null) {
+                actor.endTransaction(finished, failed, "failed");
+            }
+        }
+
+        List<TaggedMetric> metrics = TaggedMetricRegistry.INSTANCE.aggregate("tenant", "tenant=sampled");
+        Assert.assertEquals(1, metrics.size());
+        Assert.assertEquals(1000, metrics.get(0).getTotalRequestCount());
+        Assert.assertEquals(10, metrics.get(0).getFailedRequestCount());
+    }
+
+    @Test
+    public void averagesTheTimedTransactionsOnly() {
+        TagSet tags = TagSet.of("tenant", "untimed");
+        TaggedMetricRegistry.INSTANCE.record(tags, 1000, 10, false);
+        TaggedMetricRegistry.INSTANCE.recordUntimed(tags, false);
+        TaggedMetricRegistry.INSTANCE.recordUntimed(tags, true);
+
+        List<TaggedMetric> metrics = TaggedMetricRegistry.INSTANCE.getMetrics("tenant=untimed");
+        Assert.assertEquals(1, metrics.size());
+        Assert.assertEquals(3, metrics.get(0).getTotalRequestCount());
+        Assert.assertEquals(1, metrics.get(0).getFailedRequestCount());
+        Assert.assertEquals(10, metrics.get(0).getAverageLatency());
+    }
+
+    @Test
+    public void rejectsTagSetsBeyondTheCap() {
+        TaggedMetricRegistry.INSTANCE.setMaxTagSets(0);
+        try {
+            long rejected = TaggedMetricRegistry.INSTANCE.getRejectedTransactionCount();
+            TaggedMetricRegistry.INSTANCE.record(TagSet.of("tenant", "rejected"), 1000, 10, false);
+            Assert.assertNull(TaggedMetricRegistry.INSTANCE.get(TagSet.of("tenant", "rejected")));
+            Assert.assertEquals(rejected + 1, TaggedMetricRegistry.INSTANCE.getRejectedTransactionCount());
+        } finally {
+            TaggedMetricRegistry.INSTANCE.setMaxTagSets(TaggedMetricRegistry.DEFAULT_MAX_TAG_SETS);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Updates of the exposed MXBean through {@link ServerInfo#setAttributeValue},
+ * against the reflective walk it used to do on every call, kept here as
+ * the baseline. Lives in the package of {@link ServerInfo}, which is not public.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServerInfoBenchmark {
+
+    private ServerInfo serverInfo;
+    private BenchmarkMXBean mxBean;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mxBean = new BenchmarkMXBean();
+        serverInfo = new ServerInfo(mxBean, new BaseConfiguration());
+    }
+
+    @Benchmark
+    public void setNestedString() throws Exception {
+        serverInfo.setAttributeValue("Settings/Command", "stop");
+    }
+
+    @Benchmark
+    public void setNestedLong() throws Exception {
+        serverInfo.setAttributeValue("Settings/Timeout", 30L);
+    }
+
+    @Benchmark
+    public void setListElement() throws Exception {
+        serverInfo.setAttributeValue("Names[3]", "name");
+    }
+
+    @Benchmark
+    public void legacySetNestedString() throws Exception {
+        legacySetAttributeValue("Settings/Command", mxBean, "stop");
+    }
+
+    @Benchmark
+    public void legacySetNestedLong() throws Exception {
+        legacySetAttributeValue("Settings/Timeout", mxBean, 30L);
+    }
+
+    @Benchmark
+    public void legacySetListElement() throws Exception {
+        legacySetAttributeValue("Names[3]", mxBean, "name");
+    }
+
+    private static void legacySetAttributeValue(String path, Object obj, Object value) throws Exception {
+        String[] properties = path.split("/", 0);
+        for (int i = 0; i < (properties.length - 1); i++) {
+            if (obj == null)
+                return;
+            obj = legacyGetChild(obj, properties[i], value, false);
+        }
+        legacyGetChild(obj, properties[properties.length - 1], value, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object legacyGetChild(Object obj, String attributeName, Object value, boolean isSet) throws Exception {
+        int substrstart = attributeName.indexOf('[');
+        int substrend = attributeName.indexOf(']');
+
+        if (substrstart == -1) {
+            if (isSet) {
+                String strFunc = "set" + attributeName;
+                for (Method method : obj.getClass().getMethods()) {
+                    if (strFunc.equals(method.getName())) {
+                        method.invoke(obj, value);
+                    }
+                }
+                return null;
+            } else {
+                return obj.getClass().getMethod("get" + attributeName).invoke(obj);
+            }
+        } else {
+            String firststr = attributeName.substring(0, substrstart);
+            String secondstr = attributeName.substring(substrstart + 1, substrend);
+            Object requests = obj.getClass().getDeclaredMethod("get" + firststr).invoke(obj);
+            if (isSet) {
+                ((List) requests).set(Integer.parseInt(secondstr), value);
+                return null;
+            }
+            return ((List) requests).get(Integer.parseInt(secondstr));
+        }
+    }
+
+    public static class Settings {
+        private String command = "start";
+        private long timeout;
+
+        public String getCommand() {
+            return command;
+        }
+
+        public void setCommand(String command) {
+            this.command = command;
+        }
+
+        public long getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(long timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    public static class BenchmarkMXBean extends DefaultMonitoringMXBean {
+        private final Settings settings = new Settings();
+        private final List<String> names = new ArrayList<String>(Arrays.asList("a", "b", "c", "d", "e"));
+
+        public Settings getSettings() {
+            return settings;
+        }
+
+        public List<String> getNames() {
+            return names;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks matching the given regular expressions, all of them by
+ * default, once for each thread count of the <code>benchmark.threads</code>
+ * system property (default <code>1,4,16</code>). Results are also written as
+ * JSON to <code>benchmark-&lt;threads&gt;.json</code>, to be compared between
+ * builds.
+ * <p>
+ * <code>java -Dbenchmark.threads=1,8 -jar target/benchmarks.jar Transaction</code>
+ * <p>
+ * For anything else, such as overriding a <code>@Param</code>, use the JMH
+ * command line: <code>java -cp target/benchmarks.jar org.openjdk.jmh.Main -h</code>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String[] threadCounts = System.getProperty("benchmark.threads", "1,4,16").split(",");
+        for (String threadCount : threadCounts) {
+            int threads = Integer.parseInt(threadCount.trim());
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("benchmark-" + threads + ".json");
+            if (args.length == 0) {
+                options.include(".*");
+            }
+            for (String include : args) {
+                options.include(include);
+            }
+            new Runner(options.build()).run();
+        }
+    }
+}
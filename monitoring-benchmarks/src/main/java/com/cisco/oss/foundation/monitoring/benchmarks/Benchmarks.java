@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.benchmarks;
+
+import com.cisco.oss.foundation.monitoring.CommunicationInfo;
+import com.cisco.oss.foundation.monitoring.FoundationMonitoringConstants;
+import com.cisco.oss.foundation.monitoring.serverconnection.ConnectionInfo;
+import com.cisco.oss.foundation.monitoring.services.ServiceInfo;
+import com.google.common.util.concurrent.SettableFuture;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Setup shared by the benchmarks.
+ */
+final class Benchmarks {
+
+    static final int MX_PORT = 3421;
+
+    private static final long ACTOR_TIMEOUT = 60;
+
+    private Benchmarks() {
+    }
+
+    /**
+     * The configuration of an in-process agent with monitoring enabled, as
+     * used by the unit tests.
+     */
+    static Configuration configuration() {
+        Configuration configuration = new BaseConfiguration();
+        configuration.setProperty(FoundationMonitoringConstants.IN_PROC_RMI, true);
+        configuration.setProperty(FoundationMonitoringConstants.MONITOR_ENABLED, true);
+        configuration.setProperty(FoundationMonitoringConstants.EXPORTED_PORT, 4321);
+        configuration.setProperty(FoundationMonitoringConstants.MX_PORT, MX_PORT);
+        configuration.setProperty(FoundationMonitoringConstants.RMIREGISTRY_MAXHEAPSIZE, 1024);
+        return configuration;
+    }
+
+    static void enableMonitoring() {
+        CommunicationInfo.getCommunicationInfo().setConfiguration(configuration());
+    }
+
+    /**
+     * @param recorder one of the {@link com.cisco.oss.foundation.monitoring.recording.TransactionRecorder} types
+     */
+    static void enableMonitoring(String recorder) {
+        Configuration configuration = configuration();
+        configuration.setProperty(FoundationMonitoringConstants.TRANSACTION_RECORDER, recorder);
+        CommunicationInfo.getCommunicationInfo().setConfiguration(configuration);
+    }
+
+    /**
+     * Transactions are recorded asynchronously by the service and server
+     * connection actors. Waits until both have processed every message sent so
+     * far, so that the backlog of one iteration is not measured in the next.
+     */
+    static void awaitActors() throws Exception {
+        SettableFuture<Map<String, long[]>> services = SettableFuture.create();
+        SettableFuture<Map<String, long[]>> connections = SettableFuture.create();
+        ServiceInfo.INSTANCE.serviceActor.tell().snapshotCounters(services);
+        ConnectionInfo.INSTANCE.serverConnectorActor.tell().snapshotCounters(connections);
+        services.get(ACTOR_TIMEOUT, TimeUnit.SECONDS);
+        connections.get(ACTOR_TIMEOUT, TimeUnit.SECONDS);
+    }
+}
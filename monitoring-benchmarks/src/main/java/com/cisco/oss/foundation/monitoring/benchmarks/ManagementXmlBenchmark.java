@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.benchmarks;
+
+import com.cisco.oss.foundation.monitoring.CommunicationInfo;
+import com.cisco.oss.foundation.monitoring.MonitoringClient;
+import com.cisco.oss.foundation.monitoring.RMIMonitoringAgent;
+import com.cisco.oss.foundation.monitoring.component.data.ComponentInfo;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionDetails;
+import com.cisco.oss.foundation.monitoring.services.ServiceDetails;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full poll of the management information of an in-process agent over
+ * JMX/RMI, with <code>services</code> services and as many server
+ * connections registered.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ManagementXmlBenchmark {
+
+    @Param({"16", "256"})
+    public int services;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        RMIMonitoringAgent.getInstance().register(Benchmarks.configuration());
+        ServiceDetails serviceDetails = new ServiceDetails("benchmark service", "benchmark", "http", 8080);
+        ServerConnectionDetails connectionDetails = new ServerConnectionDetails("benchmark", "benchmark", "localhost", 8080, 9090);
+        for (int i = 0; i < services; i++) {
+            String apiName = "api" + i;
+            CommunicationInfo.getCommunicationInfo().transactionStarted(serviceDetails, apiName);
+            CommunicationInfo.getCommunicationInfo().transactionFinished(serviceDetails, apiName, false, "");
+            CommunicationInfo.getCommunicationInfo().transactionStarted(connectionDetails, apiName);
+            CommunicationInfo.getCommunicationInfo().transactionFinished(connectionDetails, apiName, false, "");
+        }
+        Benchmarks.awaitActors();
+    }
+
+    /**
+     * One connection per benchmark thread, as a monitoring console would hold.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        private MonitoringClient monitoringClient;
+
+        // takes the benchmark state so that the agent is registered first
+        @Setup(Level.Trial)
+        public void connect(ManagementXmlBenchmark benchmark) {
+            String instance = ComponentInfo.INSTANCE.getInstance();
+            monitoringClient = new MonitoringClient(ComponentInfo.INSTANCE.getName(), instance == null ? "" : instance,
+                    "localhost", Benchmarks.MX_PORT);
+            if (!monitoringClient.connect()) {
+                throw new IllegalStateException("Failed to connect to the in-process agent on port " + Benchmarks.MX_PORT);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void disconnect() {
+            monitoringClient.disconnect();
+        }
+    }
+
+    @Benchmark
+    public String getManagementInformationXml(Client client) {
+        return client.monitoringClient.getManagementInformationXml();
+    }
+}
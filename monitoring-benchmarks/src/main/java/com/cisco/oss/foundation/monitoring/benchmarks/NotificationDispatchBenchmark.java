@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.benchmarks;
+
+import com.cisco.oss.foundation.monitoring.ExceptionNotificationMXBeanImpl;
+import com.cisco.oss.foundation.monitoring.ExceptionSeverity;
+import com.cisco.oss.foundation.monitoring.FoundationMonitoringConstants;
+import com.cisco.oss.foundation.monitoring.notification.NotificationMXBean;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cost to the calling thread of sending a notification to
+ * <code>listeners</code> listeners, about <code>keys</code> distinct ids.
+ * Delivery happens on the dispatcher thread; the dropped and coalesced counts
+ * reported by the MBean show whether it kept up.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NotificationDispatchBenchmark {
+
+    @Param({"0", "1", "8"})
+    public int listeners;
+
+    @Param({"1", "1024"})
+    public int keys;
+
+    @Param({"0", "1000"})
+    public long coalescingWindow;
+
+    private NotificationMXBean notificationMXBean;
+    private ExceptionNotificationMXBeanImpl[] notifications;
+    private final AtomicLong delivered = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        notificationMXBean = new NotificationMXBean(FoundationMonitoringConstants.DEFAULT_NOTIFICATION_QUEUE_CAPACITY,
+                coalescingWindow, 0, FoundationMonitoringConstants.DEFAULT_NOTIFICATION_HISTORY_CAPACITY);
+        for (int i = 0; i < listeners; i++) {
+            notificationMXBean.addNotificationListener(new NotificationListener() {
+                @Override
+                public void handleNotification(Notification notification, Object handback) {
+                    delivered.incrementAndGet();
+                }
+            }, null, null);
+        }
+        notifications = new ExceptionNotificationMXBeanImpl[keys];
+        for (int i = 0; i < keys; i++) {
+            ExceptionNotificationMXBeanImpl notification = new ExceptionNotificationMXBeanImpl();
+            notification.setComponentName("benchmark");
+            notification.setId("exception" + i);
+            notification.setSeverity(ExceptionSeverity.MAJOR);
+            notification.setTimeOfOccurance(new Date());
+            notifications[i] = notification;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        notificationMXBean.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    @Benchmark
+    public void sendNotification(Cursor cursor) {
+        notificationMXBean.sendNotification(notifications[cursor.next]);
+        cursor.next = cursor.next + 1 == notifications.length ? 0 : cursor.next + 1;
+    }
+}
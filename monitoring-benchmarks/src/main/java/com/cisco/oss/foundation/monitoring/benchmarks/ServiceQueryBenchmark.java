@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.benchmarks;
+
+import com.cisco.oss.foundation.monitoring.CommunicationInfo;
+import com.cisco.oss.foundation.monitoring.services.Service;
+import com.cisco.oss.foundation.monitoring.services.ServiceDetails;
+import com.cisco.oss.foundation.monitoring.services.ServiceImp;
+import com.cisco.oss.foundation.monitoring.services.ServiceInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads of the service statistics, as done by every JMX poll, with
+ * <code>services</code> services of <code>samples</code> recent transactions
+ * each.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceQueryBenchmark {
+
+    @Param({"16", "1024"})
+    public int services;
+
+    @Param({"100", "10000"})
+    public int samples;
+
+    private ServiceDetails serviceDetails;
+    private ServiceImp service;
+    private String[] apiNames;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Benchmarks.enableMonitoring();
+        serviceDetails = new ServiceDetails("benchmark service", "benchmark", "http", 8080);
+        apiNames = new String[services];
+        for (int i = 0; i < services; i++) {
+            apiNames[i] = "api" + i;
+            record(apiNames[i]);
+        }
+        for (int i = 0; i < samples; i++) {
+            record("api0");
+        }
+        Benchmarks.awaitActors();
+        for (Service candidate : ServiceInfo.INSTANCE.getServices()) {
+            if ("api0".equals(candidate.getMethodName())) {
+                service = (ServiceImp) candidate;
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void drain() throws Exception {
+        Benchmarks.awaitActors();
+    }
+
+    private void record(String apiName) {
+        CommunicationInfo.getCommunicationInfo().transactionStarted(serviceDetails, apiName);
+        CommunicationInfo.getCommunicationInfo().transactionFinished(serviceDetails, apiName, false, "");
+    }
+
+    @Benchmark
+    public List<Service> getServices() {
+        return ServiceInfo.INSTANCE.getServices();
+    }
+
+    @Benchmark
+    public double getTps() {
+        return service.getTps();
+    }
+
+    /**
+     * Reads while transactions of the same services are being recorded.
+     */
+    @Benchmark
+    @Group("getServicesUnderLoad")
+    @GroupThreads(3)
+    public List<Service> readServices() {
+        return ServiceInfo.INSTANCE.getServices();
+    }
+
+    @Benchmark
+    @Group("getServicesUnderLoad")
+    @GroupThreads(1)
+    public void recordTransactions() {
+        record(apiNames[(int) (System.nanoTime() % apiNames.length)]);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.benchmarks;
+
+import com.cisco.oss.foundation.monitoring.CommunicationInfo;
+import com.cisco.oss.foundation.monitoring.FoundationMonitoringConstants;
+import com.cisco.oss.foundation.monitoring.RMIMonitoringAgent;
+import com.cisco.oss.foundation.monitoring.component.data.ComponentInfo;
+import com.cisco.oss.foundation.monitoring.host.SnapshotClient;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionDetails;
+import com.cisco.oss.foundation.monitoring.services.ServiceDetails;
+import org.apache.commons.configuration.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.management.AttributeList;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A poll of the component, services and server connections of an in-process
+ * agent on loopback, over JMX/RMI (<code>rmi</code>) and over the snapshot
+ * server (<code>nio</code>), with <code>services</code> services and as many
+ * server connections registered. Client and agent share the process, so
+ * the time of a poll covers both sides.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotPollBenchmark {
+
+    static final int SNAPSHOT_PORT = 5421;
+
+    @Param({"rmi", "nio"})
+    public String transport;
+
+    @Param({"16", "256"})
+    public int services;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Configuration configuration = Benchmarks.configuration();
+        configuration.setProperty(FoundationMonitoringConstants.SNAPSHOT_SERVER_PORT, SNAPSHOT_PORT);
+        RMIMonitoringAgent.getInstance().register(configuration);
+        ServiceDetails serviceDetails = new ServiceDetails("benchmark service", "benchmark", "http", 8080);
+        ServerConnectionDetails connectionDetails = new ServerConnectionDetails("benchmark", "benchmark", "localhost", 8080, 9090);
+        for (int i = 0; i < services; i++) {
+            String apiName = "api" + i;
+            CommunicationInfo.getCommunicationInfo().transactionStarted(serviceDetails, apiName);
+            CommunicationInfo.getCommunicationInfo().transactionFinished(serviceDetails, apiName, false, "");
+            CommunicationInfo.getCommunicationInfo().transactionStarted(connectionDetails, apiName);
+            CommunicationInfo.getCommunicationInfo().transactionFinished(connectionDetails, apiName, false, "");
+        }
+        Benchmarks.awaitActors();
+    }
+
+    /**
+     * One connection per benchmark thread, as a collector would hold.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        private JMXConnector connector;
+        private MBeanServerConnection server;
+        private ObjectName serviceInfo;
+        private ObjectName connectionInfo;
+        private ObjectName componentInfo;
+        private SnapshotClient snapshotClient;
+        private InetSocketAddress agent;
+
+        // takes the benchmark state so that the agent is registered first
+        @Setup(Level.Trial)
+        public void connect(SnapshotPollBenchmark benchmark) throws Exception {
+            if ("rmi".equals(benchmark.transport)) {
+                String instance = ComponentInfo.INSTANCE.getInstance();
+                JMXServiceURL url = new JMXServiceURL("service:jmx:rmi:///jndi/rmi://localhost:" + Benchmarks.MX_PORT
+                        + "/jmxrmi/" + ComponentInfo.INSTANCE.getName() + (instance == null ? "" : instance));
+                connector = JMXConnectorFactory.connect(url);
+                server = connector.getMBeanServerConnection();
+                serviceInfo = objectName("ServiceInfo");
+                connectionInfo = objectName("ConnectionInfo");
+                componentInfo = objectName("ComponentInfo");
+            } else {
+                snapshotClient = new SnapshotClient(5000);
+                agent = new InetSocketAddress(InetAddress.getLoopbackAddress(), SNAPSHOT_PORT);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void disconnect() throws Exception {
+            if (connector != null) {
+                connector.close();
+            }
+            if (snapshotClient != null) {
+                snapshotClient.close();
+            }
+        }
+
+        private static ObjectName objectName(String contentSource) throws Exception {
+            String objectName = FoundationMonitoringConstants.DOMAIN_NAME + ":name=" + ComponentInfo.INSTANCE.getName();
+            String instance = ComponentInfo.INSTANCE.getInstance();
+            if (instance != null && !instance.trim().isEmpty()) {
+                objectName = objectName + ",instance=" + instance;
+            }
+            return new ObjectName(objectName + ",contentSource=" + contentSource);
+        }
+    }
+
+    @Benchmark
+    public Object poll(Client client) throws Exception {
+        if (client.snapshotClient != null) {
+            return client.snapshotClient.poll(client.agent);
+        }
+        AttributeList component = client.server.getAttributes(client.componentInfo, new String[]{"Name", "Instance", "Version"});
+        Object services = client.server.getAttribute(client.serviceInfo, "Services");
+        Object connections = client.server.getAttribute(client.connectionInfo, "ServerConnections");
+        return new Object[]{component, services, connections};
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.benchmarks;
+
+import com.cisco.oss.foundation.monitoring.AgentStatus;
+import com.cisco.oss.foundation.monitoring.CommunicationInfo;
+import com.cisco.oss.foundation.monitoring.RMIMonitoringAgent;
+import com.cisco.oss.foundation.monitoring.services.ServiceDetails;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time the application's startup thread spends registering the agent
+ * and recording its first transaction. The agent registers once per process,
+ * so every fork measures a single cold registration.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    @Param({"sync", "async"})
+    public String registration;
+
+    private ListenableFuture<AgentStatus> status;
+
+    @Benchmark
+    public void registerAndRecord() {
+        if ("async".equals(registration)) {
+            status = RMIMonitoringAgent.getInstance().registerAsync(Benchmarks.configuration());
+        } else {
+            RMIMonitoringAgent.getInstance().register(Benchmarks.configuration());
+        }
+        ServiceDetails serviceDetails = new ServiceDetails("benchmark service", "benchmark", "http", 8080);
+        CommunicationInfo.getCommunicationInfo().transactionStarted(serviceDetails, "startup");
+        CommunicationInfo.getCommunicationInfo().transactionFinished(serviceDetails, "startup", false, "");
+    }
+
+    // lets the background registration finish before the fork exits
+    @TearDown(Level.Trial)
+    public void awaitRegistration() throws Exception {
+        if (status != null) {
+            status.get(1, TimeUnit.MINUTES);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.benchmarks;
+
+import com.cisco.oss.foundation.monitoring.CommunicationInfo;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionDetails;
+import com.cisco.oss.foundation.monitoring.services.ServiceDetails;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost to the calling thread of recording a transaction of a service or a
+ * server connection, spread over <code>keys</code> distinct api names, with
+ * each transaction recorder. Run at several thread counts to see how the
+ * recorders scale.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionBenchmark {
+
+    @Param({"1", "64", "4096"})
+    public int keys;
+
+    @Param({"actor", "threadLocal", "ringBuffer"})
+    public String recorder;
+
+    private ServiceDetails serviceDetails;
+    private ServerConnectionDetails connectionDetails;
+    private String[] apiNames;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Benchmarks.enableMonitoring(recorder);
+        serviceDetails = new ServiceDetails("benchmark service", "benchmark", "http", 8080);
+        connectionDetails = new ServerConnectionDetails("benchmark", "benchmark", "localhost", 8080, 9090);
+        apiNames = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            apiNames[i] = "api" + i;
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void drain() throws Exception {
+        Benchmarks.awaitActors();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        String apiName(TransactionBenchmark benchmark) {
+            String[] apiNames = benchmark.apiNames;
+            String apiName = apiNames[next];
+            next = next + 1 == apiNames.length ? 0 : next + 1;
+            return apiName;
+        }
+    }
+
+    @Benchmark
+    public void serviceTransaction(Cursor cursor) {
+        String apiName = cursor.apiName(this);
+        CommunicationInfo.getCommunicationInfo().transactionStarted(serviceDetails, apiName);
+        CommunicationInfo.getCommunicationInfo().transactionFinished(serviceDetails, apiName, false, "");
+    }
+
+    @Benchmark
+    public void connectionTransaction(Cursor cursor) {
+        String apiName = cursor.apiName(this);
+        CommunicationInfo.getCommunicationInfo().transactionStarted(connectionDetails, apiName);
+        CommunicationInfo.getCommunicationInfo().transactionFinished(connectionDetails, apiName, false, "");
+    }
+}
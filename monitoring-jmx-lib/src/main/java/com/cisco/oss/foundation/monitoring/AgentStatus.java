@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring;
+
+/**
+ * What a successful registration of the {@link RMIMonitoringAgent} exposed,
+ * and how long it took.
+ */
+public class AgentStatus {
+
+    private final String serviceURL;
+    private final String objectName;
+    private final long registrationTime;
+
+    public AgentStatus(String serviceURL, String objectName, long registrationTime) {
+        this.serviceURL = serviceURL;
+        this.objectName = objectName;
+        this.registrationTime = registrationTime;
+    }
+
+    /**
+     * The JMX service URL monitoring applications connect to.
+     */
+    public String getServiceURL() {
+        return serviceURL;
+    }
+
+    /**
+     * The object name of the application MBean.
+     */
+    public String getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * Milliseconds from the start of the registration until the connector was up.
+     */
+    public long getRegistrationTime() {
+        return registrationTime;
+    }
+
+    @Override
+    public String toString() {
+        return "AgentStatus{" +
+                "serviceURL='" + serviceURL + '\'' +
+                ", objectName='" + objectName + '\'' +
+                ", registrationTime=" + registrationTime +
+                '}';
+    }
+}
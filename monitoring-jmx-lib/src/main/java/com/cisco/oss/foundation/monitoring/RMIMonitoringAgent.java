@@ -20,13 +20,26 @@ import com.cisco.oss.foundation.configuration.ConfigurationFactory;
 import com.cisco.oss.foundation.monitoring.component.config.*;
 import com.cisco.oss.foundation.monitoring.component.data.ComponentInfo;
 import com.cisco.oss.foundation.monitoring.exception.AgentAlreadyRegisteredException;
+import com.cisco.oss.foundation.monitoring.exception.AgentNotRegisteredException;
 import com.cisco.oss.foundation.monitoring.exception.AgentRegistrationException;
 import com.cisco.oss.foundation.monitoring.exception.IncompatibleClassException;
+import com.cisco.oss.foundation.monitoring.host.HostAggregator;
+import com.cisco.oss.foundation.monitoring.host.SnapshotPublisher;
+import com.cisco.oss.foundation.monitoring.host.SnapshotServer;
+import com.cisco.oss.foundation.monitoring.journal.NotificationJournal;
 import com.cisco.oss.foundation.monitoring.notification.NotificationInfoMXBean;
 import com.cisco.oss.foundation.monitoring.notification.NotificationMXBean;
 import com.cisco.oss.foundation.monitoring.notification.NotificationSender;
 import com.cisco.oss.foundation.monitoring.serverconnection.ConnectionInfo;
 import com.cisco.oss.foundation.monitoring.services.ServiceInfo;
+import com.cisco.oss.foundation.monitoring.services.ServiceInfoMXBean;
+import com.cisco.oss.foundation.monitoring.overhead.MonitoringOverhead;
+import com.cisco.oss.foundation.monitoring.overhead.TimedMXBean;
+import com.cisco.oss.foundation.monitoring.statistics.HeavyHitters;
+import com.cisco.oss.foundation.monitoring.statistics.StatisticsHistory;
+import com.cisco.oss.foundation.monitoring.tags.TaggedMetricRegistry;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import org.apache.commons.configuration.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,13 +49,18 @@ import javax.management.*;
 import javax.management.remote.JMXConnectorServer;
 import javax.management.remote.JMXConnectorServerFactory;
 import javax.management.remote.JMXServiceURL;
+import java.io.File;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.channels.UnresolvedAddressException;
 import java.security.CodeSource;
 import java.security.ProtectionDomain;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -61,18 +79,32 @@ public enum RMIMonitoringAgent {
     private static final String COLON = ":";
     private static Logger LOGGER = LoggerFactory.getLogger(RMIMonitoringAgent.class.getName());
     private static NotificationMXBean notificationDetails = null;
+    private static ExceptionAggregator exceptionAggregator = null;
+    private static NotificationJournal notificationJournal = null;
+    private CounterCheckpoint counterCheckpoint;
+    private SnapshotPublisher snapshotPublisher;
+    private SnapshotServer snapshotServer;
     private Configuration configuration;
     //    private static Map<String, RMIMonitoringAgent> registeredAgents = new HashMap<String, RMIMonitoringAgent>();
-    private MBeanServer mbs;
+    // read by threads sending notifications while the agent registers
+    private volatile MBeanServer mbs;
     private ServerInfo serverInfo;
     private ObjectName appObjectName;
     private ObjectName servicesObjectName;
     private ObjectName connetctionsObjectName;
+    private ObjectName statisticsHistoryObjectName;
+    private ObjectName taggedMetricsObjectName;
+    private ObjectName heavyHittersObjectName;
+    private ObjectName monitoringOverheadObjectName;
     private ObjectName monitorAndManagementSettingsObjectName = null;
     private ObjectName componentInfoObjectName = null;
-    private JMXConnectorServer rmis;
+    // replaced by the ServerRecoveryDaemon without holding the agent monitor
+    private volatile JMXConnectorServer rmis;
     //    private boolean isRegistered = false;
-    private boolean isNotificationRegistered = false;
+    private volatile boolean isNotificationRegistered = false;
+    // guards the registration of the notification MBean and the notifications sent before it
+    private final Object notificationLock = new Object();
+    private final List<NotificationInfoMXBean> pendingNotifications = new ArrayList<NotificationInfoMXBean>();
     private Thread serverThread;
     private MonitoringMXBean exposedObject = null;
     private String exposedServiceURL = null;
@@ -84,6 +116,9 @@ public enum RMIMonitoringAgent {
 //    private boolean isComponentRegisted = false;
 //    private boolean isInfraRegisted = false;
     private ObjectName notificationObjectName;
+    private final SettableFuture<AgentStatus> registration = SettableFuture.create();
+    private final Map<MonitoredComponent, List<ObjectName>> componentObjectNames = new HashMap<MonitoredComponent, List<ObjectName>>();
+    private final Map<MonitoredComponent, SnapshotPublisher> componentPublishers = new HashMap<MonitoredComponent, SnapshotPublisher>();
 
     /**
      * This is the default constructor for <code>RMIMonitoringAgent</code>.
@@ -271,7 +306,14 @@ public enum RMIMonitoringAgent {
             String serviceURL = Utility.getServiceURL(configuration, this.exposedObject);
             String strAppObjectName = null;
 
-            strAppObjectName = javaRegister(mxBean, serviceURL);
+            if (isHostAggregated()) {
+                serviceURL = HostAggregator.getServiceURL(configuration);
+                strAppObjectName = aggregatedRegister(mxBean);
+            } else {
+                strAppObjectName = javaRegister(mxBean, serviceURL);
+            }
+            startCounterCheckpoint();
+            startSnapshotServer();
             Runtime.getRuntime().addShutdownHook(new ShutdownHookThread());
 
 //            registeredAgents.put(ComponentInfo.INSTANCE.getName() + COLON + ComponentInfo.INSTANCE.getInstance() + COLON + authKey, this);
@@ -319,7 +361,7 @@ public enum RMIMonitoringAgent {
 
         jmxEnvironmentMap = null;
 
-        int agentPort = configuration.getInt(FoundationMonitoringConstants.MX_PORT);
+        final int agentPort = configuration.getInt(FoundationMonitoringConstants.MX_PORT);
         if (!RMIRegistryManager.isRMIRegistryRunning(configuration, agentPort)) {
             RMIRegistryManager.startRMIRegistry(configuration, agentPort);
         } else {
@@ -344,6 +386,10 @@ public enum RMIMonitoringAgent {
         registerMonitoringConfiguration();
         registerServices();
         registerConnections();
+        registerStatisticsHistory();
+        registerTaggedMetrics();
+        registerHeavyHitters();
+        registerMonitoringOverhead();
         registerNotificationDetails();
         rmis.start();
 
@@ -352,21 +398,70 @@ public enum RMIMonitoringAgent {
             notifier.setNotificationSender(serverInfo);
         }
 
-        serverThread = new ServerRecoveryDaemon();
+        serverThread = new ServerRecoveryDaemon(serviceName, agentPort, new ServerRecoveryDaemon.Recovery() {
+            @Override
+            public void recover() throws IOException, InterruptedException {
+                recoverConnector(agentPort);
+            }
+        });
         serverThread.start();
 
         return strAppObjectName;
     }
 
-    public ObjectInstance registerMBean(Object object) {
+    private boolean isHostAggregated() {
+        return !configuration.getString(FoundationMonitoringConstants.HOST_AGGREGATOR_DIRECTORY, "").trim().isEmpty();
+    }
+
+    /**
+     * Registers the MBeans in the platform MBean server only and publishes
+     * the snapshot of the agent to the host aggregator, which serves it; no
+     * rmiregistry is looked up and no connector is started.
+     */
+    private String aggregatedRegister(MonitoringMXBean mxBean) throws MalformedObjectNameException,
+            IOException, InstanceAlreadyExistsException, MBeanRegistrationException, NotCompliantMBeanException {
+        serverInfo = new ServerInfo(mxBean, configuration);
 
-        String objName = FoundationMonitoringConstants.DOMAIN_NAME + ":name=" + ComponentInfo.INSTANCE.getName();
+        String strAppObjectName = Utility.getObjectName("Application", this.exposedObject);
+        appObjectName = new ObjectName(strAppObjectName);
+        mbs = ManagementFactory.getPlatformMBeanServer();
 
-        if ((ComponentInfo.INSTANCE.getInstance() != null) && (!ComponentInfo.INSTANCE.getInstance().trim().equals(""))) {
-            objName = objName + ",instance=" + ComponentInfo.INSTANCE.getInstance();
+        mbs.registerMBean(mxBean, appObjectName);
+        registerComponentInfo();
+        registerMonitoringConfiguration();
+        registerServices();
+        registerConnections();
+        registerStatisticsHistory();
+        registerTaggedMetrics();
+        registerHeavyHitters();
+        registerMonitoringOverhead();
+        registerNotificationDetails();
+
+        if (mxBean instanceof INotifier) {
+            INotifier notifier = (INotifier) mxBean;
+            notifier.setNotificationSender(serverInfo);
         }
 
-        objName = objName + ",contentSource=" + object.getClass().getSimpleName();
+        String directory = configuration.getString(FoundationMonitoringConstants.HOST_AGGREGATOR_DIRECTORY);
+        snapshotPublisher = new SnapshotPublisher(new File(directory), ComponentInfo.INSTANCE.getName(), ComponentInfo.INSTANCE.getInstance());
+        snapshotPublisher.start(configuration.getLong(FoundationMonitoringConstants.HOST_AGGREGATOR_PUBLISH_INTERVAL,
+                FoundationMonitoringConstants.DEFAULT_HOST_AGGREGATOR_PUBLISH_INTERVAL));
+        LOGGER.info("Publishing the snapshot of the agent to the host aggregator in " + directory);
+
+        return strAppObjectName;
+    }
+
+    public ObjectInstance registerMBean(Object object) {
+        return registerMBean(ComponentInfo.INSTANCE, object);
+    }
+
+    /**
+     * Like {@link #registerMBean(Object)}, but names the MBean after the
+     * component rather than after the component of the agent.
+     */
+    public ObjectInstance registerMBean(IComponentInfoMXBean component, Object object) {
+
+        String objName = Utility.getObjectName(component, object.getClass().getSimpleName());
 
         try {
             return mbs.registerMBean(object, new ObjectName(objName));
@@ -376,6 +471,104 @@ public enum RMIMonitoringAgent {
         }
     }
 
+    /**
+     * Exposes one more component of this JVM through the connector of the
+     * agent: its component info, services and server connections, under
+     * ObjectNames with its own name and instance. Its counters are
+     * checkpointed, and its snapshot published and served, with those of the
+     * agent when the agent does so.
+     *
+     * @throws com.cisco.oss.foundation.monitoring.exception.AgentNotRegisteredException
+     *          if the agent is not registered yet
+     * @throws com.cisco.oss.foundation.monitoring.exception.AgentAlreadyRegisteredException
+     *          if a component with the same name and instance is already registered
+     * @throws com.cisco.oss.foundation.monitoring.exception.AgentRegistrationException
+     *          if the name or instance do not follow the naming standard
+     */
+    public synchronized void registerComponent(MonitoredComponent component) throws AgentNotRegisteredException,
+            AgentAlreadyRegisteredException, AgentRegistrationException {
+        if (mbs == null) {
+            throw new AgentNotRegisteredException("Register the agent before registering the component " + component.getName());
+        }
+        Utility.validateComponent(component);
+        List<ObjectName> objectNames = new ArrayList<ObjectName>();
+        try {
+            objectNames.add(registerComponentMBean(component, "ComponentInfo", component));
+            objectNames.add(registerComponentMBean(component, "ServiceInfo",
+                    new TimedMXBean<ServiceInfoMXBean>(component.getServiceInfo(), ServiceInfoMXBean.class)));
+            objectNames.add(registerComponentMBean(component, "ConnectionInfo",
+                    new TimedMXBean<ConnectionInfoMXBean>(component.getConnectionInfo(), ConnectionInfoMXBean.class)));
+        } catch (InstanceAlreadyExistsException e) {
+            unregisterComponentMBeans(objectNames);
+            throw new AgentAlreadyRegisteredException("The component " + component.getName() + COLON
+                    + component.getInstance() + " is already registered", e);
+        } catch (JMException e) {
+            unregisterComponentMBeans(objectNames);
+            throw new AgentRegistrationException("Failed to register the component " + component.getName(), e);
+        }
+        componentObjectNames.put(component, objectNames);
+        if (counterCheckpoint != null) {
+            counterCheckpoint.addComponent(component);
+        }
+        if (snapshotServer != null) {
+            snapshotServer.addComponent(component);
+        }
+        if (snapshotPublisher != null) {
+            startComponentPublisher(component);
+        }
+        LOGGER.info("Registered the component " + component.getName() + COLON + component.getInstance());
+    }
+
+    /**
+     * Removes the MBeans of a component registered with
+     * {@link #registerComponent(MonitoredComponent)}; the component itself is
+     * not shut down.
+     */
+    public synchronized void unregisterComponent(MonitoredComponent component) {
+        List<ObjectName> objectNames = componentObjectNames.remove(component);
+        if (objectNames != null) {
+            unregisterComponentMBeans(objectNames);
+        }
+        if (counterCheckpoint != null) {
+            counterCheckpoint.removeComponent(component);
+        }
+        if (snapshotServer != null) {
+            snapshotServer.removeComponent(component);
+        }
+        SnapshotPublisher publisher = componentPublishers.remove(component);
+        if (publisher != null) {
+            publisher.stop();
+        }
+    }
+
+    private void startComponentPublisher(MonitoredComponent component) {
+        String directory = configuration.getString(FoundationMonitoringConstants.HOST_AGGREGATOR_DIRECTORY);
+        try {
+            SnapshotPublisher publisher = new SnapshotPublisher(new File(directory), component);
+            publisher.start(configuration.getLong(FoundationMonitoringConstants.HOST_AGGREGATOR_PUBLISH_INTERVAL,
+                    FoundationMonitoringConstants.DEFAULT_HOST_AGGREGATOR_PUBLISH_INTERVAL));
+            componentPublishers.put(component, publisher);
+        } catch (IOException e) {
+            LOGGER.error("Failed to publish the snapshot of the component " + component.getName() + " to " + directory, e);
+        }
+    }
+
+    private ObjectName registerComponentMBean(MonitoredComponent component, String contentSource, Object mbean) throws JMException {
+        ObjectName objectName = new ObjectName(Utility.getObjectName(component, contentSource));
+        mbs.registerMBean(mbean, objectName);
+        return objectName;
+    }
+
+    private void unregisterComponentMBeans(List<ObjectName> objectNames) {
+        for (ObjectName objectName : objectNames) {
+            try {
+                mbs.unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOGGER.trace("Failed to unregister " + objectName + e.getMessage());
+            }
+        }
+    }
+
     private void registerComponentInfo() throws MalformedObjectNameException, InstanceAlreadyExistsException,
             MBeanRegistrationException, NotCompliantMBeanException {
         String strMonComponentObjectName = Utility.getObjectName("ComponentInfo", this.exposedObject);
@@ -397,7 +590,7 @@ public enum RMIMonitoringAgent {
         try {
             String strMonConfigObjectName = Utility.getObjectName("ServiceInfo", this.exposedObject);
             servicesObjectName = new ObjectName(strMonConfigObjectName);
-            mbs.registerMBean(ServiceInfo.INSTANCE, servicesObjectName);
+            mbs.registerMBean(new TimedMXBean<ServiceInfoMXBean>(ServiceInfo.INSTANCE, ServiceInfoMXBean.class), servicesObjectName);
         } catch (MalformedObjectNameException e) {
             LOGGER.trace("Failed to register services" + e.getMessage());
         } catch (InstanceAlreadyExistsException e) {
@@ -410,37 +603,149 @@ public enum RMIMonitoringAgent {
 
     }
 
+    /**
+     * Notifications sent before the MBean server of the agent is known, as
+     * while {@link #registerAsync(Configuration)} is still running, are kept,
+     * up to the notification queue capacity, and sent once the notification
+     * MBean is registered; the ones beyond the capacity are dropped.
+     */
     public void sendNotification(NotificationInfoMXBean data) {
         try {
             if (!isNotificationRegistered) {
-
-                registerNotificationDetails();
+                synchronized (notificationLock) {
+                    if (!isNotificationRegistered) {
+                        if (mbs == null) {
+                            queueNotification(data);
+                            return;
+                        }
+                        registerNotificationDetails();
+                        if (!isNotificationRegistered) {
+                            return;
+                        }
+                    }
+                }
             }
-            notificationDetails.sendNotification(data);
+            deliverNotification(data);
         } catch (Exception e) {
             LOGGER.trace("Failed to invoke sendNotification Method" + e.getMessage());
         }
     }
 
+    private void queueNotification(NotificationInfoMXBean data) {
+        int capacity = configuration != null ? configuration.getInt(FoundationMonitoringConstants.NOTIFICATION_QUEUE_CAPACITY,
+                FoundationMonitoringConstants.DEFAULT_NOTIFICATION_QUEUE_CAPACITY) : FoundationMonitoringConstants.DEFAULT_NOTIFICATION_QUEUE_CAPACITY;
+        if (pendingNotifications.size() < capacity) {
+            pendingNotifications.add(data);
+        } else {
+            LOGGER.trace("Dropping a notification sent before the agent was registered");
+        }
+    }
+
+    private void deliverNotification(NotificationInfoMXBean data) {
+        if (notificationJournal != null) {
+            notificationJournal.append(data);
+        }
+        if (exceptionAggregator != null && data instanceof ExceptionNotificationMXBean) {
+            exceptionAggregator.report((ExceptionNotificationMXBean) data);
+        } else {
+            notificationDetails.sendNotification(data);
+        }
+    }
+
+    /**
+     * Registers the notification MBean once, then sends the notifications
+     * queued until now. The MBean is only published, and its dispatcher kept
+     * running, if the registration succeeds.
+     */
     private void registerNotificationDetails() {
-        try {
-            notificationDetails = new NotificationMXBean();
-            String strNotifObjectName = Utility.getObjectName("NotificationMXBean", this.exposedObject);
-            notificationObjectName = new ObjectName(strNotifObjectName);
-            mbs.registerMBean(notificationDetails, notificationObjectName);
+        synchronized (notificationLock) {
+            if (isNotificationRegistered) {
+                return;
+            }
+            NotificationMXBean notificationBean = new NotificationMXBean(
+                    configuration.getInt(FoundationMonitoringConstants.NOTIFICATION_QUEUE_CAPACITY, FoundationMonitoringConstants.DEFAULT_NOTIFICATION_QUEUE_CAPACITY),
+                    configuration.getLong(FoundationMonitoringConstants.NOTIFICATION_COALESCING_WINDOW, 0),
+                    configuration.getDouble(FoundationMonitoringConstants.NOTIFICATION_MAX_RATE_PER_LISTENER, 0),
+                    configuration.getInt(FoundationMonitoringConstants.NOTIFICATION_HISTORY_CAPACITY, FoundationMonitoringConstants.DEFAULT_NOTIFICATION_HISTORY_CAPACITY));
+            boolean registered = false;
+            try {
+                String strNotifObjectName = Utility.getObjectName("NotificationMXBean", this.exposedObject);
+                notificationObjectName = new ObjectName(strNotifObjectName);
+                mbs.registerMBean(notificationBean, notificationObjectName);
+                registered = true;
+            } catch (MalformedObjectNameException e) {
+                LOGGER.trace("Failed to register services" + e.getMessage());
+            } catch (InstanceAlreadyExistsException e) {
+                LOGGER.trace("Failed to register services" + e.getMessage());
+            } catch (MBeanRegistrationException e) {
+                LOGGER.trace("Failed to register services" + e.getMessage());
+            } catch (NotCompliantMBeanException e) {
+                LOGGER.trace("Failed to register services" + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                LOGGER.trace("Failed to register services" + e.getMessage());
+            }
+            if (!registered) {
+                notificationBean.shutdown();
+                return;
+            }
+            notificationDetails = notificationBean;
+            long aggregationWindow = configuration.getLong(FoundationMonitoringConstants.EXCEPTION_AGGREGATION_WINDOW, 0);
+            if (aggregationWindow > 0) {
+                exceptionAggregator = new ExceptionAggregator(notificationDetails, aggregationWindow);
+            }
+            openNotificationJournal();
+            for (NotificationInfoMXBean pending : pendingNotifications) {
+                deliverNotification(pending);
+            }
+            pendingNotifications.clear();
             isNotificationRegistered = true;
-        } catch (MalformedObjectNameException e) {
-            LOGGER.trace("Failed to register services" + e.getMessage());
-        } catch (InstanceAlreadyExistsException e) {
-            LOGGER.trace("Failed to register services" + e.getMessage());
-        } catch (MBeanRegistrationException e) {
-            LOGGER.trace("Failed to register services" + e.getMessage());
-        } catch (NotCompliantMBeanException e) {
-            LOGGER.trace("Failed to register services" + e.getMessage());
-        } catch (IllegalArgumentException e) {
-            LOGGER.trace("Failed to register services" + e.getMessage());
         }
+    }
 
+    private void startCounterCheckpoint() {
+        String checkpointDirectory = configuration.getString(FoundationMonitoringConstants.COUNTER_CHECKPOINT_DIRECTORY, "");
+        if (checkpointDirectory.trim().isEmpty()) {
+            return;
+        }
+        try {
+            counterCheckpoint = new CounterCheckpoint(new File(checkpointDirectory));
+            counterCheckpoint.restore();
+            counterCheckpoint.start(configuration.getLong(FoundationMonitoringConstants.COUNTER_CHECKPOINT_INTERVAL, FoundationMonitoringConstants.DEFAULT_COUNTER_CHECKPOINT_INTERVAL));
+        } catch (IOException e) {
+            LOGGER.error("Failed to start counter checkpoints in " + checkpointDirectory, e);
+        }
+    }
+
+    private void startSnapshotServer() {
+        int port = configuration.getInt(FoundationMonitoringConstants.SNAPSHOT_SERVER_PORT, 0);
+        if (port <= 0) {
+            return;
+        }
+        // served without authentication, so only to local clients unless configured otherwise
+        String host = configuration.getString(FoundationMonitoringConstants.SNAPSHOT_SERVER_HOST,
+                FoundationMonitoringConstants.DEFAULT_SNAPSHOT_SERVER_HOST);
+        try {
+            snapshotServer = new SnapshotServer(new InetSocketAddress(host, port));
+            snapshotServer.start();
+            LOGGER.info("Serving snapshots on " + host + ":" + port);
+        } catch (IOException | UnresolvedAddressException e) {
+            LOGGER.error("Failed to start the snapshot server on " + host + ":" + port, e);
+        }
+    }
+
+    private void openNotificationJournal() {
+        String journalDirectory = configuration.getString(FoundationMonitoringConstants.NOTIFICATION_JOURNAL_DIRECTORY, "");
+        if (journalDirectory.trim().isEmpty()) {
+            return;
+        }
+        try {
+            notificationJournal = new NotificationJournal(new File(journalDirectory),
+                    configuration.getInt(FoundationMonitoringConstants.NOTIFICATION_JOURNAL_SEGMENT_SIZE, NotificationJournal.DEFAULT_SEGMENT_SIZE),
+                    configuration.getInt(FoundationMonitoringConstants.NOTIFICATION_JOURNAL_MAX_SEGMENTS, NotificationJournal.DEFAULT_MAX_SEGMENTS));
+            LOGGER.info("Notifications are journaled in " + journalDirectory);
+        } catch (IOException e) {
+            LOGGER.error("Failed to open the notification journal in " + journalDirectory, e);
+        }
     }
 
 
@@ -448,7 +753,7 @@ public enum RMIMonitoringAgent {
         try {
             String strMonConfigObjectName = Utility.getObjectName("ConnectionInfo", this.exposedObject);
             connetctionsObjectName = new ObjectName(strMonConfigObjectName);
-            mbs.registerMBean(ConnectionInfo.INSTANCE, connetctionsObjectName);
+            mbs.registerMBean(new TimedMXBean<ConnectionInfoMXBean>(ConnectionInfo.INSTANCE, ConnectionInfoMXBean.class), connetctionsObjectName);
         } catch (MalformedObjectNameException e) {
             LOGGER.trace("Failed to register connetctions" + e.getMessage());
         } catch (InstanceAlreadyExistsException e) {
@@ -489,6 +794,118 @@ public enum RMIMonitoringAgent {
         }
     }
 
+    private void registerStatisticsHistory() {
+        try {
+            StatisticsHistory.INSTANCE.setMaxSeries(configuration.getInt(FoundationMonitoringConstants.STATISTICS_HISTORY_MAX_SERIES, StatisticsHistory.DEFAULT_MAX_SERIES));
+            String strStatisticsObjectName = Utility.getObjectName("StatisticsHistory", this.exposedObject);
+            statisticsHistoryObjectName = new ObjectName(strStatisticsObjectName);
+            mbs.registerMBean(StatisticsHistory.INSTANCE, statisticsHistoryObjectName);
+        } catch (MalformedObjectNameException e) {
+            LOGGER.trace("Failed to register statistics history" + e.getMessage());
+        } catch (InstanceAlreadyExistsException e) {
+            LOGGER.trace("Failed to register statistics history" + e.getMessage());
+        } catch (MBeanRegistrationException e) {
+            LOGGER.trace("Failed to register statistics history" + e.getMessage());
+        } catch (NotCompliantMBeanException e) {
+            LOGGER.trace("Failed to register statistics history" + e.getMessage());
+        }
+    }
+
+    private void unregisterStatisticsHistory() {
+        try {
+            if (this.statisticsHistoryObjectName != null)
+                mbs.unregisterMBean(this.statisticsHistoryObjectName);
+        } catch (InstanceNotFoundException e) {
+            LOGGER.trace("Failed to unregister statistics history" + e.getMessage());
+        } catch (MBeanRegistrationException e) {
+            LOGGER.trace("Failed to unregister statistics history" + e.getMessage());
+        }
+    }
+
+    private void registerTaggedMetrics() {
+        try {
+            TaggedMetricRegistry.INSTANCE.setMaxTagSets(configuration.getInt(FoundationMonitoringConstants.TAGGED_METRICS_MAX_TAG_SETS, TaggedMetricRegistry.DEFAULT_MAX_TAG_SETS));
+            String strTaggedMetricsObjectName = Utility.getObjectName("TaggedMetrics", this.exposedObject);
+            taggedMetricsObjectName = new ObjectName(strTaggedMetricsObjectName);
+            mbs.registerMBean(TaggedMetricRegistry.INSTANCE, taggedMetricsObjectName);
+        } catch (MalformedObjectNameException e) {
+            LOGGER.trace("Failed to register tagged metrics" + e.getMessage());
+        } catch (InstanceAlreadyExistsException e) {
+            LOGGER.trace("Failed to register tagged metrics" + e.getMessage());
+        } catch (MBeanRegistrationException e) {
+            LOGGER.trace("Failed to register tagged metrics" + e.getMessage());
+        } catch (NotCompliantMBeanException e) {
+            LOGGER.trace("Failed to register tagged metrics" + e.getMessage());
+        }
+    }
+
+    private void unregisterTaggedMetrics() {
+        try {
+            if (this.taggedMetricsObjectName != null)
+                mbs.unregisterMBean(this.taggedMetricsObjectName);
+        } catch (InstanceNotFoundException e) {
+            LOGGER.trace("Failed to unregister tagged metrics" + e.getMessage());
+        } catch (MBeanRegistrationException e) {
+            LOGGER.trace("Failed to unregister tagged metrics" + e.getMessage());
+        }
+    }
+
+    private void registerHeavyHitters() {
+        try {
+            HeavyHitters.INSTANCE.configure(configuration.getInt(FoundationMonitoringConstants.HEAVY_HITTERS_CAPACITY, HeavyHitters.DEFAULT_CAPACITY),
+                    configuration.getLong(FoundationMonitoringConstants.HEAVY_HITTERS_WINDOW, HeavyHitters.DEFAULT_WINDOW));
+            String strHeavyHittersObjectName = Utility.getObjectName("HeavyHitters", this.exposedObject);
+            heavyHittersObjectName = new ObjectName(strHeavyHittersObjectName);
+            mbs.registerMBean(HeavyHitters.INSTANCE, heavyHittersObjectName);
+        } catch (MalformedObjectNameException e) {
+            LOGGER.trace("Failed to register heavy hitters" + e.getMessage());
+        } catch (InstanceAlreadyExistsException e) {
+            LOGGER.trace("Failed to register heavy hitters" + e.getMessage());
+        } catch (MBeanRegistrationException e) {
+            LOGGER.trace("Failed to register heavy hitters" + e.getMessage());
+        } catch (NotCompliantMBeanException e) {
+            LOGGER.trace("Failed to register heavy hitters" + e.getMessage());
+        }
+    }
+
+    private void unregisterHeavyHitters() {
+        try {
+            if (this.heavyHittersObjectName != null)
+                mbs.unregisterMBean(this.heavyHittersObjectName);
+        } catch (InstanceNotFoundException e) {
+            LOGGER.trace("Failed to unregister heavy hitters" + e.getMessage());
+        } catch (MBeanRegistrationException e) {
+            LOGGER.trace("Failed to unregister heavy hitters" + e.getMessage());
+        }
+    }
+
+    private void registerMonitoringOverhead() {
+        try {
+            String strOverheadObjectName = Utility.getObjectName("MonitoringOverhead", this.exposedObject);
+            monitoringOverheadObjectName = new ObjectName(strOverheadObjectName);
+            mbs.registerMBean(MonitoringOverhead.INSTANCE, monitoringOverheadObjectName);
+        } catch (MalformedObjectNameException e) {
+            LOGGER.trace("Failed to register monitoring overhead" + e.getMessage());
+        } catch (InstanceAlreadyExistsException e) {
+            LOGGER.trace("Failed to register monitoring overhead" + e.getMessage());
+        } catch (MBeanRegistrationException e) {
+            LOGGER.trace("Failed to register monitoring overhead" + e.getMessage());
+        } catch (NotCompliantMBeanException e) {
+            LOGGER.trace("Failed to register monitoring overhead" + e.getMessage());
+        }
+    }
+
+    private void unregisterMonitoringOverhead() {
+        try {
+            if (this.monitoringOverheadObjectName != null)
+                mbs.unregisterMBean(this.monitoringOverheadObjectName);
+        } catch (InstanceNotFoundException e) {
+            LOGGER.trace("Failed to unregister monitoring overhead" + e.getMessage());
+        } catch (MBeanRegistrationException e) {
+            LOGGER.trace("Failed to unregister monitoring overhead" + e.getMessage());
+        }
+    }
+
     private void unregisterConnetctions() {
         try {
             if (this.connetctionsObjectName != null)
@@ -514,24 +931,67 @@ public enum RMIMonitoringAgent {
                 + ComponentInfo.INSTANCE.getInstance());
 
         try {
-            serverThread.interrupt();
-            rmis.stop();
+            if (serverThread != null) {
+                serverThread.interrupt();
+            }
+            // the last aggregated exceptions go out while the notification MBean and the connector are still up
+            if (exceptionAggregator != null) {
+                exceptionAggregator.shutdown();
+                exceptionAggregator = null;
+            }
+            if (notificationDetails != null) {
+                notificationDetails.shutdown();
+            }
+            if (rmis != null) {
+                rmis.stop();
+            }
+            if (snapshotPublisher != null) {
+                snapshotPublisher.stop();
+                snapshotPublisher = null;
+            }
+            for (SnapshotPublisher publisher : componentPublishers.values()) {
+                publisher.stop();
+            }
+            componentPublishers.clear();
+            if (snapshotServer != null) {
+                snapshotServer.stop();
+                snapshotServer = null;
+            }
             mbs.unregisterMBean(appObjectName);
+            for (List<ObjectName> objectNames : componentObjectNames.values()) {
+                unregisterComponentMBeans(objectNames);
+            }
+            componentObjectNames.clear();
             unregisterComponentInfo();
             unregisterMonitoringConfiguration();
             unregisterServices();
             unregisterConnetctions();
+            unregisterStatisticsHistory();
+            unregisterTaggedMetrics();
+            unregisterHeavyHitters();
+            unregisterMonitoringOverhead();
 
             if (notificationObjectName != null && mbs.isRegistered(notificationObjectName)) {
                 mbs.unregisterMBean(notificationObjectName);
             }
+            if (notificationJournal != null) {
+                notificationJournal.close();
+                notificationJournal = null;
+            }
+            if (counterCheckpoint != null) {
+                counterCheckpoint.stop();
+                counterCheckpoint = null;
+            }
+            serverInfo.shutdown();
 
             LOGGER.info("RMIMonitoringAgent successfully unregistered. Java Version=" + System.getProperty("java.version")
                     + ", URL=" + exposedServiceURL + ", ObjectName=" + exposedObjectName);
 
             exposedServiceURL = null;
             exposedObjectName = null;
-            isNotificationRegistered = false;
+            synchronized (notificationLock) {
+                isNotificationRegistered = false;
+            }
         } catch (IOException ex) {
             String message = "Failed to unregister RMIMonitoringAgent. Check the log for more details.";
             LOGGER.error(message, ex);
@@ -573,12 +1033,47 @@ public enum RMIMonitoringAgent {
     public void register(Configuration configuration) {
         this.configuration = configuration;
         if (firstTime.compareAndSet(true, false)) {
-            try {
-                CommunicationInfo.getCommunicationInfo().setConfiguration(configuration);
-                register(new DefaultMonitoringMXBean());
-            } catch (Exception e) {
-                LOGGER.error("error creating monitoring agent: {}", e, e);
+            CommunicationInfo.getCommunicationInfo().setConfiguration(configuration);
+            completeRegistration();
+        }
+    }
+
+    /**
+     * Like {@link #register(Configuration)}, but only configures the recording
+     * of transactions, which works as soon as this returns, on the calling
+     * thread. Finding or spawning the rmiregistry, registering the MBeans and
+     * starting the connector happen on a background thread.
+     *
+     * @return the registration, completed with the status of the agent or
+     * failed with the registration exception; the same future on every call
+     */
+    public ListenableFuture<AgentStatus> registerAsync(Configuration configuration) {
+        this.configuration = configuration;
+        if (firstTime.compareAndSet(true, false)) {
+            CommunicationInfo.getCommunicationInfo().setConfiguration(configuration);
+            Thread registrationThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    completeRegistration();
+                }
+            }, "MonitoringAgentRegistration");
+            registrationThread.setDaemon(true);
+            registrationThread.start();
+        }
+        return registration;
+    }
+
+    private void completeRegistration() {
+        long start = System.currentTimeMillis();
+        try {
+            register(new DefaultMonitoringMXBean());
+            registration.set(new AgentStatus(exposedServiceURL, exposedObjectName, System.currentTimeMillis() - start));
+        } catch (Exception e) {
+            LOGGER.error("error creating monitoring agent: {}", e, e);
+            synchronized (notificationLock) {
+                pendingNotifications.clear();
             }
+            registration.setException(e);
         }
     }
 
@@ -596,49 +1091,26 @@ public enum RMIMonitoringAgent {
         }
     }
 
-    private class ServerRecoveryDaemon extends Thread {
-        private static final String SERVER_RECOVERY_DAEMON_POLLING = "foundation.mx.recoverydaemon.polling";
-        private long timeInterval = 20000;
-
-        public ServerRecoveryDaemon() {
-            timeInterval = Long.parseLong(System.getProperty(SERVER_RECOVERY_DAEMON_POLLING, "20000"));
+    /**
+     * Recreates the JMX connector on the port of the agent, once the
+     * {@link ServerRecoveryDaemon} found it no longer bound.
+     */
+    private void recoverConnector(int port) throws IOException, InterruptedException {
+        try {
+            rmis.stop();
+        } catch (IOException e) {
+            LOGGER.error("Failed to stop JMX RMI Connector server.");
         }
 
-        @Override
-        public void run() {
-            LOGGER.info("ServerRecoveryDaemon started.");
-            while (true) {
-                try {
-                    Thread.sleep(timeInterval);
-                    synchronized (RMIMonitoringAgent.this) {
-                        String serviceName = exposedServiceURL.substring(exposedServiceURL.indexOf("jmxrmi/"));
-                        if (!isServiceExported(configuration, serviceName)) {
-                            LOGGER.warn("RMI Connector Server " + serviceName + " is found to be not running on port "
-                                    + configuration.getInt(FoundationMonitoringConstants.MX_PORT) + ", reregistering RMI Connector Server.");
-
-                            try {
-                                rmis.stop();
-                            } catch (IOException e) {
-                                LOGGER.error("Failed to stop JMX RMI Connector server.");
-                            }
-
-                            RMIRegistryManager.startRMIRegistry(configuration, configuration.getInt(FoundationMonitoringConstants.MX_PORT));
-
-                            rmis = JMXConnectorServerFactory.newJMXConnectorServer(jurl, jmxEnvironmentMap, mbs);
-                            rmis.start();
-                            LOGGER.info("Recreated RMI Connector Server.");
-                        }
-                    }
-                } catch (InterruptedException e) {
-                    break;
-                } catch (Exception e) {
-                    LOGGER.error("ServerRecoveryDaemon failed to reregister RMI Connector Server on port "
-                            + configuration.getInt(FoundationMonitoringConstants.MX_PORT) + ". Next attempt will be made after " + timeInterval
-                            + "ms.", e);
-                }
-            }
+        RMIRegistryManager.startRMIRegistry(configuration, port);
 
-            LOGGER.info("ServerRecoveryDaemon stopped.");
+        JMXConnectorServer recreated = JMXConnectorServerFactory.newJMXConnectorServer(jurl, jmxEnvironmentMap, mbs);
+        recreated.start();
+        rmis = recreated;
+        // unregister() interrupts the daemon before it stops rmis, so one of the two stops the recreated server
+        if (Thread.currentThread().isInterrupted()) {
+            recreated.stop();
+            throw new InterruptedException();
         }
     }
 
@@ -16,18 +16,20 @@
 
 package com.cisco.oss.foundation.monitoring;
 
+import com.cisco.oss.foundation.monitoring.overhead.MonitoringOverhead;
 import org.apache.commons.configuration.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
-import java.rmi.AccessException;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 /**
  * this class is a proxy for creating a registry in a way that starts an
@@ -42,6 +44,7 @@ public final class RegistryFinder {
      */
     private static final String JAVA_HOME = "java.home";
     private static final String JAVA_RMI_SERVER_CODEBASE = "java.rmi.server.codebase";
+    private static final long DEFAULT_READY_TIMEOUT = 10000;
     private static final Logger AUDITOR = LoggerFactory.getLogger("audit." + RegistryFinder.class.getName());
     private static final Logger LOGGER = LoggerFactory.getLogger(RegistryFinder.class);
     private static final Object LOCK = new Object();
@@ -116,41 +119,54 @@ public final class RegistryFinder {
 
     }
 
-    private Registry internalProcessStart(final Configuration configuration, final int port, final String command) throws IOException, RemoteException, AccessException {
+    private Registry internalProcessStart(final Configuration configuration, final int port, final String command) throws IOException {
 
         String maxHeapArg = "-J-Xmx" + configuration.getInt(FoundationMonitoringConstants.RMIREGISTRY_MAXHEAPSIZE) + "m";
-        // start rmiregistry process
-        if (System.getProperty("os.name").toLowerCase(Locale.getDefault()).contains("windows")) {
-            String[] commandArgsArr = new String[]{command, maxHeapArg, String.valueOf(port)};
-            List<String> commandArgs = Arrays.asList(commandArgsArr);
-            LOGGER.info("running command: " + commandArgs);
-            new ProcessBuilder(commandArgsArr).start();
-        } else {
-            // support background process to prevent zombies
-
-            String[] commandArgsArr = new String[]{"/bin/sh", "-c", command + maxHeapArg + " " + port + "&"};
-            List<String> commandArgs = Arrays.asList(commandArgsArr);
-            LOGGER.info("running command: " + commandArgs);
-            new ProcessBuilder(commandArgsArr).start();
-        }
-
+        // the process handle is the registry itself, so that an early exit is seen. the JVM reaps the child, so it
+        // leaves no zombie, and the child outlives this process as the backgrounded shell command did.
+        String[] commandArgsArr = detached(command.trim(), maxHeapArg, String.valueOf(port));
+        List<String> commandArgs = Arrays.asList(commandArgsArr);
+        LOGGER.info("running command: " + commandArgs);
+        File log = new File(System.getProperty("java.io.tmpdir"), "rmiregistry-" + port + ".log");
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(commandArgsArr)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                .start();
+
+        long timeout = configuration.getLong(FoundationMonitoringConstants.RMIREGISTRY_READY_TIMEOUT, DEFAULT_READY_TIMEOUT);
+        final Registry registry;
         try {
-            // wait for the process to start properly
-            Thread.sleep(1000);
+            registry = new RegistryReadinessProbe(port, timeout).await(process);
         } catch (InterruptedException e) {
-            LOGGER.warn("The sleep for  rmi registry to end has been interrupted: " + e.toString());
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for rmiregistry on port " + port, e);
         }
+        long startupTime = System.nanoTime() - start;
+        MonitoringOverhead.INSTANCE.recordRegistryStartup(startupTime);
 
-        // get registry
-        final Registry registry = LocateRegistry.getRegistry(port);
-
-        // test registry
-        registry.list();
-
-        LOGGER.info("New RMI  Registry created using port: " + port);
+        LOGGER.info("New RMI  Registry created using port: " + port + " in " + TimeUnit.NANOSECONDS.toMillis(startupTime) + "ms");
 
         return registry;
     }
 
+    /**
+     * The command line that runs <code>commandLine</code> as a process that
+     * ignores SIGINT and SIGQUIT, as a command backgrounded by a shell does. The
+     * registry may be shared by other processes, so a Ctrl-C sent to the
+     * foreground process group of this one must not stop it.
+     */
+    static String[] detached(String... commandLine) {
+        if (System.getProperty("os.name").toLowerCase(Locale.getDefault()).contains("windows")) {
+            return commandLine;
+        }
+        String[] wrapped = new String[commandLine.length + 3];
+        wrapped[0] = "/bin/sh";
+        wrapped[1] = "-c";
+        // ignored signals stay ignored across exec
+        wrapped[2] = "trap '' INT QUIT; exec \"$0\" \"$@\"";
+        System.arraycopy(commandLine, 0, wrapped, 3, commandLine.length);
+        return wrapped;
+    }
 }
 
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring;
+
+import java.io.IOException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for a freshly spawned rmiregistry to answer on its port, polling
+ * with an exponential backoff, and gives up early when the process exits.
+ */
+final class RegistryReadinessProbe {
+
+    static final long INITIAL_BACKOFF = 5;
+    static final long MAX_BACKOFF = 200;
+
+    private final int port;
+    private final long timeout;
+
+    /**
+     * @param timeout milliseconds to wait for the registry at most
+     */
+    RegistryReadinessProbe(int port, long timeout) {
+        this.port = port;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param process the spawned rmiregistry
+     * @return the registry, once it listed its bindings
+     * @throws IOException if the process exited or the registry did not answer in time
+     */
+    Registry await(Process process) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        long backoff = INITIAL_BACKOFF;
+        while (true) {
+            RemoteException failure;
+            try {
+                Registry registry = LocateRegistry.getRegistry(port);
+                registry.list();
+                return registry;
+            } catch (RemoteException e) {
+                failure = e;
+            }
+            // checked after the probe: a registry someone else started on the port makes ours exit, and still answers
+            Integer exitValue = exitValue(process);
+            if (exitValue != null) {
+                throw new IOException("rmiregistry exited with code " + exitValue + " before answering on port " + port, failure);
+            }
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                throw new IOException("rmiregistry did not answer on port " + port + " within " + timeout + "ms", failure);
+            }
+            Thread.sleep(Math.min(backoff, remaining));
+            backoff = Math.min(backoff * 2, MAX_BACKOFF);
+        }
+    }
+
+    private static Integer exitValue(Process process) {
+        try {
+            return process.exitValue();
+        } catch (IllegalThreadStateException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.cisco.oss.foundation.monitoring;
+
+import com.cisco.oss.foundation.monitoring.overhead.MonitoringOverhead;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.util.Random;
+
+/**
+ * Exports the JMX connector again when it is no longer bound in the
+ * rmiregistry, as happens when an out-of-process registry restarts.
+ * <p>
+ * The check is a single lookup of the binding. While the connector stays
+ * bound the polling interval doubles, up to the maximum, and after a
+ * recovery or a failure it drops back to the minimum. Every wait is
+ * jittered so that the agents of a host do not poll their registry in
+ * step. The connector is recreated without holding the agent monitor.
+ */
+class ServerRecoveryDaemon extends Thread {
+
+    static final String SERVER_RECOVERY_DAEMON_POLLING = "foundation.mx.recoverydaemon.polling";
+    static final String SERVER_RECOVERY_DAEMON_MAX_POLLING = "foundation.mx.recoverydaemon.maxPolling";
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServerRecoveryDaemon.class.getName());
+    private static final double JITTER = 0.2;
+
+    /**
+     * Recreates the connector, on the daemon thread.
+     */
+    interface Recovery {
+        void recover() throws IOException, InterruptedException;
+    }
+
+    private final String serviceName;
+    private final int port;
+    private final long minInterval;
+    private final long maxInterval;
+    private final Recovery recovery;
+    private final Random random = new Random();
+
+    /**
+     * Reads the polling intervals from the system properties.
+     */
+    ServerRecoveryDaemon(String serviceName, int port, Recovery recovery) {
+        this(serviceName, port, Long.parseLong(System.getProperty(SERVER_RECOVERY_DAEMON_POLLING, "20000")),
+                Long.getLong(SERVER_RECOVERY_DAEMON_MAX_POLLING, -1), recovery);
+    }
+
+    /**
+     * @param maxInterval a negative value stands for 8 times the minimum
+     */
+    ServerRecoveryDaemon(String serviceName, int port, long minInterval, long maxInterval, Recovery recovery) {
+        super("ServerRecoveryDaemon");
+        this.serviceName = serviceName;
+        this.port = port;
+        this.minInterval = minInterval;
+        this.maxInterval = Math.max(minInterval, maxInterval < 0 ? minInterval * 8 : maxInterval);
+        this.recovery = recovery;
+    }
+
+    @Override
+    public void run() {
+        LOGGER.info("ServerRecoveryDaemon started.");
+        long interval = minInterval;
+        while (true) {
+            try {
+                Thread.sleep(jittered(interval));
+                if (isBound()) {
+                    interval = Math.min(interval * 2, maxInterval);
+                } else {
+                    LOGGER.warn("RMI Connector Server " + serviceName + " is found to be not running on port "
+                            + port + ", reregistering RMI Connector Server.");
+                    recovery.recover();
+                    MonitoringOverhead.INSTANCE.recordConnectorRecovery();
+                    LOGGER.info("Recreated RMI Connector Server.");
+                    interval = minInterval;
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                interval = minInterval;
+                LOGGER.error("ServerRecoveryDaemon failed to reregister RMI Connector Server on port "
+                        + port + ". Next attempt will be made after " + minInterval + "ms.", e);
+            }
+        }
+
+        LOGGER.info("ServerRecoveryDaemon stopped.");
+    }
+
+    private long jittered(long interval) {
+        return (long) (interval * (1 - JITTER + 2 * JITTER * random.nextDouble()));
+    }
+
+    private boolean isBound() {
+        long start = System.nanoTime();
+        try {
+            LocateRegistry.getRegistry(port).lookup(serviceName);
+            return true;
+        } catch (NotBoundException | RemoteException e) {
+            return false;
+        } finally {
+            MonitoringOverhead.INSTANCE.recordConnectorCheck(System.nanoTime() - start);
+        }
+    }
+}
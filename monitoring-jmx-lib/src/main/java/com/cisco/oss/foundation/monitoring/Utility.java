@@ -63,10 +63,14 @@ class Utility {
             return null;
         }
 
-        String objName = FoundationMonitoringConstants.DOMAIN_NAME + ":name=" + ComponentInfo.INSTANCE.getName();
+        return getObjectName(ComponentInfo.INSTANCE, contentSource);
+    }
 
-        if ((ComponentInfo.INSTANCE.getInstance() != null) && (!ComponentInfo.INSTANCE.getInstance().trim().equals(""))) {
-            objName = objName + ",instance=" + ComponentInfo.INSTANCE.getInstance();
+    static String getObjectName(IComponentInfoMXBean component, String contentSource) {
+        String objName = FoundationMonitoringConstants.DOMAIN_NAME + ":name=" + component.getName();
+
+        if ((component.getInstance() != null) && (!component.getInstance().trim().equals(""))) {
+            objName = objName + ",instance=" + component.getInstance();
         }
 
         if (!contentSource.equals("")) {
@@ -77,14 +81,18 @@ class Utility {
     }
 
     static void validateGenericParams(MonitoringMXBean exposedObject) throws AgentRegistrationException {
-        if ((ComponentInfo.INSTANCE.getName() == null)
-                || !ComponentInfo.INSTANCE.getName().matches(FoundationMonitoringConstants.APP_INSTANCE_NAMING_STANDARD)) {
+        validateComponent(ComponentInfo.INSTANCE);
+    }
+
+    static void validateComponent(IComponentInfoMXBean component) throws AgentRegistrationException {
+        if ((component.getName() == null)
+                || !component.getName().matches(FoundationMonitoringConstants.APP_INSTANCE_NAMING_STANDARD)) {
             throw new AgentRegistrationException("Name attributes does not follow the naming standard, which is "
                     + FoundationMonitoringConstants.APP_NAME_NAMING_STANDARD);
         }
 
-        if ((ComponentInfo.INSTANCE.getInstance() != null) && (!ComponentInfo.INSTANCE.getInstance().trim().equals(""))
-                && !ComponentInfo.INSTANCE.getInstance().matches(FoundationMonitoringConstants.APP_INSTANCE_NAMING_STANDARD)) {
+        if ((component.getInstance() != null) && (!component.getInstance().trim().equals(""))
+                && !component.getInstance().matches(FoundationMonitoringConstants.APP_INSTANCE_NAMING_STANDARD)) {
             throw new AgentRegistrationException("Instance attributes does not follow the naming standard, which is "
                     + FoundationMonitoringConstants.APP_NAME_NAMING_STANDARD);
         }
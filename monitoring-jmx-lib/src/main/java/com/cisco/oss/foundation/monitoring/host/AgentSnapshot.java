@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.host;
+
+import java.beans.ConstructorProperties;
+import java.util.List;
+
+/**
+ * The monitoring data of one agent as published to the host aggregator: the
+ * identity of the component and the attributes of its services and server
+ * connections at the time of publication.
+ */
+public class AgentSnapshot {
+
+    private final String name;
+    private final String instance;
+    private final String version;
+    private final long publishTime;
+    private final List<InterfaceSnapshot> services;
+    private final List<InterfaceSnapshot> serverConnections;
+
+    @ConstructorProperties({"name", "instance", "version", "publishTime", "services", "serverConnections"})
+    public AgentSnapshot(String name, String instance, String version, long publishTime,
+                         List<InterfaceSnapshot> services, List<InterfaceSnapshot> serverConnections) {
+        this.name = name;
+        this.instance = instance;
+        this.version = version;
+        this.publishTime = publishTime;
+        this.services = services;
+        this.serverConnections = serverConnections;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getInstance() {
+        return instance;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Time the snapshot was taken, in milliseconds since the epoch.
+     */
+    public long getPublishTime() {
+        return publishTime;
+    }
+
+    public List<InterfaceSnapshot> getServices() {
+        return services;
+    }
+
+    public List<InterfaceSnapshot> getServerConnections() {
+        return serverConnections;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.host;
+
+import com.cisco.oss.foundation.configuration.ConfigurationFactory;
+import com.cisco.oss.foundation.ip.utils.IpUtils;
+import com.cisco.oss.foundation.monitoring.FoundationMonitoringConstants;
+import com.cisco.oss.foundation.monitoring.RMIRegistryManager;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+import javax.management.remote.rmi.RMIConnectorServer;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves the snapshots that the agents of a host publish with a
+ * {@link SnapshotPublisher}, through a single rmiregistry entry and
+ * connector, so a host with many JVMs needs one registry lookup, one port
+ * pair and one round trip to be scraped.
+ * <p>
+ * The aggregator reads the snapshot directory on every request, so it holds
+ * no state of its own and agents come and go without registering with it.
+ * Run it with the same configuration as the agents:
+ * <pre>
+ * java com.cisco.oss.foundation.monitoring.host.HostAggregator
+ * </pre>
+ */
+public class HostAggregator implements HostAggregatorMXBean {
+
+    public static final String OBJECT_NAME = FoundationMonitoringConstants.DOMAIN_NAME + ":name=HostAggregator";
+    public static final String SERVICE_NAME = "HostAggregator";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HostAggregator.class);
+    private static final int STALE_INTERVALS = 3;
+
+    private final Configuration configuration;
+    private final File directory;
+    private final long staleTimeout;
+    private MBeanServer mbs;
+    private JMXConnectorServer connector;
+
+    public HostAggregator(Configuration configuration) {
+        this.configuration = configuration;
+        String directoryName = configuration.getString(FoundationMonitoringConstants.HOST_AGGREGATOR_DIRECTORY, "");
+        if (directoryName.trim().isEmpty()) {
+            throw new IllegalArgumentException(FoundationMonitoringConstants.HOST_AGGREGATOR_DIRECTORY + " is not configured");
+        }
+        this.directory = new File(directoryName);
+        this.staleTimeout = STALE_INTERVALS * configuration.getLong(FoundationMonitoringConstants.HOST_AGGREGATOR_PUBLISH_INTERVAL,
+                FoundationMonitoringConstants.DEFAULT_HOST_AGGREGATOR_PUBLISH_INTERVAL);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final HostAggregator aggregator = new HostAggregator(ConfigurationFactory.getConfiguration());
+        aggregator.start();
+        Runtime.getRuntime().addShutdownHook(new Thread("HostAggregatorShutdown") {
+            @Override
+            public void run() {
+                aggregator.stop();
+            }
+        });
+    }
+
+    /**
+     * @return the URL of the connector of the host aggregator described by the configuration
+     */
+    public static String getServiceURL(Configuration configuration) {
+        return "service:jmx:rmi://" + IpUtils.getIpAddress() + ":" + configuration.getInt(FoundationMonitoringConstants.EXPORTED_PORT)
+                + "/jndi/rmi://" + IpUtils.getIpAddress() + ":" + configuration.getInt(FoundationMonitoringConstants.MX_PORT) + "/jmxrmi/"
+                + SERVICE_NAME;
+    }
+
+    /**
+     * Registers the aggregator in the platform MBean server and binds its
+     * connector, starting an in-process rmiregistry if none is running.
+     */
+    public synchronized void start() throws IOException, JMException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create the host aggregator directory " + directory);
+        }
+        int port = configuration.getInt(FoundationMonitoringConstants.MX_PORT);
+        if (!RMIRegistryManager.isRMIRegistryRunning(configuration, port) && !RMIRegistryManager.startInProcRMIRegistry(port)) {
+            throw new IOException("Failed to start rmiregistry on port " + port);
+        }
+        mbs = ManagementFactory.getPlatformMBeanServer();
+        mbs.registerMBean(this, new ObjectName(OBJECT_NAME));
+        Map<String, String> environment = Collections.singletonMap(RMIConnectorServer.JNDI_REBIND_ATTRIBUTE, Boolean.TRUE.toString());
+        connector = JMXConnectorServerFactory.newJMXConnectorServer(new JMXServiceURL(getServiceURL(configuration)), environment, mbs);
+        connector.start();
+        LOGGER.info("Host aggregator serving the snapshots in " + directory + " at " + getServiceURL(configuration));
+    }
+
+    public synchronized void stop() {
+        try {
+            if (connector != null) {
+                connector.stop();
+                connector = null;
+            }
+            if (mbs != null) {
+                mbs.unregisterMBean(new ObjectName(OBJECT_NAME));
+                mbs = null;
+            }
+        } catch (IOException | JMException e) {
+            LOGGER.warn("Failed to stop the host aggregator: {}", e.toString());
+        }
+    }
+
+    @Override
+    public List<AgentSnapshot> getAgents() {
+        return readAgents(directory, staleTimeout, System.currentTimeMillis());
+    }
+
+    @Override
+    public AgentSnapshot getAgent(String name, String instance) {
+        AgentSnapshot snapshot = SnapshotFile.read(new File(directory, SnapshotFile.fileName(name, instance)));
+        return snapshot != null && !isStale(snapshot, staleTimeout, System.currentTimeMillis()) ? snapshot : null;
+    }
+
+    static List<AgentSnapshot> readAgents(File directory, long staleTimeout, long now) {
+        List<AgentSnapshot> agents = new ArrayList<AgentSnapshot>();
+        for (File file : SnapshotFile.list(directory)) {
+            AgentSnapshot snapshot = SnapshotFile.read(file);
+            if (snapshot != null && !isStale(snapshot, staleTimeout, now)) {
+                agents.add(snapshot);
+            }
+        }
+        return agents;
+    }
+
+    private static boolean isStale(AgentSnapshot snapshot, long staleTimeout, long now) {
+        return now - snapshot.getPublishTime() > staleTimeout;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.host;
+
+import java.util.List;
+
+/**
+ * The snapshots of all the agents of a host, served through one connector.
+ */
+public interface HostAggregatorMXBean {
+
+    /**
+     * The latest snapshot of every agent that published within the last three
+     * publish intervals, ordered by file name.
+     */
+    List<AgentSnapshot> getAgents();
+
+    /**
+     * @return the latest snapshot of the agent, null if it has none or it is stale
+     */
+    AgentSnapshot getAgent(String name, String instance);
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.cisco.oss.foundation.monitoring.host;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * All the attributes of one service or server connection of an agent, as the
+ * MBeans of the agent report them. An attribute of only one of the two kinds
+ * holds its empty value for the other: null for the protocol of a server
+ * connection and the host name of a service, 1 for the sampled fraction and 0
+ * for the used threads of a server connection, 0 for the open time of a
+ * service. Times are in milliseconds since the epoch, 0 for never.
+ */
+public class InterfaceSnapshot {
+
+    private final String name;
+    private final String interfaceName;
+    private final String methodName;
+    private final String protocol;
+    private final String hostName;
+    private final long port;
+    private final long totalRequestCount;
+    private final long failedRequestCount;
+    private final long lastFailedRequestTime;
+    private final String lastFailedRequestDescription;
+    private final long lastSuccessfulRequestTime;
+    private final long lastTransactionStartTime;
+    private final long lastTransactionEndTime;
+    private final long lastTransactionProcessingTime;
+    private final String transactionStatus;
+    private final double tps;
+    private final double sampledFraction;
+    private final int usedThreads;
+    private final long openSince;
+    private final long inFlightTransactions;
+    private final long peakInFlightTransactions;
+    private final double averageInFlightTransactions;
+
+    @ConstructorProperties({"name", "interfaceName", "methodName", "protocol", "hostName", "port", "totalRequestCount",
+            "failedRequestCount", "lastFailedRequestTime", "lastFailedRequestDescription", "lastSuccessfulRequestTime",
+            "lastTransactionStartTime", "lastTransactionEndTime", "lastTransactionProcessingTime", "transactionStatus",
+            "tps", "sampledFraction", "usedThreads", "openSince", "inFlightTransactions", "peakInFlightTransactions",
+            "averageInFlightTransactions"})
+    public InterfaceSnapshot(String name, String interfaceName, String methodName, String protocol, String hostName,
+                             long port, long totalRequestCount, long failedRequestCount, long lastFailedRequestTime,
+                             String lastFailedRequestDescription, long lastSuccessfulRequestTime,
+                             long lastTransactionStartTime, long lastTransactionEndTime,
+                             long lastTransactionProcessingTime, String transactionStatus, double tps,
+                             double sampledFraction, int usedThreads, long openSince, long inFlightTransactions,
+                             long peakInFlightTransactions, double averageInFlightTransactions) {
+        this.name = name;
+        this.interfaceName = interfaceName;
+        this.methodName = methodName;
+        this.protocol = protocol;
+        this.hostName = hostName;
+        this.port = port;
+        this.totalRequestCount = totalRequestCount;
+        this.failedRequestCount = failedRequestCount;
+        this.lastFailedRequestTime = lastFailedRequestTime;
+        this.lastFailedRequestDescription = lastFailedRequestDescription;
+        this.lastSuccessfulRequestTime = lastSuccessfulRequestTime;
+        this.lastTransactionStartTime = lastTransactionStartTime;
+        this.lastTransactionEndTime = lastTransactionEndTime;
+        this.lastTransactionProcessingTime = lastTransactionProcessingTime;
+        this.transactionStatus = transactionStatus;
+        this.tps = tps;
+        this.sampledFraction = sampledFraction;
+        this.usedThreads = usedThreads;
+        this.openSince = openSince;
+        this.inFlightTransactions = inFlightTransactions;
+        this.peakInFlightTransactions = peakInFlightTransactions;
+        this.averageInFlightTransactions = averageInFlightTransactions;
+    }
+
+    /**
+     * Description of the service, or name of the server connected to.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public String getInterfaceName() {
+        return interfaceName;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * Communication protocol of the service, null for a server connection.
+     */
+    public String getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Host name of the server connection, null for a service.
+     */
+    public String getHostName() {
+        return hostName;
+    }
+
+    /**
+     * Port of the service, or destination port of the server connection.
+     */
+    public long getPort() {
+        return port;
+    }
+
+    public long getTotalRequestCount() {
+        return totalRequestCount;
+    }
+
+    public long getFailedRequestCount() {
+        return failedRequestCount;
+    }
+
+    public long getLastFailedRequestTime() {
+        return lastFailedRequestTime;
+    }
+
+    public String getLastFailedRequestDescription() {
+        return lastFailedRequestDescription;
+    }
+
+    public long getLastSuccessfulRequestTime() {
+        return lastSuccessfulRequestTime;
+    }
+
+    public long getLastTransactionStartTime() {
+        return lastTransactionStartTime;
+    }
+
+    public long getLastTransactionEndTime() {
+        return lastTransactionEndTime;
+    }
+
+    public long getLastTransactionProcessingTime() {
+        return lastTransactionProcessingTime;
+    }
+
+    public String getTransactionStatus() {
+        return transactionStatus;
+    }
+
+    /**
+     * Transactions per second during the last 30 seconds.
+     */
+    public double getTps() {
+        return tps;
+    }
+
+    /**
+     * Fraction of the transactions of the service that were timed, 1 for a server connection.
+     */
+    public double getSampledFraction() {
+        return sampledFraction;
+    }
+
+    /**
+     * Threads used by the service, 0 for a server connection.
+     */
+    public int getUsedThreads() {
+        return usedThreads;
+    }
+
+    /**
+     * Time the transaction in progress on the server connection has been open, 0 for a service.
+     */
+    public long getOpenSince() {
+        return openSince;
+    }
+
+    public long getInFlightTransactions() {
+        return inFlightTransactions;
+    }
+
+    public long getPeakInFlightTransactions() {
+        return peakInFlightTransactions;
+    }
+
+    public double getAverageInFlightTransactions() {
+        return averageInFlightTransactions;
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.host;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the snapshots of agents that run a {@link SnapshotServer}; the
+ * counterpart of {@link com.cisco.oss.foundation.monitoring.MonitoringClient}
+ * for that transport.
+ * <p>
+ * The client is non-blocking: a poll sends a request to every agent at once
+ * and collects the responses on one selector as they arrive, so polling
+ * hundreds of agents takes about as long as the slowest of them, on a single
+ * thread. Connections are kept open between polls and reopened after a
+ * failure. A client is not thread safe.
+ */
+public class SnapshotClient implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotClient.class);
+
+    private final long timeout;
+    private final Selector selector;
+    private final Map<InetSocketAddress, SocketChannel> channels = new HashMap<InetSocketAddress, SocketChannel>();
+
+    /**
+     * @param timeout milliseconds a poll waits for the responses
+     */
+    public SnapshotClient(long timeout) throws IOException {
+        this.timeout = timeout;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * @throws IOException if the agent could not be reached or did not answer in time
+     */
+    public AgentSnapshot poll(InetSocketAddress agent) throws IOException {
+        AgentSnapshot snapshot = poll(Collections.singleton(agent)).get(agent);
+        if (snapshot == null) {
+            throw new IOException("No snapshot from " + agent + " within " + timeout + " ms");
+        }
+        return snapshot;
+    }
+
+    /**
+     * Polls the snapshot of one of the other components of the agent, a
+     * {@link com.cisco.oss.foundation.monitoring.MonitoredComponent}.
+     *
+     * @throws IOException if the agent could not be reached, did not answer in
+     *                     time or does not serve the component
+     */
+    public AgentSnapshot poll(InetSocketAddress agent, String name, String instance) throws IOException {
+        AgentSnapshot snapshot = poll(Collections.singleton(agent), name, instance).get(agent);
+        if (snapshot == null) {
+            throw new IOException("No snapshot of " + name + ":" + instance + " from " + agent + " within " + timeout + " ms");
+        }
+        return snapshot;
+    }
+
+    /**
+     * Polls the agents concurrently.
+     *
+     * @return the snapshot of every agent that answered in time, in the order of the agents
+     */
+    public Map<InetSocketAddress, AgentSnapshot> poll(Collection<InetSocketAddress> agents) {
+        return poll(agents, null, null);
+    }
+
+    private Map<InetSocketAddress, AgentSnapshot> poll(Collection<InetSocketAddress> agents, String name, String instance) {
+        Set<InetSocketAddress> targets = new LinkedHashSet<InetSocketAddress>(agents);
+        Map<InetSocketAddress, AgentSnapshot> snapshots = new HashMap<InetSocketAddress, AgentSnapshot>();
+        int pending = 0;
+        for (InetSocketAddress agent : targets) {
+            try {
+                SocketChannel channel = channel(agent);
+                int ops = channel.isConnectionPending() ? SelectionKey.OP_CONNECT : SelectionKey.OP_WRITE;
+                ByteBuffer request = name == null ? SnapshotProtocol.request() : SnapshotProtocol.request(name, instance);
+                channel.register(selector, ops, new Exchange(agent, request));
+                pending++;
+            } catch (IOException e) {
+                LOGGER.debug("Failed to connect to {}: {}", agent, e.toString());
+                drop(agent);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (pending > 0) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                break;
+            }
+            try {
+                selector.select(remaining);
+            } catch (IOException e) {
+                LOGGER.warn("Snapshot poll failed: {}", e.toString());
+                break;
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Exchange exchange = (Exchange) key.attachment();
+                try {
+                    AgentSnapshot snapshot = exchange.advance(key);
+                    if (snapshot != null) {
+                        snapshots.put(exchange.agent, snapshot);
+                        key.interestOps(0);
+                        pending--;
+                    }
+                } catch (IOException e) {
+                    LOGGER.debug("Snapshot poll of {} failed: {}", exchange.agent, e.toString());
+                    drop(exchange.agent);
+                    pending--;
+                }
+            }
+        }
+
+        // a late response would be taken for the answer to the next poll
+        Map<InetSocketAddress, AgentSnapshot> ordered = new LinkedHashMap<InetSocketAddress, AgentSnapshot>();
+        for (InetSocketAddress agent : targets) {
+            AgentSnapshot snapshot = snapshots.get(agent);
+            if (snapshot != null) {
+                ordered.put(agent, snapshot);
+            } else {
+                drop(agent);
+            }
+        }
+        return ordered;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (SocketChannel channel : channels.values()) {
+            channel.close();
+        }
+        channels.clear();
+        selector.close();
+    }
+
+    private SocketChannel channel(InetSocketAddress agent) throws IOException {
+        SocketChannel channel = channels.get(agent);
+        if (channel != null && channel.isOpen()) {
+            return channel;
+        }
+        channel = SocketChannel.open();
+        channels.put(agent, channel);
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.connect(agent);
+        return channel;
+    }
+
+    private void drop(InetSocketAddress agent) {
+        SocketChannel channel = channels.remove(agent);
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to close the connection to {}: {}", agent, e.toString());
+        }
+    }
+
+    /**
+     * One request and response with one agent.
+     */
+    private static final class Exchange {
+        private final InetSocketAddress agent;
+        private final ByteBuffer request;
+        private final ByteBuffer length = ByteBuffer.allocate(SnapshotProtocol.LENGTH_SIZE);
+        private ByteBuffer body;
+
+        private Exchange(InetSocketAddress agent, ByteBuffer request) {
+            this.agent = agent;
+            this.request = request;
+        }
+
+        /**
+         * @return the snapshot once the whole response is read, null until then
+         */
+        private AgentSnapshot advance(SelectionKey key) throws IOException {
+            SocketChannel channel = (SocketChannel) key.channel();
+            if (key.isConnectable()) {
+                channel.finishConnect();
+                key.interestOps(SelectionKey.OP_WRITE);
+                return null;
+            }
+            if (key.isWritable()) {
+                channel.write(request);
+                if (!request.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+                return null;
+            }
+            if (body == null) {
+                if (channel.read(length) < 0) {
+                    throw new IOException("Connection closed by the agent");
+                }
+                if (length.hasRemaining()) {
+                    return null;
+                }
+                int size = length.getInt(0);
+                if (size <= 0 || size > SnapshotProtocol.MAX_RESPONSE_SIZE) {
+                    throw new IOException("Bad response length " + size);
+                }
+                body = ByteBuffer.allocate(size);
+            }
+            if (channel.read(body) < 0) {
+                throw new IOException("Connection closed by the agent");
+            }
+            if (body.hasRemaining()) {
+                return null;
+            }
+            body.flip();
+            byte type = body.get();
+            if (type == SnapshotProtocol.RESPONSE_ERROR) {
+                throw new IOException(SnapshotProtocol.errorMessage(body));
+            }
+            if (type != SnapshotProtocol.RESPONSE_SNAPSHOT) {
+                throw new IOException("Unknown response type " + type);
+            }
+            try {
+                return SnapshotCodec.decode(body);
+            } catch (RuntimeException e) {
+                throw new IOException("Bad snapshot: " + e, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.host;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The binary form of an {@link AgentSnapshot}, shared by the snapshot files of
+ * the host aggregator and any other channel that carries snapshots.
+ * <p>
+ * A snapshot starts with a version byte, followed by the name, instance and
+ * version of the component as unsigned short length prefixed UTF-8 strings (a
+ * length of 0xFFFF stands for null), the publish time as a long, and the
+ * services and server connections, each an int count followed by that many
+ * interfaces. An interface is every attribute of {@link InterfaceSnapshot} in
+ * the order of its constructor: the strings as above, the int and longs and
+ * doubles in their binary form.
+ */
+public final class SnapshotCodec {
+
+    public static final byte VERSION = 2;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int NULL_STRING = 0xFFFF;
+    private static final int INITIAL_SIZE = 4096;
+
+    private SnapshotCodec() {
+    }
+
+    /**
+     * Writes the snapshot at the position of the buffer. If the buffer is too
+     * small its position is left unchanged.
+     *
+     * @return false if the buffer is too small for the snapshot
+     */
+    public static boolean encode(AgentSnapshot snapshot, ByteBuffer buffer) {
+        int start = buffer.position();
+        try {
+            buffer.put(VERSION);
+            putString(buffer, snapshot.getName());
+            putString(buffer, snapshot.getInstance());
+            putString(buffer, snapshot.getVersion());
+            buffer.putLong(snapshot.getPublishTime());
+            putInterfaces(buffer, snapshot.getServices());
+            putInterfaces(buffer, snapshot.getServerConnections());
+            return true;
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            return false;
+        }
+    }
+
+    /**
+     * @return the snapshot in a heap buffer of the right size, ready to be read
+     */
+    public static ByteBuffer encode(AgentSnapshot snapshot) {
+        ByteBuffer buffer = ByteBuffer.allocate(INITIAL_SIZE);
+        while (!encode(snapshot, buffer)) {
+            buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Reads a snapshot from the position of the buffer.
+     *
+     * @throws IllegalArgumentException if the snapshot was written by an unknown version of the codec
+     */
+    public static AgentSnapshot decode(ByteBuffer buffer) {
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unknown snapshot version " + version);
+        }
+        String name = getString(buffer);
+        String instance = getString(buffer);
+        String componentVersion = getString(buffer);
+        long publishTime = buffer.getLong();
+        List<InterfaceSnapshot> services = getInterfaces(buffer);
+        List<InterfaceSnapshot> serverConnections = getInterfaces(buffer);
+        return new AgentSnapshot(name, instance, componentVersion, publishTime, services, serverConnections);
+    }
+
+    private static void putInterfaces(ByteBuffer buffer, List<InterfaceSnapshot> interfaces) {
+        buffer.putInt(interfaces.size());
+        for (InterfaceSnapshot snapshot : interfaces) {
+            putString(buffer, snapshot.getName());
+            putString(buffer, snapshot.getInterfaceName());
+            putString(buffer, snapshot.getMethodName());
+            putString(buffer, snapshot.getProtocol());
+            putString(buffer, snapshot.getHostName());
+            buffer.putLong(snapshot.getPort());
+            buffer.putLong(snapshot.getTotalRequestCount());
+            buffer.putLong(snapshot.getFailedRequestCount());
+            buffer.putLong(snapshot.getLastFailedRequestTime());
+            putString(buffer, snapshot.getLastFailedRequestDescription());
+            buffer.putLong(snapshot.getLastSuccessfulRequestTime());
+            buffer.putLong(snapshot.getLastTransactionStartTime());
+            buffer.putLong(snapshot.getLastTransactionEndTime());
+            buffer.putLong(snapshot.getLastTransactionProcessingTime());
+            putString(buffer, snapshot.getTransactionStatus());
+            buffer.putDouble(snapshot.getTps());
+            buffer.putDouble(snapshot.getSampledFraction());
+            buffer.putInt(snapshot.getUsedThreads());
+            buffer.putLong(snapshot.getOpenSince());
+            buffer.putLong(snapshot.getInFlightTransactions());
+            buffer.putLong(snapshot.getPeakInFlightTransactions());
+            buffer.putDouble(snapshot.getAverageInFlightTransactions());
+        }
+    }
+
+    private static List<InterfaceSnapshot> getInterfaces(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        List<InterfaceSnapshot> interfaces = new ArrayList<InterfaceSnapshot>(size);
+        for (int i = 0; i < size; i++) {
+            interfaces.add(new InterfaceSnapshot(getString(buffer), getString(buffer), getString(buffer),
+                    getString(buffer), getString(buffer), buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                    buffer.getLong(), getString(buffer), buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                    buffer.getLong(), getString(buffer), buffer.getDouble(), buffer.getDouble(), buffer.getInt(),
+                    buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getDouble()));
+        }
+        return interfaces;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        if (bytes.length >= NULL_STRING) {
+            bytes = Arrays.copyOf(bytes, NULL_STRING - 1);
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, UTF_8);
+    }
+}
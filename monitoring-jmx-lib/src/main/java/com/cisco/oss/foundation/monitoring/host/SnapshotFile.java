@@ -0,0 +1,158 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.host;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * The layout of the snapshot files an agent shares with the host aggregator.
+ * <p>
+ * Each agent owns one file named <code>&lt;name&gt;-&lt;instance&gt;.snapshot</code>
+ * that it keeps mapped and overwrites in place. The file starts with a header
+ * of a magic number, a layout version, a sequence number, the length of the
+ * snapshot and a CRC32 of the header and snapshot, followed by the snapshot
+ * as written by {@link SnapshotCodec}. The snapshot is written before the
+ * header, so a reader that races a write sees a checksum mismatch and reads
+ * again.
+ */
+final class SnapshotFile {
+
+    static final String SUFFIX = ".snapshot";
+    static final int MAGIC = 0x464D4153;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotFile.class);
+    private static final int READ_ATTEMPTS = 3;
+
+    private SnapshotFile() {
+    }
+
+    static String fileName(String name, String instance) {
+        return instance == null || instance.trim().isEmpty() ? name + SUFFIX : name + "-" + instance + SUFFIX;
+    }
+
+    static File[] list(File directory) {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(SUFFIX);
+            }
+        });
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    /**
+     * Writes the header of a snapshot whose bytes are already in the buffer
+     * after the header.
+     */
+    static void putHeader(ByteBuffer buffer, long sequence, int length) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(sequence).putInt(length);
+        CRC32 crc = new CRC32();
+        crc.update(header.array(), 0, HEADER_SIZE - 4);
+        crc.update(payload(buffer, length));
+        header.putInt((int) crc.getValue());
+        buffer.position(0);
+        buffer.put(header.array());
+    }
+
+    /**
+     * @return the snapshot of the file, null if it has none or keeps failing its checksum
+     */
+    static AgentSnapshot read(File file) {
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                if (raf.length() < HEADER_SIZE) {
+                    return null;
+                }
+                MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+                if (buffer.getInt(0) == 0) {
+                    // created, nothing published yet
+                    return null;
+                }
+                for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+                    AgentSnapshot snapshot = read(file, buffer);
+                    if (snapshot != null) {
+                        return snapshot;
+                    }
+                }
+                LOGGER.warn("Ignoring snapshot {}: checksum mismatch", file);
+                return null;
+            } finally {
+                raf.close();
+            }
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            LOGGER.warn("Ignoring snapshot {}: {}", file, e.toString());
+            return null;
+        }
+    }
+
+    private static AgentSnapshot read(File file, ByteBuffer buffer) {
+        buffer.position(0);
+        byte[] header = new byte[HEADER_SIZE - 4];
+        buffer.get(header);
+        int checksum = buffer.getInt();
+        ByteBuffer fields = ByteBuffer.wrap(header);
+        int magic = fields.getInt();
+        int version = fields.getInt();
+        fields.getLong();
+        int length = fields.getInt();
+        if (magic != MAGIC || version != VERSION) {
+            throw new IllegalArgumentException("bad header");
+        }
+        if (length < 0 || length > buffer.capacity() - HEADER_SIZE) {
+            return null;
+        }
+        byte[] payload = payload(buffer, length);
+        CRC32 crc = new CRC32();
+        crc.update(header);
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        return SnapshotCodec.decode(ByteBuffer.wrap(payload));
+    }
+
+    private static byte[] payload(ByteBuffer buffer, int length) {
+        byte[] payload = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(HEADER_SIZE);
+        view.get(payload);
+        return payload;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.host;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * The framing of the snapshot transport between a {@link SnapshotServer} and
+ * a {@link SnapshotClient}.
+ * <p>
+ * Every message is a frame: an int length followed by that many bytes of
+ * body. The first byte of a body is the message type. A request is
+ * {@link #REQUEST_SNAPSHOT}, for the snapshot of the agent, optionally
+ * followed by the name and instance of one of the other components of the
+ * agent as unsigned short length prefixed UTF-8 strings, for the snapshot of
+ * that component. The answer is {@link #RESPONSE_SNAPSHOT}
+ * followed by the snapshot as written by {@link SnapshotCodec}, or
+ * {@link #RESPONSE_ERROR} followed by a UTF-8 message. A connection carries
+ * any number of requests, answered in order.
+ */
+final class SnapshotProtocol {
+
+    static final int LENGTH_SIZE = 4;
+    static final int MAX_REQUEST_SIZE = 1024;
+    static final int MAX_RESPONSE_SIZE = 64 * 1024 * 1024;
+    static final byte REQUEST_SNAPSHOT = 1;
+    static final byte RESPONSE_SNAPSHOT = 1;
+    static final byte RESPONSE_ERROR = 2;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private SnapshotProtocol() {
+    }
+
+    static ByteBuffer request() {
+        ByteBuffer frame = ByteBuffer.allocate(LENGTH_SIZE + 1);
+        frame.putInt(1).put(REQUEST_SNAPSHOT);
+        frame.flip();
+        return frame;
+    }
+
+    static ByteBuffer request(String name, String instance) {
+        byte[] nameBytes = name.getBytes(UTF_8);
+        byte[] instanceBytes = instance.getBytes(UTF_8);
+        int length = 1 + 2 + nameBytes.length + 2 + instanceBytes.length;
+        if (length > MAX_REQUEST_SIZE) {
+            throw new IllegalArgumentException("The component name and instance are too long");
+        }
+        ByteBuffer frame = ByteBuffer.allocate(LENGTH_SIZE + length);
+        frame.putInt(length).put(REQUEST_SNAPSHOT);
+        frame.putShort((short) nameBytes.length).put(nameBytes);
+        frame.putShort((short) instanceBytes.length).put(instanceBytes);
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * @return the name and instance of the component requested, null for the agent
+     */
+    static String[] requestedComponent(ByteBuffer body) {
+        if (!body.hasRemaining()) {
+            return null;
+        }
+        return new String[]{getString(body), getString(body)};
+    }
+
+    private static String getString(ByteBuffer body) {
+        byte[] bytes = new byte[body.getShort() & 0xFFFF];
+        body.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    static ByteBuffer snapshotResponse(ByteBuffer snapshot) {
+        ByteBuffer frame = ByteBuffer.allocate(LENGTH_SIZE + 1 + snapshot.remaining());
+        frame.putInt(1 + snapshot.remaining()).put(RESPONSE_SNAPSHOT).put(snapshot);
+        frame.flip();
+        return frame;
+    }
+
+    static ByteBuffer errorResponse(String message) {
+        byte[] bytes = message.getBytes(UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(LENGTH_SIZE + 1 + bytes.length);
+        frame.putInt(1 + bytes.length).put(RESPONSE_ERROR).put(bytes);
+        frame.flip();
+        return frame;
+    }
+
+    static String errorMessage(ByteBuffer body) {
+        byte[] bytes = new byte[body.remaining()];
+        body.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.host;
+
+import com.cisco.oss.foundation.monitoring.ConnectionInfoMXBean;
+import com.cisco.oss.foundation.monitoring.ConnectionStatus;
+import com.cisco.oss.foundation.monitoring.IComponentInfoMXBean;
+import com.cisco.oss.foundation.monitoring.MonitoredComponent;
+import com.cisco.oss.foundation.monitoring.component.data.ComponentInfo;
+import com.cisco.oss.foundation.monitoring.overhead.MonitoringOverhead;
+import com.cisco.oss.foundation.monitoring.serverconnection.ConnectionInfo;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnection;
+import com.cisco.oss.foundation.monitoring.services.Service;
+import com.cisco.oss.foundation.monitoring.services.ServiceInfo;
+import com.cisco.oss.foundation.monitoring.services.ServiceInfoMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the snapshot of this agent to the directory of the host
+ * aggregator at a fixed interval, so the agent needs neither an rmiregistry
+ * entry nor a connector of its own.
+ * <p>
+ * The snapshot file is memory-mapped and overwritten in place, so a publish is
+ * a copy into shared memory and the aggregator reads it from the page cache;
+ * see {@link SnapshotFile} for the layout. The file is removed when the
+ * publisher is stopped. A {@link MonitoredComponent} registered with the agent
+ * has a publisher, and a file, of its own.
+ */
+public class SnapshotPublisher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotPublisher.class);
+    private static final int INITIAL_MAPPED_SIZE = 64 * 1024;
+    private static final long STOP_TIMEOUT = 5000;
+
+    private final IComponentInfoMXBean component;
+    private final ServiceInfoMXBean serviceInfo;
+    private final ConnectionInfoMXBean connectionInfo;
+    private final File file;
+    private final RandomAccessFile raf;
+    private final ScheduledExecutorService scheduler;
+    private MappedByteBuffer mapped;
+    private long sequence;
+
+    /**
+     * Publishes the snapshot of the component of the agent under the given name and instance.
+     */
+    public SnapshotPublisher(File directory, String name, String instance) throws IOException {
+        this(directory, name, instance, ComponentInfo.INSTANCE, ServiceInfo.INSTANCE, ConnectionInfo.INSTANCE);
+    }
+
+    /**
+     * Publishes the snapshot of a component registered with the agent.
+     */
+    public SnapshotPublisher(File directory, MonitoredComponent component) throws IOException {
+        this(directory, component.getName(), component.getInstance(), component, component.getServiceInfo(), component.getConnectionInfo());
+    }
+
+    private SnapshotPublisher(File directory, String name, String instance, IComponentInfoMXBean component,
+                              ServiceInfoMXBean serviceInfo, ConnectionInfoMXBean connectionInfo) throws IOException {
+        this.component = component;
+        this.serviceInfo = serviceInfo;
+        this.connectionInfo = connectionInfo;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create the host aggregator directory " + directory);
+        }
+        this.file = new File(directory, SnapshotFile.fileName(name, instance));
+        this.raf = new RandomAccessFile(file, "rw");
+        this.mapped = map(INITIAL_MAPPED_SIZE);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "SnapshotPublisher");
+                thread.setDaemon(true);
+                MonitoringOverhead.INSTANCE.registerThread(thread);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Publishes a snapshot now and then every <code>interval</code> milliseconds.
+     */
+    public void start(long interval) {
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    publish(capture(component, serviceInfo, connectionInfo));
+                } catch (IOException e) {
+                    LOGGER.error("Failed to publish the snapshot to {}: {}", file, e.toString());
+                }
+            }
+        }, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops publishing and removes the snapshot file, so the aggregator stops
+     * serving this agent at once.
+     */
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close {}: {}", file, e.toString());
+            }
+            if (!file.delete()) {
+                LOGGER.warn("Failed to delete {}", file);
+            }
+        }
+    }
+
+    synchronized void publish(AgentSnapshot snapshot) throws IOException {
+        ByteBuffer payload = SnapshotCodec.encode(snapshot);
+        int length = payload.remaining();
+        if (SnapshotFile.HEADER_SIZE + length > mapped.capacity()) {
+            mapped = map(Math.max(mapped.capacity() * 2, SnapshotFile.HEADER_SIZE + length));
+        }
+        mapped.position(SnapshotFile.HEADER_SIZE);
+        mapped.put(payload);
+        SnapshotFile.putHeader(mapped, ++sequence, length);
+    }
+
+    /**
+     * @return the current attributes of the services and server connections of the component of the agent
+     */
+    static AgentSnapshot capture() {
+        return capture(ComponentInfo.INSTANCE, ServiceInfo.INSTANCE, ConnectionInfo.INSTANCE);
+    }
+
+    /**
+     * @return the current attributes of the services and server connections of the component
+     */
+    static AgentSnapshot capture(IComponentInfoMXBean component, ServiceInfoMXBean serviceInfo, ConnectionInfoMXBean connectionInfo) {
+        List<InterfaceSnapshot> services = new ArrayList<InterfaceSnapshot>();
+        for (Service service : serviceInfo.getServices()) {
+            services.add(new InterfaceSnapshot(service.getServiceDescription(), service.getInterfaceName(),
+                    service.getMethodName(), service.getProtocol(), null, service.getPort(),
+                    service.getTotalRequestCount(), service.getFailedRequestCount(),
+                    time(service.getLastFailedRequestTime()), service.getLastFailedRequestDescription(),
+                    time(service.getLastSuccessfulRequestTime()), time(service.getLastTransactionStartTime()),
+                    time(service.getLastTransactionEndTime()), service.getLastTransactionProcessingTime(),
+                    statusName(service.getTransactionStatus()), service.getTps(), service.getSampledFraction(),
+                    service.getUsedThreads(), 0, service.getInFlightTransactions(),
+                    service.getPeakInFlightTransactions(), service.getAverageInFlightTransactions()));
+        }
+        List<InterfaceSnapshot> serverConnections = new ArrayList<InterfaceSnapshot>();
+        for (ServerConnection connection : connectionInfo.getServerConnections()) {
+            serverConnections.add(new InterfaceSnapshot(connection.getServerName(), connection.getInterfaceName(),
+                    connection.getMethodName(), null, connection.getHostName(), connection.getDestinationPort(),
+                    connection.getTotalRequestCount(), connection.getFailedRequestCount(),
+                    time(connection.getLastFailedRequestTime()), connection.getLastFailedRequestDescription(),
+                    time(connection.getLastSuccessfulRequestTime()), time(connection.getLastTransactionStartTime()),
+                    time(connection.getLastTransactionEndTime()), connection.getLastTransactionProcessingTime(),
+                    statusName(connection.getTransactionStatus()), connection.getTps(), 1, 0,
+                    connection.getOpenSince(), connection.getInFlightTransactions(),
+                    connection.getPeakInFlightTransactions(), connection.getAverageInFlightTransactions()));
+        }
+        return new AgentSnapshot(component.getName(), component.getInstance(),
+                component.getVersion(), System.currentTimeMillis(), services, serverConnections);
+    }
+
+    private static String statusName(ConnectionStatus status) {
+        return status != null ? status.name() : null;
+    }
+
+    private static long time(Date date) {
+        return date != null ? date.getTime() : 0;
+    }
+
+    private MappedByteBuffer map(int size) throws IOException {
+        if (raf.length() < size) {
+            raf.setLength(size);
+        }
+        return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.host;
+
+import com.cisco.oss.foundation.monitoring.MonitoredComponent;
+import com.cisco.oss.foundation.monitoring.overhead.MonitoringOverhead;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Serves the snapshot of this agent, its component, services and server
+ * connections, over plain TCP in the framed binary protocol of
+ * {@link SnapshotProtocol}, as a lighter alternative to polling the MBeans
+ * over JMX/RMI: a poll is one small request frame and one response frame on a
+ * connection kept open, with no serialization of the open types and no
+ * distributed garbage collection.
+ * <p>
+ * One selector thread accepts the connections and answers the requests; a
+ * snapshot is taken for every request. The snapshots of the
+ * {@link MonitoredComponent}s added to the server are served on the same port,
+ * to requests that name the component.
+ */
+public class SnapshotServer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotServer.class);
+    private static final long STOP_TIMEOUT = 5000;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Thread thread;
+    private final ConcurrentMap<String, MonitoredComponent> components = new ConcurrentHashMap<String, MonitoredComponent>();
+    private volatile boolean running = true;
+
+    /**
+     * Binds the server; it answers once {@link #start()} is called.
+     */
+    public SnapshotServer(InetSocketAddress address) throws IOException {
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.configureBlocking(false);
+            serverChannel.socket().setReuseAddress(true);
+            serverChannel.bind(address);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                serve();
+            }
+        }, "SnapshotServer");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        MonitoringOverhead.INSTANCE.registerThread(thread);
+        thread.start();
+        LOGGER.info("Serving snapshots on port " + getPort());
+    }
+
+    /**
+     * Serves the snapshot of the component too, from now on.
+     */
+    public void addComponent(MonitoredComponent component) {
+        components.put(componentKey(component.getName(), component.getInstance()), component);
+    }
+
+    public void removeComponent(MonitoredComponent component) {
+        components.remove(componentKey(component.getName(), component.getInstance()), component);
+    }
+
+    /**
+     * @return the port the server is bound to
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Stops answering and closes every connection.
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(STOP_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void serve() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            if (key.isReadable()) {
+                                read(key);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                write(key);
+                            }
+                        }
+                    } catch (IOException e) {
+                        LOGGER.debug("Closing snapshot connection: {}", e.toString());
+                        close(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Snapshot server failed: {}", e.toString());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                close(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close the snapshot server selector: {}", e.toString());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.register(selector, SelectionKey.OP_READ, new Connection());
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        if (connection.body == null) {
+            if (channel.read(connection.length) < 0) {
+                close(key);
+                return;
+            }
+            if (connection.length.hasRemaining()) {
+                return;
+            }
+            int length = connection.length.getInt(0);
+            if (length <= 0 || length > SnapshotProtocol.MAX_REQUEST_SIZE) {
+                throw new IOException("Bad request length " + length);
+            }
+            connection.body = ByteBuffer.allocate(length);
+        }
+        if (channel.read(connection.body) < 0) {
+            close(key);
+            return;
+        }
+        if (connection.body.hasRemaining()) {
+            return;
+        }
+        ByteBuffer body = connection.body;
+        body.flip();
+        connection.length.clear();
+        connection.body = null;
+        connection.response = respond(body);
+        // the next request is read once this response is written
+        key.interestOps(SelectionKey.OP_WRITE);
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        ((SocketChannel) key.channel()).write(connection.response);
+        if (!connection.response.hasRemaining()) {
+            connection.response = null;
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private ByteBuffer respond(ByteBuffer body) {
+        byte type = body.get();
+        if (type != SnapshotProtocol.REQUEST_SNAPSHOT) {
+            return SnapshotProtocol.errorResponse("Unknown request type " + type);
+        }
+        try {
+            String[] requested = SnapshotProtocol.requestedComponent(body);
+            if (requested == null) {
+                return SnapshotProtocol.snapshotResponse(SnapshotCodec.encode(SnapshotPublisher.capture()));
+            }
+            MonitoredComponent component = components.get(componentKey(requested[0], requested[1]));
+            if (component == null) {
+                return SnapshotProtocol.errorResponse("Unknown component " + requested[0] + ":" + requested[1]);
+            }
+            return SnapshotProtocol.snapshotResponse(SnapshotCodec.encode(SnapshotPublisher.capture(component,
+                    component.getServiceInfo(), component.getConnectionInfo())));
+        } catch (BufferUnderflowException e) {
+            return SnapshotProtocol.errorResponse("Bad snapshot request");
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to take a snapshot: {}", e.toString());
+            return SnapshotProtocol.errorResponse("Failed to take a snapshot: " + e);
+        }
+    }
+
+    private static String componentKey(String name, String instance) {
+        return name + ':' + instance;
+    }
+
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to close a snapshot connection: {}", e.toString());
+        }
+    }
+
+    private static final class Connection {
+        private final ByteBuffer length = ByteBuffer.allocate(SnapshotProtocol.LENGTH_SIZE);
+        private ByteBuffer body;
+        private ByteBuffer response;
+    }
+}
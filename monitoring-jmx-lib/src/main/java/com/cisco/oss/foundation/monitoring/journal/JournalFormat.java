@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.journal;
+
+import com.cisco.oss.foundation.monitoring.ExceptionSeverity;
+import com.cisco.oss.foundation.monitoring.notification.NotificationHistoryEntry;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * The binary layout of the notification journal.
+ * <p>
+ * A journal is a directory of fixed size segment files named
+ * <code>notifications-&lt;index&gt;.journal</code>. A segment is a sequence of
+ * records, each an int length followed by that many bytes of body. The length
+ * is written after the body, so a length of 0 means the record is not complete
+ * yet and marks the end of what can be read. A length of -1 marks the end of a
+ * segment whose remaining space was too small for the next record.
+ * <p>
+ * A body holds the sequence and time as longs, the kind and severity as bytes
+ * (the severity ordinal plus one, 0 for none) and the component name, id and
+ * summary as unsigned short length prefixed UTF-8 strings; a length of 0xFFFF
+ * stands for null.
+ */
+final class JournalFormat {
+
+    static final String SEGMENT_PREFIX = "notifications-";
+    static final String SEGMENT_SUFFIX = ".journal";
+    static final int LENGTH_SIZE = 4;
+    static final int END_OF_SEGMENT = -1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int NULL_STRING = 0xFFFF;
+    private static final String[] KINDS = {NotificationHistoryEntry.KIND_NOTIFICATION,
+            NotificationHistoryEntry.KIND_TRANSACTION, NotificationHistoryEntry.KIND_EXCEPTION};
+
+    private JournalFormat() {
+    }
+
+    static String segmentName(long index) {
+        return String.format("%s%019d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+    }
+
+    static long segmentIndex(File segment) {
+        String name = segment.getName();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * @return the segment files of the journal, oldest first
+     */
+    static File[] listSegments(File directory) {
+        File[] segments = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (segments == null) {
+            return new File[0];
+        }
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Encodes the body of the record into a buffer of exactly its size, ready
+     * to be read.
+     *
+     * @return null if the body is larger than <code>maxSize</code>
+     */
+    static ByteBuffer encode(NotificationHistoryEntry entry, int maxSize) {
+        byte[] componentName = bytes(entry.getComponentName());
+        byte[] id = bytes(entry.getId());
+        byte[] summary = bytes(entry.getSummary());
+        int size = 8 + 8 + 1 + 1 + stringSize(componentName) + stringSize(id) + stringSize(summary);
+        if (size > maxSize) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(entry.getSequence());
+        buffer.putLong(entry.getTimeOfOccurance().getTime());
+        buffer.put((byte) indexOf(KINDS, entry.getKind()));
+        buffer.put((byte) (entry.getSeverity() != null ? ExceptionSeverity.valueOf(entry.getSeverity()).ordinal() + 1 : 0));
+        putString(buffer, componentName);
+        putString(buffer, id);
+        putString(buffer, summary);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Reads a record body from the position of the buffer.
+     */
+    static NotificationHistoryEntry decode(ByteBuffer buffer) {
+        long sequence = buffer.getLong();
+        long time = buffer.getLong();
+        String kind = KINDS[buffer.get()];
+        int severityCode = buffer.get();
+        String severity = severityCode > 0 ? ExceptionSeverity.values()[severityCode - 1].name() : null;
+        String componentName = getString(buffer);
+        String id = getString(buffer);
+        String summary = getString(buffer);
+        return new NotificationHistoryEntry(sequence, kind, componentName, id, new Date(time), severity, summary);
+    }
+
+    private static byte[] bytes(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        return bytes.length < NULL_STRING ? bytes : Arrays.copyOf(bytes, NULL_STRING - 1);
+    }
+
+    private static int stringSize(byte[] value) {
+        return 2 + (value != null ? value.length : 0);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putShort((short) NULL_STRING);
+        } else {
+            buffer.putShort((short) value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, UTF_8);
+    }
+
+    private static int indexOf(String[] values, String value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.journal;
+
+import com.cisco.oss.foundation.monitoring.notification.NotificationHistoryEntry;
+import com.cisco.oss.foundation.monitoring.notification.NotificationInfoMXBean;
+import com.cisco.oss.foundation.monitoring.overhead.MonitoringOverhead;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appends notifications to a memory-mapped, segment rotated journal on the
+ * local disk for post-mortem analysis. See {@link JournalFormat} for the
+ * layout and {@link NotificationJournalReader} to read it back.
+ * <p>
+ * Appends never lock and never wait for the disk: a record claims its space
+ * in the current segment with a single atomic add and is copied into the
+ * mapping, which the operating system writes back even if the process dies.
+ * The next segment is created and its pages touched ahead of time by a
+ * background thread; the thread that fills a segment swaps the prepared one
+ * in. If the background thread has fallen behind, or a record is larger than
+ * 64KB, the record is dropped and counted rather than making the caller wait.
+ */
+public class NotificationJournal {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_MAX_SEGMENTS = 16;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationJournal.class);
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+    private static final int PAGE_SIZE = 4096;
+
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final AtomicReference<Segment> current = new AtomicReference<Segment>();
+    private final AtomicReference<Segment> next = new AtomicReference<Segment>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong appendedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final Thread preallocator;
+    private long nextIndex;
+    private volatile boolean running = true;
+
+    public NotificationJournal(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+    }
+
+    /**
+     * Opens the journal in <code>directory</code>, continuing the sequence of
+     * the records already there in a new segment.
+     *
+     * @param directory   where the segment files are kept
+     * @param segmentSize size in bytes of a segment file
+     * @param maxSegments number of segment files kept, the oldest are deleted
+     */
+    public NotificationJournal(File directory, int segmentSize, int maxSegments) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create the notification journal directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(2, maxSegments);
+
+        File[] segments = JournalFormat.listSegments(directory);
+        this.nextIndex = segments.length > 0 ? JournalFormat.segmentIndex(segments[segments.length - 1]) + 1 : 0;
+        this.sequence.set(new NotificationJournalReader(directory).getLastSequence());
+        this.current.set(createSegment());
+        this.next.set(createSegment());
+
+        this.preallocator = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                preallocate();
+            }
+        }, "NotificationJournal");
+        this.preallocator.setDaemon(true);
+        MonitoringOverhead.INSTANCE.registerThread(this.preallocator);
+        this.preallocator.start();
+    }
+
+    /**
+     * Appends the notification to the journal. Never blocks.
+     *
+     * @return false if the notification was dropped
+     */
+    public boolean append(NotificationInfoMXBean data) {
+        NotificationHistoryEntry entry = NotificationHistoryEntry.from(sequence.incrementAndGet(), data);
+        ByteBuffer body = JournalFormat.encode(entry, MAX_RECORD_SIZE);
+        if (body == null) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        int recordSize = JournalFormat.LENGTH_SIZE + body.remaining();
+
+        while (true) {
+            Segment segment = current.get();
+            if (segment == null) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+            long position = segment.claimed.getAndAdd(recordSize);
+            if (position + recordSize <= segmentSize) {
+                segment.write((int) position, body);
+                appendedCount.incrementAndGet();
+                return true;
+            }
+            if (position + JournalFormat.LENGTH_SIZE <= segmentSize) {
+                segment.buffer.putInt((int) position, JournalFormat.END_OF_SEGMENT);
+            }
+            if (!rotate(segment)) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Stops the background thread and flushes the current segment to disk.
+     * Notifications appended afterwards are dropped.
+     */
+    public void close() {
+        running = false;
+        LockSupport.unpark(preallocator);
+        Segment segment = current.getAndSet(null);
+        if (segment != null) {
+            segment.buffer.force();
+        }
+    }
+
+    public long getAppendedCount() {
+        return appendedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return the sequence given to the most recent notification
+     */
+    public long getLastSequence() {
+        return sequence.get();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return false if no segment was ready to replace the full one
+     */
+    private boolean rotate(Segment full) {
+        if (current.get() != full) {
+            return true;
+        }
+        Segment replacement = next.getAndSet(null);
+        if (replacement == null) {
+            return current.get() != full;
+        }
+        if (current.compareAndSet(full, replacement)) {
+            LockSupport.unpark(preallocator);
+        } else if (!next.compareAndSet(null, replacement)) {
+            LOGGER.debug("Discarding unused notification journal segment {}", replacement.file);
+            replacement.file.delete();
+        }
+        return true;
+    }
+
+    private void preallocate() {
+        while (running) {
+            try {
+                if (next.get() == null) {
+                    Segment segment = createSegment();
+                    if (!next.compareAndSet(null, segment)) {
+                        segment.file.delete();
+                    }
+                    deleteOldSegments();
+                }
+            } catch (IOException e) {
+                LOGGER.error("Failed to create a notification journal segment: {}", e.toString());
+            }
+            LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    private Segment createSegment() throws IOException {
+        File file = new File(directory, JournalFormat.segmentName(nextIndex++));
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(segmentSize);
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            for (int page = 0; page < segmentSize; page += PAGE_SIZE) {
+                buffer.put(page, (byte) 0);
+            }
+            return new Segment(file, buffer);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void deleteOldSegments() {
+        File[] segments = JournalFormat.listSegments(directory);
+        for (int i = 0; i < segments.length - maxSegments; i++) {
+            if (!segments[i].delete()) {
+                LOGGER.warn("Failed to delete notification journal segment {}", segments[i]);
+            }
+        }
+    }
+
+    private static final class Segment {
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private final AtomicLong claimed = new AtomicLong();
+
+        private Segment(File file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Copies the body after the length, then publishes the length.
+         */
+        private void write(int position, ByteBuffer body) {
+            ByteBuffer target = buffer.duplicate();
+            target.position(position + JournalFormat.LENGTH_SIZE);
+            int length = body.remaining();
+            target.put(body);
+            buffer.putInt(position, length);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.journal;
+
+import com.cisco.oss.foundation.monitoring.notification.NotificationHistoryEntry;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a notification journal written by {@link NotificationJournal}, from
+ * this or another process.
+ * <p>
+ * {@link #query(long, long)} scans the whole journal. {@link #poll()} keeps a
+ * cursor and returns only what was appended since the previous call, which is
+ * how the journal is tailed. A tailing reader moves on to the next segment as
+ * soon as records appear in it, so a record still being written at the very
+ * end of the previous segment is only seen by a later query.
+ */
+public class NotificationJournalReader {
+
+    private final File directory;
+    private long segmentIndex = -1;
+    private MappedByteBuffer segment;
+    private int position;
+
+    public NotificationJournalReader(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the records whose time of occurrence is within
+     * [<code>from</code>, <code>to</code>], in the order they were appended
+     */
+    public List<NotificationHistoryEntry> query(long from, long to) throws IOException {
+        List<NotificationHistoryEntry> entries = new ArrayList<NotificationHistoryEntry>();
+        for (File file : JournalFormat.listSegments(directory)) {
+            MappedByteBuffer buffer = map(file);
+            if (buffer == null) {
+                continue;
+            }
+            int offset = 0;
+            while (true) {
+                int length = lengthAt(buffer, offset);
+                if (length <= 0) {
+                    break;
+                }
+                NotificationHistoryEntry entry = decodeAt(buffer, offset);
+                long time = entry.getTimeOfOccurance().getTime();
+                if (time >= from && time <= to) {
+                    entries.add(entry);
+                }
+                offset += JournalFormat.LENGTH_SIZE + length;
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Only reads the newest segment that holds records, and only the sequence
+     * of each record in it.
+     *
+     * @return the highest sequence in the journal, 0 if it is empty
+     */
+    public long getLastSequence() throws IOException {
+        File[] segments = JournalFormat.listSegments(directory);
+        for (int i = segments.length - 1; i >= 0; i--) {
+            MappedByteBuffer buffer = map(segments[i]);
+            if (buffer == null || lengthAt(buffer, 0) == 0) {
+                continue;
+            }
+            long last = 0;
+            int offset = 0;
+            while (true) {
+                int length = lengthAt(buffer, offset);
+                if (length <= 0) {
+                    return last;
+                }
+                last = Math.max(last, buffer.getLong(offset + JournalFormat.LENGTH_SIZE));
+                offset += JournalFormat.LENGTH_SIZE + length;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Moves the cursor to the end of the journal, so the next {@link #poll()}
+     * returns only records appended from now on.
+     */
+    public void seekToEnd() throws IOException {
+        poll();
+    }
+
+    /**
+     * @return the records appended since the previous call, oldest first
+     */
+    public List<NotificationHistoryEntry> poll() throws IOException {
+        List<NotificationHistoryEntry> entries = new ArrayList<NotificationHistoryEntry>();
+        while (true) {
+            if (segment == null && !openNextSegment()) {
+                return entries;
+            }
+            int length = lengthAt(segment, position);
+            if (length > 0) {
+                entries.add(decodeAt(segment, position));
+                position += JournalFormat.LENGTH_SIZE + length;
+            } else if ((length == JournalFormat.END_OF_SEGMENT || newerSegmentHasRecords()) && openNextSegment()) {
+                continue;
+            } else {
+                return entries;
+            }
+        }
+    }
+
+    private boolean openNextSegment() throws IOException {
+        for (File file : JournalFormat.listSegments(directory)) {
+            long index = JournalFormat.segmentIndex(file);
+            if (index > segmentIndex) {
+                MappedByteBuffer buffer = map(file);
+                if (buffer != null) {
+                    segmentIndex = index;
+                    segment = buffer;
+                    position = 0;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The writer prepares the next segment before it is needed, so a newer
+     * segment only means the current one is abandoned once records were
+     * written to it. A writer that was closed leaves its prepared segment
+     * empty, and the restarted writer continues in a segment after it, so all
+     * newer segments are checked and not only the next one.
+     */
+    private boolean newerSegmentHasRecords() throws IOException {
+        for (File file : JournalFormat.listSegments(directory)) {
+            if (JournalFormat.segmentIndex(file) > segmentIndex) {
+                MappedByteBuffer buffer = map(file);
+                if (buffer != null && lengthAt(buffer, 0) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the length of the record at <code>offset</code>, 0 if there is
+     * none yet, {@link JournalFormat#END_OF_SEGMENT} at the end of the segment
+     */
+    private static int lengthAt(MappedByteBuffer buffer, int offset) {
+        if (offset + JournalFormat.LENGTH_SIZE > buffer.capacity()) {
+            return JournalFormat.END_OF_SEGMENT;
+        }
+        return buffer.getInt(offset);
+    }
+
+    private static NotificationHistoryEntry decodeAt(MappedByteBuffer buffer, int offset) {
+        ByteBuffer body = buffer.duplicate();
+        body.position(offset + JournalFormat.LENGTH_SIZE);
+        return JournalFormat.decode(body);
+    }
+
+    /**
+     * @return null if the segment was deleted in the meantime
+     */
+    private static MappedByteBuffer map(File file) throws IOException {
+        RandomAccessFile raf;
+        try {
+            raf = new RandomAccessFile(file, "r");
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        try {
+            return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        } finally {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.journal;
+
+import com.cisco.oss.foundation.monitoring.notification.NotificationHistoryEntry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.List;
+
+/**
+ * Command line access to a notification journal.
+ * <pre>
+ * NotificationJournalTool &lt;journal directory&gt; query [from [to]]
+ * NotificationJournalTool &lt;journal directory&gt; tail [-f]
+ * </pre>
+ * <code>query</code> prints the records whose time of occurrence is in the
+ * range; times are given as <code>yyyy-MM-dd'T'HH:mm:ss</code> or as
+ * milliseconds since the epoch. <code>tail</code> prints the last records and,
+ * with <code>-f</code>, keeps printing new ones as they are appended.
+ */
+public class NotificationJournalTool {
+
+    private static final String TIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss";
+    private static final String OUTPUT_TIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSS";
+    private static final int TAIL_LINES = 20;
+    private static final long FOLLOW_INTERVAL = 500;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            usage();
+            System.exit(1);
+        }
+        File directory = new File(args[0]);
+        NotificationJournalReader reader = new NotificationJournalReader(directory);
+        if ("query".equals(args[1])) {
+            long from = args.length > 2 ? parseTime(args[2]) : Long.MIN_VALUE;
+            long to = args.length > 3 ? parseTime(args[3]) : Long.MAX_VALUE;
+            print(reader.query(from, to), System.out);
+        } else if ("tail".equals(args[1])) {
+            tail(reader, args.length > 2 && "-f".equals(args[2]), System.out);
+        } else {
+            usage();
+            System.exit(1);
+        }
+    }
+
+    private static void tail(NotificationJournalReader reader, boolean follow, PrintStream out) throws IOException, InterruptedException {
+        List<NotificationHistoryEntry> entries = reader.poll();
+        print(entries.subList(Math.max(0, entries.size() - TAIL_LINES), entries.size()), out);
+        while (follow) {
+            Thread.sleep(FOLLOW_INTERVAL);
+            print(reader.poll(), out);
+        }
+    }
+
+    private static void print(List<NotificationHistoryEntry> entries, PrintStream out) {
+        SimpleDateFormat format = new SimpleDateFormat(OUTPUT_TIME_FORMAT);
+        for (NotificationHistoryEntry entry : entries) {
+            StringBuilder line = new StringBuilder();
+            line.append(format.format(entry.getTimeOfOccurance())).append(' ')
+                    .append(entry.getSequence()).append(' ')
+                    .append(entry.getKind());
+            if (entry.getSeverity() != null) {
+                line.append(' ').append(entry.getSeverity());
+            }
+            line.append(" component=").append(entry.getComponentName())
+                    .append(" id=").append(entry.getId());
+            if (entry.getSummary() != null) {
+                line.append(" : ").append(entry.getSummary());
+            }
+            out.println(line);
+        }
+        out.flush();
+    }
+
+    private static long parseTime(String time) throws ParseException {
+        try {
+            return Long.parseLong(time);
+        } catch (NumberFormatException e) {
+            return new SimpleDateFormat(TIME_FORMAT).parse(time).getTime();
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: NotificationJournalTool <journal directory> query [from [to]]");
+        System.err.println("       NotificationJournalTool <journal directory> tail [-f]");
+        System.err.println("Times are " + TIME_FORMAT + " or milliseconds since the epoch.");
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.cisco.oss.foundation.monitoring;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Locale;
+
+public class TestRegistryFinder {
+
+    @Test
+    public void spawnsProcessesThatSurviveAnInterrupt() throws Exception {
+        Assume.assumeFalse(System.getProperty("os.name").toLowerCase(Locale.getDefault()).contains("windows"));
+
+        // interrupts itself the way a Ctrl-C in the terminal of the agent would
+        Process process = new ProcessBuilder(RegistryFinder.detached("/bin/sh", "-c", "kill -INT $$; exit 3"))
+                .redirectErrorStream(true)
+                .redirectOutput(new File("/dev/null"))
+                .start();
+
+        Assert.assertEquals(3, process.waitFor());
+    }
+}
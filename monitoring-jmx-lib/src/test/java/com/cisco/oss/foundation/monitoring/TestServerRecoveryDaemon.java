@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.cisco.oss.foundation.monitoring;
+
+import com.cisco.oss.foundation.monitoring.overhead.MonitoringOverhead;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestServerRecoveryDaemon {
+
+    private static final String SERVICE_NAME = "jmxrmi/recovery";
+
+    @Test
+    public void recreatesTheConnectorOnceItsBindingIsGone() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        final Registry registry = LocateRegistry.createRegistry(port);
+        final AtomicInteger recoveries = new AtomicInteger();
+        final CountDownLatch recovered = new CountDownLatch(1);
+        ServerRecoveryDaemon daemon = new ServerRecoveryDaemon(SERVICE_NAME, port, 20, 40, new ServerRecoveryDaemon.Recovery() {
+            @Override
+            public void recover() throws IOException {
+                recoveries.incrementAndGet();
+                registry.rebind(SERVICE_NAME, registry);
+                recovered.countDown();
+            }
+        });
+        try {
+            registry.bind(SERVICE_NAME, registry);
+            long recoveryCount = MonitoringOverhead.INSTANCE.getConnectorRecoveryCount();
+            daemon.start();
+
+            // nothing to recover while the connector stays bound
+            Thread.sleep(200);
+            Assert.assertEquals(0, recoveries.get());
+
+            // the binding is lost, as when an out-of-process registry restarts
+            registry.unbind(SERVICE_NAME);
+            Assert.assertTrue(recovered.await(10, TimeUnit.SECONDS));
+            Assert.assertNotNull(registry.lookup(SERVICE_NAME));
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (MonitoringOverhead.INSTANCE.getConnectorRecoveryCount() == recoveryCount
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(recoveryCount + 1, MonitoringOverhead.INSTANCE.getConnectorRecoveryCount());
+
+            // bound again, so the daemon backs off instead of recovering once more
+            Thread.sleep(200);
+            Assert.assertEquals(1, recoveries.get());
+        } finally {
+            daemon.interrupt();
+            daemon.join(5000);
+            UnicastRemoteObject.unexportObject(registry, true);
+        }
+        Assert.assertFalse(daemon.isAlive());
+    }
+}
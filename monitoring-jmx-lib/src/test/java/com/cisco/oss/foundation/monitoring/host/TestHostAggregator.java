@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.host;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class TestHostAggregator {
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws Exception {
+        directory = File.createTempFile("aggregator", "");
+        directory.delete();
+    }
+
+    @After
+    public void deleteDirectory() {
+        for (File file : SnapshotFile.list(directory)) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void servesTheLatestSnapshotOfEveryAgent() throws Exception {
+        SnapshotPublisher first = new SnapshotPublisher(directory, "first", "Instance1");
+        SnapshotPublisher second = new SnapshotPublisher(directory, "second", "Instance1");
+        first.publish(snapshot("first", 1000, 10, 1));
+        first.publish(snapshot("first", 2000, 20000, 2));
+        second.publish(snapshot("second", 2000, 30, 3));
+
+        List<AgentSnapshot> agents = HostAggregator.readAgents(directory, 5000, 2500);
+        Assert.assertEquals(2, agents.size());
+        AgentSnapshot agent = agents.get(0);
+        Assert.assertEquals("first", agent.getName());
+        Assert.assertEquals("Instance1", agent.getInstance());
+        Assert.assertEquals(2000, agent.getPublishTime());
+        Assert.assertEquals(20000, agent.getServices().size());
+        InterfaceSnapshot service = agent.getServices().get(19999);
+        Assert.assertEquals("service19999", service.getName());
+        Assert.assertEquals(19999, service.getTotalRequestCount());
+        Assert.assertEquals(2, service.getFailedRequestCount());
+        Assert.assertEquals("Healthy", service.getTransactionStatus());
+        Assert.assertEquals(1.5, service.getTps(), 0);
+        Assert.assertEquals("http", service.getProtocol());
+        Assert.assertEquals("failed", service.getLastFailedRequestDescription());
+        Assert.assertEquals(2000, service.getLastFailedRequestTime());
+        Assert.assertEquals(0.5, service.getSampledFraction(), 0);
+        Assert.assertEquals(4, service.getUsedThreads());
+        Assert.assertEquals(3, service.getPeakInFlightTransactions());
+        Assert.assertEquals(1.25, service.getAverageInFlightTransactions(), 0);
+        InterfaceSnapshot connection = agent.getServerConnections().get(0);
+        Assert.assertNull(connection.getTransactionStatus());
+        Assert.assertEquals("localhost", connection.getHostName());
+        Assert.assertEquals(0.25, connection.getTps(), 0);
+        Assert.assertEquals(40, connection.getOpenSince());
+        Assert.assertEquals("second", agents.get(1).getName());
+
+        second.stop();
+        Assert.assertEquals(1, HostAggregator.readAgents(directory, 5000, 2500).size());
+        Assert.assertEquals(0, HostAggregator.readAgents(directory, 5000, 8000).size());
+        first.stop();
+    }
+
+    private static AgentSnapshot snapshot(String name, long publishTime, int services, long failed) {
+        List<InterfaceSnapshot> interfaces = new ArrayList<InterfaceSnapshot>();
+        for (int i = 0; i < services; i++) {
+            interfaces.add(new InterfaceSnapshot("service" + i, "api", "get", "http", null, 8080, i, failed, publishTime,
+                    "failed", publishTime, publishTime, publishTime, 5, "Healthy", 1.5, 0.5, 4, 0, 2, 3, 1.25));
+        }
+        InterfaceSnapshot connection = new InterfaceSnapshot("server", "api", null, null, "localhost", 9090, 7, 0, 0,
+                null, publishTime, publishTime, publishTime, 3, null, 0.25, 1, 0, 40, 1, 1, 1);
+        return new AgentSnapshot(name, "Instance1", "1.0.0", publishTime, interfaces, Collections.singletonList(connection));
+    }
+}
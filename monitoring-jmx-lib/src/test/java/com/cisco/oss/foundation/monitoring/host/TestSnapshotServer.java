@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.host;
+
+import com.cisco.oss.foundation.monitoring.FoundationMonitoringConstants;
+import com.cisco.oss.foundation.monitoring.MonitoredComponent;
+import com.cisco.oss.foundation.monitoring.component.data.ComponentInfo;
+import com.cisco.oss.foundation.monitoring.serverconnection.ServerConnectionDetails;
+import com.cisco.oss.foundation.monitoring.services.ServiceDetails;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Map;
+
+public class TestSnapshotServer {
+
+    @Test
+    public void pollsSeveralAgentsConcurrently() throws Exception {
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        SnapshotServer first = new SnapshotServer(loopback);
+        SnapshotServer second = new SnapshotServer(loopback);
+        SnapshotServer stopped = new SnapshotServer(loopback);
+        first.start();
+        second.start();
+        stopped.start();
+        InetSocketAddress firstAddress = address(first);
+        InetSocketAddress secondAddress = address(second);
+        InetSocketAddress stoppedAddress = address(stopped);
+        stopped.stop();
+
+        SnapshotClient client = new SnapshotClient(5000);
+        try {
+            for (int poll = 0; poll < 3; poll++) {
+                Map<InetSocketAddress, AgentSnapshot> snapshots = client.poll(Arrays.asList(firstAddress, stoppedAddress, secondAddress));
+                Assert.assertEquals(Arrays.asList(firstAddress, secondAddress), Arrays.asList(snapshots.keySet().toArray()));
+                AgentSnapshot snapshot = snapshots.get(firstAddress);
+                Assert.assertEquals(ComponentInfo.INSTANCE.getName(), snapshot.getName());
+                Assert.assertEquals(ComponentInfo.INSTANCE.getInstance(), snapshot.getInstance());
+                Assert.assertNotNull(snapshot.getServices());
+                Assert.assertNotNull(snapshot.getServerConnections());
+            }
+        } finally {
+            client.close();
+            first.stop();
+            second.stop();
+        }
+    }
+
+    @Test
+    public void servesTheSnapshotOfARegisteredComponent() throws Exception {
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty(FoundationMonitoringConstants.MONITOR_ENABLED, true);
+        MonitoredComponent component = new MonitoredComponent("orders", "Instance1", "1.0.0", configuration);
+        SnapshotServer server = new SnapshotServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        SnapshotClient client = new SnapshotClient(5000);
+        try {
+            ServiceDetails serviceDetails = new ServiceDetails("served service", "served", "http", 8080);
+            component.transactionStarted(serviceDetails, "get");
+            component.transactionFinished(serviceDetails, "get", false, "");
+            ServerConnectionDetails connectionDetails = new ServerConnectionDetails("db", "db", "localhost", 8080, 5432);
+            component.transactionStarted(connectionDetails, "query");
+            component.transactionFinished(connectionDetails, "query", true, "timed out");
+            server.addComponent(component);
+            server.start();
+            InetSocketAddress serverAddress = address(server);
+
+            AgentSnapshot snapshot = null;
+            long deadline = System.currentTimeMillis() + 10000;
+            while ((snapshot == null || snapshot.getServices().isEmpty() || snapshot.getServerConnections().isEmpty())
+                    && System.currentTimeMillis() < deadline) {
+                snapshot = client.poll(serverAddress, "orders", "Instance1");
+                Thread.sleep(10);
+            }
+            Assert.assertEquals("orders", snapshot.getName());
+            Assert.assertEquals("Instance1", snapshot.getInstance());
+            Assert.assertEquals(1, snapshot.getServices().size());
+            InterfaceSnapshot service = snapshot.getServices().get(0);
+            Assert.assertEquals("http", service.getProtocol());
+            Assert.assertEquals(1, service.getSampledFraction(), 0);
+            Assert.assertEquals(1 / 30.0, service.getTps(), 1e-9);
+            Assert.assertEquals(1, snapshot.getServerConnections().size());
+            InterfaceSnapshot connection = snapshot.getServerConnections().get(0);
+            Assert.assertEquals("localhost", connection.getHostName());
+            Assert.assertEquals(5432, connection.getPort());
+            Assert.assertEquals(1, connection.getFailedRequestCount());
+            Assert.assertEquals("timed out", connection.getLastFailedRequestDescription());
+            Assert.assertTrue(connection.getLastFailedRequestTime() > 0);
+            Assert.assertEquals("Broken", connection.getTransactionStatus());
+            Assert.assertEquals(1 / 30.0, connection.getTps(), 1e-9);
+
+            Assert.assertFalse(answers(client, serverAddress, "billing"));
+            server.removeComponent(component);
+            Assert.assertFalse(answers(client, serverAddress, "orders"));
+        } finally {
+            client.close();
+            server.stop();
+            component.shutdown();
+        }
+    }
+
+    private static boolean answers(SnapshotClient client, InetSocketAddress agent, String name) {
+        try {
+            client.poll(agent, name, "Instance1");
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static InetSocketAddress address(SnapshotServer server) {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+    }
+}
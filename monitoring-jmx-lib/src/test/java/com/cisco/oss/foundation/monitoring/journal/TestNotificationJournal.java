@@ -0,0 +1,130 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.journal;
+
+import com.cisco.oss.foundation.monitoring.ExceptionNotificationMXBeanImpl;
+import com.cisco.oss.foundation.monitoring.ExceptionSeverity;
+import com.cisco.oss.foundation.monitoring.notification.NotificationHistoryEntry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class TestNotificationJournal {
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws Exception {
+        directory = File.createTempFile("journal", "");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @After
+    public void deleteDirectory() {
+        for (File file : JournalFormat.listSegments(directory)) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void appendsAcrossSegmentsAndReadsBack() throws Exception {
+        final NotificationJournal journal = new NotificationJournal(directory, 4096, 100);
+        NotificationJournalReader tail = new NotificationJournalReader(directory);
+        tail.seekToEnd();
+
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            final int writer = t;
+            writers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100; i++) {
+                        while (!journal.append(exception("writer" + writer, i))) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        List<NotificationHistoryEntry> entries = new NotificationJournalReader(directory).query(Long.MIN_VALUE, Long.MAX_VALUE);
+        Assert.assertEquals(400, entries.size());
+        Set<Long> sequences = new HashSet<Long>();
+        long lastSequence = 0;
+        for (NotificationHistoryEntry entry : entries) {
+            sequences.add(entry.getSequence());
+            lastSequence = Math.max(lastSequence, entry.getSequence());
+        }
+        Assert.assertEquals(400, sequences.size());
+        Assert.assertEquals(NotificationHistoryEntry.KIND_EXCEPTION, entries.get(0).getKind());
+        Assert.assertEquals("MAJOR", entries.get(0).getSeverity());
+        Assert.assertEquals("boom", entries.get(0).getSummary());
+        Assert.assertTrue(JournalFormat.listSegments(directory).length > 2);
+
+        Assert.assertEquals(400, tail.poll().size());
+        journal.close();
+        NotificationJournal reopened = new NotificationJournal(directory, 4096, 100);
+        Assert.assertEquals(lastSequence, reopened.getLastSequence());
+        reopened.close();
+    }
+
+    @Test
+    public void tailFollowsWriterRestart() throws Exception {
+        NotificationJournal journal = new NotificationJournal(directory, 4096, 100);
+        NotificationJournalReader tail = new NotificationJournalReader(directory);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(journal.append(exception("first", i)));
+        }
+        Assert.assertEquals(5, tail.poll().size());
+        journal.close();
+
+        NotificationJournal restarted = new NotificationJournal(directory, 4096, 100);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(restarted.append(exception("second", i)));
+        }
+        List<NotificationHistoryEntry> entries = tail.poll();
+        Assert.assertEquals(5, entries.size());
+        Assert.assertEquals("second", entries.get(0).getComponentName());
+        Assert.assertEquals(6, entries.get(0).getSequence());
+        Assert.assertEquals(10, new NotificationJournalReader(directory).query(Long.MIN_VALUE, Long.MAX_VALUE).size());
+        Assert.assertEquals(10, new NotificationJournalReader(directory).getLastSequence());
+        restarted.close();
+    }
+
+    private static ExceptionNotificationMXBeanImpl exception(String componentName, int id) {
+        ExceptionNotificationMXBeanImpl exception = new ExceptionNotificationMXBeanImpl();
+        exception.setComponentName(componentName);
+        exception.setId(String.valueOf(id));
+        exception.setSeverity(ExceptionSeverity.MAJOR);
+        exception.setTimeOfOccurance(new Date());
+        exception.setData("boom");
+        return exception;
+    }
+}
@@ -63,7 +63,7 @@ public class TestMultiService {
                 @Override
                 public void run() {
                    String apiName = (index%3)+"";
-                    CommunicationInfo.getCommunicationInfo().transactionStarted(serviceDetails, apiName, 125);
+                    CommunicationInfo.getCommunicationInfo().transactionStarted(serviceDetails, apiName);
                     try {
                         Thread.sleep(2);
                     } catch (InterruptedException e) {
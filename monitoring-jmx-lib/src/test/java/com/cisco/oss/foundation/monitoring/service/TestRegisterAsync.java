@@ -0,0 +1,190 @@
+/*
+ * Copyright 2014 Cisco Systems, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.cisco.oss.foundation.monitoring.service;
+
+import com.cisco.oss.foundation.monitoring.AgentStatus;
+import com.cisco.oss.foundation.monitoring.CommunicationInfo;
+import com.cisco.oss.foundation.monitoring.DefaultMonitoringMXBean;
+import com.cisco.oss.foundation.monitoring.FoundationMonitoringConstants;
+import com.cisco.oss.foundation.monitoring.RMIMonitoringAgent;
+import com.cisco.oss.foundation.monitoring.TransactionNotificationMXBeanImpl;
+import com.cisco.oss.foundation.monitoring.component.data.ComponentInfo;
+import com.cisco.oss.foundation.monitoring.exception.AgentAlreadyRegisteredException;
+import com.cisco.oss.foundation.monitoring.notification.NotificationHistoryEntry;
+import com.cisco.oss.foundation.monitoring.notification.NotificationInterfaceMXBean;
+import com.cisco.oss.foundation.monitoring.services.ServiceDetails;
+import com.cisco.oss.foundation.monitoring.services.ServiceInfo;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The agent registers once per JVM, so every scenario runs in a JVM of its own.
+ */
+public class TestRegisterAsync {
+
+    private static final long TIMEOUT = 60000;
+
+    @Test
+    public void completesWithTheAgentStatus() throws Exception {
+        runScenario("registers");
+    }
+
+    @Test
+    public void failsAndDropsTheQueuedNotifications() throws Exception {
+        runScenario("fails");
+    }
+
+    public static void main(String[] args) {
+        try {
+            Configuration configuration = new PropertiesConfiguration(TestRegisterAsync.class.getResource("/config.properties"));
+            configuration.setProperty(FoundationMonitoringConstants.MX_PORT, Integer.parseInt(args[1]));
+            configuration.setProperty(FoundationMonitoringConstants.EXPORTED_PORT, Integer.parseInt(args[2]));
+            if ("registers".equals(args[0])) {
+                registers(configuration);
+            } else {
+                fails(configuration);
+            }
+            System.exit(0);
+        } catch (Throwable t) {
+            t.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void registers(Configuration configuration) throws Exception {
+        RMIMonitoringAgent agent = RMIMonitoringAgent.getInstance();
+        ListenableFuture<AgentStatus> registration;
+        // the registration thread waits for the monitor of the agent, so nothing is registered inside this block
+        synchronized (agent) {
+            agent.sendNotification(notification("first"));
+            agent.sendNotification(notification("second"));
+            registration = agent.registerAsync(configuration);
+            agent.sendNotification(notification("third"));
+
+            ServiceDetails serviceDetails = new ServiceDetails("async service", "async", "junit", 12345);
+            CommunicationInfo.getCommunicationInfo().transactionStarted(serviceDetails, "get");
+            CommunicationInfo.getCommunicationInfo().transactionFinished(serviceDetails, "get", false, "");
+            long deadline = System.currentTimeMillis() + TIMEOUT;
+            while (ServiceInfo.INSTANCE.getServices().isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(1, ServiceInfo.INSTANCE.getServices().size());
+            Assert.assertFalse(registration.isDone());
+        }
+
+        AgentStatus status = registration.get(TIMEOUT, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(objectName("Application").toString(), status.getObjectName());
+        Assert.assertTrue(status.getServiceURL(), status.getServiceURL().contains(":" + configuration.getInt(FoundationMonitoringConstants.EXPORTED_PORT)));
+        Assert.assertSame(registration, agent.registerAsync(configuration));
+        Assert.assertEquals(Arrays.asList("first", "second", "third"), awaitNotificationIds("third"));
+    }
+
+    private static void fails(Configuration configuration) throws Exception {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        mbs.registerMBean(new DefaultMonitoringMXBean(), objectName("Application"));
+        RMIMonitoringAgent agent = RMIMonitoringAgent.getInstance();
+        agent.sendNotification(notification("stale"));
+
+        ListenableFuture<AgentStatus> registration = agent.registerAsync(configuration);
+        try {
+            registration.get(TIMEOUT, TimeUnit.MILLISECONDS);
+            Assert.fail("the application MBean is already registered");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof AgentAlreadyRegisteredException);
+        }
+
+        // the MBean server is known now, so this registers the notification MBean, which sends what is still queued
+        agent.sendNotification(notification("fresh"));
+        Assert.assertEquals(Collections.singletonList("fresh"), awaitNotificationIds("fresh"));
+    }
+
+    private static TransactionNotificationMXBeanImpl notification(String id) {
+        TransactionNotificationMXBeanImpl notification = new TransactionNotificationMXBeanImpl();
+        notification.setComponentName("async");
+        notification.setId(id);
+        return notification;
+    }
+
+    private static ObjectName objectName(String contentSource) throws Exception {
+        String objectName = FoundationMonitoringConstants.DOMAIN_NAME + ":name=" + ComponentInfo.INSTANCE.getName();
+        String instance = ComponentInfo.INSTANCE.getInstance();
+        if (instance != null && !instance.trim().isEmpty()) {
+            objectName += ",instance=" + instance;
+        }
+        return new ObjectName(objectName + ",contentSource=" + contentSource);
+    }
+
+    /**
+     * @return the ids of the notifications in the history, once the last one is there
+     */
+    private static List<String> awaitNotificationIds(String last) throws Exception {
+        NotificationInterfaceMXBean notifications = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+                objectName("NotificationMXBean"), NotificationInterfaceMXBean.class);
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (true) {
+            List<String> ids = new ArrayList<String>();
+            for (NotificationHistoryEntry entry : notifications.getNotificationsSince(0)) {
+                ids.add(entry.getId());
+            }
+            if (ids.contains(last) || System.currentTimeMillis() > deadline) {
+                return ids;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static void runScenario(String scenario) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classPath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+        Process process = new ProcessBuilder(java, "-cp", classPath, TestRegisterAsync.class.getName(), scenario,
+                String.valueOf(freePort()), String.valueOf(freePort())).redirectErrorStream(true).start();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        InputStream in = process.getInputStream();
+        byte[] buffer = new byte[4096];
+        for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+            output.write(buffer, 0, read);
+        }
+        Assert.assertEquals(output.toString("UTF-8"), 0, process.waitFor());
+    }
+
+    private static int freePort() throws Exception {
+        ServerSocket socket = new ServerSocket(0);
+        try {
+            return socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+    }
+}